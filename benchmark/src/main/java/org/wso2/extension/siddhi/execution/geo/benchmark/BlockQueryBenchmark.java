@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.RangeQueryDialect;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.StatementCache;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of the block and location of an IPv4 address in an embedded H2 database, with the queries and
+ * the connection handling of the RDBMS resolver. The 'between' strategy is the original range query, the
+ * 'nearestNetwork' strategy the single index seek of {@link RangeQueryDialect}. With no pinned connections every
+ * lookup borrows a connection from the pool and prepares its statement again. The tables are filled with 200 thousand
+ * blocks, and with the 3.5 million IPv4 blocks of a full GeoLite2 city database, where a BETWEEN scan costs most.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class BlockQueryBenchmark {
+
+    private static final int ADDRESS_COUNT = 1 << 14;
+
+    @Param({"between", "nearestNetwork"})
+    public String strategy;
+
+    @Param({"0", "8"})
+    public int pinnedConnections;
+
+    @Param({"200000", "3500000"})
+    public int blockCount;
+
+    private GeoDatabaseFixture database;
+    private StatementCache statementCache;
+    private String query;
+    private boolean checkBroadcast;
+    private long[] addresses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new GeoDatabaseFixture(blockCount, blockCount / 10);
+        statementCache = new StatementCache(database::getConnection, pinnedConnections, 30000);
+        checkBroadcast = "nearestNetwork".equals(strategy);
+        query = checkBroadcast ? RangeQueryDialect.H2.getNearestBlockLocationQuery() :
+                RangeQueryDialect.BETWEEN_BLOCK_LOCATION_QUERY;
+        String[] sampledAddresses = database.sampleAddresses(ADDRESS_COUNT);
+        addresses = new long[ADDRESS_COUNT];
+        for (int i = 0; i < ADDRESS_COUNT; i++) {
+            addresses[i] = IPAddressParser.parseIPv4(sampledAddresses[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        statementCache.closeAll();
+        database.close();
+    }
+
+    @Benchmark
+    public String findCountry() throws SQLException {
+        long address = addresses[ThreadLocalRandom.current().nextInt(ADDRESS_COUNT)];
+        try (StatementCache.Lease lease = statementCache.acquire()) {
+            PreparedStatement statement = lease.prepareStatement(query);
+            statement.setLong(1, address);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next() && (!checkBroadcast || resultSet.getLong(2) >= address)) {
+                    return resultSet.getString(4);
+                }
+                return null;
+            }
+        }
+    }
+}
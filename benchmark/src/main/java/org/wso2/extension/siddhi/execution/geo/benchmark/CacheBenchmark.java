@@ -0,0 +1,127 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.IPLocationCache;
+import org.wso2.extension.siddhi.execution.geo.internal.LRUCache;
+import org.wso2.extension.siddhi.execution.geo.internal.TinyLFUCache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the IP location caches under contention. Every thread mixes lookups and insertions of a skewed key set,
+ * where a small part of the addresses is looked up most of the time, as in the traffic of a typical deployment.
+ * The put ratio is the share of the operations which insert a location, as done after a cache miss.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private static final int KEY_COUNT = 1 << 16;
+    private static final int HOT_KEY_COUNT = KEY_COUNT / 20;
+
+    @Param({"10000"})
+    public int cacheSize;
+
+    @Param({"0.05", "0.5"})
+    public double putRatio;
+
+    private String[] keys;
+    private Location[] locations;
+    private LRUCache<String, Location> lruCache;
+    private TinyLFUCache<String, Location> tinyLfuCache;
+    private IPLocationCache ipLocationCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new String[KEY_COUNT];
+        locations = new Location[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+            locations[i] = new Location("Country" + (i % 200), "City" + (i % 5000), keys[i]);
+        }
+        lruCache = new LRUCache<>(cacheSize);
+        tinyLfuCache = new TinyLFUCache<>(cacheSize);
+        ipLocationCache = new IPLocationCache(cacheSize);
+        for (int i = 0; i < cacheSize; i++) {
+            lruCache.put(keys[i], locations[i]);
+            tinyLfuCache.put(keys[i], locations[i]);
+            ipLocationCache.put(keys[i], locations[i]);
+        }
+    }
+
+    /**
+     * Picks a key index where 80% of the picks fall into the 5% hot keys.
+     */
+    private static int nextKey(ThreadLocalRandom random) {
+        return random.nextInt(10) < 8 ? random.nextInt(HOT_KEY_COUNT) : random.nextInt(KEY_COUNT);
+    }
+
+    @Benchmark
+    public Location lruCache() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = nextKey(random);
+        if (random.nextDouble() < putRatio) {
+            return lruCache.put(keys[key], locations[key]);
+        }
+        return lruCache.get(keys[key]);
+    }
+
+    @Benchmark
+    public Location tinyLfuCache() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = nextKey(random);
+        if (random.nextDouble() < putRatio) {
+            tinyLfuCache.put(keys[key], locations[key]);
+            return null;
+        }
+        return tinyLfuCache.get(keys[key]);
+    }
+
+    @Benchmark
+    public Location ipLocationCache() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = nextKey(random);
+        if (random.nextDouble() < putRatio) {
+            ipLocationCache.put(keys[key], locations[key]);
+            return null;
+        }
+        return ipLocationCache.get(keys[key]);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded H2 database with the BLOCKS, LOCATION and IP_LOCATION tables of the documented schema, filled with
+ * synthetic data shaped like a GeoLite2 city database: blocks of /16 to /28 networks, most of them small, separated
+ * by unassigned gaps, and far fewer locations than blocks. The data is generated from a fixed seed, hence every run
+ * queries the same tables.
+ */
+public class GeoDatabaseFixture implements AutoCloseable {
+
+    private static final AtomicInteger DATABASE_COUNT = new AtomicInteger();
+    private static final int INSERT_BATCH_SIZE = 5000;
+    private static final long FIRST_NETWORK = IPAddressParser.parseIPv4("1.0.0.0");
+    private static final long FIRST_MULTICAST_ADDRESS = IPAddressParser.parseIPv4("224.0.0.0");
+    private static final int MAX_PREFIX_SHIFT = 12;
+
+    private final JdbcConnectionPool connectionPool;
+    private final long[] networks;
+    private final long[] broadcasts;
+    private final Random random = new Random(42);
+
+    /**
+     * @param blockCount    the number of rows in BLOCKS
+     * @param locationCount the number of rows in LOCATION
+     * @throws SQLException if the tables cannot be created
+     */
+    public GeoDatabaseFixture(int blockCount, int locationCount) throws SQLException {
+        connectionPool = JdbcConnectionPool.create("jdbc:h2:mem:geo-benchmark-" + DATABASE_COUNT.incrementAndGet()
+                + ";DB_CLOSE_DELAY=-1", "sa", "");
+        connectionPool.setMaxConnections(64);
+        networks = new long[blockCount];
+        broadcasts = new long[blockCount];
+        try (Connection connection = connectionPool.getConnection()) {
+            createTables(connection);
+            insertLocations(connection, locationCount);
+            insertBlocks(connection, locationCount);
+        }
+    }
+
+    private static void createTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE BLOCKS (network_cidr VARCHAR(45), network BIGINT, broadcast BIGINT, " +
+                    "geoname_id INT, registered_country_geoname_id INT, represented_country_geoname_id INT, " +
+                    "is_anonymous_proxy TINYINT DEFAULT 0, is_satellite_provider TINYINT DEFAULT 0, " +
+                    "postal_code VARCHAR(45), latitude FLOAT, longitude FLOAT, network_blocks VARCHAR(45))");
+            statement.execute("CREATE INDEX idx_blocks_network ON BLOCKS (network)");
+            statement.execute("CREATE INDEX idx_blocks_broadcast ON BLOCKS (broadcast)");
+            statement.execute("CREATE INDEX idx_blocks_network_range ON BLOCKS (network, broadcast, geoname_id)");
+            statement.execute("CREATE TABLE LOCATION (geoname_id INT NOT NULL, locale_code VARCHAR(10), " +
+                    "continent_code VARCHAR(10), continent_name VARCHAR(20), country_iso_code VARCHAR(10), " +
+                    "country_name VARCHAR(45), subdivision_1_iso_code VARCHAR(10), " +
+                    "subdivision_1_name VARCHAR(1000), subdivision_2_iso_code VARCHAR(10), " +
+                    "subdivision_2_name VARCHAR(1000), city_name VARCHAR(1000), metro_code INT, " +
+                    "time_zone VARCHAR(10), PRIMARY KEY (geoname_id))");
+            statement.execute("CREATE TABLE IP_LOCATION (ip VARCHAR(100) NOT NULL, country_name VARCHAR(200), " +
+                    "city_name VARCHAR(200), PRIMARY KEY (ip))");
+        }
+    }
+
+    private static void insertLocations(Connection connection, int locationCount) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO LOCATION (geoname_id, " +
+                "locale_code, country_name, subdivision_1_name, city_name) VALUES (?, 'en', ?, ?, ?)")) {
+            for (int i = 0; i < locationCount; i++) {
+                statement.setInt(1, i + 1);
+                statement.setString(2, "Country " + (i % 250));
+                statement.setString(3, "Subdivision " + (i % 4000));
+                statement.setString(4, "City " + i);
+                statement.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void insertBlocks(Connection connection, int locationCount) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO BLOCKS (network_cidr, network, " +
+                "broadcast, geoname_id) VALUES (?, ?, ?, ?)")) {
+            long network = FIRST_NETWORK;
+            // The largest networks are smaller when there are many blocks, so that all of them fit below the
+            // multicast range, as the 3.5 million blocks of a full GeoLite2 city database do
+            long spacePerBlock = (FIRST_MULTICAST_ADDRESS - FIRST_NETWORK) / Math.max(1, networks.length);
+            int maxPrefixShift = Math.min(MAX_PREFIX_SHIFT, 62 - Long.numberOfLeadingZeros(Math.max(1, spacePerBlock)));
+            for (int i = 0; i < networks.length; i++) {
+                // Small networks dominate, as in the published databases
+                int prefixLength = 28 - (int) Math.min(maxPrefixShift, Math.abs(random.nextGaussian() * 4));
+                long size = 1L << (32 - prefixLength);
+                network = (network + size - 1) & -size;
+                if (random.nextInt(10) == 0) {
+                    network += size * (1 + random.nextInt(4));
+                }
+                networks[i] = network;
+                broadcasts[i] = network + size - 1;
+                if (broadcasts[i] >= FIRST_MULTICAST_ADDRESS) {
+                    throw new IllegalArgumentException("Cannot fit " + networks.length + " blocks below " +
+                            "224.0.0.0");
+                }
+                statement.setString(1, IPAddressParser.formatIPv4(network) + "/" + prefixLength);
+                statement.setLong(2, network);
+                statement.setLong(3, broadcasts[i]);
+                statement.setInt(4, 1 + random.nextInt(locationCount));
+                statement.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+                network += size;
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Generates addresses to be looked up. Most of them fall into a block, the rest into the gaps between blocks.
+     *
+     * @param count the number of addresses
+     * @return the addresses in the dotted decimal notation
+     */
+    public String[] sampleAddresses(int count) {
+        String[] addresses = new String[count];
+        for (int i = 0; i < count; i++) {
+            int block = random.nextInt(networks.length);
+            long address;
+            if (random.nextInt(20) == 0) {
+                address = broadcasts[block] + 1;
+            } else {
+                address = networks[block] + (long) (random.nextDouble() * (broadcasts[block] - networks[block] + 1));
+            }
+            addresses[i] = IPAddressParser.formatIPv4(address);
+        }
+        return addresses;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return connectionPool.getConnection();
+    }
+
+    public JdbcConnectionPool getDataSource() {
+        return connectionPool;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } finally {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.Utilities;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the validation and the parsing of textual IP addresses, which run for every event before the cache is
+ * looked up. {@link InetAddress#getByName(String)} is included as the baseline the parser replaced. The inputs mix
+ * IPv4 addresses, IPv6 addresses and values which are not addresses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IPAddressParsingBenchmark {
+
+    private static final String[] IPV4_ADDRESSES = {"95.31.18.119", "10.100.0.1", "192.168.1.1", "8.8.8.8",
+            "203.0.113.254", "172.16.254.3", "1.2.3.4", "255.255.255.0"};
+    private static final String[] IPV6_ADDRESSES = {"2001:db8::1", "::ffff:192.168.1.1", "fe80::1ff:fe23:4567:890a",
+            "2a00:1450:4001:81b::200e"};
+    private static final String[] MIXED_VALUES = {"95.31.18.119", "2001:db8::1", "not an ip", "256.1.1.1",
+            "10.100.0.1", "", "::ffff:10.0.0.1", "192.168.1"};
+
+    private final long[] ipv6 = new long[2];
+    private int index;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        index = 0;
+    }
+
+    private String next(String[] values) {
+        return values[(index++ & Integer.MAX_VALUE) % values.length];
+    }
+
+    @Benchmark
+    public boolean isIpAddress() {
+        return Utilities.isIpAddress(next(MIXED_VALUES));
+    }
+
+    @Benchmark
+    public long parseIPv4() {
+        return IPAddressParser.parseIPv4(next(IPV4_ADDRESSES));
+    }
+
+    @Benchmark
+    public void parseIPv6(Blackhole blackhole) {
+        String address = next(IPV6_ADDRESSES);
+        blackhole.consume(IPAddressParser.parseIPv6(address, 0, address.length(), ipv6));
+        blackhole.consume(ipv6[1]);
+    }
+
+    @Benchmark
+    public InetAddress inetAddressBaseline() throws UnknownHostException {
+        return InetAddress.getByName(next(IPV4_ADDRESSES));
+    }
+}
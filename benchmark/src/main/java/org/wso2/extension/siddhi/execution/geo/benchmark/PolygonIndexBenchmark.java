@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.extension.siddhi.execution.geo.internal.index.PolygonIndex;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the point in polygon lookups of the boundary reverse geocoder. The boundaries are a grid of irregular
+ * polygons about the size of countries, with winding borders of the given number of edges, covering most of the
+ * earth, and the points are spread uniformly so that some fall between the polygons.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PolygonIndexBenchmark {
+
+    private static final int POINT_COUNT = 1 << 16;
+
+    @Param({"100", "10000"})
+    private int edgesPerPolygon;
+
+    private PolygonIndex index;
+    private final double[] latitudes = new double[POINT_COUNT];
+    private final double[] longitudes = new double[POINT_COUNT];
+    private int point;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        PolygonIndex.Builder builder = new PolygonIndex.Builder();
+        int polygonId = 0;
+        for (int row = 0; row < 15; row++) {
+            for (int column = 0; column < 20; column++) {
+                double centreX = -171 + column * 18;
+                double centreY = -84 + row * 12;
+                double phase = random.nextDouble() * 2 * Math.PI;
+                double[] ring = new double[edgesPerPolygon * 2];
+                for (int i = 0; i < edgesPerPolygon; i++) {
+                    double angle = 2 * Math.PI * i / edgesPerPolygon;
+                    double radius = 7 + 1.5 * Math.sin(3 * angle + phase) + 0.5 * Math.sin(17 * angle - phase);
+                    ring[i * 2] = centreX + radius * Math.cos(angle);
+                    ring[i * 2 + 1] = centreY + radius * Math.sin(angle) * 2 / 3;
+                }
+                builder.addPolygon(Collections.singletonList(ring), polygonId++);
+            }
+        }
+        index = builder.build();
+        for (int i = 0; i < POINT_COUNT; i++) {
+            latitudes[i] = random.nextDouble() * 180 - 90;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+    }
+
+    @Benchmark
+    public int find() {
+        int i = point++ & (POINT_COUNT - 1);
+        return index.find(latitudes[i], longitudes[i]);
+    }
+}
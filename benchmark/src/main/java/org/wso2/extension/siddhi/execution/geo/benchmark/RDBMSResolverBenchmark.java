@@ -0,0 +1,97 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.impl.RDBMSGeoLocationResolver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link RDBMSGeoLocationResolver#getLocation(String)} on an embedded H2 database, from the parsing of the
+ * address to the location, with the block range cache, the in-memory index or neither. The sample time mode reports
+ * the latency percentiles, including p99, besides the throughput.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RDBMSResolverBenchmark {
+
+    private static final int ADDRESS_COUNT = 1 << 18;
+
+    @Param({"between", "nearestNetwork"})
+    public String blockQueryStrategy;
+
+    @Param({"0", "10000"})
+    public int rangeCacheSize;
+
+    @Param({"false", "true"})
+    public boolean isInMemoryIndexEnabled;
+
+    @Param({"200000"})
+    public int blockCount;
+
+    private GeoDatabaseFixture database;
+    private RDBMSGeoLocationResolver resolver;
+    private String[] addresses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new GeoDatabaseFixture(blockCount, blockCount / 10);
+        addresses = database.sampleAddresses(ADDRESS_COUNT);
+        Map<String, String> configs = new HashMap<>();
+        configs.put("isPersistInDatabase", "false");
+        configs.put("blockQueryStrategy", blockQueryStrategy);
+        configs.put("rangeCacheSize", String.valueOf(rangeCacheSize));
+        configs.put("isInMemoryIndexEnabled", String.valueOf(isInMemoryIndexEnabled));
+        resolver = ResolverFixtures.createResolver(database, configs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        resolver.shutdown();
+        database.close();
+    }
+
+    @Benchmark
+    public Location getLocation() throws Exception {
+        return resolver.getLocation(addresses[ThreadLocalRandom.current().nextInt(ADDRESS_COUNT)]);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import org.wso2.extension.siddhi.execution.geo.internal.impl.RDBMSGeoLocationResolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the RDBMS resolver on an embedded H2 database with millions of lookups from several threads, and reports
+ * the throughput and the exact latency percentiles. Unlike the JMH benchmarks, every lookup is timed, so the tail
+ * latencies of cache misses, connection waits and pauses are visible. The load is configured with system properties:
+ * <ul>
+ * <li>threads: the number of looking up threads, 8 by default</li>
+ * <li>lookups: the number of measured lookups across all threads, 5000000 by default</li>
+ * <li>warmUpLookups: the number of lookups before the measurement, 500000 by default</li>
+ * <li>blocks: the number of rows in BLOCKS, 200000 by default</li>
+ * <li>addresses: the number of distinct addresses looked up, 1000000 by default</li>
+ * </ul>
+ * The resolver configs are given as system properties prefixed with 'geo.', for example
+ * <pre>
+ * java -Dthreads=16 -Dgeo.blockQueryStrategy=between -cp benchmarks.jar \
+ *     org.wso2.extension.siddhi.execution.geo.benchmark.RDBMSResolverLoadTest
+ * </pre>
+ */
+public class RDBMSResolverLoadTest {
+
+    private RDBMSResolverLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threadCount = Integer.getInteger("threads", 8);
+        long lookups = Long.getLong("lookups", 5000000);
+        long warmUpLookups = Long.getLong("warmUpLookups", 500000);
+        int blockCount = Integer.getInteger("blocks", 200000);
+        int addressCount = Integer.getInteger("addresses", 1000000);
+
+        System.out.println("Loading " + blockCount + " blocks into H2");
+        try (GeoDatabaseFixture database = new GeoDatabaseFixture(blockCount, Math.max(1, blockCount / 10))) {
+            String[] addresses = database.sampleAddresses(addressCount);
+            Map<String, String> configs = new HashMap<>();
+            configs.put("isPersistInDatabase", "false");
+            RDBMSGeoLocationResolver resolver = ResolverFixtures.createResolver(database, configs);
+            try {
+                run(resolver, addresses, threadCount, warmUpLookups);
+                long[][] latencies = new long[threadCount][];
+                long elapsedNanos = run(resolver, addresses, threadCount, lookups, latencies);
+                report(latencies, elapsedNanos);
+            } finally {
+                resolver.shutdown();
+            }
+        }
+    }
+
+    private static void run(RDBMSGeoLocationResolver resolver, String[] addresses, int threadCount, long lookups)
+            throws Exception {
+        run(resolver, addresses, threadCount, lookups, null);
+    }
+
+    /**
+     * Runs the lookups evenly spread over the threads.
+     *
+     * @param latencies receives the latencies of the lookups of each thread in nanoseconds, may be null
+     * @return the time taken by all the lookups in nanoseconds
+     */
+    private static long run(RDBMSGeoLocationResolver resolver, String[] addresses, int threadCount, long lookups,
+                            long[][] latencies) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        AtomicLong failures = new AtomicLong();
+        List<Thread> threads = new ArrayList<>(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            int threadLookups = (int) (lookups / threadCount + (t < lookups % threadCount ? 1 : 0));
+            long[] threadLatencies = latencies != null ? new long[threadLookups] : null;
+            if (latencies != null) {
+                latencies[t] = threadLatencies;
+            }
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < threadLookups; i++) {
+                        String address = addresses[random.nextInt(addresses.length)];
+                        long startTime = System.nanoTime();
+                        try {
+                            resolver.getLocation(address);
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                        if (threadLatencies != null) {
+                            threadLatencies[i] = System.nanoTime() - startTime;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "Siddhi-Geo-LoadTest-" + t);
+            threads.add(thread);
+            thread.start();
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startTime;
+        if (failures.get() > 0) {
+            System.out.println(failures.get() + " lookups failed");
+        }
+        return elapsedNanos;
+    }
+
+    private static void report(long[][] latencies, long elapsedNanos) {
+        int total = 0;
+        for (long[] threadLatencies : latencies) {
+            total += threadLatencies.length;
+        }
+        long[] sorted = new long[total];
+        int position = 0;
+        for (long[] threadLatencies : latencies) {
+            System.arraycopy(threadLatencies, 0, sorted, position, threadLatencies.length);
+            position += threadLatencies.length;
+        }
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format(Locale.ENGLISH, "Lookups    : %d in %.2f s", total, seconds));
+        System.out.println(String.format(Locale.ENGLISH, "Throughput : %.0f lookups/s", total / seconds));
+        System.out.println(String.format(Locale.ENGLISH, "Mean       : %.1f us",
+                Arrays.stream(sorted).average().orElse(0) / 1000));
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            System.out.println(String.format(Locale.ENGLISH, "p%-10s: %.1f us", formatPercentile(percentile),
+                    percentile(sorted, percentile) / 1000.0));
+        }
+        System.out.println(String.format(Locale.ENGLISH, "Max        : %.1f us",
+                (total > 0 ? sorted[total - 1] : 0) / 1000.0));
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(sorted.length * percentile / 100);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.wso2.extension.siddhi.execution.geo.internal.impl.RDBMSGeoLocationResolver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates and initializes RDBMS resolvers on a {@link GeoDatabaseFixture}, with the configs given as system
+ * properties prefixed with 'geo.', such as '-Dgeo.blockQueryStrategy=between'.
+ */
+public class ResolverFixtures {
+
+    private static final String CONFIG_PREFIX = "geo.";
+
+    private ResolverFixtures() {
+    }
+
+    /**
+     * @param database the database the resolver connects to
+     * @param defaults the configs used unless given as a system property
+     * @return the initialized resolver, to be shut down after use
+     * @throws Exception if the resolver cannot be initialized
+     */
+    public static RDBMSGeoLocationResolver createResolver(GeoDatabaseFixture database, Map<String, String> defaults)
+            throws Exception {
+        Map<String, String> configs = new HashMap<>(defaults);
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(CONFIG_PREFIX)) {
+                configs.put(name.substring(CONFIG_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        RDBMSGeoLocationResolver resolver = new RDBMSGeoLocationResolver();
+        resolver.init(new ConfigReader() {
+            @Override
+            public String readConfig(String name, String defaultValue) {
+                return configs.getOrDefault(name, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getAllConfigs() {
+                return configs;
+            }
+        }, configReader -> database.getDataSource());
+        return resolver;
+    }
+}
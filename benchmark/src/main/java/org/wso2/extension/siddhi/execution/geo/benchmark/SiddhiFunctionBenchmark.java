@@ -0,0 +1,144 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.core.util.config.InMemoryConfigManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures a Siddhi app per IP based geo function, from sending a chunk of events to receiving the enriched
+ * events, with the synthetic resolvers of {@link SyntheticResolvers}. The addresses are skewed as in
+ * {@link CacheBenchmark}, and a part of them is unknown. geocode and reversegeocode are not covered as they call
+ * the Google geocoding API directly.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SiddhiFunctionBenchmark {
+
+    private static final int ADDRESS_COUNT = 1 << 16;
+    private static final int HOT_ADDRESS_COUNT = ADDRESS_COUNT / 20;
+    private static final Map<String, String> QUERIES = new HashMap<>();
+
+    static {
+        QUERIES.put("findCityFromIP", "from inputStream select geo:findCityFromIP(ip) as city " +
+                "insert into outputStream;");
+        QUERIES.put("findCountryFromIP", "from inputStream select geo:findCountryFromIP(ip) as country " +
+                "insert into outputStream;");
+        QUERIES.put("ipLocation", "from inputStream#geo:ipLocation(ip) " +
+                "select country, subdivision, city, latitude, longitude, asn insert into outputStream;");
+        QUERIES.put("geocoordinate", "from inputStream#geo:geocoordinate(ip) select latitude, longitude " +
+                "insert into outputStream;");
+    }
+
+    @Param({"findCityFromIP", "findCountryFromIP", "ipLocation", "geocoordinate"})
+    public String function;
+
+    @Param({"1", "100"})
+    public int batchSize;
+
+    @Param({"true", "false"})
+    public boolean isCacheEnabled;
+
+    private final LongAdder receivedEvents = new LongAdder();
+    private SiddhiManager siddhiManager;
+    private SiddhiAppRuntime siddhiAppRuntime;
+    private InputHandler inputHandler;
+    private String[] addresses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        addresses = new String[ADDRESS_COUNT];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < ADDRESS_COUNT; i++) {
+            int first = random.nextInt(20) == 0 ? 240 + random.nextInt(16) : 1 + random.nextInt(222);
+            addresses[i] = first + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+        }
+        Map<String, String> masterConfigs = new HashMap<>();
+        masterConfigs.put("geo." + function + ".geoLocationResolverClass",
+                SyntheticResolvers.SyntheticGeoLocationResolver.class.getName());
+        masterConfigs.put("geo." + function + ".isCacheEnabled", String.valueOf(isCacheEnabled));
+        masterConfigs.put("geo.geocoordinate.geoCoordinateResolverClass",
+                SyntheticResolvers.SyntheticGeoCoordinateResolver.class.getName());
+        siddhiManager = new SiddhiManager();
+        siddhiManager.setConfigManager(new InMemoryConfigManager(masterConfigs, null));
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("define stream inputStream (ip string); " +
+                QUERIES.get(function));
+        siddhiAppRuntime.addCallback("outputStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                receivedEvents.add(events.length);
+            }
+        });
+        siddhiAppRuntime.start();
+        inputHandler = siddhiAppRuntime.getInputHandler("inputStream");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        siddhiAppRuntime.shutdown();
+        siddhiManager.shutdown();
+    }
+
+    @Benchmark
+    public long sendEvents() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long timestamp = System.currentTimeMillis();
+        if (batchSize == 1) {
+            inputHandler.send(timestamp, new Object[]{nextAddress(random)});
+        } else {
+            Event[] events = new Event[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                events[i] = new Event(timestamp, new Object[]{nextAddress(random)});
+            }
+            inputHandler.send(events);
+        }
+        return receivedEvents.sum();
+    }
+
+    private String nextAddress(ThreadLocalRandom random) {
+        return addresses[random.nextInt(10) < 8 ? random.nextInt(HOT_ADDRESS_COUNT) : random.nextInt(ADDRESS_COUNT)];
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.benchmark;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.wso2.extension.siddhi.execution.geo.api.GeoCoordinate;
+import org.wso2.extension.siddhi.execution.geo.api.GeoCoordinateResolver;
+import org.wso2.extension.siddhi.execution.geo.api.GeoLocationResolver;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+
+/**
+ * Resolvers which derive a location from the address itself, so that the end to end benchmarks measure the
+ * extension and Siddhi rather than a database or a remote API. The addresses of the 240.0.0.0/4 block are treated as
+ * unknown, to exercise the handling of unresolved addresses.
+ */
+public class SyntheticResolvers {
+
+    private static final long UNKNOWN_NETWORK = IPAddressParser.parseIPv4("240.0.0.0");
+
+    private SyntheticResolvers() {
+    }
+
+    /**
+     * A GeoLocationResolver returning the country, city and coordinates derived from an IPv4 address.
+     */
+    public static class SyntheticGeoLocationResolver implements GeoLocationResolver {
+
+        @Override
+        public Location getGeoLocationInfo(String ip) {
+            long address = IPAddressParser.parseIPv4(ip);
+            if (address < 0 || address >= UNKNOWN_NETWORK) {
+                return new Location("", "", ip);
+            }
+            int block = (int) (address >>> 12);
+            return new Location("Country " + (block % 250), "Subdivision " + (block % 4000), "City " + block,
+                    (block % 180) - 90.0, (block % 360) - 180.0, String.valueOf(block % 65536));
+        }
+
+        @Override
+        public void init(ConfigReader configReader) {
+        }
+    }
+
+    /**
+     * A GeoCoordinateResolver returning the coordinates derived from an IPv4 address.
+     */
+    public static class SyntheticGeoCoordinateResolver implements GeoCoordinateResolver {
+
+        @Override
+        public GeoCoordinate getGeoCoordinateInfo(String ip) {
+            long address = IPAddressParser.parseIPv4(ip);
+            int block = (int) (Math.max(address, 0) >>> 12);
+            return new GeoCoordinate((block % 180) - 90.0, (block % 360) - 180.0);
+        }
+
+        @Override
+        public void init(ConfigReader configReader) {
+        }
+    }
+}
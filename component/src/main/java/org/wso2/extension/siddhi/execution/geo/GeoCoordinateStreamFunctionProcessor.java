@@ -25,6 +25,7 @@ import io.siddhi.annotation.SystemParameter;
 import io.siddhi.annotation.util.DataType;
 import io.siddhi.core.config.SiddhiQueryContext;
 import io.siddhi.core.exception.SiddhiAppCreationException;
+import io.siddhi.core.exception.SiddhiAppRuntimeException;
 import io.siddhi.core.executor.ExpressionExecutor;
 import io.siddhi.core.query.processor.stream.function.StreamFunctionProcessor;
 import io.siddhi.core.util.config.ConfigReader;
@@ -37,6 +38,8 @@ import org.wso2.extension.siddhi.execution.geo.api.GeoCoordinate;
 import org.wso2.extension.siddhi.execution.geo.api.GeoCoordinateResolver;
 import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
 import org.wso2.extension.siddhi.execution.geo.internal.impl.GeoCoordinateResolverHolder;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupStatistics;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -76,6 +79,15 @@ import java.util.List;
                                 " IP address.",
                         defaultValue = "N/A",
                         possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isMetricsEnabled",
+                        description = "Records the latencies and the failures of the geo coordinate " +
+                                "requests, and exposes them through JMX as 'org.wso2.extension.siddhi." +
+                                "execution.geo:type=LookupMetrics,name=geocoordinate'. They are also recorded when " +
+                                "the statistics of the Siddhi app are enabled.",
+                        defaultValue = "false",
+                        possibleParameters = {"true", "false"}
                 )
         },
         examples = @Example(
@@ -93,6 +105,8 @@ public class GeoCoordinateStreamFunctionProcessor extends StreamFunctionProcesso
             "org.wso2.extension.siddhi.execution.geo.internal.impl.APIBasedGeoCoordinateResolver";
 
     private List<Attribute> attributes = new ArrayList<Attribute>(2);
+    private LookupMetrics metrics;
+    private LookupStatistics statistics;
 
     @Override
     protected Object[] process(Object[] data) {
@@ -104,8 +118,22 @@ public class GeoCoordinateStreamFunctionProcessor extends StreamFunctionProcesso
     protected Object[] process(Object data) {
 
         String ip = data.toString();
-        GeoCoordinate geoCoordinate = geoCoordinateResolverImpl.getGeoCoordinateInfo(ip);
-        return new Object[]{geoCoordinate.getLatitude(), geoCoordinate.getLongitude()};
+        if (statistics != null) {
+            statistics.markIn(1);
+        }
+        long startTime = metrics.startTime();
+        try {
+            GeoCoordinate geoCoordinate = geoCoordinateResolverImpl.getGeoCoordinateInfo(ip);
+            return new Object[]{geoCoordinate.getLatitude(), geoCoordinate.getLongitude()};
+        } catch (SiddhiAppRuntimeException e) {
+            metrics.backendError();
+            throw e;
+        } finally {
+            metrics.record(LookupMetrics.Stage.BACKEND, startTime);
+            if (statistics != null) {
+                statistics.markOut();
+            }
+        }
     }
 
     @Override
@@ -128,6 +156,8 @@ public class GeoCoordinateStreamFunctionProcessor extends StreamFunctionProcesso
         }
         attributes.add(new Attribute("latitude", Attribute.Type.DOUBLE));
         attributes.add(new Attribute("longitude", Attribute.Type.DOUBLE));
+        metrics = LookupMetrics.getInstance(LookupMetrics.GEOCOORDINATE, configReader);
+        statistics = LookupStatistics.create("geocoordinate", siddhiQueryContext, metrics);
         return null;
     }
 
@@ -27,6 +27,7 @@ import io.siddhi.annotation.Example;
 import io.siddhi.annotation.Extension;
 import io.siddhi.annotation.Parameter;
 import io.siddhi.annotation.ReturnAttribute;
+import io.siddhi.annotation.SystemParameter;
 import io.siddhi.annotation.util.DataType;
 import io.siddhi.core.config.SiddhiQueryContext;
 import io.siddhi.core.exception.SiddhiAppCreationException;
@@ -39,6 +40,10 @@ import io.siddhi.core.util.snapshot.state.StateFactory;
 import io.siddhi.query.api.definition.AbstractDefinition;
 import io.siddhi.query.api.definition.Attribute;
 import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.execution.geo.internal.GeocodeCache;
+import org.wso2.extension.siddhi.execution.geo.internal.GeocodeCacheState;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupStatistics;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -74,6 +79,38 @@ import java.util.List;
                         type = DataType.STRING
                 )
         },
+        systemParameter = {
+                @SystemParameter(
+                        name = "isCacheEnabled",
+                        description = "Caches the results of the geocode requests, shared by all the geocode " +
+                                "functions. The results are keyed by the normalized address, hence addresses " +
+                                "which differ only in case, whitespace, punctuation or common abbreviations such " +
+                                "as 'St' and 'Street' are requested once. Failed requests are not cached.",
+                        defaultValue = "true",
+                        possibleParameters = {"true", "false"}
+                ),
+                @SystemParameter(
+                        name = "cacheSize",
+                        description = "The maximum number of addresses kept in the cache.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "cacheExpiryTime",
+                        description = "The time in milliseconds a result is kept in the cache.",
+                        defaultValue = "86400000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isMetricsEnabled",
+                        description = "Records the cache hits and misses and the latencies and the failures of " +
+                                "the geocode requests, and exposes them through JMX as 'org.wso2.extension.siddhi." +
+                                "execution.geo:type=LookupMetrics,name=geocode'. They are also recorded when " +
+                                "the statistics of the Siddhi app are enabled.",
+                        defaultValue = "false",
+                        possibleParameters = {"true", "false"}
+                )
+        },
         examples = @Example(
                 syntax = "geocode(\"5 Avenue Anatole France, 75007 Paris, France\")",
                 description = "This query returns the longitude and latitude of the given location with the location" +
@@ -87,6 +124,9 @@ public class GeocodeStreamFunctionProcessor extends StreamFunctionProcessor<Stat
     private final Geocoder geocoder = new Geocoder();
     private boolean debugModeOn;
     private ArrayList<Attribute> attributes = new ArrayList<Attribute>(6);
+    private LookupMetrics metrics;
+    private LookupStatistics statistics;
+    private GeocodeCache cache;
 
     /**
      * The process method of the StreamFunction, used when more then one function parameters are provided
@@ -107,7 +147,30 @@ public class GeocodeStreamFunctionProcessor extends StreamFunctionProcessor<Stat
      */
     @Override
     protected Object[] process(Object data) {
-        String location = data.toString();
+        if (statistics == null) {
+            return geocode(data.toString());
+        }
+        statistics.markIn(1);
+        try {
+            return geocode(data.toString());
+        } finally {
+            statistics.markOut();
+        }
+    }
+
+    private Object[] geocode(String location) {
+        long startTime = metrics.startTime();
+        if (cache != null) {
+            GeocodeCache.Result cachedResult = cache.get(location);
+            metrics.record(LookupMetrics.Stage.CACHE, startTime);
+            if (cachedResult != null) {
+                metrics.cacheHit();
+                return new Object[]{cachedResult.getFormattedAddress(), cachedResult.getLatitude(),
+                        cachedResult.getLongitude()};
+            }
+            metrics.cacheMiss();
+            startTime = metrics.startTime();
+        }
 
         // Make the geocode request to API library
         GeocoderRequest geocoderRequest = new GeocoderRequestBuilder().setAddress(location).setLanguage("en")
@@ -117,6 +180,7 @@ public class GeocodeStreamFunctionProcessor extends StreamFunctionProcessor<Stat
         String formattedAddress;
         try {
             GeocodeResponse geocoderResponse = geocoder.geocode(geocoderRequest);
+            metrics.record(LookupMetrics.Stage.BACKEND, startTime);
             GeocoderStatus status = geocoderResponse.getStatus();
             if (status == GeocoderStatus.OK && !geocoderResponse.getResults().isEmpty()) {
                 latitude = geocoderResponse.getResults().get(0).getGeometry().getLocation()
@@ -124,14 +188,19 @@ public class GeocodeStreamFunctionProcessor extends StreamFunctionProcessor<Stat
                 longitude = geocoderResponse.getResults().get(0).getGeometry().getLocation()
                         .getLng().doubleValue();
                 formattedAddress = geocoderResponse.getResults().get(0).getFormattedAddress();
+                if (cache != null) {
+                    cache.put(location, new GeocodeCache.Result(formattedAddress, latitude, longitude));
+                }
             } else {
                 latitude = -1.0;
                 longitude = -1.0;
                 formattedAddress = "N/A";
+                metrics.backendError();
                 LOGGER.error("Geocoder request failed with a response of: " + status.value());
             }
 
         } catch (IOException e) {
+            metrics.backendError();
             throw new SiddhiAppRuntimeException("Error in connection to Google Maps API.", e);
         }
 
@@ -165,7 +234,10 @@ public class GeocodeStreamFunctionProcessor extends StreamFunctionProcessor<Stat
         attributes.add(new Attribute("formattedAddress", Attribute.Type.STRING));
         attributes.add(new Attribute("latitude", Attribute.Type.DOUBLE));
         attributes.add(new Attribute("longitude", Attribute.Type.DOUBLE));
-        return null;
+        metrics = LookupMetrics.getInstance(LookupMetrics.GEOCODE, configReader);
+        statistics = LookupStatistics.create("geocode", siddhiQueryContext, metrics);
+        cache = GeocodeCache.getInstance(configReader);
+        return cache != null ? () -> new GeocodeCacheState(cache) : null;
     }
 
     /**
@@ -22,6 +22,7 @@ import io.siddhi.annotation.Example;
 import io.siddhi.annotation.Extension;
 import io.siddhi.annotation.Parameter;
 import io.siddhi.annotation.ReturnAttribute;
+import io.siddhi.annotation.SystemParameter;
 import io.siddhi.annotation.util.DataType;
 import io.siddhi.core.config.SiddhiQueryContext;
 import io.siddhi.core.executor.ExpressionExecutor;
@@ -31,14 +32,10 @@ import io.siddhi.core.util.snapshot.state.State;
 import io.siddhi.core.util.snapshot.state.StateFactory;
 import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.exception.SiddhiAppValidationException;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-import org.wso2.extension.siddhi.execution.geo.api.GeoLocationResolver;
-import org.wso2.extension.siddhi.execution.geo.api.Location;
-import org.wso2.extension.siddhi.execution.geo.internal.LRUCacheStore;
-import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
-
-import java.util.concurrent.atomic.AtomicBoolean;
+import org.wso2.extension.siddhi.execution.geo.internal.IPLocationService;
+import org.wso2.extension.siddhi.execution.geo.internal.IPLocationServiceState;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupStatistics;
 
 /**
  * The class provides implementation for getting country based on the given ip.
@@ -56,6 +53,236 @@ import java.util.concurrent.atomic.AtomicBoolean;
         returnAttributes = @ReturnAttribute(
                 description = "The country related to the IP address provided.",
                 type = {DataType.STRING}),
+        systemParameter = {
+                @SystemParameter(
+                        name = "geoLocationResolverClass",
+                        description = "The class name of the GeoLocationResolver implementation used to resolve " +
+                                "the location of the IP address.",
+                        defaultValue = "org.wso2.extension.siddhi.execution.geo.internal.impl." +
+                                "DefaultDBBasedGeoLocationResolver",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isCacheEnabled",
+                        description = "Enables the cache of resolved IP addresses.",
+                        defaultValue = "true",
+                        possibleParameters = {"true", "false"}
+                ),
+                @SystemParameter(
+                        name = "cacheSize",
+                        description = "The maximum number of IP addresses kept in the cache.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "negativeCacheSize",
+                        description = "The maximum number of IP addresses which could not be resolved kept in a " +
+                                "separate cache, so that they are not looked up again until they expire. 0 " +
+                                "disables the cache of unresolved IP addresses.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "negativeCacheExpiryTime",
+                        description = "The time in milliseconds an IP address which could not be resolved is kept " +
+                                "in the cache of unresolved IP addresses.",
+                        defaultValue = "600000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "warmUpSource",
+                        description = "Loads the cache in the background when the function is initialized. " +
+                                "'persisted' loads the locations stored in the IP_LOCATION table by the default " +
+                                "resolver. 'snapshot' loads the most used IP addresses written to " +
+                                "'cacheSnapshotFile' at the last shutdown. 'none' starts with an empty cache.",
+                        defaultValue = "none",
+                        possibleParameters = {"none", "persisted", "snapshot"}
+                ),
+                @SystemParameter(
+                        name = "warmUpSize",
+                        description = "The maximum number of IP addresses loaded into the cache when it is warmed " +
+                                "up, and written to 'cacheSnapshotFile' at shutdown.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "warmUpTimeBudget",
+                        description = "The time in milliseconds after which the cache warm up stops.",
+                        defaultValue = "30000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "cacheSnapshotFile",
+                        description = "The file the IP addresses kept in the cache are written to at shutdown, " +
+                                "so that they can be loaded with 'warmUpSource' 'snapshot'. No snapshot is " +
+                                "written if the file is not given.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "reloadCheckInterval",
+                        description = "The time in milliseconds between two checks of whether the geo location " +
+                                "dataset has changed, such as a replaced database file or newly imported tables, " +
+                                "which are detected from the version in their GEO_DATA_VERSION table. " +
+                                "A changed dataset is loaded in the background and replaces the current one at " +
+                                "once, after which the locations cached from the previous one are dropped. 0 " +
+                                "disables the checks.",
+                        defaultValue = "0",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isMetricsEnabled",
+                        description = "Records the cache hits and misses, the cache evictions and the latencies " +
+                                "of parsing, cache lookups, resolution and persistence of the IP location " +
+                                "lookups, and exposes them through JMX as 'org.wso2.extension.siddhi.execution." +
+                                "geo:type=LookupMetrics,name=ipLocation'. They are also recorded when the " +
+                                "statistics of the Siddhi app are enabled.",
+                        defaultValue = "false",
+                        possibleParameters = {"true", "false"}
+                ),
+                @SystemParameter(
+                        name = "dataSourceProvider",
+                        description = "How the default resolver obtains its datasource. 'osgi' looks up the " +
+                                "Carbon datasource named in 'datasource', 'jndi' looks up the JNDI name given in " +
+                                "'datasource', and 'jdbc' creates a local connection pool to 'jdbcUrl'. A class " +
+                                "implementing org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider can " +
+                                "be given instead.",
+                        defaultValue = "osgi",
+                        possibleParameters = {"osgi", "jndi", "jdbc", "the name of a DataSourceProvider class"}
+                ),
+                @SystemParameter(
+                        name = "datasource",
+                        description = "The datasource holding the BLOCKS and LOCATION tables used by the default " +
+                                "resolver. This is the JNDI name when 'dataSourceProvider' is 'jndi'.",
+                        defaultValue = "GEO_LOCATION_DATA",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "jdbcUrl",
+                        description = "The JDBC URL of the database when 'dataSourceProvider' is 'jdbc'.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "jdbcUsername",
+                        description = "The user name of the database when 'dataSourceProvider' is 'jdbc'.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "jdbcPassword",
+                        description = "The password of the database when 'dataSourceProvider' is 'jdbc'.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "jdbcDriverClassName",
+                        description = "The JDBC driver class when 'dataSourceProvider' is 'jdbc'. By default the " +
+                                "driver is found from the URL.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "jdbcMaxPoolSize",
+                        description = "The maximum number of connections of the local pool when " +
+                                "'dataSourceProvider' is 'jdbc'.",
+                        defaultValue = "10",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isPersistInDatabase",
+                        description = "Stores the resolved locations in the IP_LOCATION table of the datasource. " +
+                                "The rows are written in the background, hence the lookups do not wait for them.",
+                        defaultValue = "true",
+                        possibleParameters = {"true", "false"}
+                ),
+                @SystemParameter(
+                        name = "persistBatchSize",
+                        description = "The maximum number of IP_LOCATION rows inserted with one JDBC batch.",
+                        defaultValue = "100",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "persistFlushInterval",
+                        description = "The maximum time in milliseconds a resolved location waits to be written " +
+                                "to the IP_LOCATION table.",
+                        defaultValue = "1000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "persistQueueSize",
+                        description = "The maximum number of resolved locations waiting to be written to the " +
+                                "IP_LOCATION table. Further locations are not persisted until there is space.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "maxPinnedConnections",
+                        description = "The maximum number of datasource connections the default resolver keeps " +
+                                "pinned to the Siddhi threads, together with their prepared statements. The other " +
+                                "threads borrow a connection from the pool for each lookup. 0 disables pinning.",
+                        defaultValue = "8",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "connectionValidationInterval",
+                        description = "The time in milliseconds after which a pinned connection is validated " +
+                                "before it is used again.",
+                        defaultValue = "30000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "rangeCacheSize",
+                        description = "The maximum number of IPv4 ranges of the BLOCKS table, with their locations, " +
+                                "the default resolver keeps after reading them from the database. Any address of " +
+                                "a cached range is resolved without a database query. 0 disables the cache.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "blockQueryStrategy",
+                        description = "How the default resolver finds the block of an IPv4 address. 'between' " +
+                                "matches 'network' and 'broadcast' with a BETWEEN predicate. 'nearestNetwork' " +
+                                "reads the block with the greatest network at or below the address, which needs " +
+                                "a single index seek, and then checks its broadcast. 'auto' uses " +
+                                "'nearestNetwork' for MySQL, PostgreSQL, H2, Oracle, Microsoft SQL Server and DB2, " +
+                                "detected from the datasource, and 'between' for the other databases.",
+                        defaultValue = "auto",
+                        possibleParameters = {"auto", "between", "nearestNetwork"}
+                ),
+                @SystemParameter(
+                        name = "isInMemoryIndexEnabled",
+                        description = "Loads the BLOCKS and LOCATION tables into a sorted in-memory index when the " +
+                                "default resolver is initialized, and resolves all the IP addresses from it " +
+                                "without querying the database. 'isPersistInDatabase' is not applied in this mode.",
+                        defaultValue = "false",
+                        possibleParameters = {"true", "false"}
+                ),
+                @SystemParameter(
+                        name = "geoIpDatabaseFile",
+                        description = "The path of the memory mapped geo IP database file used when " +
+                                "'geoLocationResolverClass' is 'org.wso2.extension.siddhi.execution.geo.internal." +
+                                "impl.MappedFileGeoLocationResolver'. The file is created from the geo location " +
+                                "database with 'org.wso2.extension.siddhi.execution.geo.internal.index." +
+                                "GeoIPDatabaseFileConverter'.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "maxMindDatabaseFile",
+                        description = "The path of the MaxMind DB (MMDB) file, such as GeoLite2-City.mmdb, used " +
+                                "when 'geoLocationResolverClass' is 'org.wso2.extension.siddhi.execution.geo." +
+                                "internal.impl.MaxMindGeoLocationResolver'. No datasource is required in this mode.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "maxMindLocale",
+                        description = "The locale of the country and city names read from the MaxMind DB file.",
+                        defaultValue = "en",
+                        possibleParameters = {"en", "de", "es", "fr", "ja", "pt-BR", "ru", "zh-CN"}
+                )
+        },
         examples = @Example(
                 syntax = "define stream IpStream(ip string);\n" +
                         "from IpStream\n" +
@@ -64,18 +291,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
                 description = "This query returns the country corresponding to the given IP address.")
 )
 public class GetCountryResolverFunction extends FunctionExecutor<State> {
-    private static final Log log = LogFactory.getLog(GetCountryResolverFunction.class);
-    private static final String CACHE_SIZE_KEY = "cacheSize";
-    private static final String IS_CACHE_ENABLED = "isCacheEnabled";
-    private static final int DEFAULT_CACHE_SIZE = 10000;
-    private static final String DEFAULT_GEOLOCATION_RESOLVER_CLASSNAME =
-            "org.wso2.extension.siddhi.execution.geo.internal.impl.DefaultDBBasedGeoLocationResolver";
-
-    private static GeoLocationResolver geoLocationResolverImpl;
-    private static LRUCacheStore lruCacheStore;
-    private static boolean isCacheEnabled = true;
-    private static int cacheSize = 10000;
-    private static AtomicBoolean isExtensionConfigInitialized = new AtomicBoolean(false);
+    private IPLocationService ipLocationService;
+    private LookupStatistics statistics;
 
     /**
      * The initialization method for {@link FunctionExecutor}, which will be called before other methods and validate
@@ -100,12 +317,10 @@ public class GetCountryResolverFunction extends FunctionExecutor<State> {
                     .toString());
         }
 
-        synchronized (isExtensionConfigInitialized) {
-            if (!isExtensionConfigInitialized.get()) {
-                initializeExtensionConfigs(configReader);
-            }
-        }
-        return null;
+        ipLocationService = IPLocationService.getInstance(configReader);
+        statistics = LookupStatistics.create("findCountryFromIP", siddhiQueryContext,
+                LookupMetrics.getInstance(LookupMetrics.IP_LOCATION));
+        return () -> new IPLocationServiceState(ipLocationService);
     }
 
     /**
@@ -130,20 +345,15 @@ public class GetCountryResolverFunction extends FunctionExecutor<State> {
      */
     @Override
     protected Object execute(Object data, State state) {
-        Location location = null;
-        String ip = data.toString();
-        if (isCacheEnabled) {
-            location = lruCacheStore.getInstance().get(ip);
+        if (statistics == null) {
+            return ipLocationService.getLocation(data.toString()).getCountry();
         }
-        if (location == null) {
-            location = geoLocationResolverImpl.getGeoLocationInfo(ip);
-            if (location != null) {
-                lruCacheStore.getInstance().put(ip, location);
-            } else {
-                lruCacheStore.getInstance().put(ip, new Location("", "", ip));
-            }
+        statistics.markIn(1);
+        try {
+            return ipLocationService.getLocation(data.toString()).getCountry();
+        } finally {
+            statistics.markOut();
         }
-        return location != null ? location.getCountry() : "";
     }
 
     /**
@@ -155,44 +365,4 @@ public class GetCountryResolverFunction extends FunctionExecutor<State> {
     public Attribute.Type getReturnType() {
         return Attribute.Type.STRING;
     }
-
-    private void initializeExtensionConfigs(ConfigReader configReader) throws SiddhiAppValidationException {
-        String geoResolverImplClassName = configReader.readConfig("geoLocationResolverClass",
-                DEFAULT_GEOLOCATION_RESOLVER_CLASSNAME);
-        isCacheEnabled = Boolean.parseBoolean(configReader.readConfig(IS_CACHE_ENABLED, "true"));
-        String configCacheValue = configReader.readConfig(CACHE_SIZE_KEY, String.valueOf(cacheSize));
-        if (isCacheEnabled) {
-            try {
-                cacheSize = Integer.parseInt(configCacheValue);
-            } catch (NumberFormatException e) {
-                cacheSize = DEFAULT_CACHE_SIZE;
-                log.warn("The config '" + configCacheValue + "' provided in 'cacheSize' is not a valid integer. " +
-                        "Hence using the default cache size '" + DEFAULT_CACHE_SIZE + "'");
-            } finally {
-                lruCacheStore.init(cacheSize);
-            }
-        }
-
-        try {
-            geoLocationResolverImpl = (GeoLocationResolver) Class.forName(geoResolverImplClassName).newInstance();
-            geoLocationResolverImpl.init(configReader);
-            isExtensionConfigInitialized.set(true);
-        } catch (InstantiationException e) {
-            throw new SiddhiAppValidationException("Cannot instantiate GeoLocationResolver implementation class '"
-                    + geoResolverImplClassName + "' given in the configuration", e);
-        } catch (IllegalAccessException e) {
-            throw new SiddhiAppValidationException("Cannot access GeoLocationResolver implementation class '"
-                    + geoResolverImplClassName + "' given in the configuration", e);
-        } catch (ClassNotFoundException e) {
-            throw new SiddhiAppValidationException("Cannot find GeoLocationResolver implementation class '"
-                    + geoResolverImplClassName + "' given in the configuration", e);
-        } catch (ClassCastException e) {
-            throw new SiddhiAppValidationException("Cannot cast GeoLocationResolver implementation class '"
-                    + geoResolverImplClassName + "' to 'GeoLocationResolver'", e);
-        } catch (GeoLocationResolverException e) {
-            throw new SiddhiAppValidationException("Cannot initialize GeoLocationResolver implementation class '"
-                    + geoResolverImplClassName + "' given in the configuration", e);
-        }
-    }
-
 }
@@ -0,0 +1,316 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo;
+
+import io.siddhi.annotation.Example;
+import io.siddhi.annotation.Extension;
+import io.siddhi.annotation.Parameter;
+import io.siddhi.annotation.ReturnAttribute;
+import io.siddhi.annotation.SystemParameter;
+import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiQueryContext;
+import io.siddhi.core.event.ComplexEventChunk;
+import io.siddhi.core.event.stream.StreamEvent;
+import io.siddhi.core.event.stream.StreamEventCloner;
+import io.siddhi.core.event.stream.populater.ComplexEventPopulater;
+import io.siddhi.core.executor.ExpressionExecutor;
+import io.siddhi.core.query.processor.Processor;
+import io.siddhi.core.query.processor.stream.function.StreamFunctionProcessor;
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.core.util.snapshot.state.State;
+import io.siddhi.core.util.snapshot.state.StateFactory;
+import io.siddhi.query.api.definition.AbstractDefinition;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.exception.SiddhiAppValidationException;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.IPLocationService;
+import org.wso2.extension.siddhi.execution.geo.internal.IPLocationServiceState;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class provides all the location details of the given ip with a single lookup, instead of one lookup per
+ * detail when geo:findCountryFromIP and geo:findCityFromIP are used together. The IP addresses of all the events of
+ * an event chunk which are not cached are resolved together, with a single call to the GeoLocationResolver.
+ */
+@Extension(
+        name = "ipLocation",
+        namespace = "geo",
+        description = "This stream function returns the country, subdivision, city, coordinates and autonomous " +
+                "system number that are related to the given IP address, resolving the address once. The details " +
+                "which the configured GeoLocationResolver does not provide are returned as an empty string for " +
+                "the names and null for the others. The IP addresses of all the events which arrive together and " +
+                "are not found in the cache are resolved at once.",
+        parameters = {
+                @Parameter(
+                        name = "ip",
+                        description = "The IP address of which the related location needs to be fetched.",
+                        type = {DataType.STRING})
+        },
+        returnAttributes = {
+                @ReturnAttribute(
+                        name = "country",
+                        description = "The country related to the IP address provided.",
+                        type = DataType.STRING
+                ),
+                @ReturnAttribute(
+                        name = "subdivision",
+                        description = "The first subdivision, such as the state or the province, related to the " +
+                                "IP address provided.",
+                        type = DataType.STRING
+                ),
+                @ReturnAttribute(
+                        name = "city",
+                        description = "The city related to the IP address provided, as returned by " +
+                                "'geo:findCityFromIP'.",
+                        type = DataType.STRING
+                ),
+                @ReturnAttribute(
+                        name = "latitude",
+                        description = "The approximate latitude related to the IP address provided.",
+                        type = DataType.DOUBLE
+                ),
+                @ReturnAttribute(
+                        name = "longitude",
+                        description = "The approximate longitude related to the IP address provided.",
+                        type = DataType.DOUBLE
+                ),
+                @ReturnAttribute(
+                        name = "asn",
+                        description = "The autonomous system number of the network of the IP address provided.",
+                        type = DataType.STRING
+                )
+        },
+        systemParameter = {
+                @SystemParameter(
+                        name = "geoLocationResolverClass",
+                        description = "The class name of the GeoLocationResolver implementation used to resolve " +
+                                "the locations of the IP addresses. The configuration of the resolver is the same " +
+                                "as for 'geo:findCityFromIP'. The subdivision, coordinates and autonomous system " +
+                                "number are provided by 'org.wso2.extension.siddhi.execution.geo.internal.impl." +
+                                "MaxMindGeoLocationResolver'.",
+                        defaultValue = "org.wso2.extension.siddhi.execution.geo.internal.impl." +
+                                "DefaultDBBasedGeoLocationResolver",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isCacheEnabled",
+                        description = "Enables the cache of resolved IP addresses. The cache is shared by all the " +
+                                "geo functions which use the same GeoLocationResolver.",
+                        defaultValue = "true",
+                        possibleParameters = {"true", "false"}
+                ),
+                @SystemParameter(
+                        name = "cacheSize",
+                        description = "The maximum number of IP addresses kept in the cache.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "negativeCacheSize",
+                        description = "The maximum number of IP addresses which could not be resolved kept in a " +
+                                "separate cache, so that they are not looked up again until they expire. 0 " +
+                                "disables the cache of unresolved IP addresses.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "negativeCacheExpiryTime",
+                        description = "The time in milliseconds an IP address which could not be resolved is kept " +
+                                "in the cache of unresolved IP addresses.",
+                        defaultValue = "600000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "warmUpSource",
+                        description = "Loads the cache in the background when the function is initialized. " +
+                                "'persisted' loads the locations stored in the IP_LOCATION table by the default " +
+                                "resolver. 'snapshot' loads the most used IP addresses written to " +
+                                "'cacheSnapshotFile' at the last shutdown. 'none' starts with an empty cache.",
+                        defaultValue = "none",
+                        possibleParameters = {"none", "persisted", "snapshot"}
+                ),
+                @SystemParameter(
+                        name = "warmUpSize",
+                        description = "The maximum number of IP addresses loaded into the cache when it is warmed " +
+                                "up, and written to 'cacheSnapshotFile' at shutdown.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "warmUpTimeBudget",
+                        description = "The time in milliseconds after which the cache warm up stops.",
+                        defaultValue = "30000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "cacheSnapshotFile",
+                        description = "The file the IP addresses kept in the cache are written to at shutdown, " +
+                                "so that they can be loaded with 'warmUpSource' 'snapshot'. No snapshot is " +
+                                "written if the file is not given.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "reloadCheckInterval",
+                        description = "The time in milliseconds between two checks of whether the geo location " +
+                                "dataset has changed, such as a replaced database file or newly imported tables, " +
+                                "which are detected from the version in their GEO_DATA_VERSION table. " +
+                                "A changed dataset is loaded in the background and replaces the current one at " +
+                                "once, after which the locations cached from the previous one are dropped. 0 " +
+                                "disables the checks.",
+                        defaultValue = "0",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isMetricsEnabled",
+                        description = "Records the cache hits and misses, the cache evictions and the latencies " +
+                                "of parsing, cache lookups, resolution and persistence of the IP location " +
+                                "lookups, and exposes them through JMX as 'org.wso2.extension.siddhi.execution." +
+                                "geo:type=LookupMetrics,name=ipLocation'. They are also recorded when the " +
+                                "statistics of the Siddhi app are enabled.",
+                        defaultValue = "false",
+                        possibleParameters = {"true", "false"}
+                )
+        },
+        examples = @Example(
+                syntax = "define stream IpStream(ip string);\n" +
+                        "from IpStream#geo:ipLocation(ip)\n" +
+                        "select ip, country, subdivision, city, latitude, longitude, asn\n" +
+                        "insert into OutputStream;",
+                description = "This query returns the location details corresponding to the given IP address " +
+                        "with a single lookup.")
+)
+public class IPLocationEnrichmentStreamFunctionProcessor extends StreamFunctionProcessor<State> {
+
+    private static final String FUNCTION_NAME = "ipLocation";
+
+    private IPLocationService ipLocationService;
+    private LookupStatistics statistics;
+    private ArrayList<Attribute> attributes = new ArrayList<Attribute>(6);
+
+    @Override
+    protected StateFactory<State> init(AbstractDefinition abstractDefinition,
+                                       ExpressionExecutor[] attributeExpressionExecutors,
+                                       ConfigReader configReader,
+                                       boolean outputExpectsExpiredEvents,
+                                       SiddhiQueryContext siddhiQueryContext) {
+        if (attributeExpressionExecutors.length != 1) {
+            throw new SiddhiAppValidationException("Invalid no of arguments passed to geo:" + FUNCTION_NAME +
+                    "(ip) function, required 1, but found " + attributeExpressionExecutors.length);
+        }
+        Attribute.Type attributeType = attributeExpressionExecutors[0].getReturnType();
+        if (attributeType != Attribute.Type.STRING) {
+            throw new SiddhiAppValidationException("Invalid parameter type found for first argument ip of " +
+                    "geo:" + FUNCTION_NAME + "(ip) function, required " + Attribute.Type.STRING +
+                    ", but found " + attributeType.toString());
+        }
+        ipLocationService = IPLocationService.getInstance(configReader);
+        statistics = LookupStatistics.create(FUNCTION_NAME, siddhiQueryContext,
+                LookupMetrics.getInstance(LookupMetrics.IP_LOCATION));
+        attributes.add(new Attribute("country", Attribute.Type.STRING));
+        attributes.add(new Attribute("subdivision", Attribute.Type.STRING));
+        attributes.add(new Attribute("city", Attribute.Type.STRING));
+        attributes.add(new Attribute("latitude", Attribute.Type.DOUBLE));
+        attributes.add(new Attribute("longitude", Attribute.Type.DOUBLE));
+        attributes.add(new Attribute("asn", Attribute.Type.STRING));
+        return () -> new IPLocationServiceState(ipLocationService);
+    }
+
+    /**
+     * Resolves the IP addresses of all the events of the chunk which are not cached with a single call to the
+     * GeoLocationResolver, then adds the location attributes to each event.
+     */
+    @Override
+    protected void processEventChunk(ComplexEventChunk<StreamEvent> streamEventChunk, Processor nextProcessor,
+                                     StreamEventCloner streamEventCloner, ComplexEventPopulater complexEventPopulater,
+                                     State state) {
+        List<String> ips = new ArrayList<>();
+        List<String> presentIps = new ArrayList<>();
+        while (streamEventChunk.hasNext()) {
+            Object data = attributeExpressionExecutors[0].execute(streamEventChunk.next());
+            String ip = data != null ? data.toString() : null;
+            ips.add(ip);
+            if (ip != null) {
+                presentIps.add(ip);
+            }
+        }
+        Map<String, Location> locations;
+        if (statistics == null) {
+            locations = ipLocationService.getLocations(presentIps);
+        } else {
+            statistics.markIn(presentIps.size());
+            try {
+                locations = ipLocationService.getLocations(presentIps);
+            } finally {
+                statistics.markOut();
+            }
+        }
+
+        streamEventChunk.reset();
+        int index = 0;
+        while (streamEventChunk.hasNext()) {
+            StreamEvent streamEvent = streamEventChunk.next();
+            String ip = ips.get(index++);
+            Location location = ip != null ? locations.get(ip) : IPLocationService.UNRESOLVED_LOCATION;
+            complexEventPopulater.populateComplexEvent(streamEvent, toAttributeValues(location));
+        }
+        nextProcessor.process(streamEventChunk);
+    }
+
+    @Override
+    protected Object[] process(Object[] data) {
+        throw new IllegalStateException(FUNCTION_NAME + " cannot execute for multiple data");
+    }
+
+    @Override
+    protected Object[] process(Object data) {
+        return toAttributeValues(ipLocationService.getLocation(data.toString()));
+    }
+
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+
+    }
+
+    @Override
+    public List<Attribute> getReturnAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Converts the location into the values of the attributes added to the event.
+     *
+     * @param location the location, which is {@link IPLocationService#UNRESOLVED_LOCATION} if the ip is not known
+     * @return the values in the order of {@link #getReturnAttributes()}
+     */
+    private static Object[] toAttributeValues(Location location) {
+        return new Object[]{location.getCountry(), location.getSubdivision(), location.getCity(),
+                location.getLatitude(), location.getLongitude(), location.getAutonomousSystemNumber()};
+    }
+}
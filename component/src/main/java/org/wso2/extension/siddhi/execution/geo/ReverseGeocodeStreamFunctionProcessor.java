@@ -18,16 +18,10 @@
 
 package org.wso2.extension.siddhi.execution.geo;
 
-import com.google.code.geocoder.Geocoder;
-import com.google.code.geocoder.GeocoderRequestBuilder;
-import com.google.code.geocoder.model.GeocodeResponse;
-import com.google.code.geocoder.model.GeocoderAddressComponent;
-import com.google.code.geocoder.model.GeocoderRequest;
-import com.google.code.geocoder.model.GeocoderStatus;
-import com.google.code.geocoder.model.LatLng;
 import io.siddhi.annotation.Example;
 import io.siddhi.annotation.Extension;
 import io.siddhi.annotation.Parameter;
+import io.siddhi.annotation.SystemParameter;
 import io.siddhi.annotation.util.DataType;
 import io.siddhi.core.config.SiddhiQueryContext;
 import io.siddhi.core.exception.SiddhiAppCreationException;
@@ -41,10 +35,17 @@ import io.siddhi.query.api.definition.AbstractDefinition;
 import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.exception.SiddhiAppValidationException;
 import org.apache.log4j.Logger;
+import org.wso2.extension.siddhi.execution.geo.api.Address;
+import org.wso2.extension.siddhi.execution.geo.api.ReverseGeocoder;
+import org.wso2.extension.siddhi.execution.geo.internal.ReverseGeocodeCache;
+import org.wso2.extension.siddhi.execution.geo.internal.ReverseGeocodeCacheState;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.impl.ReverseGeocoderHolder;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupStatistics;
 
-import java.io.IOException;
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -78,6 +79,130 @@ import java.util.List;
                         type = DataType.DOUBLE
                 )
         },
+        systemParameter = {
+                @SystemParameter(
+                        name = "reverseGeocoderClass",
+                        description = "The class which finds the addresses. The default one requests them from " +
+                                "the Google Maps API. 'org.wso2.extension.siddhi.execution.geo.internal.impl." +
+                                "GazetteerReverseGeocoder' finds the nearest place of a local GeoNames gazetteer " +
+                                "without any network access, filling the country, the administrative areas and " +
+                                "the formatted address. 'org.wso2.extension.siddhi.execution.geo.internal.impl." +
+                                "BoundaryReverseGeocoder' finds the country and the first level administrative area " +
+                                "whose GeoJSON boundaries contain the point, without any network access.",
+                        defaultValue = "org.wso2.extension.siddhi.execution.geo.internal.impl.GoogleReverseGeocoder",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "gazetteerFile",
+                        description = "The GeoNames place file, such as cities500.txt, read by the gazetteer " +
+                                "reverse geocoder. Files ending with '.gz' are read as gzip files.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "gazetteerAdmin1File",
+                        description = "The GeoNames admin1CodesASCII.txt file, with the names of the first level " +
+                                "administrative areas. The areas are 'N/A' if it is not given.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "gazetteerAdmin2File",
+                        description = "The GeoNames admin2Codes.txt file, with the names of the second level " +
+                                "administrative areas. The areas are 'N/A' if it is not given.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "gazetteerMaxDistance",
+                        description = "The maximum distance in meters from a point to its nearest place, beyond " +
+                                "which the address of the point is 'N/A'. 0 does not limit the distance.",
+                        defaultValue = "0",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "boundaryCountryFile",
+                        description = "The GeoJSON feature collection of the country boundaries, such as the " +
+                                "Natural Earth admin 0 countries, read by the boundary reverse geocoder. Only " +
+                                "Polygon and MultiPolygon features are read, and a polygon crossing the " +
+                                "antimeridian must be split into parts on either side of it. Files ending with " +
+                                "'.gz' are read as gzip files.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "boundaryAdmin1File",
+                        description = "The GeoJSON feature collection of the first level administrative area " +
+                                "boundaries, such as the Natural Earth admin 1 states and provinces. The areas are " +
+                                "'N/A' if it is not given.",
+                        defaultValue = "N/A",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "boundaryNameProperty",
+                        description = "The property of the boundary features with their names, matched " +
+                                "regardless of its case.",
+                        defaultValue = "name",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "boundaryCountryCodeProperty",
+                        description = "The property of the boundary features with their two letter country " +
+                                "codes, matched regardless of its case.",
+                        defaultValue = "iso_a2",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isCacheEnabled",
+                        description = "Caches the addresses of the reverse geocode requests, shared by all the " +
+                                "reversegeocode functions. The addresses are keyed by the geohash cell of the " +
+                                "point, hence a point in a cached cell is served the cached address. Failed " +
+                                "requests are not cached. The cache is enabled by default only for a reverse " +
+                                "geocoder requesting a remote service, such as the Google geocoder, as the " +
+                                "gazetteer and boundary geocoders find an address quicker than the cache and " +
+                                "without serving a point near a border the address of another point of its cell.",
+                        defaultValue = "true for a remote reverse geocoder, false for a local one",
+                        possibleParameters = {"true", "false"}
+                ),
+                @SystemParameter(
+                        name = "cachePrecision",
+                        description = "The number of geohash characters of the cells, between 1 and 12. A cell " +
+                                "of precision 7 is about 153 m by 153 m, of precision 8 about 38 m by 19 m and of " +
+                                "precision 9 about 5 m by 5 m at the equator.",
+                        defaultValue = "8",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isNeighborCacheEnabled",
+                        description = "Serves a point in a cell which is not cached the address of the nearest " +
+                                "cached point in the 8 cells around it, if that point is no farther than the " +
+                                "diagonal of a cell.",
+                        defaultValue = "false",
+                        possibleParameters = {"true", "false"}
+                ),
+                @SystemParameter(
+                        name = "cacheSize",
+                        description = "The maximum number of cells kept in the cache.",
+                        defaultValue = "10000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "cacheExpiryTime",
+                        description = "The time in milliseconds an address is kept in the cache.",
+                        defaultValue = "86400000",
+                        possibleParameters = "N/A"
+                ),
+                @SystemParameter(
+                        name = "isMetricsEnabled",
+                        description = "Records the cache hits and misses and the latencies and the failures of " +
+                                "the reverse geocode requests, and exposes them through JMX as " +
+                                "'org.wso2.extension.siddhi.execution.geo:type=LookupMetrics,name=reversegeocode'. " +
+                                "They are also recorded when " +
+                                "the statistics of the Siddhi app are enabled.",
+                        defaultValue = "false",
+                        possibleParameters = {"true", "false"}
+                )
+        },
         examples = @Example(
                 syntax = "reversegeocode(6.909785, 79.852603)",
                 description = "This query returns the precise address information of the given location. In this " +
@@ -90,9 +215,15 @@ import java.util.List;
 public class ReverseGeocodeStreamFunctionProcessor extends StreamFunctionProcessor<State> {
 
     private static final Logger LOGGER = Logger.getLogger(ReverseGeocodeStreamFunctionProcessor.class);
-    private final Geocoder geocoder = new Geocoder();
+    private static final String DEFAULT_REVERSE_GEOCODER_CLASSNAME =
+            "org.wso2.extension.siddhi.execution.geo.internal.impl.GoogleReverseGeocoder";
+    private static final String IS_CACHE_ENABLED_KEY = "isCacheEnabled";
+    private ReverseGeocoder reverseGeocoder;
     private boolean debugModeOn;
     private ArrayList<Attribute> attributes = new ArrayList<Attribute>(9);
+    private LookupMetrics metrics;
+    private LookupStatistics statistics;
+    private ReverseGeocodeCache cache;
 
     /**
      * The process method of the StreamFunction, used when more then one function parameters are provided
@@ -102,6 +233,18 @@ public class ReverseGeocodeStreamFunctionProcessor extends StreamFunctionProcess
      */
     @Override
     protected Object[] process(Object[] data) {
+        if (statistics == null) {
+            return reverseGeocode(data);
+        }
+        statistics.markIn(1);
+        try {
+            return reverseGeocode(data);
+        } finally {
+            statistics.markOut();
+        }
+    }
+
+    private Object[] reverseGeocode(Object[] data) {
         if (data[0] == null) {
             throw new SiddhiAppRuntimeException("Invalid input given" +
                     " to geo:reversegeocode() function. The first argument cannot be null");
@@ -111,70 +254,52 @@ public class ReverseGeocodeStreamFunctionProcessor extends StreamFunctionProcess
                     " to geo:reversegeocode() function. The second argument cannot be null");
         }
 
-        BigDecimal latitude = new BigDecimal((Double) data[0]);
-        BigDecimal longitude = new BigDecimal((Double) data[1]);
-
-        LatLng coordinate = new LatLng(latitude, longitude);
-
-        // Make the geocode request to API library
-        GeocoderRequest geocoderRequest = new GeocoderRequestBuilder()
-                .setLocation(coordinate)
-                .setLanguage("en")
-                .getGeocoderRequest();
-
-        String streetNumber = "N/A";
-        String neighborhood = "N/A";
-        String route = "N/A";
-        String administrativeAreaLevelTwo = "N/A";
-        String administrativeAreaLevelOne = "N/A";
-        String country = "N/A";
-        String countryCode = "N/A";
-        String postalCode = "N/A";
-        String formattedAddress = "N/A";
+        double latitude = (Double) data[0];
+        double longitude = (Double) data[1];
+        long startTime = metrics.startTime();
+        if (cache != null) {
+            String[] cachedAddress = cache.get(latitude, longitude);
+            metrics.record(LookupMetrics.Stage.CACHE, startTime);
+            if (cachedAddress != null) {
+                metrics.cacheHit();
+                return Arrays.copyOf(cachedAddress, cachedAddress.length, Object[].class);
+            }
+            metrics.cacheMiss();
+            startTime = metrics.startTime();
+        }
 
+        Address address;
         try {
-            GeocodeResponse geocoderResponse = geocoder.geocode(geocoderRequest);
-            GeocoderStatus status = geocoderResponse.getStatus();
-            if (status == GeocoderStatus.OK && !geocoderResponse.getResults().isEmpty()) {
-                formattedAddress = geocoderResponse.getResults().get(0).getFormattedAddress();
-                List<GeocoderAddressComponent> addressComponents = geocoderResponse
-                        .getResults().get(0).getAddressComponents();
-                for (GeocoderAddressComponent component : addressComponents) {
-                    List<String> types = component.getTypes();
-                    if (types.contains("street_number")) {
-                        streetNumber = component.getLongName();
-                    } else if (types.contains("neighborhood")) {
-                        neighborhood = component.getLongName();
-                    } else if (types.contains("route")) {
-                        route = component.getLongName();
-                    } else if (types.contains("administrative_area_level_2")) {
-                        administrativeAreaLevelTwo = component.getLongName();
-                    } else if (types.contains("administrative_area_level_1")) {
-                        administrativeAreaLevelOne = component.getLongName();
-                    } else if (types.contains("country")) {
-                        country = component.getLongName();
-                        countryCode = component.getShortName();
-                    } else if (types.contains("postal_code")) {
-                        postalCode = component.getLongName();
-                    }
-                }
-            } else {
-                LOGGER.error("Geocoder request failed with a response of: " + status.value());
+            address = reverseGeocoder.getAddress(latitude, longitude);
+            metrics.record(LookupMetrics.Stage.BACKEND, startTime);
+        } catch (GeoLocationResolverException e) {
+            metrics.backendError();
+            throw new SiddhiAppRuntimeException(e.getMessage(), e);
+        }
+
+        String[] values;
+        if (address != null) {
+            values = new String[]{address.getStreetNumber(), address.getNeighborhood(), address.getRoute(),
+                    address.getAdministrativeAreaLevelTwo(), address.getAdministrativeAreaLevelOne(),
+                    address.getCountry(), address.getCountryCode(), address.getPostalCode(),
+                    address.getFormattedAddress()};
+            if (cache != null) {
+                cache.put(latitude, longitude, values);
             }
-        } catch (IOException e) {
-            throw new SiddhiAppRuntimeException("Error in connection to Google Maps API.", e);
+        } else {
+            metrics.backendError();
+            values = new String[attributes.size()];
+            Arrays.fill(values, Address.NOT_AVAILABLE);
         }
 
         if (debugModeOn) {
             String message = String.format("Street Number: %s, Neighborhood: %s," +
                             " Route: %s, Administrative Area Level 2: %s, Administrative Area Level 1: %s, " +
                             "Country: %s, ISO Country code: %s, Postal code: %s, Formatted address: %s",
-                    streetNumber, neighborhood, route, administrativeAreaLevelTwo,
-                    administrativeAreaLevelOne, country, countryCode, postalCode, formattedAddress);
+                    (Object[]) values);
             LOGGER.debug(message);
         }
-        return new Object[]{streetNumber, neighborhood, route, administrativeAreaLevelTwo, administrativeAreaLevelOne,
-                country, countryCode, postalCode, formattedAddress};
+        return Arrays.copyOf(values, values.length, Object[].class);
     }
 
     /**
@@ -222,7 +347,15 @@ public class ReverseGeocodeStreamFunctionProcessor extends StreamFunctionProcess
         attributes.add(new Attribute("countryCode", Attribute.Type.STRING));
         attributes.add(new Attribute("postalCode", Attribute.Type.STRING));
         attributes.add(new Attribute("formattedAddress", Attribute.Type.STRING));
-        return null;
+        initializeReverseGeocoder(configReader);
+        metrics = LookupMetrics.getInstance(LookupMetrics.REVERSE_GEOCODE, configReader);
+        statistics = LookupStatistics.create("reversegeocode", siddhiQueryContext, metrics);
+        // The addresses of a local reverse geocoder are cached only if the cache is enabled explicitly
+        if (Boolean.parseBoolean(configReader.readConfig(IS_CACHE_ENABLED_KEY,
+                String.valueOf(reverseGeocoder.isRemote())))) {
+            cache = ReverseGeocodeCache.getInstance(configReader);
+        }
+        return cache != null ? () -> new ReverseGeocodeCacheState(cache) : null;
     }
 
     /**
@@ -246,6 +379,26 @@ public class ReverseGeocodeStreamFunctionProcessor extends StreamFunctionProcess
 
     }
 
+    private void initializeReverseGeocoder(ConfigReader configReader) {
+        String reverseGeocoderImplClassName = configReader.readConfig("reverseGeocoderClass",
+                DEFAULT_REVERSE_GEOCODER_CLASSNAME);
+        try {
+            reverseGeocoder = ReverseGeocoderHolder.getReverseGeocoderHolderInstance()
+                    .getReverseGeocoder(reverseGeocoderImplClassName, configReader);
+        } catch (InstantiationException e) {
+            throw new SiddhiAppValidationException("Cannot instantiate the reverse geocoder class: " +
+                    reverseGeocoderImplClassName, e);
+        } catch (IllegalAccessException e) {
+            throw new SiddhiAppValidationException("Cannot access the reverse geocoder class: " +
+                    reverseGeocoderImplClassName, e);
+        } catch (ClassNotFoundException e) {
+            throw new SiddhiAppValidationException("Cannot find the reverse geocoder class: " +
+                    reverseGeocoderImplClassName, e);
+        } catch (GeoLocationResolverException e) {
+            throw new SiddhiAppCreationException("Configuration error in reversegeocode stream function", e);
+        }
+    }
+
     @Override
     public List<Attribute> getReturnAttributes() {
         return attributes;
@@ -0,0 +1,88 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.api;
+
+/**
+ * This is the bean class which represents the address of a point, as returned by the reversegeocode function. The
+ * parts which are not known are {@link #NOT_AVAILABLE}.
+ */
+public class Address {
+
+    public static final String NOT_AVAILABLE = "N/A";
+
+    private final String streetNumber;
+    private final String neighborhood;
+    private final String route;
+    private final String administrativeAreaLevelTwo;
+    private final String administrativeAreaLevelOne;
+    private final String country;
+    private final String countryCode;
+    private final String postalCode;
+    private final String formattedAddress;
+
+    public Address(String streetNumber, String neighborhood, String route, String administrativeAreaLevelTwo,
+                   String administrativeAreaLevelOne, String country, String countryCode, String postalCode,
+                   String formattedAddress) {
+        this.streetNumber = streetNumber;
+        this.neighborhood = neighborhood;
+        this.route = route;
+        this.administrativeAreaLevelTwo = administrativeAreaLevelTwo;
+        this.administrativeAreaLevelOne = administrativeAreaLevelOne;
+        this.country = country;
+        this.countryCode = countryCode;
+        this.postalCode = postalCode;
+        this.formattedAddress = formattedAddress;
+    }
+
+    public String getStreetNumber() {
+        return streetNumber;
+    }
+
+    public String getNeighborhood() {
+        return neighborhood;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public String getAdministrativeAreaLevelTwo() {
+        return administrativeAreaLevelTwo;
+    }
+
+    public String getAdministrativeAreaLevelOne() {
+        return administrativeAreaLevelOne;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getCountryCode() {
+        return countryCode;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public String getFormattedAddress() {
+        return formattedAddress;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.api;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+import javax.sql.DataSource;
+
+/**
+ * Interface for providing the datasource of the BLOCKS, LOCATION and IP_LOCATION tables to the default
+ * GeoLocationResolver. An implementation is configured with 'dataSourceProvider', which makes the resolver usable
+ * outside of an OSGi container, such as in an embedded Siddhi, tests or benchmarks.
+ */
+public interface DataSourceProvider {
+
+    /**
+     * This method will provide the datasource. It is invoked once, when the resolver is initialized.
+     *
+     * @param configReader this hold the extensions configuration reader
+     * @return the datasource
+     * @throws GeoLocationResolverException if the datasource cannot be found or created
+     */
+    public DataSource getDataSource(ConfigReader configReader) throws GeoLocationResolverException;
+
+    /**
+     * This method will be invoked when the resolver is shut down, after it has closed all its connections. A
+     * provider which created the datasource, such as a local connection pool, releases it here, while a datasource
+     * shared by the container, such as a Carbon or a JNDI datasource, is left open.
+     */
+    public default void close() {
+    }
+}
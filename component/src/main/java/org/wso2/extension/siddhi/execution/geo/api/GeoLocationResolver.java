@@ -21,6 +21,11 @@ package org.wso2.extension.siddhi.execution.geo.api;
 import io.siddhi.core.util.config.ConfigReader;
 import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
 /**
  * Interface for the GeoLocation based on the ip address.
  */
@@ -30,10 +35,102 @@ public interface GeoLocationResolver {
      * This method will provide the geo location information related to the given ip.
      *
      * @param ip ip address
-     * @return geo location information related to given ip address
+     * @return geo location information related to given ip address, a location with an empty country and city if
+     * the ip address is not in the dataset, or null if the location cannot be retrieved at the moment, such as when
+     * a database cannot be read, in which case the ip address is resolved again at its next lookup
      */
     public Location getGeoLocationInfo(String ip);
 
+    /**
+     * This method will provide the geo location information related to each of the given ips. Implementations
+     * which can resolve many ips at once, such as with a single database query, should override this method.
+     *
+     * @param ips ip addresses
+     * @return geo location information related to each given ip address, keyed by the ip address, with no location
+     * for the ip addresses whose location cannot be retrieved at the moment
+     */
+    public default Map<String, Location> getGeoLocationInfo(Collection<String> ips) {
+        Map<String, Location> locations = new HashMap<>();
+        for (String ip : ips) {
+            locations.put(ip, getGeoLocationInfo(ip));
+        }
+        return locations;
+    }
+
+    /**
+     * This method will provide the ip addresses which the resolver has resolved before, such as the ones it has
+     * persisted, so that the caches can be warmed up before the ip addresses are looked up again. Implementations
+     * which do not keep the resolved ip addresses need not override this method.
+     *
+     * @param maxCount the maximum number of ip addresses to be provided
+     * @param consumer receives each ip address with its location, and returns false when no more are needed
+     */
+    public default void loadResolvedLocations(int maxCount, BiPredicate<String, Location> consumer) {
+    }
+
+    /**
+     * This method will provide the state of the caches the resolver keeps itself, so that it is stored with the
+     * Siddhi state snapshots and a restarted node resumes with them. The values must be serializable.
+     * Implementations which do not keep caches need not override this method.
+     *
+     * @return the state of the caches, or null if there is none
+     */
+    public default Map<String, Object> snapshotState() {
+        return null;
+    }
+
+    /**
+     * This method will restore the state of the caches provided by {@link #snapshotState()}.
+     *
+     * @param state the state of the caches
+     */
+    public default void restoreState(Map<String, Object> state) {
+    }
+
+    /**
+     * This method will load the geo location dataset again if it has changed since it was loaded, such as after the
+     * weekly update of a GeoLite database. The new index is built on the calling thread while the lookups keep using
+     * the current one, and is then published at once, incrementing the {@link #getDatasetGeneration() generation}.
+     * Implementations which cannot reload need not override this method.
+     *
+     * @return true if a new dataset has been published
+     * @throws GeoLocationResolverException if the new dataset cannot be loaded, in which case the current one is kept
+     */
+    public default boolean reload() throws GeoLocationResolverException {
+        return false;
+    }
+
+    /**
+     * This method will provide the generation of the dataset the lookups are resolved from. The locations cached
+     * from an earlier generation are dropped by the callers, hence the generation must be published together with
+     * the dataset, never before it.
+     *
+     * @return the generation, which starts from 0
+     */
+    public default long getDatasetGeneration() {
+        return 0;
+    }
+
+    /**
+     * This method will provide a fingerprint of the dataset the lookups are resolved from, such as its version.
+     * Unlike the generation it identifies the same dataset across restarts, hence it is stored with the state
+     * snapshots, and the locations cached from another dataset are not restored. Implementations which cannot tell
+     * their datasets apart need not override this method.
+     *
+     * @return the fingerprint, or null if it is not known
+     */
+    public default String getDatasetFingerprint() {
+        return null;
+    }
+
+    /**
+     * This method will release the resources of the resolver, such as its database connections and background
+     * threads, when the geo functions stop using it. Implementations which hold no such resources need not override
+     * this method.
+     */
+    public default void shutdown() {
+    }
+
     /**
      * This method will be invoked after the initializing the extension. You can do any initial configuration here.
      *
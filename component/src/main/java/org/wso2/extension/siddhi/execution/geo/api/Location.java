@@ -19,16 +19,50 @@
 package org.wso2.extension.siddhi.execution.geo.api;
 
 /**
- * This is the bean class which represents the Location.
+ * This is the bean class which represents the Location. The resolvers share one instance per location between all
+ * the IP addresses it covers, such instances do not carry an ip.
  */
 public class Location {
     private final String country;
+    private final String subdivision;
     private final String city;
+    private final Double latitude;
+    private final Double longitude;
+    private final String autonomousSystemNumber;
     private final String ip;
 
+    public Location(String country, String city) {
+        this(country, city, null);
+    }
+
     public Location(String country, String city, String ip) {
+        this(country, null, city, null, null, null, ip);
+    }
+
+    /**
+     * Creates a location shared between IP addresses with the details a resolver may provide beside the country
+     * and the city.
+     *
+     * @param country                the country name
+     * @param subdivision            the name of the first subdivision, such as the state, or null if not available
+     * @param city                   the city name
+     * @param latitude               the approximate latitude, or null if not available
+     * @param longitude              the approximate longitude, or null if not available
+     * @param autonomousSystemNumber the autonomous system number of the network, or null if not available
+     */
+    public Location(String country, String subdivision, String city, Double latitude, Double longitude,
+                    String autonomousSystemNumber) {
+        this(country, subdivision, city, latitude, longitude, autonomousSystemNumber, null);
+    }
+
+    private Location(String country, String subdivision, String city, Double latitude, Double longitude,
+                     String autonomousSystemNumber, String ip) {
         this.country = country != null ? country : "";
+        this.subdivision = subdivision != null ? subdivision : "";
         this.city = city != null ? city : "";
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.autonomousSystemNumber = autonomousSystemNumber;
         this.ip = ip;
     }
 
@@ -36,10 +70,45 @@ public class Location {
         return country;
     }
 
+    /**
+     * Returns the name of the first subdivision of the country, such as the state or the province.
+     *
+     * @return the subdivision, or an empty string if the resolver does not provide it separately from the city
+     */
+    public String getSubdivision() {
+        return subdivision;
+    }
+
     public String getCity() {
         return city;
     }
 
+    /**
+     * @return the approximate latitude, or null if the resolver does not provide coordinates
+     */
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return the approximate longitude, or null if the resolver does not provide coordinates
+     */
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return the autonomous system number of the network, or null if the resolver does not provide it
+     */
+    public String getAutonomousSystemNumber() {
+        return autonomousSystemNumber;
+    }
+
+    /**
+     * Returns the IP address the location was resolved for.
+     *
+     * @return the ip, or null if the location is shared between IP addresses
+     */
     public String getIp() {
         return ip;
     }
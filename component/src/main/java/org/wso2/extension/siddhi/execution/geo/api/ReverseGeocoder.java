@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.api;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+/**
+ * Interface for the reverse geocoders, which find the address of a point for the reversegeocode function.
+ */
+public interface ReverseGeocoder {
+
+    /**
+     * This method will provide the address of the given point.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the address of the point, or null if no address is found
+     * @throws GeoLocationResolverException if the address cannot be looked up, such as when a web API is not
+     *                                      reachable
+     */
+    public Address getAddress(double latitude, double longitude) throws GeoLocationResolverException;
+
+    /**
+     * This method will tell whether the addresses are requested from a remote service, such as a web API, in which
+     * case the addresses are cached by default. The addresses of a local reverse geocoder are not cached unless the
+     * cache is enabled explicitly, as it finds them quicker than a cache keyed by cells, which may serve a point the
+     * address of another point of the cell across a border.
+     *
+     * @return true if the addresses are requested from a remote service
+     */
+    public default boolean isRemote() {
+        return true;
+    }
+
+    /**
+     * This method will be invoked after the initializing the extension. You can do any initial configuration here.
+     *
+     * @param configReader this hold the extensions configuration reader
+     * @throws GeoLocationResolverException if the reverse geocoder cannot be initialized
+     */
+    public void init(ConfigReader configReader) throws GeoLocationResolverException;
+
+}
@@ -0,0 +1,255 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.AddressNormalizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The cache of the results of the geocode requests, shared by all the geocode functions, so that an address which
+ * repeats in the events is sent to the geocoder once per expiry time. The results are keyed by the
+ * {@link AddressNormalizer normalized} address, hence the spellings of an address which differ only in case,
+ * whitespace, punctuation or common abbreviations share an entry. Only the successful results are cached.
+ */
+public class GeocodeCache {
+    private static final Log log = LogFactory.getLog(GeocodeCache.class);
+
+    private static final String IS_CACHE_ENABLED_KEY = "isCacheEnabled";
+    private static final String CACHE_SIZE_KEY = "cacheSize";
+    private static final String CACHE_EXPIRY_TIME_KEY = "cacheExpiryTime";
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final long DEFAULT_CACHE_EXPIRY_TIME = 86400000;
+    private static final String CACHED_RESULTS_STATE_KEY = "cachedResults";
+    private static final int STATE_VERSION = 1;
+
+    private static GeocodeCache instance;
+    private static boolean isInitialized;
+
+    private final TinyLFUCache<String, Entry> cache;
+    private final long expiryTime;
+
+    /**
+     * @param maxEntries the maximum number of addresses kept in the cache
+     * @param expiryTime the time in milliseconds a result is kept in the cache
+     */
+    public GeocodeCache(int maxEntries, long expiryTime) {
+        this.cache = new TinyLFUCache<>(maxEntries);
+        this.expiryTime = expiryTime;
+    }
+
+    /**
+     * Returns the cache shared by the geocode functions, which is created with the configuration of the first
+     * function.
+     *
+     * @param configReader the configuration of the calling geocode function
+     * @return the cache, or null if caching is disabled
+     */
+    public static synchronized GeocodeCache getInstance(ConfigReader configReader) {
+        if (!isInitialized) {
+            if (Boolean.parseBoolean(configReader.readConfig(IS_CACHE_ENABLED_KEY, "true"))) {
+                int maxEntries = (int) readLongConfig(configReader, CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE);
+                if (maxEntries > 0) {
+                    instance = new GeocodeCache(maxEntries,
+                            readLongConfig(configReader, CACHE_EXPIRY_TIME_KEY, DEFAULT_CACHE_EXPIRY_TIME));
+                    LookupMetrics metrics = LookupMetrics.getInstance(LookupMetrics.GEOCODE);
+                    metrics.registerGauge("CacheSize", instance::size);
+                    metrics.registerGauge("CacheEvictions", instance::getEvictionCount);
+                }
+            }
+            isInitialized = true;
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached result of the given address, or of any address with the same normalized form.
+     *
+     * @param address the address
+     * @return the result, or null if the address is not cached or its result has expired
+     */
+    public Result get(String address) {
+        return get(address, System.currentTimeMillis());
+    }
+
+    Result get(String address, long currentTime) {
+        String key = AddressNormalizer.normalize(address);
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= currentTime) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    public void put(String address, Result result) {
+        put(address, result, System.currentTimeMillis());
+    }
+
+    void put(String address, Result result, long currentTime) {
+        String key = AddressNormalizer.normalize(address);
+        if (!key.isEmpty()) {
+            cache.put(key, new Entry(result, currentTime + expiryTime));
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the number of entries removed to cache other addresses
+     */
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Returns the cached results which have not expired, encoded to be stored with the Siddhi state snapshots.
+     *
+     * @return the state
+     */
+    public Map<String, Object> snapshotState() {
+        Map<String, Object> state = new HashMap<>();
+        long currentTime = System.currentTimeMillis();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Map<String, Entry> entries = new HashMap<>();
+            cache.forEach((key, entry) -> {
+                if (entry.expiresAt > currentTime) {
+                    entries.put(key, entry);
+                }
+            });
+            out.writeByte(STATE_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Result result = entry.getValue().result;
+                out.writeUTF(entry.getKey());
+                out.writeUTF(result.getFormattedAddress());
+                out.writeDouble(result.getLatitude());
+                out.writeDouble(result.getLongitude());
+                out.writeLong(entry.getValue().expiresAt);
+            }
+            state.put(CACHED_RESULTS_STATE_KEY, bytes.toByteArray());
+        } catch (IOException e) {
+            log.warn("Cannot snapshot the geocode cache", e);
+        }
+        return state;
+    }
+
+    /**
+     * Restores the results provided by {@link #snapshotState()}, keeping the times at which they expire. The
+     * results cached since the start are kept, as they are fresher than the restored ones.
+     *
+     * @param state the state
+     */
+    public void restoreState(Map<String, Object> state) {
+        Object cachedResults = state.get(CACHED_RESULTS_STATE_KEY);
+        if (!(cachedResults instanceof byte[])) {
+            return;
+        }
+        long currentTime = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream((byte[]) cachedResults))) {
+            int version = in.readByte();
+            if (version != STATE_VERSION) {
+                log.warn("Cannot restore the geocode cache from a snapshot of version " + version);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                Result result = new Result(in.readUTF(), in.readDouble(), in.readDouble());
+                long expiresAt = in.readLong();
+                if (expiresAt > currentTime && cache.get(key) == null) {
+                    cache.put(key, new Entry(result, expiresAt));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot restore the geocode cache", e);
+        }
+    }
+
+    private static long readLongConfig(ConfigReader configReader, String key, long defaultValue) {
+        String value = configReader.readConfig(key, String.valueOf(defaultValue));
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("The config '" + value + "' provided in '" + key + "' is not a valid number. Hence using " +
+                    "the default value '" + defaultValue + "'");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * The result of a geocode request.
+     */
+    public static final class Result {
+        private final String formattedAddress;
+        private final double latitude;
+        private final double longitude;
+
+        public Result(String formattedAddress, double latitude, double longitude) {
+            this.formattedAddress = formattedAddress;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public String getFormattedAddress() {
+            return formattedAddress;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    /**
+     * A cached result with the time at which it expires.
+     */
+    private static final class Entry {
+        private final Result result;
+        private final long expiresAt;
+
+        private Entry(Result result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import io.siddhi.core.util.snapshot.state.State;
+
+import java.util.Map;
+
+/**
+ * The state of a geocode function, which is the state of the shared {@link GeocodeCache}. Storing it with the
+ * Siddhi state snapshots lets a restarted node resume with the cached results instead of requesting them again.
+ */
+public class GeocodeCacheState extends State {
+
+    private final GeocodeCache geocodeCache;
+
+    public GeocodeCacheState(GeocodeCache geocodeCache) {
+        this.geocodeCache = geocodeCache;
+    }
+
+    @Override
+    public boolean canDestroy() {
+        return false;
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        return geocodeCache.snapshotState();
+    }
+
+    @Override
+    public void restore(Map<String, Object> state) {
+        geocodeCache.restoreState(state);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * The cache of the resolved IP locations. IPv4 addresses are parsed to their 32 bit value and kept in a
+ * primitive {@link IPv4LocationCache} which points to shared locations, so a hit neither hashes a String nor
+ * allocates. Any other key, such as an IPv6 address or a CIDR, is kept in a {@link TinyLFUCache}.
+ * <p>
+ * The shared locations outlive the entries pointing to them, and a dataset with coordinates, such as a MaxMind
+ * database, has nearly as many distinct locations as networks. Hence their registry is bounded to twice the capacity
+ * of the IPv4 entries, and once it is full, the locations no entry points to any more are released for reuse. A
+ * lookup validates that no release ran meanwhile, so that it never returns the location which reused an id.
+ */
+public class IPLocationCache {
+
+    private final int maxEntries;
+    private final IPv4LocationCache ipv4Cache;
+    private final LocationRegistry locationRegistry;
+    private final TinyLFUCache<String, Location> cache;
+    private final StampedLock lock = new StampedLock();
+
+    public IPLocationCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        ipv4Cache = new IPv4LocationCache(maxEntries);
+        locationRegistry = new LocationRegistry((int) Math.min(2L * ipv4Cache.capacity(),
+                IPv4LocationCache.getMaxLocationId() + 1L));
+        cache = new TinyLFUCache<>(maxEntries);
+    }
+
+    public Location get(String ip) {
+        long ipv4 = IPAddressParser.parseIPv4(ip);
+        if (ipv4 >= 0) {
+            long stamp = lock.tryOptimisticRead();
+            int locationId = ipv4Cache.get(ipv4);
+            Location location = locationId >= 0 ? locationRegistry.get(locationId) : null;
+            // A release of the unreferenced locations meanwhile may have given the id to another location
+            return lock.validate(stamp) ? location : null;
+        }
+        return cache.get(ip);
+    }
+
+    public void put(String ip, Location location) {
+        long ipv4 = IPAddressParser.parseIPv4(ip);
+        if (ipv4 < 0) {
+            cache.put(ip, location);
+            return;
+        }
+        long stamp = lock.readLock();
+        try {
+            int locationId = locationRegistry.register(location);
+            if (locationId >= 0) {
+                ipv4Cache.put(ipv4, locationId);
+                return;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        stamp = lock.writeLock();
+        try {
+            // Another thread may have released the locations already
+            int locationId = locationRegistry.register(location);
+            if (locationId < 0) {
+                releaseUnreferencedLocations();
+                locationId = locationRegistry.register(location);
+            }
+            if (locationId >= 0) {
+                ipv4Cache.put(ipv4, locationId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Releases the locations which no IPv4 entry points to. The registry holds twice as many locations as there are
+     * entries, hence at least half of it is released.
+     */
+    private void releaseUnreferencedLocations() {
+        BitSet referenced = new BitSet();
+        ipv4Cache.forEach((ip, locationId) -> referenced.set(locationId));
+        locationRegistry.retainAll(referenced);
+    }
+
+    /**
+     * Passes each cached ip with its location to the consumer.
+     *
+     * @param consumer the consumer of the entries
+     */
+    public void forEach(BiConsumer<String, Location> consumer) {
+        long stamp = lock.readLock();
+        try {
+            ipv4Cache.forEach((ip, locationId) -> {
+                Location location = locationRegistry.get(locationId);
+                if (location != null) {
+                    consumer.accept(IPAddressParser.formatIPv4(ip), location);
+                }
+            });
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        cache.forEach(consumer);
+    }
+
+    /**
+     * @return the number of entries removed to cache other ip addresses
+     */
+    public long getEvictionCount() {
+        return ipv4Cache.getEvictionCount() + cache.getEvictionCount();
+    }
+
+    /**
+     * @return the number of distinct locations the IPv4 entries point to, or pointed to before the last release
+     */
+    int getLocationCount() {
+        return locationRegistry.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            ipv4Cache.clear();
+            locationRegistry.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        cache.clear();
+    }
+}
@@ -0,0 +1,672 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.query.api.exception.SiddhiAppValidationException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.GeoLocationResolver;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.LocationCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves the locations of IP addresses through a GeoLocationResolver and caches them. There is one service per
+ * GeoLocationResolver implementation class, which is created by the first geo function that uses it and shared by
+ * all the other geo functions, hence an IP address is resolved and cached once whichever functions ask for it.
+ * The caches belong to a generation of the dataset of the resolver, and are replaced with empty ones when the
+ * resolver publishes a reloaded dataset.
+ */
+public class IPLocationService {
+    private static final Log log = LogFactory.getLog(IPLocationService.class);
+
+    private static final String GEOLOCATION_RESOLVER_CLASS_KEY = "geoLocationResolverClass";
+    private static final String DEFAULT_GEOLOCATION_RESOLVER_CLASSNAME =
+            "org.wso2.extension.siddhi.execution.geo.internal.impl.DefaultDBBasedGeoLocationResolver";
+    private static final String IS_CACHE_ENABLED_KEY = "isCacheEnabled";
+    private static final String CACHE_SIZE_KEY = "cacheSize";
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final String NEGATIVE_CACHE_SIZE_KEY = "negativeCacheSize";
+    private static final String NEGATIVE_CACHE_EXPIRY_TIME_KEY = "negativeCacheExpiryTime";
+    private static final int DEFAULT_NEGATIVE_CACHE_SIZE = 10000;
+    private static final long DEFAULT_NEGATIVE_CACHE_EXPIRY_TIME = 600000;
+    private static final String WARM_UP_SOURCE_KEY = "warmUpSource";
+    private static final String WARM_UP_SIZE_KEY = "warmUpSize";
+    private static final String WARM_UP_TIME_BUDGET_KEY = "warmUpTimeBudget";
+    private static final String CACHE_SNAPSHOT_FILE_KEY = "cacheSnapshotFile";
+    private static final String WARM_UP_SOURCE_NONE = "none";
+    private static final String WARM_UP_SOURCE_PERSISTED = "persisted";
+    private static final String WARM_UP_SOURCE_SNAPSHOT = "snapshot";
+    private static final int DEFAULT_WARM_UP_SIZE = 10000;
+    private static final long DEFAULT_WARM_UP_TIME_BUDGET = 30000;
+    private static final String CACHED_LOCATIONS_STATE_KEY = "cachedLocations";
+    private static final String RESOLVER_STATE_KEY = "resolver";
+    private static final String DATASET_FINGERPRINT_STATE_KEY = "datasetFingerprint";
+    private static final String RELOAD_CHECK_INTERVAL_KEY = "reloadCheckInterval";
+    private static final long DEFAULT_RELOAD_CHECK_INTERVAL = 0;
+    private static final long RELOAD_STOP_TIMEOUT = 10000;
+
+    /**
+     * The location of the IP addresses which cannot be resolved.
+     */
+    public static final Location UNRESOLVED_LOCATION = new Location("", "");
+
+    private static final Map<String, IPLocationService> instances = new ConcurrentHashMap<>();
+
+    private final GeoLocationResolver geoLocationResolver;
+    private final AtomicReference<CacheGeneration> caches;
+    private final LongAdder pastEvictions = new LongAdder();
+    private final LookupMetrics metrics = LookupMetrics.getInstance(LookupMetrics.IP_LOCATION);
+    private WeakReference<IPLocationServiceState> stateOwner = new WeakReference<>(null);
+    private volatile ScheduledExecutorService reloadExecutor;
+
+    IPLocationService(GeoLocationResolver geoLocationResolver, IPLocationCache cache,
+                      NegativeLocationCache negativeCache) {
+        this.geoLocationResolver = geoLocationResolver;
+        this.caches = new AtomicReference<>(cache != null ?
+                new CacheGeneration(geoLocationResolver.getDatasetGeneration(), cache, negativeCache) : null);
+        // The services share the metrics, hence the gauges report all of them rather than the last one created
+        if (cache != null) {
+            metrics.registerGauge("CacheEvictions", IPLocationService::getTotalEvictionCount);
+        }
+        metrics.registerGauge("DatasetGeneration", IPLocationService::getLatestDatasetGeneration);
+    }
+
+    /**
+     * @return the number of locations evicted from the caches of all the services, including the caches of the
+     * previous generations of their datasets
+     */
+    private static long getTotalEvictionCount() {
+        long count = 0;
+        for (IPLocationService service : instances.values()) {
+            count += service.getEvictionCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return the highest dataset generation among the resolvers of the services, which is the generation of the
+     * dataset of the resolver when only one is configured
+     */
+    private static long getLatestDatasetGeneration() {
+        long generation = 0;
+        for (IPLocationService service : instances.values()) {
+            generation = Math.max(generation, service.geoLocationResolver.getDatasetGeneration());
+        }
+        return generation;
+    }
+
+    long getEvictionCount() {
+        CacheGeneration current = caches.get();
+        return current != null ? pastEvictions.sum() + current.cache.getEvictionCount() : 0;
+    }
+
+    /**
+     * Returns the service of the GeoLocationResolver given in the configuration, creating and initializing it with
+     * the given configuration if it is the first use of the resolver.
+     *
+     * @param configReader the configuration of the calling geo function
+     * @return the service
+     * @throws SiddhiAppValidationException if the GeoLocationResolver cannot be created or initialized
+     */
+    public static IPLocationService getInstance(ConfigReader configReader) throws SiddhiAppValidationException {
+        String geoResolverImplClassName = configReader.readConfig(GEOLOCATION_RESOLVER_CLASS_KEY,
+                DEFAULT_GEOLOCATION_RESOLVER_CLASSNAME);
+        LookupMetrics.getInstance(LookupMetrics.IP_LOCATION, configReader);
+        synchronized (instances) {
+            IPLocationService service = instances.get(geoResolverImplClassName);
+            if (service == null) {
+                service = create(geoResolverImplClassName, configReader);
+                instances.put(geoResolverImplClassName, service);
+            }
+            return service;
+        }
+    }
+
+    private static IPLocationService create(String geoResolverImplClassName, ConfigReader configReader)
+            throws SiddhiAppValidationException {
+        IPLocationCache cache = null;
+        NegativeLocationCache negativeCache = null;
+        if (Boolean.parseBoolean(configReader.readConfig(IS_CACHE_ENABLED_KEY, "true"))) {
+            cache = new IPLocationCache(readIntConfig(configReader, CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE));
+            negativeCache = new NegativeLocationCache(
+                    readIntConfig(configReader, NEGATIVE_CACHE_SIZE_KEY, DEFAULT_NEGATIVE_CACHE_SIZE),
+                    readLongConfig(configReader, NEGATIVE_CACHE_EXPIRY_TIME_KEY, DEFAULT_NEGATIVE_CACHE_EXPIRY_TIME));
+        }
+
+        GeoLocationResolver geoLocationResolver;
+        try {
+            geoLocationResolver = (GeoLocationResolver) Class.forName(geoResolverImplClassName).newInstance();
+            geoLocationResolver.init(configReader);
+        } catch (InstantiationException e) {
+            throw new SiddhiAppValidationException("Cannot instantiate GeoLocationResolver implementation class '"
+                    + geoResolverImplClassName + "' given in the configuration", e);
+        } catch (IllegalAccessException e) {
+            throw new SiddhiAppValidationException("Cannot access GeoLocationResolver implementation class '"
+                    + geoResolverImplClassName + "' given in the configuration", e);
+        } catch (ClassNotFoundException e) {
+            throw new SiddhiAppValidationException("Cannot find GeoLocationResolver implementation class '"
+                    + geoResolverImplClassName + "' given in the configuration", e);
+        } catch (ClassCastException e) {
+            throw new SiddhiAppValidationException("Cannot cast GeoLocationResolver implementation class '"
+                    + geoResolverImplClassName + "' to 'GeoLocationResolver'", e);
+        } catch (GeoLocationResolverException e) {
+            throw new SiddhiAppValidationException("Cannot initialize GeoLocationResolver implementation class '"
+                    + geoResolverImplClassName + "' given in the configuration", e);
+        }
+        IPLocationService service = new IPLocationService(geoLocationResolver, cache, negativeCache);
+        if (cache != null) {
+            service.startWarmUp(configReader);
+        }
+        service.startReloadChecks(readLongConfig(configReader, RELOAD_CHECK_INTERVAL_KEY,
+                DEFAULT_RELOAD_CHECK_INTERVAL));
+        return service;
+    }
+
+    /**
+     * Checks periodically whether the dataset of the resolver has changed, and reloads it in the background if so.
+     *
+     * @param interval the time in milliseconds between two checks, 0 or less disables the checks
+     */
+    private void startReloadChecks(long interval) {
+        if (interval <= 0) {
+            return;
+        }
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Siddhi-Geo-DatasetReload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloadExecutor.scheduleWithFixedDelay(this::reload, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the reload checks and shuts the resolver down, such as when the extension is unloaded. The service is
+     * no longer returned by {@link #getInstance(ConfigReader)}, which creates a new one on the next use of the
+     * resolver.
+     */
+    public void shutdown() {
+        synchronized (instances) {
+            instances.values().remove(this);
+        }
+        ScheduledExecutorService executor = reloadExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                // A reload in progress must not publish a dataset once the resolver is shut down
+                executor.awaitTermination(RELOAD_STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        geoLocationResolver.shutdown();
+    }
+
+    /**
+     * Shuts down all the services, such as when the extension is unloaded.
+     */
+    public static void shutdownAll() {
+        for (IPLocationService service : instances.values()) {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * Reloads the dataset of the resolver if it has changed. The lookups are served from the current dataset and
+     * caches until the new dataset is published, after which the locations cached from the previous one are
+     * dropped.
+     *
+     * @return true if a new dataset has been published
+     */
+    public boolean reload() {
+        long startTime = System.currentTimeMillis();
+        try {
+            if (!geoLocationResolver.reload()) {
+                return false;
+            }
+        } catch (GeoLocationResolverException e) {
+            log.error("Cannot reload the geo location dataset. Hence the lookups continue with the current one", e);
+            return false;
+        }
+        // Drops the previous caches now, rather than at the next lookup
+        getCaches();
+        log.info("Published generation " + geoLocationResolver.getDatasetGeneration() + " of the geo location " +
+                "dataset in " + (System.currentTimeMillis() - startTime) + " ms.");
+        return true;
+    }
+
+    /**
+     * Returns the caches of the current generation of the dataset, replacing the caches with empty ones if the
+     * resolver has published a new dataset. A lookup which resolved a location from the previous dataset adds it
+     * to the previous caches it started with, hence a stale location never reaches the new caches.
+     *
+     * @return the caches, or null if caching is disabled
+     */
+    private CacheGeneration getCaches() {
+        CacheGeneration current = caches.get();
+        if (current == null) {
+            return null;
+        }
+        long generation = geoLocationResolver.getDatasetGeneration();
+        if (current.generation != generation) {
+            if (caches.compareAndSet(current, current.next(generation))) {
+                pastEvictions.add(current.cache.getEvictionCount());
+                if (log.isDebugEnabled()) {
+                    log.debug("Dropped the IP locations cached from generation " + current.generation + " of the " +
+                            "geo location dataset.");
+                }
+            }
+            current = caches.get();
+        }
+        return current;
+    }
+
+    /**
+     * Starts loading the cache in the background, from the locations persisted by the resolver or from the
+     * snapshot written at the last shutdown, within the configured number of entries and time. Also registers the
+     * writing of the snapshot at shutdown if a snapshot file is configured.
+     */
+    private void startWarmUp(ConfigReader configReader) {
+        String source = configReader.readConfig(WARM_UP_SOURCE_KEY, WARM_UP_SOURCE_NONE);
+        int size = readIntConfig(configReader, WARM_UP_SIZE_KEY, DEFAULT_WARM_UP_SIZE);
+        long timeBudget = readLongConfig(configReader, WARM_UP_TIME_BUDGET_KEY, DEFAULT_WARM_UP_TIME_BUDGET);
+        String snapshotFileName = configReader.readConfig(CACHE_SNAPSHOT_FILE_KEY, "");
+        File snapshotFile = snapshotFileName.isEmpty() ? null : new File(snapshotFileName);
+        if (snapshotFile != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    writeSnapshot(snapshotFile, size);
+                } catch (IOException e) {
+                    log.error("Cannot write the IP location cache snapshot to '" + snapshotFile + "'", e);
+                }
+            }));
+        }
+
+        Runnable warmUp;
+        if (WARM_UP_SOURCE_PERSISTED.equalsIgnoreCase(source)) {
+            warmUp = () -> loadResolvedLocations(size, System.currentTimeMillis() + timeBudget);
+        } else if (WARM_UP_SOURCE_SNAPSHOT.equalsIgnoreCase(source)) {
+            if (snapshotFile == null) {
+                log.warn("The '" + CACHE_SNAPSHOT_FILE_KEY + "' is not configured. Hence the IP location cache " +
+                        "is not warmed up");
+                return;
+            }
+            warmUp = () -> {
+                try {
+                    loadSnapshot(snapshotFile, size, System.currentTimeMillis() + timeBudget);
+                } catch (IOException e) {
+                    log.warn("Cannot read the IP location cache snapshot from '" + snapshotFile + "'", e);
+                }
+            };
+        } else {
+            if (!WARM_UP_SOURCE_NONE.equalsIgnoreCase(source)) {
+                log.warn("The config '" + source + "' provided in '" + WARM_UP_SOURCE_KEY + "' is not one of '" +
+                        WARM_UP_SOURCE_NONE + "', '" + WARM_UP_SOURCE_PERSISTED + "' or '" + WARM_UP_SOURCE_SNAPSHOT +
+                        "'. Hence the IP location cache is not warmed up");
+            }
+            return;
+        }
+        Thread warmUpThread = new Thread(warmUp, "Siddhi-Geo-CacheWarmUp");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    /**
+     * Caches the locations the resolver has resolved before.
+     *
+     * @param maxCount the maximum number of locations to be cached
+     * @param deadline the time in milliseconds after which no more locations are cached
+     * @return the number of locations cached
+     */
+    int loadResolvedLocations(int maxCount, long deadline) {
+        long startTime = System.currentTimeMillis();
+        int[] count = new int[1];
+        geoLocationResolver.loadResolvedLocations(maxCount, (ip, location) -> warmUp(ip, location, count, deadline));
+        if (log.isDebugEnabled()) {
+            log.debug("Warmed up the IP location cache with " + count[0] + " persisted locations in " +
+                    (System.currentTimeMillis() - startTime) + " ms.");
+        }
+        return count[0];
+    }
+
+    /**
+     * Caches the locations of a snapshot written by {@link #writeSnapshot(File, int)}.
+     *
+     * @param file     the snapshot file
+     * @param maxCount the maximum number of locations to be cached
+     * @param deadline the time in milliseconds after which no more locations are cached
+     * @return the number of locations cached
+     * @throws IOException if the snapshot cannot be read
+     */
+    int loadSnapshot(File file, int maxCount, long deadline) throws IOException {
+        if (!file.isFile()) {
+            return 0;
+        }
+        long startTime = System.currentTimeMillis();
+        int[] count = new int[1];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            LocationCodec.read(in, (ip, location) -> {
+                if (count[0] < maxCount) {
+                    warmUp(ip, location, count, deadline);
+                }
+            });
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Warmed up the IP location cache with " + count[0] + " locations from '" + file + "' in " +
+                    (System.currentTimeMillis() - startTime) + " ms.");
+        }
+        return count[0];
+    }
+
+    /**
+     * Writes the cached locations, which the cache has kept as the most used ones, to a snapshot file. The file is
+     * replaced only once the snapshot is complete.
+     *
+     * @param file     the snapshot file
+     * @param maxCount the maximum number of locations to be written
+     * @throws IOException if the snapshot cannot be written
+     */
+    void writeSnapshot(File file, int maxCount) throws IOException {
+        Map<String, Location> entries = getCachedLocations(maxCount);
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporaryFile)))) {
+            LocationCodec.write(out, entries);
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns whether the given state of a geo function is the one which stores the state of the service. The
+     * functions share the service, hence its caches are stored with the snapshots of one of their states only,
+     * rather than once per function. Another state takes over once the current one has been garbage collected
+     * along with its Siddhi app.
+     *
+     * @param state the state of a geo function
+     * @return true if the state stores the state of the service
+     */
+    synchronized boolean isStateOwner(IPLocationServiceState state) {
+        IPLocationServiceState owner = stateOwner.get();
+        if (owner == null) {
+            stateOwner = new WeakReference<>(state);
+            return true;
+        }
+        return owner == state;
+    }
+
+    /**
+     * Returns the state of the cache and of the caches of the resolver, to be stored with the Siddhi state
+     * snapshots, along with the fingerprint of the dataset they have been resolved from. The cached locations are
+     * encoded with {@link LocationCodec}.
+     *
+     * @return the state
+     */
+    public Map<String, Object> snapshotState() {
+        Map<String, Object> state = new HashMap<>();
+        String fingerprint = geoLocationResolver.getDatasetFingerprint();
+        if (fingerprint != null) {
+            state.put(DATASET_FINGERPRINT_STATE_KEY, fingerprint);
+        }
+        if (caches.get() != null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                LocationCodec.write(out, getCachedLocations(Integer.MAX_VALUE));
+                state.put(CACHED_LOCATIONS_STATE_KEY, bytes.toByteArray());
+            } catch (IOException e) {
+                log.warn("Cannot snapshot the IP location cache", e);
+            }
+        }
+        Map<String, Object> resolverState = geoLocationResolver.snapshotState();
+        if (resolverState != null) {
+            state.put(RESOLVER_STATE_KEY, resolverState);
+        }
+        if (!Objects.equals(fingerprint, geoLocationResolver.getDatasetFingerprint())) {
+            // A reload has published another dataset meanwhile, so the caches may mix the two
+            state.remove(CACHED_LOCATIONS_STATE_KEY);
+            state.remove(RESOLVER_STATE_KEY);
+        }
+        return state;
+    }
+
+    /**
+     * Restores the state provided by {@link #snapshotState()}, unless it has been taken from another dataset than
+     * the current one of the resolver, such as before the tables were imported again. The locations cached since the
+     * start are kept, as they are fresher than the restored ones.
+     *
+     * @param state the state
+     */
+    @SuppressWarnings("unchecked")
+    public void restoreState(Map<String, Object> state) {
+        if (!Objects.equals(state.get(DATASET_FINGERPRINT_STATE_KEY), geoLocationResolver.getDatasetFingerprint())) {
+            if (state.containsKey(CACHED_LOCATIONS_STATE_KEY) || state.containsKey(RESOLVER_STATE_KEY)) {
+                log.info("Skipped restoring the IP location cache, as it has been snapshotted from another version " +
+                        "of the geo location dataset");
+            }
+            return;
+        }
+        Object cachedLocations = state.get(CACHED_LOCATIONS_STATE_KEY);
+        if (caches.get() != null && cachedLocations instanceof byte[]) {
+            int[] count = new int[1];
+            try {
+                LocationCodec.read(new DataInputStream(new ByteArrayInputStream((byte[]) cachedLocations)),
+                        (ip, location) -> warmUp(ip, location, count, Long.MAX_VALUE));
+            } catch (IOException e) {
+                log.warn("Cannot restore the IP location cache", e);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Restored " + count[0] + " locations of the IP location cache.");
+            }
+        }
+        Object resolverState = state.get(RESOLVER_STATE_KEY);
+        if (resolverState instanceof Map) {
+            geoLocationResolver.restoreState((Map<String, Object>) resolverState);
+        }
+    }
+
+    private Map<String, Location> getCachedLocations(int maxCount) {
+        Map<String, Location> entries = new LinkedHashMap<>();
+        getCaches().cache.forEach((ip, location) -> {
+            if (entries.size() < maxCount) {
+                entries.put(ip, location);
+            }
+        });
+        return entries;
+    }
+
+    private boolean warmUp(String ip, Location location, int[] count, long deadline) {
+        if (System.currentTimeMillis() > deadline) {
+            return false;
+        }
+        // An ip resolved since the start is fresher than the loaded one
+        IPLocationCache cache = getCaches().cache;
+        if (!NegativeLocationCache.isUnresolved(location) && cache.get(ip) == null) {
+            cache.put(ip, location);
+            count[0]++;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the location of the ip, resolving it if it is not cached.
+     *
+     * @param ip the ip address
+     * @return the location, or {@link #UNRESOLVED_LOCATION} if the ip cannot be resolved
+     */
+    public Location getLocation(String ip) {
+        long startTime = metrics.startTime();
+        CacheGeneration caches = getCaches();
+        Location location = getCachedLocation(caches, ip);
+        metrics.record(LookupMetrics.Stage.CACHE, startTime);
+        if (location == null) {
+            metrics.cacheMiss();
+            startTime = metrics.startTime();
+            Location resolvedLocation = geoLocationResolver.getGeoLocationInfo(ip);
+            metrics.record(LookupMetrics.Stage.BACKEND, startTime);
+            location = cacheLocation(caches, ip, resolvedLocation);
+        } else {
+            metrics.cacheHit();
+        }
+        return location;
+    }
+
+    /**
+     * Returns the locations of the given IP addresses, resolving all the ones which are not cached with a single
+     * call to the GeoLocationResolver.
+     *
+     * @param ips the ip addresses, which may repeat
+     * @return the location of each distinct ip, {@link #UNRESOLVED_LOCATION} for the ones which cannot be resolved
+     */
+    public Map<String, Location> getLocations(Collection<String> ips) {
+        Map<String, Location> locations = new HashMap<>();
+        Set<String> unknownIps = new LinkedHashSet<>();
+        long startTime = metrics.startTime();
+        CacheGeneration caches = getCaches();
+        for (String ip : ips) {
+            if (!locations.containsKey(ip) && !unknownIps.contains(ip)) {
+                Location location = getCachedLocation(caches, ip);
+                if (location != null) {
+                    metrics.cacheHit();
+                    locations.put(ip, location);
+                } else {
+                    metrics.cacheMiss();
+                    unknownIps.add(ip);
+                }
+            }
+        }
+        metrics.record(LookupMetrics.Stage.CACHE, startTime);
+        if (!unknownIps.isEmpty()) {
+            startTime = metrics.startTime();
+            Map<String, Location> resolvedLocations = geoLocationResolver.getGeoLocationInfo(unknownIps);
+            metrics.record(LookupMetrics.Stage.BACKEND, startTime);
+            for (String ip : unknownIps) {
+                locations.put(ip, cacheLocation(caches, ip, resolvedLocations.get(ip)));
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Returns the cached location of the ip, {@link #UNRESOLVED_LOCATION} if the ip is known to be unresolvable,
+     * or null if the ip is not cached.
+     */
+    private static Location getCachedLocation(CacheGeneration caches, String ip) {
+        if (caches == null) {
+            return null;
+        }
+        Location location = caches.cache.get(ip);
+        if (location == null && caches.negativeCache.contains(ip)) {
+            return UNRESOLVED_LOCATION;
+        }
+        return location;
+    }
+
+    /**
+     * Caches the location the resolver has provided for the ip, and returns the location to be served. No location
+     * means the resolver has failed, such as when its database is down, hence the ip is left uncached to be
+     * resolved again rather than negatively cached for the expiry time of the negative cache.
+     */
+    private static Location cacheLocation(CacheGeneration caches, String ip, Location location) {
+        if (location == null) {
+            return UNRESOLVED_LOCATION;
+        }
+        boolean isUnresolved = NegativeLocationCache.isUnresolved(location);
+        if (caches != null) {
+            if (isUnresolved) {
+                caches.negativeCache.put(ip);
+            } else {
+                caches.cache.put(ip, location);
+            }
+        }
+        return isUnresolved ? UNRESOLVED_LOCATION : location;
+    }
+
+    private static int readIntConfig(ConfigReader configReader, String key, int defaultValue) {
+        String value = configReader.readConfig(key, String.valueOf(defaultValue));
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warn("The config '" + value + "' provided in '" + key + "' is not a valid integer. Hence using " +
+                    "the default value '" + defaultValue + "'");
+            return defaultValue;
+        }
+    }
+
+    private static long readLongConfig(ConfigReader configReader, String key, long defaultValue) {
+        String value = configReader.readConfig(key, String.valueOf(defaultValue));
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("The config '" + value + "' provided in '" + key + "' is not a valid long. Hence using " +
+                    "the default value '" + defaultValue + "'");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * The caches of the locations resolved from one generation of the dataset.
+     */
+    private static final class CacheGeneration {
+        private final long generation;
+        private final IPLocationCache cache;
+        private final NegativeLocationCache negativeCache;
+
+        private CacheGeneration(long generation, IPLocationCache cache, NegativeLocationCache negativeCache) {
+            this.generation = generation;
+            this.cache = cache;
+            this.negativeCache = negativeCache;
+        }
+
+        /**
+         * @return empty caches of the same sizes for the given generation
+         */
+        private CacheGeneration next(long nextGeneration) {
+            return new CacheGeneration(nextGeneration, new IPLocationCache(cache.getMaxEntries()),
+                    new NegativeLocationCache(negativeCache.getMaxEntries(), negativeCache.getExpiryTime()));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import io.siddhi.core.util.snapshot.state.State;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The state of a geo IP function, which is the state of the caches of its shared {@link IPLocationService}. Storing
+ * it with the Siddhi state snapshots lets a restarted or failed over node resume with the caches it had, instead of
+ * resolving all the IP addresses again. As the service is shared, only the state of one of its functions holds the
+ * caches, and the states of the other functions are empty.
+ */
+public class IPLocationServiceState extends State {
+
+    private final IPLocationService ipLocationService;
+
+    public IPLocationServiceState(IPLocationService ipLocationService) {
+        this.ipLocationService = ipLocationService;
+    }
+
+    @Override
+    public boolean canDestroy() {
+        return false;
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        if (!ipLocationService.isStateOwner(this)) {
+            return new HashMap<>();
+        }
+        return ipLocationService.snapshotState();
+    }
+
+    @Override
+    public void restore(Map<String, Object> state) {
+        ipLocationService.restoreState(state);
+    }
+}
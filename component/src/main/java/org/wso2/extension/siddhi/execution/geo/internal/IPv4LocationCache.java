@@ -0,0 +1,173 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, fixed size cache from IPv4 addresses to location ids. Each entry is a single long holding the
+ * address in the upper half and, in the lower half, a 4 bit count of the hits of the entry and the location id, in an
+ * open addressed table of 4-way buckets. Neither lookups nor updates allocate any objects.
+ * <p>
+ * A full bucket replaces its least frequently hit entry, and ages the others by decrementing their counts, so as
+ * with the TinyLFU admission of {@link TinyLFUCache} a scan of addresses seen once only replaces the entries of
+ * other such addresses, while the addresses hit more often than entries are added to their bucket stay cached.
+ */
+public class IPv4LocationCache {
+
+    private static final int WAYS = 4;
+    private static final int MAX_LOCATION_ID = (1 << 28) - 2;
+    private static final long ID_MASK = 0x0FFFFFFFL;
+    private static final int COUNT_SHIFT = 28;
+    private static final long COUNT_ONE = 1L << COUNT_SHIFT;
+    private static final int MAX_COUNT = 15;
+
+    private final AtomicLongArray entries;
+    private final int bucketShift;
+    private final LongAdder evictionCount = new LongAdder();
+
+    public IPv4LocationCache(int maxEntries) {
+        int bucketCount = Integer.highestOneBit(Math.max(WAYS, maxEntries) - 1) << 1;
+        bucketCount = Math.max(1, bucketCount / WAYS);
+        entries = new AtomicLongArray(bucketCount * WAYS);
+        bucketShift = 32 - Integer.numberOfTrailingZeros(bucketCount);
+    }
+
+    /**
+     * Returns the location id cached for the address.
+     *
+     * @param ip the IPv4 address as an unsigned 32 bit value
+     * @return the location id, or -1 if the address is not cached
+     */
+    public int get(long ip) {
+        int start = bucketOf(ip);
+        for (int i = start; i < start + WAYS; i++) {
+            long entry = entries.get(i);
+            if ((entry & ID_MASK) != 0 && (entry >>> 32) == ip) {
+                // A single attempt, as a lost count only makes the entry look a little less frequent
+                if (countOf(entry) < MAX_COUNT) {
+                    entries.compareAndSet(i, entry, entry + COUNT_ONE);
+                }
+                return (int) (entry & ID_MASK) - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Caches the location id of the address.
+     *
+     * @param ip         the IPv4 address as an unsigned 32 bit value
+     * @param locationId the location id, which is not negative and at most {@link #getMaxLocationId()}
+     */
+    public void put(long ip, int locationId) {
+        // The stored id is offset by one so that an unused slot, which is zero, never matches
+        long newEntry = (ip << 32) | (locationId + 1);
+        int start = bucketOf(ip);
+        int free = -1;
+        int victim = start;
+        int victimCount = Integer.MAX_VALUE;
+        for (int i = start; i < start + WAYS; i++) {
+            long entry = entries.get(i);
+            if ((entry & ID_MASK) == 0) {
+                if (free < 0) {
+                    free = i;
+                }
+            } else if ((entry >>> 32) == ip) {
+                entries.set(i, (entry & ~ID_MASK) | (locationId + 1));
+                return;
+            } else if (countOf(entry) < victimCount) {
+                victim = i;
+                victimCount = countOf(entry);
+            }
+        }
+        if (free >= 0) {
+            entries.set(free, newEntry);
+            return;
+        }
+        entries.set(victim, newEntry);
+        evictionCount.increment();
+        for (int i = start; i < start + WAYS; i++) {
+            long entry = entries.get(i);
+            if (i != victim && countOf(entry) > 0) {
+                entries.compareAndSet(i, entry, entry - COUNT_ONE);
+            }
+        }
+    }
+
+    /**
+     * @return the highest location id which can be cached
+     */
+    public static int getMaxLocationId() {
+        return MAX_LOCATION_ID;
+    }
+
+    /**
+     * Passes each cached address with its location id to the consumer.
+     *
+     * @param consumer the consumer of the entries
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < entries.length(); i++) {
+            long entry = entries.get(i);
+            if ((entry & ID_MASK) != 0) {
+                consumer.accept(entry >>> 32, (int) (entry & ID_MASK) - 1);
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries the cache holds when full, which is at least the requested maximum
+     */
+    public int capacity() {
+        return entries.length();
+    }
+
+    /**
+     * @return the number of entries replaced by other addresses
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0);
+        }
+    }
+
+    /**
+     * Receives the entries of the cache without boxing them.
+     */
+    public interface EntryConsumer {
+        void accept(long ip, int locationId);
+    }
+
+    private static int countOf(long entry) {
+        return (int) (entry >>> COUNT_SHIFT) & MAX_COUNT;
+    }
+
+    private int bucketOf(long ip) {
+        if (bucketShift == 32) {
+            return 0;
+        }
+        return (((int) ip * 0x9E3779B9) >>> bucketShift) * WAYS;
+    }
+}
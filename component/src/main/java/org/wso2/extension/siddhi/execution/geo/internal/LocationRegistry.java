@@ -0,0 +1,164 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a small int id to each distinct location, so that caches can refer to one shared {@link Location}
+ * instead of keeping a copy per IP address. Locations are distinct when any of their details differ, not only
+ * the country and the city. The shared locations do not carry an ip. A registry of a bounded size refuses new
+ * locations once it is full, until the ids which are no longer referenced are released with {@link #retainAll}, after
+ * which they are reused for other locations.
+ */
+public class LocationRegistry {
+
+    private final int maxSize;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Location[] locations = new Location[1024];
+    private String[] keys = new String[1024];
+    private int size;
+    private int[] freeIds = new int[0];
+    private int freeCount;
+
+    public LocationRegistry() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSize the maximum number of locations
+     */
+    public LocationRegistry(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the id of the shared location having the same details as the given location.
+     *
+     * @param location the location
+     * @return the id of the shared location, or -1 if it is new and the registry is full
+     */
+    public int register(Location location) {
+        String key = location.getCountry() + '\u0000' + location.getCity() + '\u0000' + location.getSubdivision() +
+                '\u0000' + location.getLatitude() + '\u0000' + location.getLongitude() + '\u0000' +
+                location.getAutonomousSystemNumber();
+        return register(key, location);
+    }
+
+    /**
+     * Returns the shared location of the given country and city.
+     *
+     * @param country the country name
+     * @param city    the city name
+     * @return the shared location
+     */
+    public Location intern(String country, String city) {
+        return get(register(new Location(country, city)));
+    }
+
+    private int register(String key, Location location) {
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(key);
+            if (id == null) {
+                Location[] current = locations;
+                if (freeCount > 0) {
+                    id = freeIds[--freeCount];
+                } else if (size == maxSize) {
+                    return -1;
+                } else {
+                    if (size == current.length) {
+                        current = Arrays.copyOf(current, (int) Math.min((long) size << 1, maxSize));
+                        keys = Arrays.copyOf(keys, current.length);
+                    }
+                    id = size++;
+                }
+                current[id] = location.getIp() == null ? location : new Location(location.getCountry(),
+                        location.getSubdivision(), location.getCity(), location.getLatitude(), location.getLongitude(),
+                        location.getAutonomousSystemNumber());
+                keys[id] = key;
+                // Publish the array before the id so a reader holding the id always finds the location
+                locations = current;
+                ids.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Returns the shared location of the id.
+     *
+     * @param id the id returned by {@link #register(Location)}
+     * @return the location, or null if the id was issued before the registry was cleared
+     */
+    public Location get(int id) {
+        Location[] current = locations;
+        return id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Releases the ids which are not in the given set, so that they are reused for new locations. The caller
+     * ensures that no released id is read afterwards, as it may then return another location.
+     *
+     * @param referenced the ids still referenced
+     * @return the number of released ids
+     */
+    public synchronized int retainAll(BitSet referenced) {
+        Location[] current = locations;
+        int released = 0;
+        for (int id = 0; id < size; id++) {
+            if (keys[id] != null && !referenced.get(id)) {
+                ids.remove(keys[id]);
+                keys[id] = null;
+                current[id] = null;
+                if (freeCount == freeIds.length) {
+                    freeIds = Arrays.copyOf(freeIds, Math.max(16, freeCount << 1));
+                }
+                freeIds[freeCount++] = id;
+                released++;
+            }
+        }
+        locations = current;
+        return released;
+    }
+
+    /**
+     * @return the number of registered locations
+     */
+    public synchronized int size() {
+        return size - freeCount;
+    }
+
+    public synchronized void clear() {
+        ids.clear();
+        locations = new Location[1024];
+        keys = new String[1024];
+        size = 0;
+        freeIds = new int[0];
+        freeCount = 0;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded, thread-safe cache of the IP addresses which could not be resolved to a location. It is kept apart
+ * from the cache of resolved locations so that traffic with many unresolvable addresses, such as scans, does not
+ * evict the resolved entries. An entry expires after the configured time, so that an address which is added to
+ * the geo location database later is eventually resolved. When the cache is full the oldest entry is evicted.
+ */
+public class NegativeLocationCache {
+
+    private final int maxEntries;
+    private final long expiryTime;
+    private final Map<String, Long> expiryTimes;
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger insertionOrderSize = new AtomicInteger();
+
+    /**
+     * @param maxEntries the maximum number of unresolved IP addresses kept in the cache
+     * @param expiryTime the time in milliseconds an unresolved IP address is kept in the cache
+     */
+    public NegativeLocationCache(int maxEntries, long expiryTime) {
+        this.maxEntries = maxEntries;
+        this.expiryTime = expiryTime;
+        this.expiryTimes = new ConcurrentHashMap<>(Math.max(16, maxEntries / 4));
+    }
+
+    /**
+     * Checks whether the given IP address is known to be unresolvable.
+     *
+     * @param ip the IP address
+     * @return true if the IP address has been added to the cache and has not expired yet
+     */
+    public boolean contains(String ip) {
+        return contains(ip, System.currentTimeMillis());
+    }
+
+    boolean contains(String ip, long currentTime) {
+        Long expiresAt = expiryTimes.get(ip);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= currentTime) {
+            expiryTimes.remove(ip, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    public void put(String ip) {
+        put(ip, System.currentTimeMillis());
+    }
+
+    void put(String ip, long currentTime) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Long expiresAt = currentTime + expiryTime;
+        if (!expiresAt.equals(expiryTimes.put(ip, expiresAt))) {
+            insertionOrder.offer(new Entry(ip, expiresAt));
+            // Expired entries leave their key in the queue, hence the queue rather than the map is bounded. Every
+            // mapping in the map has an entry in the queue, so the map is bounded as well. An entry only removes the
+            // mapping it was added with, not a later one of an address which expired and was added again.
+            if (insertionOrderSize.incrementAndGet() > maxEntries) {
+                Entry eldest = insertionOrder.poll();
+                if (eldest != null) {
+                    insertionOrderSize.decrementAndGet();
+                    expiryTimes.remove(eldest.ip, eldest.expiresAt);
+                }
+            }
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getExpiryTime() {
+        return expiryTime;
+    }
+
+    public void clear() {
+        expiryTimes.clear();
+        insertionOrder.clear();
+        insertionOrderSize.set(0);
+    }
+
+    public int size() {
+        return expiryTimes.size();
+    }
+
+    /**
+     * Checks whether the location returned by a resolver represents an unresolved IP address. Resolvers return
+     * either null or a location without a country and a city in that case.
+     *
+     * @param location the location returned by a resolver
+     * @return true if the location is unresolved
+     */
+    public static boolean isUnresolved(Location location) {
+        return location == null || (location.getCountry().isEmpty() && location.getCity().isEmpty());
+    }
+
+    /**
+     * An unresolved IP address in the insertion order, with the expiry time it was added with.
+     */
+    private static final class Entry {
+        private final String ip;
+        private final Long expiresAt;
+
+        private Entry(String ip, Long expiresAt) {
+            this.ip = ip;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.LocationCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cache of the IPv4 ranges of the BLOCKS table which have been matched, with their locations. A location is
+ * valid for the whole range of its block, hence any address of a cached range is a hit, whichever address the
+ * range was first read for. The ranges do not overlap, so the range of an address is the one with the greatest
+ * network at or below it, found with a binary search of the sorted networks. When the cache is full the range cached
+ * first is evicted.
+ * <p>
+ * The ranges are kept in primitive arrays which are replaced as a whole on every put, so that a lookup neither boxes
+ * the address nor takes a lock. A put copies the arrays, which costs far less than the database query it follows.
+ */
+public class RangeLocationCache {
+
+    private static final LocationCodec.KeyCodec<long[]> RANGE_CODEC = new LocationCodec.KeyCodec<long[]>() {
+        @Override
+        public void write(DataOutput out, long[] range) throws IOException {
+            out.writeInt((int) range[0]);
+            out.writeInt((int) range[1]);
+        }
+
+        @Override
+        public long[] read(DataInput in) throws IOException {
+            return new long[]{in.readInt() & 0xFFFFFFFFL, in.readInt() & 0xFFFFFFFFL};
+        }
+    };
+
+    private final int maxEntries;
+    private volatile Ranges ranges = new Ranges(0);
+    private long nextSequence;
+
+    /**
+     * @param maxEntries the maximum number of ranges kept, 0 disables the cache
+     */
+    public RangeLocationCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the location of the cached range containing the address.
+     *
+     * @param ip the IPv4 address as an unsigned 32 bit value
+     * @return the location, or null if no cached range contains the address
+     */
+    public Location get(long ip) {
+        Ranges ranges = this.ranges;
+        int index = Arrays.binarySearch(ranges.networks, ip);
+        if (index < 0) {
+            // The range with the greatest network below the address
+            index = -index - 2;
+        }
+        if (index >= 0 && ip <= ranges.broadcasts[index]) {
+            return ranges.locations[index];
+        }
+        return null;
+    }
+
+    /**
+     * Caches the location of a range.
+     *
+     * @param network   the first address of the range as an unsigned 32 bit value
+     * @param broadcast the last address of the range as an unsigned 32 bit value
+     * @param location  the location of the range
+     */
+    public synchronized void put(long network, long broadcast, Location location) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Ranges current = ranges;
+        int index = Arrays.binarySearch(current.networks, network);
+        if (index >= 0) {
+            // A range read again keeps its place in the eviction order
+            Ranges updated = current.copy();
+            updated.broadcasts[index] = broadcast;
+            updated.locations[index] = location;
+            ranges = updated;
+            return;
+        }
+        int insertionIndex = -index - 1;
+        int evictedIndex = current.size() >= maxEntries ? current.getOldestIndex() : -1;
+        Ranges updated = new Ranges(evictedIndex >= 0 ? current.size() : current.size() + 1);
+        int position = 0;
+        for (int i = 0; i <= current.size(); i++) {
+            if (i == insertionIndex) {
+                updated.set(position++, network, broadcast, location, nextSequence++);
+            }
+            if (i < current.size() && i != evictedIndex) {
+                updated.set(position++, current.networks[i], current.broadcasts[i], current.locations[i],
+                        current.sequences[i]);
+            }
+        }
+        ranges = updated;
+    }
+
+    /**
+     * Writes the cached ranges with their locations, in the order they were cached.
+     *
+     * @param out the output
+     * @throws IOException if the output cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        Ranges ranges = this.ranges;
+        Map<long[], Location> entries = new LinkedHashMap<>();
+        for (int index : ranges.getIndexesInInsertionOrder()) {
+            entries.put(new long[]{ranges.networks[index], ranges.broadcasts[index]}, ranges.locations[index]);
+        }
+        LocationCodec.write(out, entries, RANGE_CODEC);
+    }
+
+    /**
+     * Caches the ranges written by {@link #write(DataOutput)}. The ranges are added at once, rather than copying the
+     * cached ranges once per range read.
+     *
+     * @param in the input
+     * @throws IOException if the input cannot be read
+     */
+    public void read(DataInput in) throws IOException {
+        List<long[]> readRanges = new ArrayList<>();
+        List<Location> readLocations = new ArrayList<>();
+        LocationCodec.read(in, RANGE_CODEC, (range, location) -> {
+            readRanges.add(range);
+            readLocations.add(location);
+        });
+        putAll(readRanges, readLocations);
+    }
+
+    private synchronized void putAll(List<long[]> newRanges, List<Location> newLocations) {
+        if (maxEntries <= 0 || newRanges.isEmpty()) {
+            return;
+        }
+        Ranges current = ranges;
+        Map<Long, Integer> positions = new HashMap<>();
+        List<long[]> entries = new ArrayList<>();
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            positions.put(current.networks[i], entries.size());
+            entries.add(new long[]{current.networks[i], current.broadcasts[i], current.sequences[i]});
+            locations.add(current.locations[i]);
+        }
+        for (int i = 0; i < newRanges.size(); i++) {
+            long[] range = newRanges.get(i);
+            Integer position = positions.get(range[0]);
+            if (position != null) {
+                entries.get(position)[1] = range[1];
+                locations.set(position, newLocations.get(i));
+            } else {
+                positions.put(range[0], entries.size());
+                entries.add(new long[]{range[0], range[1], nextSequence++});
+                locations.add(newLocations.get(i));
+            }
+        }
+        // Keeps the ranges cached last, then sorts them by network
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> entries.get(i)[2]));
+        Integer[] kept = Arrays.copyOfRange(order, Math.max(0, order.length - maxEntries), order.length);
+        Arrays.sort(kept, Comparator.comparingLong((Integer i) -> entries.get(i)[0]));
+        Ranges updated = new Ranges(kept.length);
+        for (int i = 0; i < kept.length; i++) {
+            long[] entry = entries.get(kept[i]);
+            updated.set(i, entry[0], entry[1], locations.get(kept[i]), entry[2]);
+        }
+        ranges = updated;
+    }
+
+    public int size() {
+        return ranges.size();
+    }
+
+    public synchronized void clear() {
+        ranges = new Ranges(0);
+    }
+
+    /**
+     * The cached ranges sorted by network, with the end, the location and the insertion sequence of each. An
+     * instance is not modified once it has been published.
+     */
+    private static final class Ranges {
+        private final long[] networks;
+        private final long[] broadcasts;
+        private final Location[] locations;
+        private final long[] sequences;
+
+        private Ranges(int size) {
+            this(new long[size], new long[size], new Location[size], new long[size]);
+        }
+
+        private Ranges(long[] networks, long[] broadcasts, Location[] locations, long[] sequences) {
+            this.networks = networks;
+            this.broadcasts = broadcasts;
+            this.locations = locations;
+            this.sequences = sequences;
+        }
+
+        private int size() {
+            return networks.length;
+        }
+
+        private void set(int index, long network, long broadcast, Location location, long sequence) {
+            networks[index] = network;
+            broadcasts[index] = broadcast;
+            locations[index] = location;
+            sequences[index] = sequence;
+        }
+
+        private Ranges copy() {
+            return new Ranges(networks.clone(), broadcasts.clone(), locations.clone(), sequences.clone());
+        }
+
+        private int getOldestIndex() {
+            int oldest = 0;
+            for (int i = 1; i < sequences.length; i++) {
+                if (sequences[i] < sequences[oldest]) {
+                    oldest = i;
+                }
+            }
+            return oldest;
+        }
+
+        private Integer[] getIndexesInInsertionOrder() {
+            Integer[] indexes = new Integer[size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = i;
+            }
+            Arrays.sort(indexes, Comparator.comparingLong((Integer i) -> sequences[i]));
+            return indexes;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.GeoHash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The cache of the addresses returned by the reverse geocode requests, shared by all the reversegeocode functions.
+ * The addresses are keyed by the {@link GeoHash} cell of the requested point, hence a point close to a requested
+ * one, such as the next GPS fix of a vehicle, is served the address of the cell without a request. Optionally a
+ * point in a cell which is not cached is served the address of the nearest cached point in the cells around it, if
+ * that point is no farther than the diagonal of a cell, which is also the farthest two points of a cell can be.
+ * Only the successful results are cached.
+ */
+public class ReverseGeocodeCache {
+    private static final Log log = LogFactory.getLog(ReverseGeocodeCache.class);
+
+    private static final String IS_CACHE_ENABLED_KEY = "isCacheEnabled";
+    private static final String CACHE_SIZE_KEY = "cacheSize";
+    private static final String CACHE_EXPIRY_TIME_KEY = "cacheExpiryTime";
+    private static final String CACHE_PRECISION_KEY = "cachePrecision";
+    private static final String IS_NEIGHBOR_CACHE_ENABLED_KEY = "isNeighborCacheEnabled";
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final long DEFAULT_CACHE_EXPIRY_TIME = 86400000;
+    private static final int DEFAULT_CACHE_PRECISION = 8;
+    private static final String CACHED_ADDRESSES_STATE_KEY = "cachedAddresses";
+    private static final int STATE_VERSION = 1;
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private static ReverseGeocodeCache instance;
+    private static boolean isInitialized;
+
+    private final TinyLFUCache<Long, Entry> cache;
+    private final long expiryTime;
+    private final int precision;
+    private final boolean isNeighborCacheEnabled;
+    private final LongAdder neighborHits = new LongAdder();
+
+    /**
+     * @param maxEntries             the maximum number of cells kept in the cache
+     * @param expiryTime             the time in milliseconds an address is kept in the cache
+     * @param precision              the number of geohash characters of the cells
+     * @param isNeighborCacheEnabled whether the addresses of the cells around an uncached cell are used
+     */
+    public ReverseGeocodeCache(int maxEntries, long expiryTime, int precision, boolean isNeighborCacheEnabled) {
+        this.cache = new TinyLFUCache<>(maxEntries);
+        this.expiryTime = expiryTime;
+        this.precision = precision;
+        this.isNeighborCacheEnabled = isNeighborCacheEnabled;
+    }
+
+    /**
+     * Returns the cache shared by the reversegeocode functions, which is created with the configuration of the first
+     * function.
+     *
+     * @param configReader the configuration of the calling reversegeocode function
+     * @return the cache, or null if caching is disabled
+     */
+    public static synchronized ReverseGeocodeCache getInstance(ConfigReader configReader) {
+        if (!isInitialized) {
+            if (Boolean.parseBoolean(configReader.readConfig(IS_CACHE_ENABLED_KEY, "true"))) {
+                int maxEntries = (int) readLongConfig(configReader, CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE);
+                int precision = (int) readLongConfig(configReader, CACHE_PRECISION_KEY, DEFAULT_CACHE_PRECISION);
+                if (precision < 1 || precision > GeoHash.MAX_PRECISION) {
+                    log.warn("The config '" + precision + "' provided in '" + CACHE_PRECISION_KEY + "' is not " +
+                            "between 1 and " + GeoHash.MAX_PRECISION + ". Hence using the default value '" +
+                            DEFAULT_CACHE_PRECISION + "'");
+                    precision = DEFAULT_CACHE_PRECISION;
+                }
+                if (maxEntries > 0) {
+                    instance = new ReverseGeocodeCache(maxEntries,
+                            readLongConfig(configReader, CACHE_EXPIRY_TIME_KEY, DEFAULT_CACHE_EXPIRY_TIME),
+                            precision, Boolean.parseBoolean(configReader.readConfig(IS_NEIGHBOR_CACHE_ENABLED_KEY,
+                            "false")));
+                    LookupMetrics metrics = LookupMetrics.getInstance(LookupMetrics.REVERSE_GEOCODE);
+                    metrics.registerGauge("CacheSize", instance::size);
+                    metrics.registerGauge("CacheEvictions", instance::getEvictionCount);
+                    metrics.registerGauge("NeighborCacheHits", instance::getNeighborHitCount);
+                }
+            }
+            isInitialized = true;
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached address of the cell of the given point, or of a point close to it in the cells around it
+     * if enabled.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the values of the address, which must not be modified, or null if no address is cached
+     */
+    public String[] get(double latitude, double longitude) {
+        return get(latitude, longitude, System.currentTimeMillis());
+    }
+
+    String[] get(double latitude, double longitude, long currentTime) {
+        long cell = GeoHash.encode(latitude, longitude, precision);
+        Entry entry = getEntry(cell, currentTime);
+        if (entry != null) {
+            return entry.address;
+        }
+        if (!isNeighborCacheEnabled) {
+            return null;
+        }
+        double maxDistance = getCellDiagonal(latitude);
+        Entry nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (long neighbor : GeoHash.neighbors(cell, precision)) {
+            Entry neighborEntry = getEntry(neighbor, currentTime);
+            if (neighborEntry != null) {
+                double distance = getDistance(latitude, longitude, neighborEntry.latitude, neighborEntry.longitude);
+                if (distance <= maxDistance && distance < nearestDistance) {
+                    nearest = neighborEntry;
+                    nearestDistance = distance;
+                }
+            }
+        }
+        if (nearest == null) {
+            return null;
+        }
+        neighborHits.increment();
+        return nearest.address;
+    }
+
+    /**
+     * Caches the address of the given point for its cell.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @param address   the values of the address, which must not be modified afterwards
+     */
+    public void put(double latitude, double longitude, String[] address) {
+        put(latitude, longitude, address, System.currentTimeMillis());
+    }
+
+    void put(double latitude, double longitude, String[] address, long currentTime) {
+        cache.put(GeoHash.encode(latitude, longitude, precision),
+                new Entry(address, latitude, longitude, currentTime + expiryTime));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the number of entries removed to cache other cells
+     */
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    /**
+     * @return the number of points served the address of a point in the cells around them
+     */
+    public long getNeighborHitCount() {
+        return neighborHits.sum();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Returns the cached addresses which have not expired, encoded to be stored with the Siddhi state snapshots.
+     *
+     * @return the state
+     */
+    public Map<String, Object> snapshotState() {
+        Map<String, Object> state = new HashMap<>();
+        long currentTime = System.currentTimeMillis();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Map<Long, Entry> entries = new HashMap<>();
+            cache.forEach((cell, entry) -> {
+                if (entry.expiresAt > currentTime) {
+                    entries.put(cell, entry);
+                }
+            });
+            out.writeByte(STATE_VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeDouble(entry.latitude);
+                out.writeDouble(entry.longitude);
+                out.writeLong(entry.expiresAt);
+                out.writeByte(entry.address.length);
+                for (String value : entry.address) {
+                    out.writeUTF(value);
+                }
+            }
+            state.put(CACHED_ADDRESSES_STATE_KEY, bytes.toByteArray());
+        } catch (IOException e) {
+            log.warn("Cannot snapshot the reverse geocode cache", e);
+        }
+        return state;
+    }
+
+    /**
+     * Restores the addresses provided by {@link #snapshotState()}, keeping the times at which they expire. The
+     * points are assigned to the cells of the current precision, and the cells cached since the start are kept, as
+     * they are fresher than the restored ones.
+     *
+     * @param state the state
+     */
+    public void restoreState(Map<String, Object> state) {
+        Object cachedAddresses = state.get(CACHED_ADDRESSES_STATE_KEY);
+        if (!(cachedAddresses instanceof byte[])) {
+            return;
+        }
+        long currentTime = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream((byte[]) cachedAddresses))) {
+            int version = in.readByte();
+            if (version != STATE_VERSION) {
+                log.warn("Cannot restore the reverse geocode cache from a snapshot of version " + version);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                double latitude = in.readDouble();
+                double longitude = in.readDouble();
+                long expiresAt = in.readLong();
+                String[] address = new String[in.readByte()];
+                for (int j = 0; j < address.length; j++) {
+                    address[j] = in.readUTF();
+                }
+                long cell = GeoHash.encode(latitude, longitude, precision);
+                if (expiresAt > currentTime && cache.get(cell) == null) {
+                    cache.put(cell, new Entry(address, latitude, longitude, expiresAt));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot restore the reverse geocode cache", e);
+        }
+    }
+
+    private Entry getEntry(long cell, long currentTime) {
+        Entry entry = cache.get(cell);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= currentTime) {
+            cache.remove(cell);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return the length in meters of the diagonal of the cells at the given latitude
+     */
+    private double getCellDiagonal(double latitude) {
+        double height = GeoHash.getCellHeight(precision) * METERS_PER_DEGREE;
+        double width = GeoHash.getCellWidth(precision) * METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        return Math.sqrt(height * height + width * width);
+    }
+
+    /**
+     * @return the distance in meters between two close points, with the equirectangular approximation
+     */
+    private static double getDistance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double longitudeDifference = Math.abs(longitude1 - longitude2);
+        if (longitudeDifference > 180) {
+            longitudeDifference = 360 - longitudeDifference;
+        }
+        double x = longitudeDifference * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+        double y = latitude1 - latitude2;
+        return Math.sqrt(x * x + y * y) * METERS_PER_DEGREE;
+    }
+
+    private static long readLongConfig(ConfigReader configReader, String key, long defaultValue) {
+        String value = configReader.readConfig(key, String.valueOf(defaultValue));
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("The config '" + value + "' provided in '" + key + "' is not a valid number. Hence using " +
+                    "the default value '" + defaultValue + "'");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A cached address with the point it was requested for and the time at which it expires.
+     */
+    private static final class Entry {
+        private final String[] address;
+        private final double latitude;
+        private final double longitude;
+        private final long expiresAt;
+
+        private Entry(String[] address, double latitude, double longitude, long expiresAt) {
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A bounded, thread-safe cache which scales with the number of threads. The keys are striped over segments
+ * which have their own lock, an access ordered (LRU) map and a {@link FrequencySketch}. When a segment is full a
+ * new key is admitted only if it has been seen more often than the least recently used key it would evict
+ * (TinyLFU admission), so a burst of keys which are seen once, such as a scan of IP addresses, cannot flush the
+ * frequently used keys. All the operations are O(1).
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class TinyLFUCache<K, V> {
+
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final LongAdder evictionCount = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public TinyLFUCache(int maxEntries) {
+        int concurrency = Runtime.getRuntime().availableProcessors() * 4;
+        int segmentCount = 1;
+        while (segmentCount < concurrency && segmentCount * 2 * MIN_SEGMENT_CAPACITY <= maxEntries) {
+            segmentCount <<= 1;
+        }
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0),
+                    evictionCount);
+        }
+        segmentMask = segmentCount - 1;
+    }
+
+    public V get(K key) {
+        int hash = spread(key.hashCode());
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * Adds the entry to the cache if there is space, or if the key is used more often than the entry it evicts.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return true if the entry is in the cache after the call
+     */
+    public boolean put(K key, V value) {
+        int hash = spread(key.hashCode());
+        return segmentFor(hash).put(key, value, hash);
+    }
+
+    public V remove(K key) {
+        int hash = spread(key.hashCode());
+        return segmentFor(hash).remove(key);
+    }
+
+    /**
+     * Passes each entry to the consumer. Each segment is locked while its entries are passed.
+     *
+     * @param consumer the consumer of the entries
+     */
+    public void forEach(BiConsumer<? super K, ? super V> consumer) {
+        for (Segment<K, V> segment : segments) {
+            segment.forEach(consumer);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of entries removed to admit other keys
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        // The upper bits choose the segment, the sketch uses all of them
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    private static int spread(int hash) {
+        int value = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        value = ((value >>> 16) ^ value) * 0x45d9f3b;
+        return (value >>> 16) ^ value;
+    }
+
+    /**
+     * A lock protected part of the cache.
+     */
+    private static final class Segment<K, V> extends ReentrantLock {
+        private static final long serialVersionUID = -2361395484361962157L;
+
+        private final int capacity;
+        private final LinkedHashMap<K, V> entries;
+        private final FrequencySketch sketch;
+        private final LongAdder evictionCount;
+
+        private Segment(int capacity, LongAdder evictionCount) {
+            this.capacity = Math.max(1, capacity);
+            this.entries = new LinkedHashMap<>(this.capacity * 4 / 3 + 1, 0.75f, true);
+            this.sketch = new FrequencySketch(this.capacity);
+            this.evictionCount = evictionCount;
+        }
+
+        private V get(K key, int hash) {
+            lock();
+            try {
+                sketch.increment(hash);
+                return entries.get(key);
+            } finally {
+                unlock();
+            }
+        }
+
+        private boolean put(K key, V value, int hash) {
+            lock();
+            try {
+                if (entries.containsKey(key) || entries.size() < capacity) {
+                    entries.put(key, value);
+                    return true;
+                }
+                Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+                K victim = iterator.next().getKey();
+                if (sketch.frequency(hash) > sketch.frequency(spread(victim.hashCode()))) {
+                    iterator.remove();
+                    evictionCount.increment();
+                    entries.put(key, value);
+                    return true;
+                }
+                return false;
+            } finally {
+                unlock();
+            }
+        }
+
+        private V remove(K key) {
+            lock();
+            try {
+                return entries.remove(key);
+            } finally {
+                unlock();
+            }
+        }
+
+        private void forEach(BiConsumer<? super K, ? super V> consumer) {
+            lock();
+            try {
+                for (Map.Entry<K, V> entry : entries.entrySet()) {
+                    consumer.accept(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        private void clear() {
+            lock();
+            try {
+                entries.clear();
+            } finally {
+                unlock();
+            }
+        }
+
+        private int size() {
+            lock();
+            try {
+                return entries.size();
+            } finally {
+                unlock();
+            }
+        }
+    }
+}
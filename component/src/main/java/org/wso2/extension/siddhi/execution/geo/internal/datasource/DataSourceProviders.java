@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.datasource;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+import java.util.Locale;
+
+/**
+ * Creates the {@link DataSourceProvider} configured in 'dataSourceProvider', which is 'osgi', 'jndi', 'jdbc' or
+ * the class name of a custom implementation.
+ */
+public class DataSourceProviders {
+
+    public static final String CONFIG_KEY_DATASOURCE_PROVIDER = "dataSourceProvider";
+    public static final String CONFIG_KEY_DATASOURCE = "datasource";
+    public static final String DATASOURCE_PROVIDER_OSGI = "osgi";
+    public static final String DATASOURCE_PROVIDER_JNDI = "jndi";
+    public static final String DATASOURCE_PROVIDER_JDBC = "jdbc";
+    private static final String DEFAULT_DATASOURCE_NAME = "GEO_LOCATION_DATA";
+
+    private DataSourceProviders() {
+    }
+
+    /**
+     * Creates the configured provider.
+     *
+     * @param configReader the configuration of the calling geo function
+     * @return the provider
+     * @throws GeoLocationResolverException if the configured provider class cannot be instantiated
+     */
+    public static DataSourceProvider create(ConfigReader configReader) throws GeoLocationResolverException {
+        String provider = configReader.readConfig(CONFIG_KEY_DATASOURCE_PROVIDER, DATASOURCE_PROVIDER_OSGI).trim();
+        switch (provider.toLowerCase(Locale.ENGLISH)) {
+            case DATASOURCE_PROVIDER_OSGI:
+                return new OSGiDataSourceProvider();
+            case DATASOURCE_PROVIDER_JNDI:
+                return new JNDIDataSourceProvider();
+            case DATASOURCE_PROVIDER_JDBC:
+                return new JDBCDataSourceProvider();
+            default:
+                try {
+                    return (DataSourceProvider) Class.forName(provider).newInstance();
+                } catch (ClassNotFoundException e) {
+                    throw new GeoLocationResolverException("The config '" + provider + "' provided in '" +
+                            CONFIG_KEY_DATASOURCE_PROVIDER + "' is not one of '" + DATASOURCE_PROVIDER_OSGI +
+                            "', '" + DATASOURCE_PROVIDER_JNDI + "', '" + DATASOURCE_PROVIDER_JDBC + "' or the name " +
+                            "of a DataSourceProvider implementation class", e);
+                } catch (InstantiationException | IllegalAccessException | ClassCastException e) {
+                    throw new GeoLocationResolverException("Cannot instantiate DataSourceProvider implementation " +
+                            "class '" + provider + "' given in the configuration", e);
+                }
+        }
+    }
+
+    /**
+     * Returns the name of the datasource to be looked up, which is an OSGi datasource name or a JNDI name.
+     *
+     * @param configReader the configuration of the calling geo function
+     * @return the name
+     */
+    public static String getDataSourceName(ConfigReader configReader) {
+        return configReader.readConfig(CONFIG_KEY_DATASOURCE, DEFAULT_DATASOURCE_NAME);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+import javax.sql.DataSource;
+
+/**
+ * Creates a local connection pool to the database at 'jdbcUrl'. The pool is owned by the provider and closed when
+ * the resolver is shut down.
+ */
+public class JDBCDataSourceProvider implements DataSourceProvider {
+    private static final Log log = LogFactory.getLog(JDBCDataSourceProvider.class);
+
+    private static final String CONFIG_KEY_JDBC_URL = "jdbcUrl";
+    private static final String CONFIG_KEY_JDBC_USERNAME = "jdbcUsername";
+    private static final String CONFIG_KEY_JDBC_PASSWORD = "jdbcPassword";
+    private static final String CONFIG_KEY_JDBC_DRIVER_CLASS_NAME = "jdbcDriverClassName";
+    private static final String CONFIG_KEY_JDBC_MAX_POOL_SIZE = "jdbcMaxPoolSize";
+    private static final int DEFAULT_JDBC_MAX_POOL_SIZE = 10;
+    private static final String POOL_NAME = "Siddhi-Geo-JDBC";
+
+    private HikariDataSource dataSource;
+
+    @Override
+    public synchronized DataSource getDataSource(ConfigReader configReader) throws GeoLocationResolverException {
+        if (dataSource != null) {
+            return dataSource;
+        }
+        String jdbcUrl = configReader.readConfig(CONFIG_KEY_JDBC_URL, "");
+        if (jdbcUrl.isEmpty()) {
+            throw new GeoLocationResolverException("The config '" + CONFIG_KEY_JDBC_URL + "' is required when " +
+                    "the datasource provider is 'jdbc'");
+        }
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(POOL_NAME);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(configReader.readConfig(CONFIG_KEY_JDBC_USERNAME, null));
+        config.setPassword(configReader.readConfig(CONFIG_KEY_JDBC_PASSWORD, null));
+        String driverClassName = configReader.readConfig(CONFIG_KEY_JDBC_DRIVER_CLASS_NAME, "");
+        if (!driverClassName.isEmpty()) {
+            config.setDriverClassName(driverClassName);
+        }
+        config.setMaximumPoolSize(readMaxPoolSize(configReader));
+        try {
+            dataSource = new HikariDataSource(config);
+        } catch (RuntimeException e) {
+            throw new GeoLocationResolverException("Cannot create the connection pool to '" + jdbcUrl + "'", e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Created a connection pool to '" + jdbcUrl + "'");
+        }
+        return dataSource;
+    }
+
+    private static int readMaxPoolSize(ConfigReader configReader) {
+        String value = configReader.readConfig(CONFIG_KEY_JDBC_MAX_POOL_SIZE,
+                String.valueOf(DEFAULT_JDBC_MAX_POOL_SIZE));
+        try {
+            int maxPoolSize = Integer.parseInt(value);
+            if (maxPoolSize > 0) {
+                return maxPoolSize;
+            }
+        } catch (NumberFormatException e) {
+            // Falls back to the default below
+        }
+        log.warn("The config '" + value + "' provided in '" + CONFIG_KEY_JDBC_MAX_POOL_SIZE + "' is not a valid " +
+                "pool size. Hence using the default value '" + DEFAULT_JDBC_MAX_POOL_SIZE + "'");
+        return DEFAULT_JDBC_MAX_POOL_SIZE;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.datasource;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+/**
+ * Looks up the datasource bound in JNDI under the name given in 'datasource', such as
+ * 'java:comp/env/jdbc/GEO_LOCATION_DATA', using the default initial context of the environment.
+ */
+public class JNDIDataSourceProvider implements DataSourceProvider {
+    private static final Log log = LogFactory.getLog(JNDIDataSourceProvider.class);
+
+    @Override
+    public DataSource getDataSource(ConfigReader configReader) throws GeoLocationResolverException {
+        String dataSourceName = DataSourceProviders.getDataSourceName(configReader);
+        Object dataSource;
+        try {
+            dataSource = new InitialContext().lookup(dataSourceName);
+        } catch (NamingException e) {
+            throw new GeoLocationResolverException("Cannot find the datasource '" + dataSourceName + "' in JNDI", e);
+        }
+        if (!(dataSource instanceof DataSource)) {
+            throw new GeoLocationResolverException("The object bound to '" + dataSourceName + "' in JNDI is not a " +
+                    DataSource.class.getName());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Lookup for datasource '" + dataSourceName + "' completed through JNDI.");
+        }
+        return (DataSource) dataSource;
+    }
+}
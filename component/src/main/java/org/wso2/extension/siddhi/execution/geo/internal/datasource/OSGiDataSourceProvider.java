@@ -0,0 +1,73 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.datasource;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.wso2.carbon.datasource.core.api.DataSourceService;
+import org.wso2.carbon.datasource.core.exception.DataSourceException;
+import org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+import javax.sql.DataSource;
+
+/**
+ * Looks up the datasource named in 'datasource' through the Carbon DataSourceService, which is only available
+ * within an OSGi container such as the Streaming Integrator.
+ */
+public class OSGiDataSourceProvider implements DataSourceProvider {
+    private static final Log log = LogFactory.getLog(OSGiDataSourceProvider.class);
+
+    @Override
+    public DataSource getDataSource(ConfigReader configReader) throws GeoLocationResolverException {
+        String dataSourceName = DataSourceProviders.getDataSourceName(configReader);
+        Bundle bundle = FrameworkUtil.getBundle(DataSourceService.class);
+        if (bundle == null || bundle.getBundleContext() == null) {
+            throw new GeoLocationResolverException("Cannot find the datasourceService '" +
+                    DataSourceService.class.getName() + "' as the extension is not running in an OSGi " +
+                    "container. Configure 'dataSourceProvider' as 'jndi' or 'jdbc' instead");
+        }
+        BundleContext bundleContext = bundle.getBundleContext();
+        ServiceReference<DataSourceService> serviceRef = bundleContext.getServiceReference(DataSourceService.class);
+        if (serviceRef == null) {
+            throw new GeoLocationResolverException("Cannot find the datasourceService '" +
+                    DataSourceService.class.getName() + "'");
+        }
+        try {
+            DataSourceService dataSourceService = bundleContext.getService(serviceRef);
+            Object dataSource = dataSourceService.getDataSource(dataSourceName);
+            if (!(dataSource instanceof DataSource)) {
+                throw new GeoLocationResolverException("The datasource '" + dataSourceName + "' is not a " +
+                        DataSource.class.getName());
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Lookup for datasource '" + dataSourceName + "' completed through " +
+                        "DataSource Service lookup.");
+            }
+            return (DataSource) dataSource;
+        } catch (DataSourceException e) {
+            throw new GeoLocationResolverException("Cannot connect to the datasource '" + dataSourceName + "'", e);
+        }
+    }
+}
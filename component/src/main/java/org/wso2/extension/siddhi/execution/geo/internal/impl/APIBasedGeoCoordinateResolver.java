@@ -24,7 +24,7 @@ import org.wso2.carbon.utils.StringUtils;
 import org.wso2.extension.siddhi.execution.geo.api.GeoCoordinate;
 import org.wso2.extension.siddhi.execution.geo.api.GeoCoordinateResolver;
 import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
-import org.wso2.extension.siddhi.execution.geo.internal.utils.Utilities;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -60,7 +60,7 @@ public class APIBasedGeoCoordinateResolver implements GeoCoordinateResolver {
         ip = ip.trim();
 
         try {
-            if (Utilities.isIpAddress(ip)) {
+            if (IPAddressParser.isIpAddress(ip)) {
                 url = new URL(apikey + ip);
             } else {
                 LOGGER.error("The ip address : " + ip + " is invalid");
@@ -0,0 +1,305 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.Address;
+import org.wso2.extension.siddhi.execution.geo.api.ReverseGeocoder;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.index.PolygonIndex;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.JsonReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The ReverseGeocoder implementation which finds the country and the first level administrative area whose
+ * boundaries contain a point, without any network access. The boundaries are read from GeoJSON feature collections
+ * of Polygon and MultiPolygon features, such as the admin 0 countries and the admin 1 states and provinces of Natural
+ * Earth. The names and the country codes are read from the properties of the features, matching the configured
+ * property names regardless of their case. Files ending with '.gz' are read as gzip files.
+ * <p>
+ * Each layer of boundaries is kept in a {@link PolygonIndex}, hence unlike the nearest place of a gazetteer the
+ * address is right up to the border. The address has the country, the first level administrative area and a
+ * formatted address made of the two, the other parts being {@link Address#NOT_AVAILABLE}. Points outside all the
+ * countries, such as at sea, have no address.
+ */
+public class BoundaryReverseGeocoder implements ReverseGeocoder {
+    private static final Log log = LogFactory.getLog(BoundaryReverseGeocoder.class);
+
+    private static final String CONFIG_KEY_COUNTRY_FILE = "boundaryCountryFile";
+    private static final String CONFIG_KEY_ADMIN1_FILE = "boundaryAdmin1File";
+    private static final String CONFIG_KEY_NAME_PROPERTY = "boundaryNameProperty";
+    private static final String CONFIG_KEY_COUNTRY_CODE_PROPERTY = "boundaryCountryCodeProperty";
+
+    private PolygonIndex countryIndex;
+    private Boundary[] countries;
+    private PolygonIndex admin1Index;
+    private Boundary[] admin1Areas;
+
+    @Override
+    public void init(ConfigReader configReader) throws GeoLocationResolverException {
+        String countryFileName = configReader.readConfig(CONFIG_KEY_COUNTRY_FILE, "");
+        if (countryFileName.isEmpty()) {
+            throw new GeoLocationResolverException("Error in reading the configuration of '" +
+                    CONFIG_KEY_COUNTRY_FILE + "'");
+        }
+        String admin1FileName = configReader.readConfig(CONFIG_KEY_ADMIN1_FILE, "");
+        String nameProperty = configReader.readConfig(CONFIG_KEY_NAME_PROPERTY, "name");
+        String countryCodeProperty = configReader.readConfig(CONFIG_KEY_COUNTRY_CODE_PROPERTY, "iso_a2");
+        long startTime = System.currentTimeMillis();
+        List<Boundary> boundaries = new ArrayList<>();
+        countryIndex = readBoundaries(new File(countryFileName), nameProperty, countryCodeProperty, boundaries);
+        countries = boundaries.toArray(new Boundary[0]);
+        boundaries.clear();
+        admin1Index = admin1FileName.isEmpty() ? new PolygonIndex.Builder().build() :
+                readBoundaries(new File(admin1FileName), nameProperty, countryCodeProperty, boundaries);
+        admin1Areas = boundaries.toArray(new Boundary[0]);
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + countryIndex.size() + " country and " + admin1Index.size() +
+                    " administrative area boundaries in " + (System.currentTimeMillis() - startTime) + " ms.");
+        }
+    }
+
+    @Override
+    public Address getAddress(double latitude, double longitude) {
+        int admin1 = admin1Index.find(latitude, longitude);
+        int country = countryIndex.find(latitude, longitude);
+        Boundary admin1Area = admin1 < 0 ? null : admin1Areas[admin1];
+        String countryCode;
+        String countryName;
+        if (country >= 0) {
+            countryCode = countries[country].countryCode;
+            countryName = countries[country].name;
+        } else if (admin1Area != null && admin1Area.countryCode != null) {
+            countryCode = admin1Area.countryCode;
+            String displayName = new Locale("", countryCode).getDisplayCountry(Locale.ENGLISH);
+            countryName = displayName.isEmpty() ? countryCode : displayName;
+        } else {
+            return null;
+        }
+        String admin1Name = admin1Area == null ? null : admin1Area.name;
+        StringBuilder formattedAddress = new StringBuilder();
+        if (admin1Name != null) {
+            formattedAddress.append(admin1Name);
+        }
+        if (countryName != null) {
+            if (formattedAddress.length() > 0) {
+                formattedAddress.append(", ");
+            }
+            formattedAddress.append(countryName);
+        }
+        return new Address(Address.NOT_AVAILABLE, Address.NOT_AVAILABLE, Address.NOT_AVAILABLE,
+                Address.NOT_AVAILABLE, orNotAvailable(admin1Name), orNotAvailable(countryName),
+                orNotAvailable(countryCode), Address.NOT_AVAILABLE,
+                formattedAddress.length() > 0 ? formattedAddress.toString() : Address.NOT_AVAILABLE);
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    private static String orNotAvailable(String value) {
+        return value != null ? value : Address.NOT_AVAILABLE;
+    }
+
+    /**
+     * Reads the Polygon and MultiPolygon features of a GeoJSON file, adding the name and the country code of each
+     * to the boundaries, and indexes them by their positions in the boundaries.
+     */
+    private static PolygonIndex readBoundaries(File file, String nameProperty, String countryCodeProperty,
+                                               List<Boundary> boundaries) throws GeoLocationResolverException {
+        PolygonIndex.Builder builder = new PolygonIndex.Builder();
+        int skippedFeatures = 0;
+        try (JsonReader reader = open(file)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"features".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                List<double[]> rings = new ArrayList<>();
+                Map<String, String> properties = new HashMap<>();
+                while (reader.hasNext()) {
+                    rings.clear();
+                    properties.clear();
+                    if (readFeature(reader, rings, properties)) {
+                        builder.addPolygon(rings, boundaries.size());
+                        boundaries.add(new Boundary(getProperty(properties, nameProperty),
+                                getProperty(properties, countryCodeProperty)));
+                    } else {
+                        skippedFeatures++;
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        } catch (IOException e) {
+            throw new GeoLocationResolverException("Cannot read the boundaries file '" + file + "'", e);
+        }
+        if (skippedFeatures > 0) {
+            log.warn("Skipped " + skippedFeatures + " features of the boundaries file '" + file +
+                    "' which are not polygons");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads a feature, whose members may be in any order.
+     *
+     * @return true if the feature is a Polygon or a MultiPolygon
+     */
+    private static boolean readFeature(JsonReader reader, List<double[]> rings, Map<String, String> properties)
+            throws IOException {
+        String geometryType = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("properties".equals(name) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String property = reader.nextName();
+                    JsonReader.Token token = reader.peek();
+                    if (token == JsonReader.Token.STRING || token == JsonReader.Token.NUMBER) {
+                        properties.put(property, reader.nextString());
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if ("geometry".equals(name) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String member = reader.nextName();
+                    if ("type".equals(member)) {
+                        geometryType = reader.nextString();
+                    } else if ("coordinates".equals(member)) {
+                        readRings(reader, new Ring(), rings);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return ("Polygon".equals(geometryType) || "MultiPolygon".equals(geometryType)) && !rings.isEmpty();
+    }
+
+    /**
+     * Reads the nested arrays of coordinates, adding each array of positions as a ring.
+     *
+     * @return true if the array is a position, which is added to the current ring
+     */
+    private static boolean readRings(JsonReader reader, Ring ring, List<double[]> rings) throws IOException {
+        reader.beginArray();
+        if (reader.peek() == JsonReader.Token.NUMBER) {
+            double longitude = reader.nextDouble();
+            double latitude = reader.nextDouble();
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+            ring.add(longitude, latitude);
+            return true;
+        }
+        boolean positions = false;
+        while (reader.hasNext()) {
+            positions |= readRings(reader, ring, rings);
+        }
+        reader.endArray();
+        if (positions) {
+            rings.add(ring.toArray());
+        }
+        return false;
+    }
+
+    private static String getProperty(Map<String, String> properties, String name) {
+        String value = properties.get(name);
+        if (value == null) {
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                if (property.getKey().equalsIgnoreCase(name)) {
+                    value = property.getValue();
+                    break;
+                }
+            }
+        }
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static JsonReader open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        return new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The positions of the ring being read.
+     */
+    private static final class Ring {
+        private double[] coordinates = new double[256];
+        private int length;
+
+        private void add(double longitude, double latitude) {
+            if (length + 2 > coordinates.length) {
+                coordinates = Arrays.copyOf(coordinates, coordinates.length << 1);
+            }
+            coordinates[length++] = longitude;
+            coordinates[length++] = latitude;
+        }
+
+        private double[] toArray() {
+            double[] ring = Arrays.copyOf(coordinates, length);
+            length = 0;
+            return ring;
+        }
+    }
+
+    /**
+     * The name and the country code of a boundary.
+     */
+    private static final class Boundary {
+        private final String name;
+        private final String countryCode;
+
+        private Boundary(String name, String countryCode) {
+            this.name = name;
+            this.countryCode = countryCode;
+        }
+    }
+}
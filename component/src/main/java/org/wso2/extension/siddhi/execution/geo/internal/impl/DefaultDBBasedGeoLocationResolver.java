@@ -24,27 +24,122 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.extension.siddhi.execution.geo.api.GeoLocationResolver;
 import org.wso2.extension.siddhi.execution.geo.api.Location;
 import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
 
 /**
  * The default implementation of the GeoLocationResolver interface. This is implemented based on RDBMS.
  */
 public class DefaultDBBasedGeoLocationResolver implements GeoLocationResolver {
     private static final Log log = LogFactory.getLog(DefaultDBBasedGeoLocationResolver.class);
+    private static final String BLOCK_RANGES_STATE_KEY = "blockRanges";
+    private final LookupMetrics metrics = LookupMetrics.getInstance(LookupMetrics.IP_LOCATION);
 
     @Override
     public void init(ConfigReader configReader) throws GeoLocationResolverException {
         RDBMSGeoLocationResolver.getInstance().init(configReader);
     }
 
+    /**
+     * Returns null if the database cannot be read, so that the failure is not cached as an unresolvable ip.
+     */
     @Override
     public Location getGeoLocationInfo(String ip) {
-        Location location = null;
+        Location location;
         try {
             location = RDBMSGeoLocationResolver.getInstance().getLocation(ip);
         } catch (GeoLocationResolverException e) {
-            log.warn("Cannot retrieve the location against the ip '" + ip + "'");
+            metrics.backendError();
+            log.warn("Cannot retrieve the location against the ip '" + ip + "'", e);
+            return null;
         }
         return location != null ? location : new Location("", "", ip);
     }
 
+    /**
+     * Returns no location for any of the ips if the database cannot be read, so that the failure is not cached as
+     * unresolvable ips.
+     */
+    @Override
+    public Map<String, Location> getGeoLocationInfo(Collection<String> ips) {
+        Map<String, Location> locations;
+        try {
+            locations = RDBMSGeoLocationResolver.getInstance().getLocations(ips);
+        } catch (GeoLocationResolverException e) {
+            metrics.backendError();
+            log.warn("Cannot retrieve the locations against " + ips.size() + " ips", e);
+            return new HashMap<>();
+        }
+        for (String ip : ips) {
+            if (locations.get(ip) == null) {
+                locations.put(ip, new Location("", "", ip));
+            }
+        }
+        return locations;
+    }
+
+    @Override
+    public void loadResolvedLocations(int maxCount, BiPredicate<String, Location> consumer) {
+        try {
+            RDBMSGeoLocationResolver.getInstance().loadPersistedLocations(maxCount, consumer);
+        } catch (GeoLocationResolverException e) {
+            log.warn("Cannot load the persisted locations", e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> snapshotState() {
+        try {
+            byte[] ranges = RDBMSGeoLocationResolver.getInstance().snapshotRangeCache();
+            if (ranges != null) {
+                Map<String, Object> state = new HashMap<>();
+                state.put(BLOCK_RANGES_STATE_KEY, ranges);
+                return state;
+            }
+        } catch (IOException e) {
+            log.warn("Cannot snapshot the cached IPv4 ranges", e);
+        }
+        return null;
+    }
+
+    @Override
+    public void restoreState(Map<String, Object> state) {
+        Object ranges = state.get(BLOCK_RANGES_STATE_KEY);
+        if (ranges instanceof byte[]) {
+            try {
+                if (!RDBMSGeoLocationResolver.getInstance().restoreRangeCache((byte[]) ranges)) {
+                    log.info("Skipped restoring the cached IPv4 ranges, as they have been cached from another " +
+                            "version of the geo location tables");
+                }
+            } catch (IOException e) {
+                log.warn("Cannot restore the cached IPv4 ranges", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean reload() throws GeoLocationResolverException {
+        return RDBMSGeoLocationResolver.getInstance().reload();
+    }
+
+    @Override
+    public long getDatasetGeneration() {
+        return RDBMSGeoLocationResolver.getInstance().getDatasetGeneration();
+    }
+
+    @Override
+    public String getDatasetFingerprint() {
+        return RDBMSGeoLocationResolver.getInstance().getDatasetFingerprint();
+    }
+
+    @Override
+    public void shutdown() {
+        RDBMSGeoLocationResolver.getInstance().shutdown();
+    }
+
 }
@@ -0,0 +1,256 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.Address;
+import org.wso2.extension.siddhi.execution.geo.api.ReverseGeocoder;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.index.PlaceIndex;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The ReverseGeocoder implementation which finds the nearest place of a local gazetteer, without any network access.
+ * The gazetteer is a GeoNames place file such as cities500.txt, which has a tab separated line per place with the
+ * name at column 2, the latitude and longitude at columns 5 and 6, the country code at column 9 and the first and
+ * second level administrative division codes at columns 11 and 12. The names of the divisions are read from the
+ * GeoNames admin1CodesASCII.txt and admin2Codes.txt files if given, and the names of the countries are the English
+ * names of their codes. Files ending with '.gz' are read as gzip files.
+ * <p>
+ * The places are kept in a {@link PlaceIndex}, hence a lookup takes microseconds. The address has the country, the
+ * administrative divisions and a formatted address made of the place name, the first level division and the
+ * country, the other parts being {@link Address#NOT_AVAILABLE}.
+ */
+public class GazetteerReverseGeocoder implements ReverseGeocoder {
+    private static final Log log = LogFactory.getLog(GazetteerReverseGeocoder.class);
+
+    private static final String CONFIG_KEY_GAZETTEER_FILE = "gazetteerFile";
+    private static final String CONFIG_KEY_ADMIN1_FILE = "gazetteerAdmin1File";
+    private static final String CONFIG_KEY_ADMIN2_FILE = "gazetteerAdmin2File";
+    private static final String CONFIG_KEY_MAX_DISTANCE = "gazetteerMaxDistance";
+    private static final int NAME_COLUMN = 1;
+    private static final int LATITUDE_COLUMN = 4;
+    private static final int LONGITUDE_COLUMN = 5;
+    private static final int COUNTRY_CODE_COLUMN = 8;
+    private static final int ADMIN1_CODE_COLUMN = 10;
+    private static final int ADMIN2_CODE_COLUMN = 11;
+
+    private PlaceIndex placeIndex;
+    private String[] placeNames;
+    private int[] placeRegions;
+    private Region[] regions;
+    private double maxDistance;
+
+    @Override
+    public void init(ConfigReader configReader) throws GeoLocationResolverException {
+        String fileName = configReader.readConfig(CONFIG_KEY_GAZETTEER_FILE, "");
+        if (fileName.isEmpty()) {
+            throw new GeoLocationResolverException("Error in reading the configuration of '" +
+                    CONFIG_KEY_GAZETTEER_FILE + "'");
+        }
+        String maxDistanceValue = configReader.readConfig(CONFIG_KEY_MAX_DISTANCE, "0");
+        try {
+            maxDistance = Double.parseDouble(maxDistanceValue);
+        } catch (NumberFormatException e) {
+            throw new GeoLocationResolverException("The config '" + maxDistanceValue + "' provided in '" +
+                    CONFIG_KEY_MAX_DISTANCE + "' is not a valid number", e);
+        }
+        long startTime = System.currentTimeMillis();
+        Map<String, String> admin1Names = readNames(configReader.readConfig(CONFIG_KEY_ADMIN1_FILE, ""));
+        Map<String, String> admin2Names = readNames(configReader.readConfig(CONFIG_KEY_ADMIN2_FILE, ""));
+        readPlaces(new File(fileName), admin1Names, admin2Names);
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + placeIndex.size() + " places in " + regions.length + " regions from '" +
+                    fileName + "' in " + (System.currentTimeMillis() - startTime) + " ms.");
+        }
+    }
+
+    @Override
+    public Address getAddress(double latitude, double longitude) {
+        double[] distance = new double[1];
+        int place = placeIndex.findNearest(latitude, longitude, distance);
+        if (place < 0 || (maxDistance > 0 && distance[0] > maxDistance)) {
+            return null;
+        }
+        Region region = regions[placeRegions[place]];
+        return new Address(Address.NOT_AVAILABLE, Address.NOT_AVAILABLE, Address.NOT_AVAILABLE,
+                region.admin2Name, region.admin1Name, region.countryName, region.countryCode,
+                Address.NOT_AVAILABLE, placeNames[place] + region.formattedSuffix);
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    private void readPlaces(File file, Map<String, String> admin1Names, Map<String, String> admin2Names)
+            throws GeoLocationResolverException {
+        PlaceIndex.Builder builder = new PlaceIndex.Builder();
+        List<String> names = new ArrayList<>();
+        int[] regionIds = new int[1024];
+        Map<String, Integer> regionKeys = new HashMap<>();
+        List<Region> regionList = new ArrayList<>();
+        int invalidLines = 0;
+        String[] columns = new String[ADMIN2_CODE_COLUMN + 1];
+        try (BufferedReader reader = open(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                double latitude;
+                double longitude;
+                try {
+                    if (!split(line, columns)) {
+                        throw new NumberFormatException();
+                    }
+                    latitude = Double.parseDouble(columns[LATITUDE_COLUMN]);
+                    longitude = Double.parseDouble(columns[LONGITUDE_COLUMN]);
+                } catch (NumberFormatException e) {
+                    invalidLines++;
+                    continue;
+                }
+                String countryCode = columns[COUNTRY_CODE_COLUMN];
+                String admin1Key = countryCode + '.' + columns[ADMIN1_CODE_COLUMN];
+                String admin2Key = admin1Key + '.' + columns[ADMIN2_CODE_COLUMN];
+                Integer regionId = regionKeys.get(admin2Key);
+                if (regionId == null) {
+                    regionId = regionList.size();
+                    regionList.add(new Region(countryCode, admin1Names.get(admin1Key), admin2Names.get(admin2Key)));
+                    regionKeys.put(admin2Key, regionId);
+                }
+                int placeId = names.size();
+                if (placeId == regionIds.length) {
+                    regionIds = Arrays.copyOf(regionIds, placeId << 1);
+                }
+                regionIds[placeId] = regionId;
+                names.add(columns[NAME_COLUMN]);
+                builder.addPlace(latitude, longitude, placeId);
+            }
+        } catch (IOException e) {
+            throw new GeoLocationResolverException("Cannot read the gazetteer file '" + file + "'", e);
+        }
+        if (invalidLines > 0) {
+            log.warn("Skipped " + invalidLines + " invalid lines of the gazetteer file '" + file + "'");
+        }
+        placeIndex = builder.build();
+        placeNames = names.toArray(new String[0]);
+        placeRegions = Arrays.copyOf(regionIds, names.size());
+        regions = regionList.toArray(new Region[0]);
+    }
+
+    /**
+     * Reads a GeoNames file of administrative division names, which has the code such as 'US.CA' in the first
+     * column and the name in the second.
+     */
+    private static Map<String, String> readNames(String fileName) throws GeoLocationResolverException {
+        Map<String, String> names = new HashMap<>();
+        if (fileName.isEmpty()) {
+            return names;
+        }
+        try (BufferedReader reader = open(new File(fileName))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int codeEnd = line.indexOf('\t');
+                if (codeEnd <= 0) {
+                    continue;
+                }
+                int nameEnd = line.indexOf('\t', codeEnd + 1);
+                names.put(line.substring(0, codeEnd),
+                        line.substring(codeEnd + 1, nameEnd < 0 ? line.length() : nameEnd));
+            }
+        } catch (IOException e) {
+            throw new GeoLocationResolverException("Cannot read the administrative divisions file '" + fileName +
+                    "'", e);
+        }
+        return names;
+    }
+
+    private static BufferedReader open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Splits the first columns of a tab separated line.
+     *
+     * @return false if the line has fewer columns
+     */
+    private static boolean split(String line, String[] columns) {
+        int start = 0;
+        for (int i = 0; i < columns.length; i++) {
+            int end = line.indexOf('\t', start);
+            if (end < 0) {
+                if (i < columns.length - 1) {
+                    return false;
+                }
+                end = line.length();
+            }
+            columns[i] = line.substring(start, end);
+            start = end + 1;
+        }
+        return true;
+    }
+
+    /**
+     * The names of the country and the administrative divisions shared by the places of a second level division.
+     */
+    private static final class Region {
+        private final String countryCode;
+        private final String countryName;
+        private final String admin1Name;
+        private final String admin2Name;
+        private final String formattedSuffix;
+
+        private Region(String countryCode, String admin1Name, String admin2Name) {
+            this.countryCode = countryCode.isEmpty() ? Address.NOT_AVAILABLE : countryCode;
+            String displayName = new Locale("", countryCode).getDisplayCountry(Locale.ENGLISH);
+            this.countryName = displayName.isEmpty() ? this.countryCode : displayName;
+            this.admin1Name = admin1Name != null ? admin1Name : Address.NOT_AVAILABLE;
+            this.admin2Name = admin2Name != null ? admin2Name : Address.NOT_AVAILABLE;
+            StringBuilder suffix = new StringBuilder();
+            if (admin1Name != null) {
+                suffix.append(", ").append(admin1Name);
+            }
+            if (!countryCode.isEmpty()) {
+                suffix.append(", ").append(countryName);
+            }
+            this.formattedSuffix = suffix.toString();
+        }
+    }
+}
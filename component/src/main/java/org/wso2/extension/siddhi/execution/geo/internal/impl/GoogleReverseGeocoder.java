@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import com.google.code.geocoder.Geocoder;
+import com.google.code.geocoder.GeocoderRequestBuilder;
+import com.google.code.geocoder.model.GeocodeResponse;
+import com.google.code.geocoder.model.GeocoderAddressComponent;
+import com.google.code.geocoder.model.GeocoderRequest;
+import com.google.code.geocoder.model.GeocoderStatus;
+import com.google.code.geocoder.model.LatLng;
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.Address;
+import org.wso2.extension.siddhi.execution.geo.api.ReverseGeocoder;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The default implementation of the ReverseGeocoder interface, which requests the addresses from the Google Maps
+ * geocoding API.
+ */
+public class GoogleReverseGeocoder implements ReverseGeocoder {
+    private static final Log log = LogFactory.getLog(GoogleReverseGeocoder.class);
+
+    private final Geocoder geocoder = new Geocoder();
+
+    @Override
+    public void init(ConfigReader configReader) {
+    }
+
+    @Override
+    public Address getAddress(double latitude, double longitude) throws GeoLocationResolverException {
+        LatLng coordinate = new LatLng(new BigDecimal(latitude), new BigDecimal(longitude));
+
+        // Make the geocode request to API library
+        GeocoderRequest geocoderRequest = new GeocoderRequestBuilder()
+                .setLocation(coordinate)
+                .setLanguage("en")
+                .getGeocoderRequest();
+
+        String streetNumber = Address.NOT_AVAILABLE;
+        String neighborhood = Address.NOT_AVAILABLE;
+        String route = Address.NOT_AVAILABLE;
+        String administrativeAreaLevelTwo = Address.NOT_AVAILABLE;
+        String administrativeAreaLevelOne = Address.NOT_AVAILABLE;
+        String country = Address.NOT_AVAILABLE;
+        String countryCode = Address.NOT_AVAILABLE;
+        String postalCode = Address.NOT_AVAILABLE;
+        String formattedAddress;
+
+        GeocodeResponse geocoderResponse;
+        try {
+            geocoderResponse = geocoder.geocode(geocoderRequest);
+        } catch (IOException e) {
+            throw new GeoLocationResolverException("Error in connection to Google Maps API.", e);
+        }
+        GeocoderStatus status = geocoderResponse.getStatus();
+        if (status != GeocoderStatus.OK || geocoderResponse.getResults().isEmpty()) {
+            log.error("Geocoder request failed with a response of: " + status.value());
+            return null;
+        }
+        formattedAddress = geocoderResponse.getResults().get(0).getFormattedAddress();
+        List<GeocoderAddressComponent> addressComponents = geocoderResponse
+                .getResults().get(0).getAddressComponents();
+        for (GeocoderAddressComponent component : addressComponents) {
+            List<String> types = component.getTypes();
+            if (types.contains("street_number")) {
+                streetNumber = component.getLongName();
+            } else if (types.contains("neighborhood")) {
+                neighborhood = component.getLongName();
+            } else if (types.contains("route")) {
+                route = component.getLongName();
+            } else if (types.contains("administrative_area_level_2")) {
+                administrativeAreaLevelTwo = component.getLongName();
+            } else if (types.contains("administrative_area_level_1")) {
+                administrativeAreaLevelOne = component.getLongName();
+            } else if (types.contains("country")) {
+                country = component.getLongName();
+                countryCode = component.getShortName();
+            } else if (types.contains("postal_code")) {
+                postalCode = component.getLongName();
+            }
+        }
+        return new Address(streetNumber, neighborhood, route, administrativeAreaLevelTwo,
+                administrativeAreaLevelOne, country, countryCode, postalCode, formattedAddress);
+    }
+}
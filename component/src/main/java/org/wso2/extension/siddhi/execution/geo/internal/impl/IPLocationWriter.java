@@ -0,0 +1,348 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persists resolved locations into the IP_LOCATION table in the background (write-behind), so that the lookups
+ * never wait for a write transaction. The locations are queued in a bounded queue which holds each IP address at
+ * most once, and a single thread inserts them with JDBC batches of up to the configured size, at least once per
+ * flush interval. When the queue is full further locations are dropped, as they can be resolved again from the
+ * BLOCKS and LOCATION tables.
+ */
+public class IPLocationWriter {
+    private static final Log log = LogFactory.getLog(IPLocationWriter.class);
+
+    private static final String SQL_SELECT_EXISTING_IPS = "SELECT ip FROM IP_LOCATION WHERE ip IN (";
+    private static final String SQL_INSERT_LOCATION_INTO_TABLE = "INSERT INTO IP_LOCATION (ip,country_name," +
+            "city_name) VALUES (?,?,?)";
+    private static final String SQL_DELETE_ALL_LOCATIONS = "DELETE FROM IP_LOCATION";
+
+    private final ConnectionSupplier connectionSupplier;
+    private final int batchSize;
+    private final long flushInterval;
+    private final BlockingQueue<PendingLocation> queue;
+    private final Set<String> queuedIps = ConcurrentHashMap.newKeySet();
+    private final Thread writerThread;
+    private final LookupMetrics metrics = LookupMetrics.getInstance(LookupMetrics.IP_LOCATION);
+    private volatile boolean isRunning = true;
+    private final AtomicReference<Runnable> clearCallback = new AtomicReference<>();
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Supplies the connections used to write the locations. The connections are closed after each batch.
+     */
+    public interface ConnectionSupplier {
+        Connection getConnection() throws SQLException;
+    }
+
+    /**
+     * @param connectionSupplier supplies the connections to the geo location database
+     * @param batchSize          the maximum number of locations inserted with one JDBC batch
+     * @param flushInterval      the maximum time in milliseconds a location waits in the queue for a batch to fill
+     * @param queueSize          the maximum number of locations waiting to be written
+     */
+    public IPLocationWriter(ConnectionSupplier connectionSupplier, int batchSize, long flushInterval,
+                            int queueSize) {
+        this.connectionSupplier = connectionSupplier;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = Math.max(1, flushInterval);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueSize));
+        this.writerThread = new Thread(this::run, "Siddhi-Geo-IPLocationWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues the location of the ip to be written. The call never blocks.
+     *
+     * @param ip       the ip address
+     * @param location the location of the ip address
+     * @return false if the location is dropped because the queue is full or the writer is stopped
+     */
+    public boolean write(String ip, Location location) {
+        if (!queuedIps.add(ip)) {
+            // Already waiting to be written
+            return true;
+        }
+        if (isRunning && queue.offer(new PendingLocation(ip, location))) {
+            queuedCount.incrementAndGet();
+            return true;
+        }
+        queuedIps.remove(ip);
+        if (droppedCount.getAndIncrement() % 10000 == 0) {
+            log.warn("The IP_LOCATION write queue is full, dropped " + droppedCount.get() + " locations so far");
+        }
+        return false;
+    }
+
+    /**
+     * Deletes all the rows of the IP_LOCATION table, along with the locations waiting to be written, such as when
+     * the locations have been resolved from a dataset which has been replaced. The rows are deleted by the writer
+     * thread within a flush interval, hence the call never blocks. A failed delete is retried at every flush
+     * interval until it succeeds.
+     *
+     * @param onCleared invoked by the writer thread once the rows have been deleted
+     */
+    public void clearPersistedLocations(Runnable onCleared) {
+        clearCallback.set(onCleared);
+    }
+
+    /**
+     * Stops the writer after writing the queued locations, waiting at most the given time.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     */
+    public void stop(long timeout) {
+        // Not interrupted, so that a batch being written is not aborted. The writer notices within a flush interval
+        isRunning = false;
+        try {
+            writerThread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of locations accepted into the queue
+     */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return the number of locations inserted into the IP_LOCATION table
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return the number of locations dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of locations which could not be written due to database errors
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return the number of locations currently waiting in the queue
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<PendingLocation> batch = new ArrayList<>(batchSize);
+        while (isRunning || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                isRunning = false;
+            }
+            Runnable onCleared = clearCallback.getAndSet(null);
+            if (onCleared != null) {
+                queue.drainTo(batch);
+                for (PendingLocation pendingLocation : batch) {
+                    queuedIps.remove(pendingLocation.ip);
+                }
+                batch.clear();
+                if (deleteAll()) {
+                    onCleared.run();
+                } else {
+                    // Retried at the next flush, unless a newer clear has been requested meanwhile
+                    clearCallback.compareAndSet(null, onCleared);
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                for (PendingLocation pendingLocation : batch) {
+                    queuedIps.remove(pendingLocation.ip);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for a location, then collects locations until the batch is full or the flush interval is over.
+     */
+    private void collect(List<PendingLocation> batch) throws InterruptedException {
+        if (!isRunning) {
+            queue.drainTo(batch, batchSize);
+            return;
+        }
+        PendingLocation first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PendingLocation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Inserts the locations of the batch which are not in the IP_LOCATION table yet, in a single transaction.
+     */
+    void flush(List<PendingLocation> batch) {
+        long startTime = metrics.startTime();
+        Connection connection = null;
+        try {
+            connection = connectionSupplier.getConnection();
+            boolean autoCommitMode = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                Set<String> existingIps = getExistingIps(batch, connection);
+                int insertCount = 0;
+                try (PreparedStatement statement = connection.prepareStatement(SQL_INSERT_LOCATION_INTO_TABLE)) {
+                    for (PendingLocation pendingLocation : batch) {
+                        if (existingIps.add(pendingLocation.ip)) {
+                            statement.setString(1, pendingLocation.ip);
+                            statement.setString(2, pendingLocation.location.getCountry());
+                            statement.setString(3, pendingLocation.location.getCity());
+                            statement.addBatch();
+                            insertCount++;
+                        }
+                    }
+                    if (insertCount > 0) {
+                        statement.executeBatch();
+                    }
+                }
+                connection.commit();
+                writtenCount.addAndGet(insertCount);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommitMode);
+            }
+        } catch (SQLException e) {
+            failedCount.addAndGet(batch.size());
+            log.error("Cannot save " + batch.size() + " locations to database", e);
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.error("Couldn't close connection", e);
+                }
+            }
+            metrics.record(LookupMetrics.Stage.PERSIST, startTime);
+        }
+    }
+
+    private boolean deleteAll() {
+        Connection connection = null;
+        try {
+            connection = connectionSupplier.getConnection();
+            try (PreparedStatement statement = connection.prepareStatement(SQL_DELETE_ALL_LOCATIONS)) {
+                int count = statement.executeUpdate();
+                if (log.isDebugEnabled()) {
+                    log.debug("Deleted " + count + " locations from IP_LOCATION");
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            log.error("Cannot delete the persisted locations from database", e);
+            return false;
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.error("Couldn't close connection", e);
+                }
+            }
+        }
+    }
+
+    private Set<String> getExistingIps(List<PendingLocation> batch, Connection connection) throws SQLException {
+        StringBuilder query = new StringBuilder(SQL_SELECT_EXISTING_IPS);
+        for (int i = 0; i < batch.size(); i++) {
+            query.append(i == 0 ? "?" : ",?");
+        }
+        query.append(')');
+        Set<String> existingIps = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(query.toString())) {
+            for (int i = 0; i < batch.size(); i++) {
+                statement.setString(i + 1, batch.get(i).ip);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    existingIps.add(resultSet.getString(1));
+                }
+            }
+        }
+        return existingIps;
+    }
+
+    /**
+     * A location waiting to be written.
+     */
+    static class PendingLocation {
+        private final String ip;
+        private final Location location;
+
+        PendingLocation(String ip, Location location) {
+            this.ip = ip;
+            this.location = location;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.GeoLocationResolver;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.index.GeoIPDatabaseFile;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The GeoLocationResolver implementation which resolves the locations from a memory mapped
+ * {@link GeoIPDatabaseFile}. The file can be produced from the geo location database using
+ * {@link org.wso2.extension.siddhi.execution.geo.internal.index.GeoIPDatabaseFileConverter}. The file is mapped
+ * again on {@link #reload()} if it has been modified, hence an updated file should be moved in place of the current
+ * one once it is complete rather than written over it.
+ */
+public class MappedFileGeoLocationResolver implements GeoLocationResolver {
+    private static final Log log = LogFactory.getLog(MappedFileGeoLocationResolver.class);
+
+    private static final String CONFIG_KEY_DATABASE_FILE = "geoIpDatabaseFile";
+
+    private File file;
+    private volatile Dataset dataset;
+
+    @Override
+    public void init(ConfigReader configReader) throws GeoLocationResolverException {
+        String fileName = configReader.readConfig(CONFIG_KEY_DATABASE_FILE, "");
+        if (fileName.isEmpty()) {
+            throw new GeoLocationResolverException("Error in reading the configuration of '" +
+                    CONFIG_KEY_DATABASE_FILE + "'");
+        }
+        file = new File(fileName);
+        dataset = open(0);
+    }
+
+    @Override
+    public synchronized boolean reload() throws GeoLocationResolverException {
+        Dataset current = dataset;
+        if (file.lastModified() == current.lastModified && file.length() == current.length) {
+            return false;
+        }
+        // The previous mapping is released once the lookups which still use it have completed
+        dataset = open(current.generation + 1);
+        return true;
+    }
+
+    @Override
+    public long getDatasetGeneration() {
+        return dataset.generation;
+    }
+
+    @Override
+    public String getDatasetFingerprint() {
+        Dataset current = dataset;
+        return current.lastModified + ":" + current.length;
+    }
+
+    private Dataset open(long generation) throws GeoLocationResolverException {
+        // Read before mapping, so that a file modified meanwhile is mapped again on the next reload
+        long lastModified = file.lastModified();
+        long length = file.length();
+        GeoIPDatabaseFile databaseFile;
+        try {
+            databaseFile = GeoIPDatabaseFile.open(file);
+        } catch (IOException e) {
+            throw new GeoLocationResolverException("Cannot open the geo IP database file '" + file + "'", e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Mapped " + databaseFile.size() + " IPv4 ranges from '" + file + "'");
+        }
+        return new Dataset(databaseFile, lastModified, length, generation);
+    }
+
+    @Override
+    public Location getGeoLocationInfo(String ip) {
+        GeoIPDatabaseFile databaseFile = dataset.databaseFile;
+        int range = -1;
+        // Parsed in place, so that a host name never triggers a DNS lookup
+        long ipv4 = IPAddressParser.parseIPv4(ip);
+        if (ipv4 < 0) {
+            long[] address = new long[2];
+            if (IPAddressParser.parseIPv6(ip, 0, ip.length(), address) && address[0] == 0 &&
+                    (address[1] >>> 32) == 0xFFFFL) {
+                // IPv4-mapped IPv6 addresses are looked up as IPv4
+                ipv4 = address[1] & 0xFFFFFFFFL;
+            }
+        }
+        if (ipv4 >= 0) {
+            range = databaseFile.findRange(ipv4);
+        }
+        if (range < 0) {
+            return new Location("", "", ip);
+        }
+        return databaseFile.getLocation(range);
+    }
+
+    /**
+     * A mapped database file, which is replaced as a whole on reload.
+     */
+    private static final class Dataset {
+        private final GeoIPDatabaseFile databaseFile;
+        private final long lastModified;
+        private final long length;
+        private final long generation;
+
+        private Dataset(GeoIPDatabaseFile databaseFile, long lastModified, long length, long generation) {
+            this.databaseFile = databaseFile;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.GeoLocationResolver;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.index.MaxMindDatabase;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The GeoLocationResolver implementation which resolves the locations from a local MaxMind DB (MMDB) file such
+ * as GeoLite2-City.mmdb, without any network or database access. The city is the city name of the record, or the
+ * name of its first subdivision if the record has no city. The file is opened again on {@link #reload()} if it has
+ * been modified, hence an updated file should be moved in place of the current one once it is complete rather than
+ * written over it.
+ */
+public class MaxMindGeoLocationResolver implements GeoLocationResolver {
+    private static final Log log = LogFactory.getLog(MaxMindGeoLocationResolver.class);
+
+    private static final String CONFIG_KEY_DATABASE_FILE = "maxMindDatabaseFile";
+    private static final String CONFIG_KEY_LOCALE = "maxMindLocale";
+    private static final String DEFAULT_LOCALE = "en";
+
+    private File file;
+    private String locale;
+    private volatile Dataset dataset;
+
+    @Override
+    public void init(ConfigReader configReader) throws GeoLocationResolverException {
+        String fileName = configReader.readConfig(CONFIG_KEY_DATABASE_FILE, "");
+        if (fileName.isEmpty()) {
+            throw new GeoLocationResolverException("Error in reading the configuration of '" +
+                    CONFIG_KEY_DATABASE_FILE + "'");
+        }
+        file = new File(fileName);
+        locale = configReader.readConfig(CONFIG_KEY_LOCALE, DEFAULT_LOCALE);
+        dataset = open(0);
+    }
+
+    @Override
+    public synchronized boolean reload() throws GeoLocationResolverException {
+        Dataset current = dataset;
+        if (file.lastModified() == current.lastModified && file.length() == current.length) {
+            return false;
+        }
+        dataset = open(current.generation + 1);
+        return true;
+    }
+
+    @Override
+    public long getDatasetGeneration() {
+        return dataset.generation;
+    }
+
+    @Override
+    public String getDatasetFingerprint() {
+        Dataset current = dataset;
+        return current.lastModified + ":" + current.length;
+    }
+
+    private Dataset open(long generation) throws GeoLocationResolverException {
+        // Read before opening, so that a file modified meanwhile is opened again on the next reload
+        long lastModified = file.lastModified();
+        long length = file.length();
+        MaxMindDatabase database;
+        try {
+            database = MaxMindDatabase.open(file, locale);
+        } catch (IOException e) {
+            throw new GeoLocationResolverException("Cannot open the MaxMind DB file '" + file + "'", e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Opened MaxMind DB '" + database.getDatabaseType() + "' from '" + file + "'");
+        }
+        return new Dataset(database, lastModified, length, generation);
+    }
+
+    @Override
+    public Location getGeoLocationInfo(String ip) {
+        Dataset dataset = this.dataset;
+        MaxMindDatabase database = dataset.database;
+        MaxMindDatabase.Record record = null;
+        // Parsed in place, so that a host name never triggers a DNS lookup
+        long ipv4 = IPAddressParser.parseIPv4(ip);
+        if (ipv4 >= 0) {
+            record = database.lookupIPv4(ipv4);
+        } else {
+            long[] address = new long[2];
+            if (IPAddressParser.parseIPv6(ip, 0, ip.length(), address)) {
+                record = database.lookupIPv6(address[0], address[1]);
+            }
+        }
+        if (record == null) {
+            return new Location("", "", ip);
+        }
+        // Records are shared by all the addresses of a network, so are the locations created from them
+        Map<MaxMindDatabase.Record, Location> locations = dataset.locations;
+        Location location = locations.get(record);
+        if (location == null) {
+            location = new Location(record.getCountry(), record.getSubdivision(),
+                    record.getCity() != null ? record.getCity() : record.getSubdivision(), record.getLatitude(),
+                    record.getLongitude(), record.getAutonomousSystemNumber());
+            Location existing = locations.putIfAbsent(record, location);
+            if (existing != null) {
+                location = existing;
+            }
+        }
+        return location;
+    }
+
+    /**
+     * An opened database with the locations created from its records, which are replaced as a whole on reload.
+     */
+    private static final class Dataset {
+        private final MaxMindDatabase database;
+        private final Map<MaxMindDatabase.Record, Location> locations = new ConcurrentHashMap<>();
+        private final long lastModified;
+        private final long length;
+        private final long generation;
+
+        private Dataset(MaxMindDatabase database, long lastModified, long length, long generation) {
+            this.database = database;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.generation = generation;
+        }
+    }
+}
@@ -21,51 +21,116 @@ package org.wso2.extension.siddhi.execution.geo.internal.impl;
 import io.siddhi.core.util.config.ConfigReader;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider;
 import org.wso2.extension.siddhi.execution.geo.api.Location;
-import org.wso2.extension.siddhi.execution.geo.internal.LRUCache;
+import org.wso2.extension.siddhi.execution.geo.internal.LocationRegistry;
+import org.wso2.extension.siddhi.execution.geo.internal.RangeLocationCache;
+import org.wso2.extension.siddhi.execution.geo.internal.datasource.DataSourceProviders;
 import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.index.IPv4RangeIndex;
+import org.wso2.extension.siddhi.execution.geo.internal.index.IPv6RangeIndex;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
 import org.wso2.extension.siddhi.execution.geo.internal.utils.DatabaseUtils;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.RangeQueryDialect;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.StatementCache;
 
-import java.net.Inet4Address;
-import java.net.Inet6Address;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiPredicate;
 
 /**
  * This is the implementation class that provides the RDBMS based approach to get country,city based on the ip.
+ * A single {@link Location} is returned for all the IP addresses of a geoname, so that the names read from the
+ * database are not duplicated per IP address. The indexes and caches built from the BLOCKS and LOCATION tables form
+ * a dataset which is rebuilt as a whole on {@link #reload()}, so that a lookup never mixes two versions of the tables.
+ * <p>
+ * A new version of the tables is detected from the GEO_DATA_VERSION table, to which the import writes a new
+ * data_version once it has completed. Without that table it is guessed from a checksum of the rows, which does not
+ * tell a completed import from one in progress, hence a reload during the import may publish a partial dataset, which
+ * is replaced once the import completes.
  */
 public class RDBMSGeoLocationResolver {
     private static final Log log = LogFactory.getLog(RDBMSGeoLocationResolver.class);
     private static final RDBMSGeoLocationResolver instance = new RDBMSGeoLocationResolver();
 
-    private static final String CONFIG_KEY_CACHE_SIZE = "cacheSize";
     private static final String CONFIG_KEY_ISPERSIST_IN_DATABASE = "isPersistInDatabase";
-    private static final String CONFIG_KEY_DATASOURCE = "datasource";
-    private static final String DEFAULT_DATASOURCE_NAME = "GEO_LOCATION_DATA";
+    private static final String CONFIG_KEY_IS_IN_MEMORY_INDEX_ENABLED = "isInMemoryIndexEnabled";
+    private static final String CONFIG_KEY_PERSIST_BATCH_SIZE = "persistBatchSize";
+    private static final String CONFIG_KEY_PERSIST_FLUSH_INTERVAL = "persistFlushInterval";
+    private static final String CONFIG_KEY_PERSIST_QUEUE_SIZE = "persistQueueSize";
+    private static final int DEFAULT_PERSIST_BATCH_SIZE = 100;
+    private static final long DEFAULT_PERSIST_FLUSH_INTERVAL = 1000;
+    private static final int DEFAULT_PERSIST_QUEUE_SIZE = 10000;
+    private static final long WRITER_STOP_TIMEOUT = 10000;
+    private static final String CONFIG_KEY_MAX_PINNED_CONNECTIONS = "maxPinnedConnections";
+    private static final String CONFIG_KEY_CONNECTION_VALIDATION_INTERVAL = "connectionValidationInterval";
+    private static final String CONFIG_KEY_BLOCK_QUERY_STRATEGY = "blockQueryStrategy";
+    private static final String BLOCK_QUERY_STRATEGY_AUTO = "auto";
+    private static final String BLOCK_QUERY_STRATEGY_BETWEEN = "between";
+    private static final String BLOCK_QUERY_STRATEGY_NEAREST_NETWORK = "nearestNetwork";
+    private static final String CONFIG_KEY_RANGE_CACHE_SIZE = "rangeCacheSize";
+    private static final int DEFAULT_MAX_PINNED_CONNECTIONS = 8;
+    private static final long DEFAULT_CONNECTION_VALIDATION_INTERVAL = 30000;
+    private static final int DEFAULT_RANGE_CACHE_SIZE = 10000;
     private static final String CITY_NAME = "city_name";
     private static final String COUNTRY_NAME = "country_name";
     private static final String SUBDIVISION_1_NAME = "subdivision_1_name";
-    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final String GEONAME_ID = "geoname_id";
+    private static final String NETWORK = "network";
+    private static final String BROADCAST = "broadcast";
+    private static final String IP = "ip";
+    private static final int MAX_BATCH_QUERY_SIZE = 100;
+    private static final int MAX_FETCH_SIZE = 10000;
 
     private AtomicBoolean isInitialized = new AtomicBoolean(false);
+    private DataSourceProvider dataSourceProvider;
     private DatabaseUtils dbUtils;
     private boolean isPersistInDatabase;
-    private LRUCache<String, Long> ipToLongCache;
+    private IPLocationWriter locationWriter;
+    private StatementCache statementCache;
+    private RangeQueryDialect rangeQueryDialect;
+    private boolean isInMemoryIndexEnabled;
+    private int rangeCacheSize;
+    private volatile Dataset dataset;
+    private final LookupMetrics metrics = LookupMetrics.getInstance(LookupMetrics.IP_LOCATION);
+    private final LocationRegistry sharedLocations = new LocationRegistry();
 
     private static final String SQL_SELECT_LOCATION_FROM_IP = "SELECT country_name, city_name FROM " +
             "IP_LOCATION WHERE ip = ?";
-    private static final String SQL_INSERT_LOCATION_INTO_TABLE = "INSERT INTO IP_LOCATION (ip,country_name," +
-            "city_name) VALUES (?,?,?)";
-    private static final String SQL_SELECT_LOCATION_FROM_LONG_VALUE_OF_IP = "SELECT loc.country_name,loc" +
-            ".subdivision_1_name FROM BLOCKS block , LOCATION loc WHERE ? BETWEEN block" +
-            ".network AND block.broadcast AND block.geoname_id=loc.geoname_id";
-    private static final String SQL_SELECT_LOCATION_FROM_CIDR_OF_IP = "SELECT loc.country_name,loc.subdivision_1_name" +
-            " FROM BLOCKS block , LOCATION loc WHERE block.network_cidr = ? AND block.geoname_id=loc.geoname_id";
+    private static final String SQL_SELECT_PERSISTED_LOCATIONS = "SELECT ip, country_name, city_name FROM " +
+            "IP_LOCATION";
+    private static final String SQL_SELECT_LOCATIONS_FROM_IPS = "SELECT ip, country_name, city_name FROM " +
+            "IP_LOCATION WHERE ip IN (";
+    private static final String SQL_SELECT_LOCATIONS_FROM_LONG_VALUES_OF_IPS = "SELECT block.network,block" +
+            ".broadcast,loc.geoname_id,loc.country_name,loc.subdivision_1_name FROM BLOCKS block , LOCATION loc " +
+            "WHERE block.geoname_id=loc.geoname_id AND (";
+    private static final String SQL_SELECT_LOCATION_FROM_GEONAME_ID = "SELECT geoname_id, country_name, " +
+            "subdivision_1_name FROM LOCATION WHERE geoname_id = ?";
+    private static final String SQL_SELECT_LOCATION_FROM_CIDR_OF_IP = "SELECT loc.geoname_id,loc.country_name," +
+            "loc.subdivision_1_name FROM BLOCKS block , LOCATION loc WHERE block.network_cidr = ? AND " +
+            "block.geoname_id=loc.geoname_id";
+    private static final String SQL_SELECT_DATA_VERSION = "SELECT MAX(data_version) FROM GEO_DATA_VERSION";
+    private static final String SQL_SELECT_BLOCKS_FINGERPRINT = "SELECT COUNT(*), MAX(network), SUM(network), " +
+            "SUM(broadcast), SUM(network + geoname_id) FROM BLOCKS";
+    private static final String SQL_SELECT_LOCATIONS_FINGERPRINT = "SELECT COUNT(*), MIN(geoname_id), " +
+            "MAX(geoname_id) FROM LOCATION";
 
 
     public static RDBMSGeoLocationResolver getInstance() {
@@ -76,194 +141,824 @@ public class RDBMSGeoLocationResolver {
         if (isInitialized.get()) {
             return;
         }
-        String configCacheValue = configReader.readConfig(CONFIG_KEY_CACHE_SIZE, String.valueOf(DEFAULT_CACHE_SIZE));
-        int cacheSize;
-        try {
-            cacheSize = Integer.parseInt(configCacheValue);
-        } catch (NumberFormatException e) {
-            cacheSize = DEFAULT_CACHE_SIZE;
-            log.warn("The config '" + configCacheValue + "' provided in 'cacheSize' is not a valid integer. Hence " +
-                    "using the default cache size '" + DEFAULT_CACHE_SIZE + "'");
+        init(configReader, DataSourceProviders.create(configReader));
+    }
+
+    /**
+     * Initializes the resolver with the datasource of the given provider instead of the configured one, so that the
+     * resolver can run against any database, such as an embedded one in tests and benchmarks.
+     *
+     * @param configReader       the configuration of the calling geo function
+     * @param dataSourceProvider the provider of the datasource
+     * @throws GeoLocationResolverException if the datasource cannot be obtained or read
+     */
+    public synchronized void init(ConfigReader configReader, DataSourceProvider dataSourceProvider)
+            throws GeoLocationResolverException {
+        if (isInitialized.get()) {
+            return;
         }
         isPersistInDatabase = Boolean.parseBoolean(configReader.readConfig(CONFIG_KEY_ISPERSIST_IN_DATABASE, "true"));
-        ipToLongCache = new LRUCache<>(cacheSize);
 
-        dbUtils = DatabaseUtils.getInstance();
-        dbUtils.initialize(configReader.readConfig(CONFIG_KEY_DATASOURCE, DEFAULT_DATASOURCE_NAME));
+        this.dataSourceProvider = dataSourceProvider;
+        dbUtils = new DatabaseUtils(dataSourceProvider.getDataSource(configReader));
+        statementCache = new StatementCache(dbUtils::getConnection,
+                (int) readLongConfig(configReader, CONFIG_KEY_MAX_PINNED_CONNECTIONS, DEFAULT_MAX_PINNED_CONNECTIONS),
+                readLongConfig(configReader, CONFIG_KEY_CONNECTION_VALIDATION_INTERVAL,
+                        DEFAULT_CONNECTION_VALIDATION_INTERVAL));
+        initBlockQuery(configReader.readConfig(CONFIG_KEY_BLOCK_QUERY_STRATEGY, BLOCK_QUERY_STRATEGY_AUTO));
+        rangeCacheSize = (int) readLongConfig(configReader, CONFIG_KEY_RANGE_CACHE_SIZE, DEFAULT_RANGE_CACHE_SIZE);
+        isInMemoryIndexEnabled = Boolean.parseBoolean(configReader.readConfig(CONFIG_KEY_IS_IN_MEMORY_INDEX_ENABLED,
+                "false"));
+        dataset = loadDataset(0, readFingerprint());
+        if (isPersistInDatabase) {
+            startLocationWriter(configReader);
+        }
         isInitialized.set(true);
     }
 
-    public Location getLocation(String ipAddress) throws GeoLocationResolverException {
-        Location location = null;
+    /**
+     * Builds the dataset again if the BLOCKS or LOCATION table has changed since it was built.
+     *
+     * @return true if a new dataset has been published
+     * @throws GeoLocationResolverException if the tables cannot be read, in which case the current dataset is kept
+     * @see #reload(boolean)
+     */
+    public boolean reload() throws GeoLocationResolverException {
+        return reload(false);
+    }
+
+    /**
+     * Builds the dataset again if the BLOCKS or LOCATION table has changed since it was built, or in any case if
+     * forced, such as after an import which changed neither the GEO_DATA_VERSION table nor the checksum of the rows.
+     * The lookups keep using the current dataset until the new one is published. If the tables change while they
+     * are loaded, the new dataset is dropped and is loaded again by the next reload. The persisted IP_LOCATION rows,
+     * which were resolved from the previous tables, are deleted in the background and are not read meanwhile.
+     *
+     * @param force whether to build the dataset even if the tables look unchanged
+     * @return true if a new dataset has been published
+     * @throws GeoLocationResolverException if the tables cannot be read, in which case the current dataset is kept
+     */
+    public synchronized boolean reload(boolean force) throws GeoLocationResolverException {
+        if (!isInitialized.get()) {
+            return false;
+        }
+        Dataset current = dataset;
+        String fingerprint = readFingerprint();
+        if (!force && fingerprint.equals(current.fingerprint)) {
+            return false;
+        }
+        Dataset next = loadDataset(current.generation + 1, fingerprint);
+        if (!fingerprint.equals(readFingerprint())) {
+            log.info("The geo location tables changed while they were loaded. Hence they are loaded again at the " +
+                    "next reload.");
+            return false;
+        }
+        if (locationWriter != null) {
+            // The persisted locations are not read until the ones resolved from the previous tables are deleted
+            next.isPersistedLocationsValid = false;
+            locationWriter.clearPersistedLocations(() -> next.isPersistedLocationsValid = true);
+        }
+        dataset = next;
+        return true;
+    }
+
+    /**
+     * @return the generation of the dataset, which is incremented by each {@link #reload()} publishing a new one
+     */
+    public long getDatasetGeneration() {
+        Dataset current = dataset;
+        return current != null ? current.generation : 0;
+    }
+
+    /**
+     * @return the data version, or the checksum of the rows, of the tables the dataset has been built from, or null
+     * if the resolver has not been initialized
+     */
+    public String getDatasetFingerprint() {
+        Dataset current = dataset;
+        return current != null ? current.fingerprint : null;
+    }
+
+    /**
+     * Writes the queued IP_LOCATION rows and closes the pinned connections of all the threads, returning them to the
+     * datasource whichever provider supplied it, then closes the provider, which releases the datasource only if it
+     * created it, as the jdbc provider does. The resolver can be initialized again afterwards.
+     */
+    public synchronized void shutdown() {
+        if (!isInitialized.get()) {
+            return;
+        }
+        if (locationWriter != null) {
+            locationWriter.stop(WRITER_STOP_TIMEOUT);
+            locationWriter = null;
+        }
+        statementCache.closeAll();
+        dataSourceProvider.close();
+        isInitialized.set(false);
+    }
+
+    /**
+     * Starts the background writer of the IP_LOCATION rows. The queued rows are written when the JVM shuts down.
+     */
+    private void startLocationWriter(ConfigReader configReader) {
+        int batchSize = (int) readLongConfig(configReader, CONFIG_KEY_PERSIST_BATCH_SIZE, DEFAULT_PERSIST_BATCH_SIZE);
+        long flushInterval = readLongConfig(configReader, CONFIG_KEY_PERSIST_FLUSH_INTERVAL,
+                DEFAULT_PERSIST_FLUSH_INTERVAL);
+        int queueSize = (int) readLongConfig(configReader, CONFIG_KEY_PERSIST_QUEUE_SIZE, DEFAULT_PERSIST_QUEUE_SIZE);
+        final IPLocationWriter writer = new IPLocationWriter(dbUtils::getConnection, batchSize, flushInterval,
+                queueSize);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writer.stop(WRITER_STOP_TIMEOUT)));
+        metrics.registerGauge("PersistQueued", writer::getQueuedCount);
+        metrics.registerGauge("PersistWritten", writer::getWrittenCount);
+        metrics.registerGauge("PersistDropped", writer::getDroppedCount);
+        metrics.registerGauge("PersistFailed", writer::getFailedCount);
+        locationWriter = writer;
+    }
+
+    /**
+     * Picks the query which finds the block of an IPv4 address. Unless 'between' is configured, the nearest network
+     * query of the dialect of the datasource is used, falling back to the portable BETWEEN query if the database
+     * is not known.
+     */
+    private void initBlockQuery(String strategy) throws GeoLocationResolverException {
+        if (BLOCK_QUERY_STRATEGY_BETWEEN.equalsIgnoreCase(strategy)) {
+            return;
+        }
+        if (!BLOCK_QUERY_STRATEGY_AUTO.equalsIgnoreCase(strategy) &&
+                !BLOCK_QUERY_STRATEGY_NEAREST_NETWORK.equalsIgnoreCase(strategy)) {
+            throw new GeoLocationResolverException("The config '" + strategy + "' provided in '" +
+                    CONFIG_KEY_BLOCK_QUERY_STRATEGY + "' is not one of '" + BLOCK_QUERY_STRATEGY_AUTO + "', '" +
+                    BLOCK_QUERY_STRATEGY_BETWEEN + "' or '" + BLOCK_QUERY_STRATEGY_NEAREST_NETWORK + "'");
+        }
+        String databaseProductName;
         Connection connection = null;
         try {
             connection = dbUtils.getConnection();
-            if (isPersistInDatabase) {
-                location = loadLocation(ipAddress, connection);
+            databaseProductName = connection.getMetaData().getDatabaseProductName();
+        } catch (SQLException e) {
+            throw new GeoLocationResolverException("Cannot read the metadata of the geo location database", e);
+        } finally {
+            dbUtils.closeAllConnections(null, connection, null);
+        }
+        rangeQueryDialect = RangeQueryDialect.fromProductName(databaseProductName);
+        if (rangeQueryDialect == null) {
+            log.warn("The nearest network query is not available for '" + databaseProductName + "'. Hence " +
+                    "using the BETWEEN query to find the blocks");
+        } else if (log.isDebugEnabled()) {
+            log.debug("Using the " + rangeQueryDialect + " nearest network query to find the blocks");
+        }
+    }
+
+    private static long readLongConfig(ConfigReader configReader, String key, long defaultValue) {
+        String value = configReader.readConfig(key, String.valueOf(defaultValue));
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("The config '" + value + "' provided in '" + key + "' is not a valid number. Hence using " +
+                    "the default value '" + defaultValue + "'");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the background writer of the IP_LOCATION rows, which exposes the counts of the queued, written and
+     * dropped rows.
+     *
+     * @return the writer, or null if the locations are not persisted
+     */
+    public IPLocationWriter getLocationWriter() {
+        return locationWriter;
+    }
+
+    public Location getLocation(String ipAddress) throws GeoLocationResolverException {
+        Dataset dataset = this.dataset;
+        if (dataset.ipv4RangeIndex != null) {
+            return getLocationFromIndex(ipAddress, dataset);
+        }
+        long startTime = metrics.startTime();
+        long ipv4 = IPAddressParser.parseIPv4(ipAddress);
+        metrics.record(LookupMetrics.Stage.PARSE, startTime);
+        Location location = ipv4 >= 0 ? dataset.rangeCache.get(ipv4) : null;
+        if (location != null) {
+            // Another address of the same block has been resolved already
+            return location;
+        }
+        StatementCache.Lease lease = null;
+        try {
+            lease = statementCache.acquire();
+            if (isPersistInDatabase && dataset.isPersistedLocationsValid) {
+                location = loadLocation(ipAddress, lease);
             }
             if (location == null) {
-                if (!isCIDR(ipAddress)) {
-                    InetAddress address = InetAddress.getByName(ipAddress);
-
-                    if (address instanceof Inet6Address) {
-                        // It's ipv6
-                        // Any mapped IPv4 address in IPv6 space will also returns as Inet4Address
-                        if (log.isDebugEnabled()) {
-                            log.debug("Found IPv6 address which can not be resolved to location. IP Address = " +
-                                    ipAddress);
-                        }
-                        location = getLocationFromIPv6((Inet6Address) address, connection);
-                    } else if (address instanceof Inet4Address) {
-                        // It's ipv4
-                        location = getLocationFromLongValueOfIp(address.getHostAddress(), connection);
-                    }
+                long[] ipv6 = new long[2];
+                if (ipv4 >= 0) {
+                    location = getLocationFromLongValueOfIp(ipv4, dataset, lease);
+                } else if (isCIDR(ipAddress)) {
+                    location = getLocationFromCIDR(ipAddress, dataset, lease);
+                } else if (IPAddressParser.parseIPv6(ipAddress, 0, ipAddress.length(), ipv6)) {
+                    location = getLocationFromIPv6(ipv6[0], ipv6[1], dataset, lease);
                 } else {
-                    location = getLocationFromCIDR(ipAddress, connection);
+                    // Host names are not resolved, so that a lookup never waits for DNS
+                    log.error("Cannot parse the IP address : " + ipAddress);
                 }
 
                 if (location != null) {
-                    if (isPersistInDatabase) {
-                        //Insert or update in Application Level, Rather than using DB specific query.
-                        boolean autoCommitMode = connection.getAutoCommit();
-                        try {
-                            connection.setAutoCommit(false);
-                            Location updatedLocation = loadLocation(location.getIp(), connection);
-                            if (updatedLocation != null) {
-                                saveLocation(location, connection);
-                            }
-                        } finally {
-                            connection.setAutoCommit(autoCommitMode);
-                        }
+                    if (isPersistInDatabase && dataset == this.dataset) {
+                        locationWriter.write(ipAddress, location);
                     }
                 }
             }
-        } catch (UnknownHostException e) {
-            log.error("Cannot parse the IP address : " + ipAddress, e);
         } catch (SQLException e) {
-            log.error("Cannot retrieve the location from database", e);
+            invalidate(lease);
+            throw new GeoLocationResolverException("Cannot retrieve the location from database", e);
+        } catch (GeoLocationResolverException e) {
+            invalidate(lease);
+            throw e;
         } finally {
-            dbUtils.closeAllConnections(null, connection, null);
+            if (lease != null) {
+                lease.close();
+            }
         }
         return location;
     }
 
-    private Location getLocationFromLongValueOfIp(String ipAddress, Connection connection) throws
-            GeoLocationResolverException {
+    /**
+     * Resolves the locations of many IP addresses with a few database round trips. The IPv4 addresses, including
+     * the ones carried by IPv6 addresses, are resolved with the nearest network query of the dialect of the
+     * database, once per block as the addresses of a resolved block are served from the range cache. With the
+     * 'between' strategy, or a database of no known dialect, they are resolved with one query per
+     * {@value #MAX_BATCH_QUERY_SIZE} distinct addresses instead. Host names are not resolved.
+     *
+     * @param ipAddresses ipv4 addresses, ipv6 addresses or ipv4 CIDRs
+     * @return the locations keyed by the ip address, the addresses which cannot be resolved are absent
+     * @throws GeoLocationResolverException if the locations cannot be read from the database
+     */
+    public Map<String, Location> getLocations(Collection<String> ipAddresses) throws GeoLocationResolverException {
+        Map<String, Location> locations = new HashMap<>();
+        Dataset dataset = this.dataset;
+        if (dataset.ipv4RangeIndex != null) {
+            for (String ipAddress : ipAddresses) {
+                Location location = getLocationFromIndex(ipAddress, dataset);
+                if (location != null) {
+                    locations.put(ipAddress, location);
+                }
+            }
+            return locations;
+        }
+        StatementCache.Lease lease = null;
+        try {
+            lease = statementCache.acquire();
+            if (isPersistInDatabase && dataset.isPersistedLocationsValid) {
+                loadLocations(ipAddresses, locations, lease);
+            }
+            Set<String> persistedAddresses = new HashSet<>(locations.keySet());
+            List<String> pendingAddresses = new ArrayList<>();
+            long[] pendingValues = new long[ipAddresses.size()];
+            long[] ipv6 = new long[2];
+            for (String ipAddress : ipAddresses) {
+                if (locations.containsKey(ipAddress)) {
+                    continue;
+                }
+                Location location = null;
+                long ipv4 = IPAddressParser.parseIPv4(ipAddress);
+                if (ipv4 < 0 && isCIDR(ipAddress)) {
+                    location = getLocationFromCIDR(ipAddress, dataset, lease);
+                } else if (ipv4 < 0 && IPAddressParser.parseIPv6(ipAddress, 0, ipAddress.length(), ipv6)) {
+                    ipv4 = IPv6RangeIndex.getEmbeddedIPv4(ipv6[0], ipv6[1]);
+                    if (ipv4 < 0) {
+                        int range = dataset.ipv6RangeIndex.findRange(ipv6[0], ipv6[1]);
+                        if (range >= 0) {
+                            location = getLocationFromGeonameId(dataset.ipv6RangeIndex.getGeonameId(range),
+                                    dataset, lease);
+                        }
+                    }
+                } else if (ipv4 < 0) {
+                    log.error("Cannot parse the IP address : " + ipAddress);
+                    continue;
+                }
+                if (ipv4 >= 0) {
+                    location = dataset.rangeCache.get(ipv4);
+                }
+                if (location == null && ipv4 >= 0) {
+                    pendingValues[pendingAddresses.size()] = ipv4;
+                    pendingAddresses.add(ipAddress);
+                } else if (location != null) {
+                    locations.put(ipAddress, location);
+                }
+            }
+            if (rangeQueryDialect != null) {
+                // An index seek per block, as each term of a BETWEEN batch scans all the blocks below its address
+                for (int i = 0; i < pendingAddresses.size(); i++) {
+                    Location location = getLocationFromLongValueOfIp(pendingValues[i], dataset, lease);
+                    if (location != null) {
+                        locations.put(pendingAddresses.get(i), location);
+                    }
+                }
+            } else {
+                for (int from = 0; from < pendingAddresses.size(); from += MAX_BATCH_QUERY_SIZE) {
+                    int to = Math.min(from + MAX_BATCH_QUERY_SIZE, pendingAddresses.size());
+                    getLocationsFromLongValuesOfIps(pendingAddresses, pendingValues, from, to, locations, dataset,
+                            lease);
+                }
+            }
+            // The locations resolved from a replaced dataset are not persisted
+            if (isPersistInDatabase && dataset == this.dataset) {
+                for (String ipAddress : ipAddresses) {
+                    Location location = locations.get(ipAddress);
+                    if (location != null && !persistedAddresses.contains(ipAddress)) {
+                        locationWriter.write(ipAddress, location);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            invalidate(lease);
+            throw new GeoLocationResolverException("Cannot retrieve the locations from database", e);
+        } catch (GeoLocationResolverException e) {
+            invalidate(lease);
+            throw e;
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+        }
+        return locations;
+    }
 
-        Location location = null;
+    /**
+     * Reads the locations persisted in the IP_LOCATION table, without any particular order as the table keeps
+     * neither when nor how often an ip address was looked up.
+     *
+     * @param maxCount the maximum number of rows to be read
+     * @param consumer receives each ip address with its location, and returns false to stop reading
+     * @throws GeoLocationResolverException if the table cannot be read
+     */
+    public void loadPersistedLocations(int maxCount, BiPredicate<String, Location> consumer)
+            throws GeoLocationResolverException {
+        if (!isPersistInDatabase || !dataset.isPersistedLocationsValid || maxCount <= 0) {
+            return;
+        }
+        Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         try {
-            statement = connection.prepareStatement(SQL_SELECT_LOCATION_FROM_LONG_VALUE_OF_IP);
-            if (ipAddress != null && ipAddress.split("\\.").length >= 4) {
-                statement.setLong(1, getIpV4ToLong(ipAddress));
-                resultSet = statement.executeQuery();
-                if (resultSet.next()) {
-                    location = new Location(resultSet.getString(COUNTRY_NAME), resultSet.getString(SUBDIVISION_1_NAME),
-                            ipAddress);
+            connection = dbUtils.getConnection();
+            statement = connection.prepareStatement(SQL_SELECT_PERSISTED_LOCATIONS);
+            statement.setMaxRows(maxCount);
+            statement.setFetchSize(Math.min(maxCount, MAX_FETCH_SIZE));
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                Location location = sharedLocations.intern(resultSet.getString(COUNTRY_NAME),
+                        resultSet.getString(CITY_NAME));
+                if (!consumer.test(resultSet.getString(IP), location)) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            throw new GeoLocationResolverException("Cannot read the persisted locations from database", e);
+        } finally {
+            dbUtils.closeAllConnections(statement, connection, resultSet);
+        }
+    }
+
+    /**
+     * Encodes the IPv4 ranges cached from the BLOCKS table, along with the fingerprint of the tables.
+     *
+     * @return the encoded ranges, or null if no range is cached
+     * @throws IOException if the ranges cannot be encoded
+     */
+    public byte[] snapshotRangeCache() throws IOException {
+        Dataset dataset = this.dataset;
+        RangeLocationCache rangeCache = dataset != null ? dataset.rangeCache : null;
+        if (rangeCache == null || rangeCache.size() == 0) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(dataset.fingerprint);
+            rangeCache.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Caches the IPv4 ranges encoded by {@link #snapshotRangeCache()}, unless they have been cached from another
+     * version of the tables.
+     *
+     * @param ranges the encoded ranges
+     * @return true if the ranges have been cached
+     * @throws IOException if the ranges cannot be decoded
+     */
+    public boolean restoreRangeCache(byte[] ranges) throws IOException {
+        Dataset dataset = this.dataset;
+        if (dataset == null) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(ranges));
+        if (!dataset.fingerprint.equals(in.readUTF())) {
+            return false;
+        }
+        dataset.rangeCache.read(in);
+        return true;
+    }
+
+    /**
+     * Makes sure a connection on which a statement failed is not reused.
+     */
+    private static void invalidate(StatementCache.Lease lease) {
+        if (lease != null) {
+            lease.invalidate();
+        }
+    }
+
+    /**
+     * Resolves the location using only the in-memory index, hence no database connection is used.
+     *
+     * @param ipAddress ipv4 address, ipv6 address or ipv4 CIDR
+     * @return the location or null if the address is not covered by the index
+     */
+    private Location getLocationFromIndex(String ipAddress, Dataset dataset) {
+        IPv4RangeIndex ipv4RangeIndex = dataset.ipv4RangeIndex;
+        IPv6RangeIndex ipv6RangeIndex = dataset.ipv6RangeIndex;
+        int range = -1;
+        long ipv4 = IPAddressParser.parseIPv4(ipAddress);
+        long[] ipv6 = new long[2];
+        int separator = ipAddress.indexOf('/');
+        if (ipv4 >= 0) {
+            range = ipv4RangeIndex.findRange(ipv4);
+        } else if (separator > 0) {
+            long network = IPAddressParser.parseIPv4(ipAddress, 0, separator);
+            int prefixLength = IPAddressParser.parsePrefixLength(ipAddress, separator, 32);
+            if (network >= 0 && prefixLength >= 0) {
+                long broadcast = network | (0xFFFFFFFFL >>> prefixLength);
+                range = ipv4RangeIndex.findRange(network, broadcast);
+            } else {
+                log.error("Cannot parse the IP address : " + ipAddress);
+            }
+        } else if (IPAddressParser.parseIPv6(ipAddress, 0, ipAddress.length(), ipv6)) {
+            ipv4 = IPv6RangeIndex.getEmbeddedIPv4(ipv6[0], ipv6[1]);
+            if (ipv4 >= 0) {
+                range = ipv4RangeIndex.findRange(ipv4);
+            } else {
+                int ipv6Range = ipv6RangeIndex.findRange(ipv6[0], ipv6[1]);
+                if (ipv6Range < 0) {
+                    return null;
+                }
+                return ipv4RangeIndex.getLocationOfGeoname(ipv6RangeIndex.getGeonameId(ipv6Range));
+            }
+        } else {
+            log.error("Cannot parse the IP address : " + ipAddress);
+        }
+        if (range < 0) {
+            return null;
+        }
+        return ipv4RangeIndex.getLocation(range);
+    }
+
+    /**
+     * Reads the version of the tables from the GEO_DATA_VERSION table, or if it does not exist or is empty, a
+     * checksum of the row counts, the networks and the geoname ids of the BLOCKS and LOCATION tables. The checksum
+     * adds up the rows, hence it misses an import which only swaps values between rows.
+     *
+     * @return the fingerprint of the tables
+     * @throws GeoLocationResolverException if the tables cannot be read
+     */
+    private String readFingerprint() throws GeoLocationResolverException {
+        String dataVersion = readDataVersion();
+        if (dataVersion != null) {
+            return "version:" + dataVersion;
+        }
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        StringBuilder fingerprint = new StringBuilder("checksum");
+        try {
+            connection = dbUtils.getConnection();
+            statement = connection.prepareStatement(SQL_SELECT_BLOCKS_FINGERPRINT);
+            resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                for (int i = 1; i <= 5; i++) {
+                    // The sums are read as strings, as some databases return them as decimals
+                    fingerprint.append(':').append(resultSet.getString(i));
+                }
+            }
+            resultSet.close();
+            statement.close();
+            statement = connection.prepareStatement(SQL_SELECT_LOCATIONS_FINGERPRINT);
+            resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                for (int i = 1; i <= 3; i++) {
+                    fingerprint.append(':').append(resultSet.getString(i));
                 }
             }
+        } catch (SQLException e) {
+            throw new GeoLocationResolverException("Cannot read the geo location tables from database", e);
+        } finally {
+            dbUtils.closeAllConnections(statement, connection, resultSet);
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * Reads the latest data_version of the GEO_DATA_VERSION table.
+     *
+     * @return the version, or null if the table does not exist or is empty
+     * @throws GeoLocationResolverException if the database cannot be connected to
+     */
+    private String readDataVersion() throws GeoLocationResolverException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dbUtils.getConnection();
+        } catch (SQLException e) {
+            throw new GeoLocationResolverException("Cannot read the geo location tables from database", e);
+        }
+        try {
+            statement = connection.prepareStatement(SQL_SELECT_DATA_VERSION);
+            resultSet = statement.executeQuery();
+            return resultSet.next() ? resultSet.getString(1) : null;
+        } catch (SQLException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Cannot read the GEO_DATA_VERSION table. Hence the geo location tables are versioned " +
+                        "by a checksum of their rows.", e);
+            }
+            return null;
+        } finally {
+            dbUtils.closeAllConnections(statement, connection, resultSet);
+        }
+    }
+
+    /**
+     * Builds a dataset with empty caches, loading the IPv6 ranges, which cannot be searched in the database as they
+     * are only kept as CIDR strings, and the IPv4 ranges if the in-memory index is enabled.
+     *
+     * @param generation  the generation of the dataset
+     * @param fingerprint the fingerprint of the tables, read before the ranges are loaded
+     * @return the dataset
+     * @throws GeoLocationResolverException if the tables cannot be read
+     */
+    private Dataset loadDataset(long generation, String fingerprint) throws GeoLocationResolverException {
+        Connection connection = null;
+        try {
+            connection = dbUtils.getConnection();
+            long startTime = System.currentTimeMillis();
+            IPv4RangeIndex ipv4RangeIndex = null;
+            if (isInMemoryIndexEnabled) {
+                ipv4RangeIndex = IPv4RangeIndex.load(connection);
+            }
+            IPv6RangeIndex ipv6RangeIndex = IPv6RangeIndex.load(connection);
+            if (log.isDebugEnabled()) {
+                log.debug("Loaded " + (ipv4RangeIndex != null ? ipv4RangeIndex.size() : 0) + " IPv4 ranges and " +
+                        ipv6RangeIndex.size() + " IPv6 ranges into the in-memory index in " +
+                        (System.currentTimeMillis() - startTime) + " ms.");
+            }
+            return new Dataset(ipv4RangeIndex, ipv6RangeIndex, new RangeLocationCache(rangeCacheSize), generation,
+                    fingerprint);
+        } catch (SQLException e) {
+            throw new GeoLocationResolverException("Cannot load the in-memory IP index from database", e);
+        } finally {
+            dbUtils.closeAllConnections(null, connection, null);
+        }
+    }
+
+    private Location getLocationFromLongValueOfIp(long longValueOfIp, Dataset dataset, StatementCache.Lease lease)
+            throws GeoLocationResolverException {
+
+        Location location = dataset.rangeCache.get(longValueOfIp);
+        if (location != null) {
+            return location;
+        }
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            if (rangeQueryDialect != null) {
+                statement = lease.prepareStatement(rangeQueryDialect.getNearestBlockLocationQuery());
+            } else {
+                statement = lease.prepareStatement(RangeQueryDialect.BETWEEN_BLOCK_LOCATION_QUERY);
+            }
+            statement.setLong(1, longValueOfIp);
+            resultSet = statement.executeQuery();
+            // The nearest block may end before the ip, when the ip is in a gap between two blocks
+            if (resultSet.next() && resultSet.getLong(BROADCAST) >= longValueOfIp) {
+                location = toLocation(resultSet, dataset);
+                dataset.rangeCache.put(resultSet.getLong(NETWORK), resultSet.getLong(BROADCAST), location);
+            }
         } catch (SQLException e) {
             throw new GeoLocationResolverException("Cannot get the location from database", e);
         } finally {
-            dbUtils.closeAllConnections(statement, null, resultSet);
+            dbUtils.closeAllConnections(null, null, resultSet);
         }
         return location;
     }
 
-    private Location getLocationFromCIDR(String ipAddress, Connection connection) throws
+    private Location getLocationFromCIDR(String ipAddress, Dataset dataset, StatementCache.Lease lease) throws
             GeoLocationResolverException {
 
         Location location = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         try {
-            statement = connection.prepareStatement(SQL_SELECT_LOCATION_FROM_CIDR_OF_IP);
+            statement = lease.prepareStatement(SQL_SELECT_LOCATION_FROM_CIDR_OF_IP);
             statement.setString(1, ipAddress);
             resultSet = statement.executeQuery();
             if (resultSet.next()) {
-                location = new Location(resultSet.getString(COUNTRY_NAME), resultSet.getString(SUBDIVISION_1_NAME),
-                        ipAddress);
+                location = toLocation(resultSet, dataset);
             }
         } catch (SQLException e) {
             throw new GeoLocationResolverException("Cannot get the location from database", e);
         } finally {
-            dbUtils.closeAllConnections(statement, null, resultSet);
+            dbUtils.closeAllConnections(null, null, resultSet);
         }
         return location;
     }
 
     /**
-     * Calls external system or database database to find the IPv6 adress to location details.
-     * Can be used by an extended class.
+     * Finds the location of an IPv6 address. IPv4-mapped and 6to4 addresses are resolved through their IPv4
+     * address, and the other addresses through the in-memory IPv6 range index.
      *
-     * @param address    ipv6 address
-     * @param connection the Db connection to be used. Do not close this connection within this method.
-     * @return null
+     * @param high       the upper 64 bits of the ipv6 address
+     * @param low        the lower 64 bits of the ipv6 address
+     * @param dataset    the dataset the address is resolved from
+     * @param lease      the Db connection to be used. Do not close this connection within this method.
+     * @return the location or null if the address is not covered by any block
      */
-    private Location getLocationFromIPv6(Inet6Address address, Connection connection)
-            throws SQLException, GeoLocationResolverException {
-        return null;
+    private Location getLocationFromIPv6(long high, long low, Dataset dataset, StatementCache.Lease lease)
+            throws GeoLocationResolverException {
+        long ipv4 = IPv6RangeIndex.getEmbeddedIPv4(high, low);
+        if (ipv4 >= 0) {
+            return getLocationFromLongValueOfIp(ipv4, dataset, lease);
+        }
+        int range = dataset.ipv6RangeIndex.findRange(high, low);
+        if (range < 0) {
+            return null;
+        }
+        return getLocationFromGeonameId(dataset.ipv6RangeIndex.getGeonameId(range), dataset, lease);
+    }
+
+    private Location getLocationFromGeonameId(int geonameId, Dataset dataset, StatementCache.Lease lease)
+            throws GeoLocationResolverException {
+
+        Location location = dataset.geonameLocations.get(geonameId);
+        if (location != null) {
+            return location;
+        }
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = lease.prepareStatement(SQL_SELECT_LOCATION_FROM_GEONAME_ID);
+            statement.setInt(1, geonameId);
+            resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                location = toLocation(resultSet, dataset);
+            }
+        } catch (SQLException e) {
+            throw new GeoLocationResolverException("Cannot get the location from database", e);
+        } finally {
+            dbUtils.closeAllConnections(null, null, resultSet);
+        }
+        return location;
     }
 
+    /**
+     * Returns the shared location of the geoname of the current row, which has the geoname_id, country_name and
+     * subdivision_1_name columns.
+     */
+    private Location toLocation(ResultSet resultSet, Dataset dataset) throws SQLException {
+        int geonameId = resultSet.getInt(GEONAME_ID);
+        Location location = dataset.geonameLocations.get(geonameId);
+        if (location == null) {
+            location = sharedLocations.intern(resultSet.getString(COUNTRY_NAME),
+                    resultSet.getString(SUBDIVISION_1_NAME));
+            dataset.geonameLocations.put(geonameId, location);
+        }
+        return location;
+    }
 
-    private Location loadLocation(String ipAddress, Connection connection) throws SQLException {
+    private Location loadLocation(String ipAddress, StatementCache.Lease lease) throws SQLException {
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         Location location = null;
         try {
             if (isPersistInDatabase) {
-                statement = connection.prepareStatement(SQL_SELECT_LOCATION_FROM_IP);
+                statement = lease.prepareStatement(SQL_SELECT_LOCATION_FROM_IP);
                 statement.setString(1, ipAddress);
                 resultSet = statement.executeQuery();
             }
             if (resultSet != null && resultSet.next()) {
-                location = new Location(resultSet.getString(COUNTRY_NAME), resultSet.getString(CITY_NAME),
-                        ipAddress);
+                location = sharedLocations.intern(resultSet.getString(COUNTRY_NAME),
+                        resultSet.getString(CITY_NAME));
             }
         } finally {
-            dbUtils.closeAllConnections(statement, null, resultSet);
+            dbUtils.closeAllConnections(null, null, resultSet);
         }
         return location;
     }
 
-    private void saveLocation(Location location, Connection connection) throws GeoLocationResolverException {
+    /**
+     * Resolves the given IPv4 addresses with a single query which matches the blocks of all of them. This is used
+     * only when there is no nearest network query, as each BETWEEN term may scan all the blocks below its address.
+     *
+     * @param ipAddresses the ip addresses as given by the user
+     * @param values      the IPv4 addresses, as unsigned 32 bit values, at the same positions as the ip addresses
+     * @param from        the position of the first address to be resolved
+     * @param to          the position after the last address to be resolved
+     * @param locations   the map to which the resolved locations are added
+     * @param dataset     the dataset the addresses are resolved from
+     * @param lease       the Db connection to be used. Do not close this connection within this method.
+     */
+    private void getLocationsFromLongValuesOfIps(List<String> ipAddresses, long[] values, int from, int to,
+                                                 Map<String, Location> locations, Dataset dataset,
+                                                 StatementCache.Lease lease)
+            throws GeoLocationResolverException {
+        StringBuilder query = new StringBuilder(SQL_SELECT_LOCATIONS_FROM_LONG_VALUES_OF_IPS);
+        for (int i = from; i < to; i++) {
+            query.append(i == from ? "? BETWEEN block.network AND block.broadcast" :
+                    " OR ? BETWEEN block.network AND block.broadcast");
+        }
+        query.append(')');
         PreparedStatement statement = null;
+        ResultSet resultSet = null;
         try {
-            statement = connection.prepareStatement(SQL_INSERT_LOCATION_INTO_TABLE);
-            statement.setString(1, location.getIp());
-            statement.setString(2, location.getCountry());
-            statement.setString(3, location.getCity());
-            statement.execute();
-            connection.commit();
+            statement = lease.prepareUncachedStatement(query.toString());
+            for (int i = from; i < to; i++) {
+                statement.setLong(i - from + 1, values[i]);
+            }
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                long network = resultSet.getLong(NETWORK);
+                long broadcast = resultSet.getLong(BROADCAST);
+                Location location = toLocation(resultSet, dataset);
+                dataset.rangeCache.put(network, broadcast, location);
+                for (int i = from; i < to; i++) {
+                    if (values[i] >= network && values[i] <= broadcast) {
+                        locations.put(ipAddresses.get(i), location);
+                    }
+                }
+            }
         } catch (SQLException e) {
-            throw new GeoLocationResolverException("Cannot save the location to database", e);
+            throw new GeoLocationResolverException("Cannot get the locations from database", e);
         } finally {
-            DatabaseUtils.getInstance().closeAllConnections(statement, null, null);
+            dbUtils.closeAllConnections(null, null, resultSet);
         }
     }
 
-    private long getIpV4ToLong(String ipAddress) {
-
-        Long ipToLong = ipToLongCache.get(ipAddress);
-        if (ipToLong == null) {
-            String[] ipAddressInArray = ipAddress.split("\\.");
-            long longValueOfIp = 0;
-            int i = 0;
-            for (String ipChunk : ipAddressInArray) {
-                int power = 3 - i;
-                int ip = Integer.parseInt(ipChunk);
-                longValueOfIp += ip * Math.pow(256, power);
-                i++;
+    /**
+     * Adds the persisted locations of the given ip addresses, with one query per {@value #MAX_BATCH_QUERY_SIZE}
+     * addresses.
+     */
+    private void loadLocations(Collection<String> ipAddresses, Map<String, Location> locations,
+                               StatementCache.Lease lease) throws SQLException {
+        List<String> addresses = new ArrayList<>(ipAddresses);
+        for (int from = 0; from < addresses.size(); from += MAX_BATCH_QUERY_SIZE) {
+            int to = Math.min(from + MAX_BATCH_QUERY_SIZE, addresses.size());
+            StringBuilder query = new StringBuilder(SQL_SELECT_LOCATIONS_FROM_IPS);
+            for (int i = from; i < to; i++) {
+                query.append(i == from ? "?" : ",?");
+            }
+            query.append(')');
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            try {
+                statement = lease.prepareUncachedStatement(query.toString());
+                for (int i = from; i < to; i++) {
+                    statement.setString(i - from + 1, addresses.get(i));
+                }
+                resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    locations.put(resultSet.getString(IP), sharedLocations.intern(
+                            resultSet.getString(COUNTRY_NAME), resultSet.getString(CITY_NAME)));
+                }
+            } finally {
+                dbUtils.closeAllConnections(null, null, resultSet);
             }
-            ipToLongCache.put(ipAddress, longValueOfIp);
-            ipToLong = longValueOfIp;
         }
-        return ipToLong;
     }
 
-    private boolean isCIDR(String ipAddress) {
-        return (ipAddress.split("\\.").length == 4) && (ipAddress.indexOf("/") >= 1);
+    private static boolean isCIDR(String ipAddress) {
+        int separator = ipAddress.indexOf('/');
+        return separator > 0 && IPAddressParser.parseIPv4(ipAddress, 0, separator) >= 0 &&
+                IPAddressParser.parsePrefixLength(ipAddress, separator, 32) >= 0;
     }
 
+    /**
+     * The indexes and caches built from one version of the BLOCKS and LOCATION tables.
+     */
+    private static final class Dataset {
+        private final IPv4RangeIndex ipv4RangeIndex;
+        private final IPv6RangeIndex ipv6RangeIndex;
+        private final RangeLocationCache rangeCache;
+        private final Map<Integer, Location> geonameLocations = new ConcurrentHashMap<>();
+        private final long generation;
+        private final String fingerprint;
+        private volatile boolean isPersistedLocationsValid = true;
+
+        private Dataset(IPv4RangeIndex ipv4RangeIndex, IPv6RangeIndex ipv6RangeIndex, RangeLocationCache rangeCache,
+                        long generation, String fingerprint) {
+            this.ipv4RangeIndex = ipv4RangeIndex;
+            this.ipv6RangeIndex = ipv6RangeIndex;
+            this.rangeCache = rangeCache;
+            this.generation = generation;
+            this.fingerprint = fingerprint;
+        }
+    }
 }
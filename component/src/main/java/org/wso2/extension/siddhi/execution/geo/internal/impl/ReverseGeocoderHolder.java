@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.wso2.extension.siddhi.execution.geo.api.ReverseGeocoder;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A singleton class which holds one initialized ReverseGeocoder per implementation class, so that a reverse geocoder
+ * which loads its data, such as a gazetteer, loads it once whichever reversegeocode functions use it.
+ */
+public class ReverseGeocoderHolder {
+
+    private static final ReverseGeocoderHolder reverseGeocoderHolder = new ReverseGeocoderHolder();
+    private final Map<String, ReverseGeocoder> reverseGeocoders = new HashMap<>();
+
+    private ReverseGeocoderHolder() {
+
+    }
+
+    public static ReverseGeocoderHolder getReverseGeocoderHolderInstance() {
+
+        return reverseGeocoderHolder;
+    }
+
+    /**
+     * Returns the reverse geocoder of the given class, which is created and initialized with the configuration of
+     * the first function using it.
+     */
+    public synchronized ReverseGeocoder getReverseGeocoder(String reverseGeocoderImplClassName,
+                                                           ConfigReader configReader)
+            throws ClassNotFoundException, IllegalAccessException, InstantiationException,
+            GeoLocationResolverException {
+
+        ReverseGeocoder reverseGeocoder = reverseGeocoders.get(reverseGeocoderImplClassName);
+        if (reverseGeocoder == null) {
+            reverseGeocoder = (ReverseGeocoder) Class.forName(reverseGeocoderImplClassName).newInstance();
+            reverseGeocoder.init(configReader);
+            reverseGeocoders.put(reverseGeocoderImplClassName, reverseGeocoder);
+        }
+        return reverseGeocoder;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, read only geo IP database file which is accessed through a {@link java.nio.MappedByteBuffer}.
+ * The file keeps the same data as the BLOCKS and LOCATION tables in the following big endian layout.
+ * <pre>
+ * header    : magic (int), version (int), range count (int), location count (int), string count (int)
+ * ranges    : network (int), broadcast (int), location index (int)   sorted by the unsigned network
+ * locations : country string index (int), city string index (int)
+ * strings   : string count + 1 offsets (int) followed by the UTF-8 bytes of all the strings
+ * </pre>
+ * As the ranges are never copied to the heap, the memory is shared through the page cache by all the JVMs of
+ * the host which map the same file.
+ */
+public class GeoIPDatabaseFile {
+
+    private static final int MAGIC = 0x5347454F;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int RANGE_SIZE = 12;
+    private static final int LOCATION_SIZE = 8;
+
+    private final ByteBuffer buffer;
+    private final int rangeCount;
+    private final int locationsOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+    private final String[] strings;
+    private final Location[] locations;
+
+    private GeoIPDatabaseFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("The file is not a geo IP database file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported geo IP database file version '" + buffer.getInt(4) + "'");
+        }
+        rangeCount = buffer.getInt(8);
+        int locationCount = buffer.getInt(12);
+        int stringCount = buffer.getInt(16);
+        locationsOffset = HEADER_SIZE + rangeCount * RANGE_SIZE;
+        stringOffsetsOffset = locationsOffset + locationCount * LOCATION_SIZE;
+        stringDataOffset = stringOffsetsOffset + (stringCount + 1) * 4;
+        strings = new String[stringCount];
+        locations = new Location[locationCount];
+    }
+
+    /**
+     * Maps the given file into memory.
+     *
+     * @param file the geo IP database file
+     * @return the mapped database
+     * @throws IOException if the file cannot be read or is not a geo IP database file
+     */
+    public static GeoIPDatabaseFile open(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return new GeoIPDatabaseFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the content of the given index to a geo IP database file.
+     *
+     * @param index the index to be written
+     * @param file  the destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(IPv4RangeIndex index, File file) throws IOException {
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<Long, Integer> locationIndexes = new HashMap<>();
+        List<Long> locations = new ArrayList<>();
+        int[] rangeLocations = new int[index.size()];
+        for (int range = 0; range < index.size(); range++) {
+            long location = ((long) indexOf(index.getCountryName(range), stringIndexes, strings) << 32) |
+                    indexOf(index.getCityName(range), stringIndexes, strings);
+            Integer locationIndex = locationIndexes.get(location);
+            if (locationIndex == null) {
+                locationIndex = locations.size();
+                locationIndexes.put(location, locationIndex);
+                locations.add(location);
+            }
+            rangeLocations[range] = locationIndex;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(index.size());
+            out.writeInt(locations.size());
+            out.writeInt(strings.size());
+            for (int range = 0; range < index.size(); range++) {
+                out.writeInt((int) index.getNetwork(range));
+                out.writeInt((int) index.getBroadcast(range));
+                out.writeInt(rangeLocations[range]);
+            }
+            for (long location : locations) {
+                out.writeLong(location);
+            }
+            List<byte[]> encodedStrings = new ArrayList<>(strings.size());
+            int offset = 0;
+            for (String string : strings) {
+                byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+                encodedStrings.add(encoded);
+                out.writeInt(offset);
+                offset += encoded.length;
+            }
+            out.writeInt(offset);
+            for (byte[] encoded : encodedStrings) {
+                out.write(encoded);
+            }
+        }
+    }
+
+    private static int indexOf(String string, Map<String, Integer> stringIndexes, List<String> strings) {
+        String value = string != null ? string : "";
+        Integer stringIndex = stringIndexes.get(value);
+        if (stringIndex == null) {
+            stringIndex = strings.size();
+            stringIndexes.put(value, stringIndex);
+            strings.add(value);
+        }
+        return stringIndex;
+    }
+
+    /**
+     * Finds the range containing the given IPv4 address.
+     *
+     * @param ip the IPv4 address as an unsigned 32 bit value
+     * @return the position of the matching range, or -1 if no range contains the address
+     */
+    public int findRange(long ip) {
+        int low = 0;
+        int high = rangeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if ((buffer.getInt(HEADER_SIZE + mid * RANGE_SIZE) & 0xFFFFFFFFL) <= ip) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high >= 0 && ip <= (buffer.getInt(HEADER_SIZE + high * RANGE_SIZE + 4) & 0xFFFFFFFFL)) {
+            return high;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the location of the given range. All the ranges of a location share the same instance.
+     *
+     * @param range position of the range as returned by {@link #findRange(long)}
+     * @return the location
+     */
+    public Location getLocation(int range) {
+        int locationIndex = getLocationIndex(range);
+        // Locations are immutable, a racing thread at worst creates an equal instance which is then replaced
+        Location location = locations[locationIndex];
+        if (location == null) {
+            int locationOffset = locationsOffset + locationIndex * LOCATION_SIZE;
+            location = new Location(getString(buffer.getInt(locationOffset)),
+                    getString(buffer.getInt(locationOffset + 4)));
+            locations[locationIndex] = location;
+        }
+        return location;
+    }
+
+    public String getCountryName(int range) {
+        return getString(buffer.getInt(locationsOffset + getLocationIndex(range) * LOCATION_SIZE));
+    }
+
+    public String getCityName(int range) {
+        return getString(buffer.getInt(locationsOffset + getLocationIndex(range) * LOCATION_SIZE + 4));
+    }
+
+    public int size() {
+        return rangeCount;
+    }
+
+    private int getLocationIndex(int range) {
+        return buffer.getInt(HEADER_SIZE + range * RANGE_SIZE + 8);
+    }
+
+    private String getString(int stringIndex) {
+        // Strings are decoded once and reused, the dictionary is small compared to the ranges
+        String string = strings[stringIndex];
+        if (string == null) {
+            int start = buffer.getInt(stringOffsetsOffset + stringIndex * 4);
+            int end = buffer.getInt(stringOffsetsOffset + (stringIndex + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(stringDataOffset + start + i);
+            }
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[stringIndex] = string;
+        }
+        return string;
+    }
+}
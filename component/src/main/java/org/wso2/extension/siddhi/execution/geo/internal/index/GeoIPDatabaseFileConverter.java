@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedReader;
+import java.io.Console;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Command line tool which converts the BLOCKS and LOCATION tables of a geo location database into a
+ * {@link GeoIPDatabaseFile}. The JDBC driver of the database needs to be in the classpath. The password of the
+ * database is read from the GEO_LOCATION_DB_PASSWORD environment variable, or else from the console or the standard
+ * input, so that it is not exposed in the list of processes.
+ * <pre>
+ * java -cp siddhi-execution-geo.jar:jdbc-driver.jar \
+ *     org.wso2.extension.siddhi.execution.geo.internal.index.GeoIPDatabaseFileConverter \
+ *     jdbc-url username output-file
+ * </pre>
+ */
+public class GeoIPDatabaseFileConverter {
+    private static final Log log = LogFactory.getLog(GeoIPDatabaseFileConverter.class);
+    private static final String PASSWORD_ENVIRONMENT_VARIABLE = "GEO_LOCATION_DB_PASSWORD";
+
+    private GeoIPDatabaseFileConverter() {
+    }
+
+    /**
+     * Reads the geo location tables through the given connection and writes them to the given file.
+     *
+     * @param connection the connection to the geo location database. It is not closed by this method.
+     * @param file       the destination file
+     * @return the number of ranges written
+     * @throws SQLException if the tables cannot be read
+     * @throws IOException  if the file cannot be written
+     */
+    public static int convert(Connection connection, File file) throws SQLException, IOException {
+        IPv4RangeIndex index = IPv4RangeIndex.load(connection);
+        GeoIPDatabaseFile.write(index, file);
+        return index.size();
+    }
+
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Usage: GeoIPDatabaseFileConverter <jdbc-url> <username> " +
+                    "<output-file>, with the password in the " + PASSWORD_ENVIRONMENT_VARIABLE + " environment " +
+                    "variable or the standard input");
+        }
+        try (Connection connection = DriverManager.getConnection(args[0], args[1], readPassword())) {
+            int rangeCount = convert(connection, new File(args[2]));
+            log.info("Wrote " + rangeCount + " ranges to '" + args[2] + "'");
+        }
+    }
+
+    /**
+     * Reads the password of the database from the environment variable, or else from the console without echoing
+     * it, or from the first line of the standard input if there is no console, such as when it is piped.
+     *
+     * @return the password, which is empty if none is given
+     * @throws IOException if the standard input cannot be read
+     */
+    private static String readPassword() throws IOException {
+        String password = System.getenv(PASSWORD_ENVIRONMENT_VARIABLE);
+        if (password != null) {
+            return password;
+        }
+        Console console = System.console();
+        if (console != null) {
+            char[] characters = console.readPassword("Password: ");
+            return characters != null ? new String(characters) : "";
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()));
+        String line = reader.readLine();
+        return line != null ? line : "";
+    }
+}
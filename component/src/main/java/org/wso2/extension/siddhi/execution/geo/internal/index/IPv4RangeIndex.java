@@ -0,0 +1,273 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable, in-memory index of the IPv4 ranges held in the BLOCKS table together with the country and
+ * subdivision names held in the LOCATION table. Ranges are kept sorted by network address in primitive arrays and
+ * are searched with a binary search, hence a lookup does not touch the database. Each geoname has a single
+ * {@link Location} which is shared by all its ranges.
+ */
+public class IPv4RangeIndex {
+
+    private static final String SQL_SELECT_LOCATIONS = "SELECT geoname_id, country_name, subdivision_1_name " +
+            "FROM LOCATION";
+    private static final String SQL_SELECT_BLOCKS = "SELECT network, broadcast, geoname_id FROM BLOCKS " +
+            "WHERE network IS NOT NULL AND broadcast IS NOT NULL ORDER BY network";
+    private static final int FETCH_SIZE = 10000;
+
+    private final long[] networks;
+    private final long[] broadcasts;
+    private final int[] geonameIds;
+    private final int[] locationGeonameIds;
+    private final Location[] locations;
+
+    private IPv4RangeIndex(long[] networks, long[] broadcasts, int[] geonameIds, int[] locationGeonameIds,
+                           Location[] locations) {
+        this.networks = networks;
+        this.broadcasts = broadcasts;
+        this.geonameIds = geonameIds;
+        this.locationGeonameIds = locationGeonameIds;
+        this.locations = locations;
+    }
+
+    /**
+     * Builds the index by reading the whole BLOCKS and LOCATION tables through the given connection.
+     * The connection is not closed by this method.
+     *
+     * @param connection the connection to the geo location database
+     * @return the populated index
+     * @throws SQLException if the tables cannot be read
+     */
+    public static IPv4RangeIndex load(Connection connection) throws SQLException {
+        Builder builder = new Builder();
+        try (PreparedStatement statement = connection.prepareStatement(SQL_SELECT_LOCATIONS)) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    builder.addLocation(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3));
+                }
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(SQL_SELECT_BLOCKS)) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    builder.addRange(resultSet.getLong(1), resultSet.getLong(2), resultSet.getInt(3));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Finds the range containing the given IPv4 address.
+     *
+     * @param ip the IPv4 address as an unsigned 32 bit value
+     * @return the position of the matching range, or -1 if no range contains the address
+     */
+    public int findRange(long ip) {
+        int low = 0;
+        int high = networks.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (networks[mid] <= ip) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // high now points to the last range starting at or before the ip
+        if (high >= 0 && ip <= broadcasts[high]) {
+            return high;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the range which exactly covers the given network, as a CIDR block does.
+     *
+     * @param network   the network address as an unsigned 32 bit value
+     * @param broadcast the broadcast address as an unsigned 32 bit value
+     * @return the position of the matching range, or -1 if there is no such range
+     */
+    public int findRange(long network, long broadcast) {
+        int range = findRange(network);
+        if (range >= 0 && networks[range] == network && broadcasts[range] == broadcast) {
+            return range;
+        }
+        return -1;
+    }
+
+    public long getNetwork(int range) {
+        return networks[range];
+    }
+
+    public long getBroadcast(int range) {
+        return broadcasts[range];
+    }
+
+    public int getGeonameId(int range) {
+        return geonameIds[range];
+    }
+
+    /**
+     * Returns the shared location of the given range.
+     *
+     * @param range position of the range as returned by {@link #findRange(long)}
+     * @return the location, or null if the LOCATION table has no entry for the range
+     */
+    public Location getLocation(int range) {
+        return getLocationOfGeoname(geonameIds[range]);
+    }
+
+    /**
+     * Returns the shared location of the given geoname of the LOCATION table, which is also used for the IPv6
+     * ranges.
+     *
+     * @param geonameId the geoname id of the location
+     * @return the location, or null if the LOCATION table has no entry for the geoname id
+     */
+    public Location getLocationOfGeoname(int geonameId) {
+        int location = Arrays.binarySearch(locationGeonameIds, geonameId);
+        return location >= 0 ? locations[location] : null;
+    }
+
+    /**
+     * Returns the country name of the location of the given range.
+     *
+     * @param range position of the range as returned by {@link #findRange(long)}
+     * @return the country name, or null if the LOCATION table has no entry for the range
+     */
+    public String getCountryName(int range) {
+        Location location = getLocation(range);
+        return location != null ? location.getCountry() : null;
+    }
+
+    /**
+     * Returns the subdivision name, which is the city returned by the geo functions, of the given range.
+     *
+     * @param range position of the range as returned by {@link #findRange(long)}
+     * @return the subdivision name, or null if the LOCATION table has no entry for the range
+     */
+    public String getCityName(int range) {
+        Location location = getLocation(range);
+        return location != null ? location.getCity() : null;
+    }
+
+    public int size() {
+        return networks.length;
+    }
+
+    /**
+     * Collects ranges and locations in any order and produces a sorted {@link IPv4RangeIndex}.
+     */
+    public static class Builder {
+        private long[] networks = new long[1024];
+        private long[] broadcasts = new long[1024];
+        private int[] geonameIds = new int[1024];
+        private int rangeCount;
+        private long[] locationKeys = new long[1024];
+        private String[] countryNames = new String[1024];
+        private String[] cityNames = new String[1024];
+        private int locationCount;
+
+        public Builder addRange(long network, long broadcast, int geonameId) {
+            if (rangeCount == networks.length) {
+                int capacity = rangeCount << 1;
+                networks = Arrays.copyOf(networks, capacity);
+                broadcasts = Arrays.copyOf(broadcasts, capacity);
+                geonameIds = Arrays.copyOf(geonameIds, capacity);
+            }
+            networks[rangeCount] = network;
+            broadcasts[rangeCount] = broadcast;
+            geonameIds[rangeCount] = geonameId;
+            rangeCount++;
+            return this;
+        }
+
+        public Builder addLocation(int geonameId, String countryName, String cityName) {
+            if (locationCount == locationKeys.length) {
+                int capacity = locationCount << 1;
+                locationKeys = Arrays.copyOf(locationKeys, capacity);
+                countryNames = Arrays.copyOf(countryNames, capacity);
+                cityNames = Arrays.copyOf(cityNames, capacity);
+            }
+            // Geoname id in the upper half and insertion order in the lower half, so that a plain sort orders
+            // the locations while remembering where their names are.
+            locationKeys[locationCount] = ((long) geonameId << 32) | locationCount;
+            countryNames[locationCount] = countryName;
+            cityNames[locationCount] = cityName;
+            locationCount++;
+            return this;
+        }
+
+        public IPv4RangeIndex build() {
+            // Network in the upper half and insertion order in the lower half. The sign bit is flipped as networks
+            // are unsigned 32 bit values.
+            long[] rangeKeys = new long[rangeCount];
+            for (int i = 0; i < rangeCount; i++) {
+                rangeKeys[i] = ((networks[i] << 32) | i) ^ Long.MIN_VALUE;
+            }
+            Arrays.sort(rangeKeys);
+            long[] sortedNetworks = new long[rangeCount];
+            long[] sortedBroadcasts = new long[rangeCount];
+            int[] sortedGeonameIds = new int[rangeCount];
+            for (int i = 0; i < rangeCount; i++) {
+                int source = (int) rangeKeys[i];
+                sortedNetworks[i] = networks[source];
+                sortedBroadcasts[i] = broadcasts[source];
+                sortedGeonameIds[i] = geonameIds[source];
+            }
+
+            long[] sortedLocationKeys = Arrays.copyOf(locationKeys, locationCount);
+            Arrays.sort(sortedLocationKeys);
+            int[] sortedLocationIds = new int[locationCount];
+            Location[] sortedLocations = new Location[locationCount];
+            // The names repeat a lot between locations, each distinct name is kept once
+            Map<String, String> names = new HashMap<>();
+            for (int i = 0; i < locationCount; i++) {
+                int source = (int) sortedLocationKeys[i];
+                sortedLocationIds[i] = (int) (sortedLocationKeys[i] >> 32);
+                sortedLocations[i] = new Location(canonical(countryNames[source], names),
+                        canonical(cityNames[source], names));
+            }
+            return new IPv4RangeIndex(sortedNetworks, sortedBroadcasts, sortedGeonameIds, sortedLocationIds,
+                    sortedLocations);
+        }
+
+        private static String canonical(String name, Map<String, String> names) {
+            if (name == null) {
+                return null;
+            }
+            String existing = names.putIfAbsent(name, name);
+            return existing != null ? existing : name;
+        }
+    }
+}
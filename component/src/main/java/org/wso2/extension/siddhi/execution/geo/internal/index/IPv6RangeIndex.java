@@ -0,0 +1,258 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.wso2.extension.siddhi.execution.geo.internal.utils.IPAddressParser;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * An immutable, in-memory index of the IPv6 ranges held in the BLOCKS table. The IPv6 blocks only have their
+ * network in the network_cidr column, hence each 128 bit bound is kept as a pair of longs (high and low 64 bits)
+ * in primitive arrays sorted by network, and compared as unsigned values without any allocation.
+ */
+public class IPv6RangeIndex {
+
+    private static final String SQL_SELECT_IPV6_BLOCKS = "SELECT network_cidr, geoname_id FROM BLOCKS " +
+            "WHERE network_cidr LIKE '%:%'";
+    private static final int FETCH_SIZE = 10000;
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFFL;
+    private static final long PREFIX_6TO4 = 0x2002L;
+
+    private final long[] networkHighs;
+    private final long[] networkLows;
+    private final long[] broadcastHighs;
+    private final long[] broadcastLows;
+    private final int[] geonameIds;
+
+    private IPv6RangeIndex(long[] networkHighs, long[] networkLows, long[] broadcastHighs, long[] broadcastLows,
+                           int[] geonameIds) {
+        this.networkHighs = networkHighs;
+        this.networkLows = networkLows;
+        this.broadcastHighs = broadcastHighs;
+        this.broadcastLows = broadcastLows;
+        this.geonameIds = geonameIds;
+    }
+
+    /**
+     * Builds the index from the IPv6 rows of the BLOCKS table. The connection is not closed by this method.
+     *
+     * @param connection the connection to the geo location database
+     * @return the populated index
+     * @throws SQLException if the table cannot be read
+     */
+    public static IPv6RangeIndex load(Connection connection) throws SQLException {
+        Builder builder = new Builder();
+        try (PreparedStatement statement = connection.prepareStatement(SQL_SELECT_IPV6_BLOCKS)) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    builder.addRange(resultSet.getString(1), resultSet.getInt(2));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Finds the range containing the given IPv6 address.
+     *
+     * @param high the upper 64 bits of the address
+     * @param low  the lower 64 bits of the address
+     * @return the position of the matching range, or -1 if no range contains the address
+     */
+    public int findRange(long high, long low) {
+        int lowIndex = 0;
+        int highIndex = networkHighs.length - 1;
+        while (lowIndex <= highIndex) {
+            int mid = (lowIndex + highIndex) >>> 1;
+            if (compare(networkHighs[mid], networkLows[mid], high, low) <= 0) {
+                lowIndex = mid + 1;
+            } else {
+                highIndex = mid - 1;
+            }
+        }
+        if (highIndex >= 0 && compare(high, low, broadcastHighs[highIndex], broadcastLows[highIndex]) <= 0) {
+            return highIndex;
+        }
+        return -1;
+    }
+
+    public int getGeonameId(int range) {
+        return geonameIds[range];
+    }
+
+    public int size() {
+        return networkHighs.length;
+    }
+
+    /**
+     * Compares two unsigned 128 bit values given as high and low halves.
+     */
+    static int compare(long high1, long low1, long high2, long low2) {
+        int result = Long.compareUnsigned(high1, high2);
+        return result != 0 ? result : Long.compareUnsigned(low1, low2);
+    }
+
+    /**
+     * Returns the IPv4 address carried by an IPv4-mapped (::ffff:0:0/96) or a 6to4 (2002::/16) IPv6 address.
+     *
+     * @param high the upper 64 bits of the address
+     * @param low  the lower 64 bits of the address
+     * @return the IPv4 address as an unsigned 32 bit value, or -1 if the address does not carry one
+     */
+    public static long getEmbeddedIPv4(long high, long low) {
+        if (high == 0 && (low >>> 32) == IPV4_MAPPED_PREFIX) {
+            return low & 0xFFFFFFFFL;
+        }
+        if ((high >>> 48) == PREFIX_6TO4) {
+            return (high >>> 16) & 0xFFFFFFFFL;
+        }
+        return -1;
+    }
+
+    public static long getHigh(byte[] address) {
+        return getLong(address, 0);
+    }
+
+    public static long getLow(byte[] address) {
+        return getLong(address, 8);
+    }
+
+    private static long getLong(byte[] address, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (address[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Collects ranges in any order and produces a sorted {@link IPv6RangeIndex}.
+     */
+    public static class Builder {
+        private long[] networkHighs = new long[1024];
+        private long[] networkLows = new long[1024];
+        private long[] broadcastHighs = new long[1024];
+        private long[] broadcastLows = new long[1024];
+        private int[] geonameIds = new int[1024];
+        private int rangeCount;
+
+        /**
+         * Adds the range of an IPv6 CIDR block such as '2001:db8::/32'. Blocks which are not IPv6 are ignored.
+         *
+         * @param cidr      the IPv6 CIDR block
+         * @param geonameId the geoname id of the location of the block
+         * @return this builder
+         */
+        public Builder addRange(String cidr, int geonameId) {
+            int separator = cidr.indexOf('/');
+            if (separator < 0) {
+                return this;
+            }
+            long[] address = new long[2];
+            int prefixLength = IPAddressParser.parsePrefixLength(cidr, separator, 128);
+            if (prefixLength < 0 || !IPAddressParser.parseIPv6(cidr, 0, separator, address) ||
+                    (address[0] == 0 && (address[1] >>> 32) == IPV4_MAPPED_PREFIX)) {
+                // Malformed blocks and IPv4 blocks written in the IPv4-mapped form are skipped
+                return this;
+            }
+            long highMask = prefixLength >= 64 ? -1L : (prefixLength == 0 ? 0 : -1L << (64 - prefixLength));
+            long lowMask = prefixLength <= 64 ? 0 : -1L << (128 - prefixLength);
+            long high = address[0];
+            long low = address[1];
+            return addRange(high & highMask, low & lowMask, high | ~highMask, low | ~lowMask, geonameId);
+        }
+
+        public Builder addRange(long networkHigh, long networkLow, long broadcastHigh, long broadcastLow,
+                                int geonameId) {
+            if (rangeCount == networkHighs.length) {
+                int capacity = rangeCount << 1;
+                networkHighs = Arrays.copyOf(networkHighs, capacity);
+                networkLows = Arrays.copyOf(networkLows, capacity);
+                broadcastHighs = Arrays.copyOf(broadcastHighs, capacity);
+                broadcastLows = Arrays.copyOf(broadcastLows, capacity);
+                geonameIds = Arrays.copyOf(geonameIds, capacity);
+            }
+            networkHighs[rangeCount] = networkHigh;
+            networkLows[rangeCount] = networkLow;
+            broadcastHighs[rangeCount] = broadcastHigh;
+            broadcastLows[rangeCount] = broadcastLow;
+            geonameIds[rangeCount] = geonameId;
+            rangeCount++;
+            return this;
+        }
+
+        public IPv6RangeIndex build() {
+            int[] order = new int[rangeCount];
+            for (int i = 0; i < rangeCount; i++) {
+                order[i] = i;
+            }
+            sort(order, new int[rangeCount], 0, rangeCount);
+            long[] sortedNetworkHighs = new long[rangeCount];
+            long[] sortedNetworkLows = new long[rangeCount];
+            long[] sortedBroadcastHighs = new long[rangeCount];
+            long[] sortedBroadcastLows = new long[rangeCount];
+            int[] sortedGeonameIds = new int[rangeCount];
+            for (int i = 0; i < rangeCount; i++) {
+                int source = order[i];
+                sortedNetworkHighs[i] = networkHighs[source];
+                sortedNetworkLows[i] = networkLows[source];
+                sortedBroadcastHighs[i] = broadcastHighs[source];
+                sortedBroadcastLows[i] = broadcastLows[source];
+                sortedGeonameIds[i] = geonameIds[source];
+            }
+            return new IPv6RangeIndex(sortedNetworkHighs, sortedNetworkLows, sortedBroadcastHighs,
+                    sortedBroadcastLows, sortedGeonameIds);
+        }
+
+        /**
+         * Merge sorts the range positions in [from, to) by their networks.
+         */
+        private void sort(int[] order, int[] buffer, int from, int to) {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            sort(order, buffer, from, mid);
+            sort(order, buffer, mid, to);
+            if (compareNetworks(order[mid - 1], order[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, buffer, from, to - from);
+            int left = from;
+            int right = mid;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < mid && compareNetworks(buffer[left], buffer[right]) <= 0)) {
+                    order[i] = buffer[left++];
+                } else {
+                    order[i] = buffer[right++];
+                }
+            }
+        }
+
+        private int compareNetworks(int range1, int range2) {
+            return compare(networkHighs[range1], networkLows[range1], networkHighs[range2], networkLows[range2]);
+        }
+    }
+}
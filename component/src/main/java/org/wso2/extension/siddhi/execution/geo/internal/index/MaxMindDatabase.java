@@ -0,0 +1,431 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reader of the MaxMind DB (MMDB) file format, such as the GeoLite2 City and Country databases.
+ * The file is memory mapped and the binary search tree is walked directly, one node per bit of the address.
+ * The data record of a network is decoded once and reused for all the addresses pointing to it.
+ */
+public class MaxMindDatabase {
+
+    private static final byte[] METADATA_START_MARKER = {(byte) 0xAB, (byte) 0xCD, (byte) 0xEF,
+            'M', 'a', 'x', 'M', 'i', 'n', 'd', '.', 'c', 'o', 'm'};
+    private static final int METADATA_MAX_SIZE = 128 * 1024;
+    private static final int DATA_SECTION_SEPARATOR_SIZE = 16;
+
+    private static final int TYPE_EXTENDED = 0;
+    private static final int TYPE_POINTER = 1;
+    private static final int TYPE_UTF8_STRING = 2;
+    private static final int TYPE_DOUBLE = 3;
+    private static final int TYPE_BYTES = 4;
+    private static final int TYPE_UINT16 = 5;
+    private static final int TYPE_UINT32 = 6;
+    private static final int TYPE_MAP = 7;
+    private static final int TYPE_INT32 = 8;
+    private static final int TYPE_UINT64 = 9;
+    private static final int TYPE_UINT128 = 10;
+    private static final int TYPE_ARRAY = 11;
+    private static final int TYPE_BOOLEAN = 14;
+    private static final int TYPE_FLOAT = 15;
+
+    private final ByteBuffer buffer;
+    private final long nodeCount;
+    private final int recordSize;
+    private final int ipVersion;
+    private final String databaseType;
+    private final int dataSectionStart;
+    private final long ipv4StartNode;
+    private final String locale;
+    private final Map<Integer, Record> records = new ConcurrentHashMap<>();
+
+    private MaxMindDatabase(ByteBuffer buffer, String locale) throws IOException {
+        this.buffer = buffer;
+        this.locale = locale;
+        int metadataStart = findMetadataStart(buffer);
+        Object metadata;
+        try {
+            metadata = new Decoder(metadataStart, metadataStart).decode();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Invalid metadata section in the MaxMind DB file", e);
+        }
+        if (!(metadata instanceof Map)) {
+            throw new IOException("Invalid metadata section in the MaxMind DB file");
+        }
+        Map<?, ?> metadataMap = (Map<?, ?>) metadata;
+        nodeCount = getNumber(metadataMap, "node_count");
+        recordSize = (int) getNumber(metadataMap, "record_size");
+        ipVersion = (int) getNumber(metadataMap, "ip_version");
+        databaseType = String.valueOf(metadataMap.get("database_type"));
+        if (recordSize != 24 && recordSize != 28 && recordSize != 32) {
+            throw new IOException("Unsupported record size '" + recordSize + "' in the MaxMind DB file");
+        }
+        dataSectionStart = (int) (nodeCount * recordSize / 4) + DATA_SECTION_SEPARATOR_SIZE;
+
+        long node = 0;
+        if (ipVersion == 6) {
+            // IPv4 addresses are stored under ::/96 of an IPv6 tree
+            for (int i = 0; i < 96 && node < nodeCount; i++) {
+                node = readRecord(node, 0);
+            }
+        }
+        ipv4StartNode = node;
+    }
+
+    /**
+     * Maps the given MaxMind DB file into memory.
+     *
+     * @param file   the MMDB file
+     * @param locale the locale of the names to be returned, falls back to 'en' if a name is not localized
+     * @return the opened database
+     * @throws IOException if the file cannot be read or is not a valid MaxMind DB file
+     */
+    public static MaxMindDatabase open(File file, String locale) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            return new MaxMindDatabase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), locale);
+        }
+    }
+
+    /**
+     * Returns the record of the network containing the given IPv4 address.
+     *
+     * @param ip the IPv4 address as an unsigned 32 bit value
+     * @return the record, or null if the database has no data for the address
+     */
+    public Record lookupIPv4(long ip) {
+        return getRecord(walk(ipv4StartNode, ip << 32, 32));
+    }
+
+    /**
+     * Returns the record of the network containing the given IPv6 address.
+     *
+     * @param high the upper 64 bits of the address
+     * @param low  the lower 64 bits of the address
+     * @return the record, or null if the database has no data for the address
+     */
+    public Record lookupIPv6(long high, long low) {
+        if (ipVersion != 6) {
+            return null;
+        }
+        return getRecord(walk(walk(0, high, 64), low, 64));
+    }
+
+    /**
+     * Follows the given number of bits, starting from the most significant bit, down the search tree.
+     */
+    private long walk(long node, long bits, int bitCount) {
+        for (int i = 0; i < bitCount && node < nodeCount; i++) {
+            node = readRecord(node, (int) (bits >>> (63 - i)) & 1);
+        }
+        return node;
+    }
+
+    private Record getRecord(long node) {
+        if (node <= nodeCount) {
+            // Equal to the node count means that there is no data for the address
+            return null;
+        }
+        int offset = (int) (node - nodeCount) - DATA_SECTION_SEPARATOR_SIZE + dataSectionStart;
+        Record record = records.get(offset);
+        if (record == null) {
+            record = toRecord(new Decoder(dataSectionStart, offset).decode());
+            records.put(offset, record);
+        }
+        return record;
+    }
+
+    public String getDatabaseType() {
+        return databaseType;
+    }
+
+    public int getIpVersion() {
+        return ipVersion;
+    }
+
+    private long readRecord(long node, int bit) {
+        switch (recordSize) {
+            case 24: {
+                int offset = (int) (node * 6) + bit * 3;
+                return readUnsigned(offset, 3);
+            }
+            case 28: {
+                int offset = (int) (node * 7);
+                int middle = buffer.get(offset + 3) & 0xFF;
+                if (bit == 0) {
+                    return ((long) (middle & 0xF0) << 20) | readUnsigned(offset, 3);
+                }
+                return ((long) (middle & 0x0F) << 24) | readUnsigned(offset + 4, 3);
+            }
+            default: {
+                int offset = (int) (node * 8) + bit * 4;
+                return readUnsigned(offset, 4);
+            }
+        }
+    }
+
+    private long readUnsigned(int offset, int size) {
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (buffer.get(offset + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private Record toRecord(Object data) {
+        if (!(data instanceof Map)) {
+            return new Record(null, null, null, null, null, null);
+        }
+        Map<?, ?> map = (Map<?, ?>) data;
+        String subdivision = null;
+        Object subdivisions = map.get("subdivisions");
+        if (subdivisions instanceof List && !((List<?>) subdivisions).isEmpty()) {
+            subdivision = getName(((List<?>) subdivisions).get(0));
+        }
+        Double latitude = null;
+        Double longitude = null;
+        Object location = map.get("location");
+        if (location instanceof Map) {
+            latitude = toDouble(((Map<?, ?>) location).get("latitude"));
+            longitude = toDouble(((Map<?, ?>) location).get("longitude"));
+        }
+        Object asn = map.get("autonomous_system_number");
+        return new Record(getName(map.get("country")), subdivision, getName(map.get("city")), latitude, longitude,
+                asn != null ? asn.toString() : null);
+    }
+
+    private String getName(Object entity) {
+        if (!(entity instanceof Map)) {
+            return null;
+        }
+        Object names = ((Map<?, ?>) entity).get("names");
+        if (!(names instanceof Map)) {
+            return null;
+        }
+        Object name = ((Map<?, ?>) names).get(locale);
+        if (name == null) {
+            name = ((Map<?, ?>) names).get("en");
+        }
+        return name != null ? name.toString() : null;
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
+    private static long getNumber(Map<?, ?> metadata, String key) throws IOException {
+        Object value = metadata.get(key);
+        if (!(value instanceof Number)) {
+            throw new IOException("Cannot find '" + key + "' in the metadata of the MaxMind DB file");
+        }
+        return ((Number) value).longValue();
+    }
+
+    private static int findMetadataStart(ByteBuffer buffer) throws IOException {
+        int limit = Math.max(0, buffer.capacity() - METADATA_MAX_SIZE);
+        for (int start = buffer.capacity() - METADATA_START_MARKER.length; start >= limit; start--) {
+            boolean match = true;
+            for (int i = 0; i < METADATA_START_MARKER.length; i++) {
+                if (buffer.get(start + i) != METADATA_START_MARKER[i]) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) {
+                return start + METADATA_START_MARKER.length;
+            }
+        }
+        throw new IOException("Cannot find the metadata section, the file is not a MaxMind DB file");
+    }
+
+    /**
+     * Decodes one value of the MaxMind DB data section format, following the pointers relative to the given base.
+     */
+    private final class Decoder {
+        private final int pointerBase;
+        private int position;
+
+        private Decoder(int pointerBase, int position) {
+            this.pointerBase = pointerBase;
+            this.position = position;
+        }
+
+        private Object decode() {
+            int control = nextByte();
+            int type = control >>> 5;
+            if (type == TYPE_POINTER) {
+                int pointer = readPointer(control);
+                int next = position;
+                position = pointerBase + pointer;
+                Object value = decode();
+                position = next;
+                return value;
+            }
+            if (type == TYPE_EXTENDED) {
+                type = 7 + nextByte();
+            }
+            int size = readSize(control & 0x1F);
+            switch (type) {
+                case TYPE_UTF8_STRING: {
+                    byte[] bytes = readBytes(size);
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+                case TYPE_DOUBLE:
+                    return Double.longBitsToDouble(readLong(size));
+                case TYPE_FLOAT:
+                    return Float.intBitsToFloat((int) readLong(size));
+                case TYPE_BYTES:
+                    return readBytes(size);
+                case TYPE_UINT16:
+                case TYPE_UINT32:
+                case TYPE_UINT64:
+                    return readLong(size);
+                case TYPE_INT32:
+                    return (int) readLong(size);
+                case TYPE_UINT128:
+                    return new BigInteger(1, readBytes(size));
+                case TYPE_BOOLEAN:
+                    return size != 0;
+                case TYPE_MAP: {
+                    Map<String, Object> map = new HashMap<>(size * 2);
+                    for (int i = 0; i < size; i++) {
+                        map.put(String.valueOf(decode()), decode());
+                    }
+                    return map;
+                }
+                case TYPE_ARRAY: {
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(decode());
+                    }
+                    return list;
+                }
+                default:
+                    // Data cache containers and end markers never hold values of a record
+                    return null;
+            }
+        }
+
+        private int readPointer(int control) {
+            int pointerSize = (control >>> 3) & 0x3;
+            int value = control & 0x7;
+            switch (pointerSize) {
+                case 0:
+                    return (value << 8) | nextByte();
+                case 1:
+                    return ((value << 16) | (int) readLong(2)) + 2048;
+                case 2:
+                    return ((value << 24) | (int) readLong(3)) + 526336;
+                default:
+                    return (int) readLong(4);
+            }
+        }
+
+        private int readSize(int size) {
+            if (size < 29) {
+                return size;
+            }
+            if (size == 29) {
+                return 29 + nextByte();
+            }
+            if (size == 30) {
+                return 285 + (int) readLong(2);
+            }
+            return 65821 + (int) readLong(3);
+        }
+
+        private int nextByte() {
+            return buffer.get(position++) & 0xFF;
+        }
+
+        private long readLong(int size) {
+            long value = readUnsigned(position, size);
+            position += size;
+            return value;
+        }
+
+        private byte[] readBytes(int size) {
+            byte[] bytes = new byte[size];
+            for (int i = 0; i < size; i++) {
+                bytes[i] = buffer.get(position + i);
+            }
+            position += size;
+            return bytes;
+        }
+    }
+
+    /**
+     * The location data found for a network in the MaxMind DB file.
+     */
+    public static class Record {
+        private final String country;
+        private final String subdivision;
+        private final String city;
+        private final Double latitude;
+        private final Double longitude;
+        private final String autonomousSystemNumber;
+
+        Record(String country, String subdivision, String city, Double latitude, Double longitude,
+               String autonomousSystemNumber) {
+            this.country = country;
+            this.subdivision = subdivision;
+            this.city = city;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.autonomousSystemNumber = autonomousSystemNumber;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        public String getSubdivision() {
+            return subdivision;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        public Double getLatitude() {
+            return latitude;
+        }
+
+        public Double getLongitude() {
+            return longitude;
+        }
+
+        public String getAutonomousSystemNumber() {
+            return autonomousSystemNumber;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, in-memory index of places which finds the nearest place to a point on the earth. The places are
+ * kept as points on the unit sphere in a static KD-tree of primitive arrays, where the node of each range of the
+ * arrays is at its middle, hence the tree has no node objects and no pointers. As the straight line distance
+ * between two points on the sphere grows with their great circle distance, the nearest place found in three
+ * dimensions is the nearest place on the earth, without any special case at the poles or the antimeridian.
+ */
+public class PlaceIndex {
+
+    private static final double EARTH_RADIUS = 6371008.8;
+    private static final int DIMENSIONS = 3;
+
+    private final double[] coordinates;
+    private final int[] placeIds;
+
+    private PlaceIndex(double[] coordinates, int[] placeIds) {
+        this.coordinates = coordinates;
+        this.placeIds = placeIds;
+    }
+
+    /**
+     * Finds the nearest place to the given point.
+     *
+     * @param latitude  the latitude of the point in degrees
+     * @param longitude the longitude of the point in degrees
+     * @return the id of the nearest place, or -1 if the index is empty
+     */
+    public int findNearest(double latitude, double longitude) {
+        return findNearest(latitude, longitude, null);
+    }
+
+    /**
+     * Finds the nearest place to the given point.
+     *
+     * @param latitude  the latitude of the point in degrees
+     * @param longitude the longitude of the point in degrees
+     * @param distance  receives the great circle distance to the nearest place in meters at index 0, may be null
+     * @return the id of the nearest place, or -1 if the index is empty
+     */
+    public int findNearest(double latitude, double longitude, double[] distance) {
+        if (placeIds.length == 0) {
+            return -1;
+        }
+        double[] point = new double[DIMENSIONS];
+        toUnitVector(latitude, longitude, point, 0);
+        // The squared distance and the position of the nearest place found so far
+        double[] nearest = {Double.MAX_VALUE, -1};
+        search(0, placeIds.length, 0, point, nearest);
+        if (distance != null) {
+            double chord = Math.sqrt(nearest[0]);
+            distance[0] = 2 * EARTH_RADIUS * Math.asin(Math.min(1, chord / 2));
+        }
+        return placeIds[(int) nearest[1]];
+    }
+
+    public int size() {
+        return placeIds.length;
+    }
+
+    private void search(int from, int to, int axis, double[] point, double[] nearest) {
+        if (from >= to) {
+            return;
+        }
+        int node = (from + to) >>> 1;
+        int offset = node * DIMENSIONS;
+        double dx = point[0] - coordinates[offset];
+        double dy = point[1] - coordinates[offset + 1];
+        double dz = point[2] - coordinates[offset + 2];
+        double squaredDistance = dx * dx + dy * dy + dz * dz;
+        if (squaredDistance < nearest[0]) {
+            nearest[0] = squaredDistance;
+            nearest[1] = node;
+        }
+        double difference = point[axis] - coordinates[offset + axis];
+        int nextAxis = axis == DIMENSIONS - 1 ? 0 : axis + 1;
+        // The side of the point first, then the other side only if it can hold a nearer place
+        if (difference < 0) {
+            search(from, node, nextAxis, point, nearest);
+            if (difference * difference < nearest[0]) {
+                search(node + 1, to, nextAxis, point, nearest);
+            }
+        } else {
+            search(node + 1, to, nextAxis, point, nearest);
+            if (difference * difference < nearest[0]) {
+                search(from, node, nextAxis, point, nearest);
+            }
+        }
+    }
+
+    private static void toUnitVector(double latitude, double longitude, double[] coordinates, int offset) {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+        coordinates[offset] = cosLatitude * Math.cos(longitudeRadians);
+        coordinates[offset + 1] = cosLatitude * Math.sin(longitudeRadians);
+        coordinates[offset + 2] = Math.sin(latitudeRadians);
+    }
+
+    /**
+     * Collects the places and builds the tree.
+     */
+    public static class Builder {
+        private double[] coordinates = new double[1024 * DIMENSIONS];
+        private int[] placeIds = new int[1024];
+        private int placeCount;
+
+        public Builder addPlace(double latitude, double longitude, int placeId) {
+            if (placeCount == placeIds.length) {
+                int capacity = placeCount << 1;
+                coordinates = Arrays.copyOf(coordinates, capacity * DIMENSIONS);
+                placeIds = Arrays.copyOf(placeIds, capacity);
+            }
+            toUnitVector(latitude, longitude, coordinates, placeCount * DIMENSIONS);
+            placeIds[placeCount] = placeId;
+            placeCount++;
+            return this;
+        }
+
+        public PlaceIndex build() {
+            double[] treeCoordinates = Arrays.copyOf(coordinates, placeCount * DIMENSIONS);
+            int[] treePlaceIds = Arrays.copyOf(placeIds, placeCount);
+            build(treeCoordinates, treePlaceIds, 0, placeCount, 0);
+            return new PlaceIndex(treeCoordinates, treePlaceIds);
+        }
+
+        /**
+         * Moves the median of the range along the axis to the middle of the range, the places before it being
+         * lower and the ones after it higher, then builds the two halves along the next axis.
+         */
+        private static void build(double[] coordinates, int[] placeIds, int from, int to, int axis) {
+            if (to - from <= 1) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            select(coordinates, placeIds, from, to - 1, middle, axis);
+            int nextAxis = axis == DIMENSIONS - 1 ? 0 : axis + 1;
+            build(coordinates, placeIds, from, middle, nextAxis);
+            build(coordinates, placeIds, middle + 1, to, nextAxis);
+        }
+
+        /**
+         * Partially sorts the places between left and right, both inclusive, so that the place at k is the one which
+         * would be there if they were sorted along the axis.
+         */
+        private static void select(double[] coordinates, int[] placeIds, int left, int right, int k, int axis) {
+            while (right > left) {
+                double pivot = coordinates[((left + right) >>> 1) * DIMENSIONS + axis];
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (coordinates[i * DIMENSIONS + axis] < pivot) {
+                        i++;
+                    }
+                    while (coordinates[j * DIMENSIONS + axis] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(coordinates, placeIds, i++, j--);
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private static void swap(double[] coordinates, int[] placeIds, int i, int j) {
+            for (int axis = 0; axis < DIMENSIONS; axis++) {
+                double coordinate = coordinates[i * DIMENSIONS + axis];
+                coordinates[i * DIMENSIONS + axis] = coordinates[j * DIMENSIONS + axis];
+                coordinates[j * DIMENSIONS + axis] = coordinate;
+            }
+            int placeId = placeIds[i];
+            placeIds[i] = placeIds[j];
+            placeIds[j] = placeId;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable, in-memory index of polygons which finds the polygon containing a point. The polygons are in
+ * longitude and latitude degrees as in GeoJSON, hence a polygon must not cross the antimeridian but be split into
+ * parts on either side of it.
+ * <p>
+ * The bounding boxes of the polygons are packed in an R-tree with the Sort-Tile-Recursive algorithm, so that a
+ * lookup only visits the few nodes whose boxes contain the point. Each polygon is then tested by casting a ray from
+ * the point, but instead of crossing all the edges of the polygon the ray only crosses the edges of the horizontal
+ * band of the polygon the point is in, the edges of each band being listed when the index is built. A point is in
+ * a polygon when the ray crosses its edges an odd number of times, hence holes and the parts of a multi polygon
+ * need no special handling.
+ */
+public class PolygonIndex {
+
+    private static final int NODE_CAPACITY = 8;
+    private static final int EDGES_PER_BAND = 4;
+    private static final int BANDS_PER_EDGE = 4;
+    private static final int MAX_BANDS = 4096;
+
+    // The bounding boxes of the nodes as minimum x, minimum y, maximum x and maximum y one after the other, the
+    // first nodes being the polygons and the last one the root
+    private final double[] boxes;
+    // The children of the node i - polygonCount are the nodes children[childStart[i]] to children[childEnd[i] - 1]
+    private final int[] childStart;
+    private final int[] childEnd;
+    private final int[] children;
+    // The polygon i has the bands bandStart[i] to bandStart[i + 1] - 1, and the band j has the edges
+    // bandEdges[bandEdgeStart[j]] to bandEdges[bandEdgeStart[j + 1] - 1], the edge k being from the point
+    // (edges[4k], edges[4k + 1]) to the point (edges[4k + 2], edges[4k + 3])
+    private final int[] bandStart;
+    private final double[] bandHeight;
+    private final int[] bandEdgeStart;
+    private final int[] bandEdges;
+    private final double[] edges;
+    private final int[] polygonIds;
+    private final int polygonCount;
+
+    private PolygonIndex(Builder builder, int[] childStart, int[] childEnd, int[] children) {
+        this.boxes = new double[builder.minX.length * 4];
+        for (int node = 0; node < builder.minX.length; node++) {
+            boxes[node * 4] = builder.minX[node];
+            boxes[node * 4 + 1] = builder.minY[node];
+            boxes[node * 4 + 2] = builder.maxX[node];
+            boxes[node * 4 + 3] = builder.maxY[node];
+        }
+        this.childStart = childStart;
+        this.childEnd = childEnd;
+        this.children = children;
+        this.bandStart = Arrays.copyOf(builder.bandStart, builder.polygonCount + 1);
+        this.bandHeight = Arrays.copyOf(builder.bandHeight, builder.polygonCount);
+        this.bandEdgeStart = Arrays.copyOf(builder.bandEdgeStart, builder.bandCount + 1);
+        this.bandEdges = Arrays.copyOf(builder.bandEdges, builder.bandEdgeCount);
+        this.edges = Arrays.copyOf(builder.edges, builder.edgeCount * 4);
+        this.polygonIds = Arrays.copyOf(builder.polygonIds, builder.polygonCount);
+        this.polygonCount = builder.polygonCount;
+    }
+
+    /**
+     * Finds the polygon containing the given point. If more than one polygon contains it, the one added first is
+     * found.
+     *
+     * @param latitude  the latitude of the point in degrees
+     * @param longitude the longitude of the point in degrees
+     * @return the id of the polygon, or -1 if no polygon contains the point
+     */
+    public int find(double latitude, double longitude) {
+        if (polygonCount == 0) {
+            return -1;
+        }
+        int root = boxes.length / 4 - 1;
+        int polygon;
+        if (!contains(boxes, root, longitude, latitude)) {
+            return -1;
+        } else if (root < polygonCount) {
+            polygon = containsPoint(root, longitude, latitude) ? root : Integer.MAX_VALUE;
+        } else {
+            polygon = find(root, longitude, latitude, Integer.MAX_VALUE);
+        }
+        return polygon == Integer.MAX_VALUE ? -1 : polygonIds[polygon];
+    }
+
+    /**
+     * @return the number of polygons in the index
+     */
+    public int size() {
+        return polygonCount;
+    }
+
+    /**
+     * Searches the children of the internal node, whose box contains the point, for the first polygon before the
+     * given one which contains the point.
+     */
+    private int find(int node, double x, double y, int found) {
+        int internalNode = node - polygonCount;
+        for (int i = childStart[internalNode]; i < childEnd[internalNode]; i++) {
+            int child = children[i];
+            if (!contains(boxes, child, x, y)) {
+                continue;
+            }
+            if (child >= polygonCount) {
+                found = find(child, x, y, found);
+            } else if (child < found && containsPoint(child, x, y)) {
+                found = child;
+            }
+        }
+        return found;
+    }
+
+    private static boolean contains(double[] boxes, int node, double x, double y) {
+        int box = node << 2;
+        return x >= boxes[box] && y >= boxes[box + 1] && x <= boxes[box + 2] && y <= boxes[box + 3];
+    }
+
+    private boolean containsPoint(int polygon, double x, double y) {
+        int bandCount = bandStart[polygon + 1] - bandStart[polygon];
+        int band = (int) ((y - boxes[(polygon << 2) + 1]) / bandHeight[polygon]);
+        band = bandStart[polygon] + (band < bandCount ? band : bandCount - 1);
+        boolean inside = false;
+        for (int i = bandEdgeStart[band]; i < bandEdgeStart[band + 1]; i++) {
+            int edge = bandEdges[i] << 2;
+            double x1 = edges[edge];
+            double y1 = edges[edge + 1];
+            double x2 = edges[edge + 2];
+            double y2 = edges[edge + 3];
+            if ((y1 > y) != (y2 > y) && x < x1 + (y - y1) * (x2 - x1) / (y2 - y1)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Collects the polygons, with their bands of edges, and builds the tree.
+     */
+    public static class Builder {
+        private double[] minX = new double[64];
+        private double[] minY = new double[64];
+        private double[] maxX = new double[64];
+        private double[] maxY = new double[64];
+        private int[] polygonIds = new int[64];
+        private int[] bandStart = new int[65];
+        private double[] bandHeight = new double[64];
+        private int polygonCount;
+        private int[] bandEdgeStart = new int[1025];
+        private int bandCount;
+        private int[] bandEdges = new int[4096];
+        private int bandEdgeCount;
+        private double[] edges = new double[4096];
+        private int edgeCount;
+
+        /**
+         * Adds a polygon made of the given rings, which are its outer rings and its holes in any order.
+         *
+         * @param rings     the rings, each having the longitude and the latitude of its points one after the other,
+         *                  the last point being the same as the first one or not
+         * @param polygonId the id to be found for the points in the polygon
+         * @return the builder
+         */
+        public Builder addPolygon(List<double[]> rings, int polygonId) {
+            double polygonMinX = Double.POSITIVE_INFINITY;
+            double polygonMinY = Double.POSITIVE_INFINITY;
+            double polygonMaxX = Double.NEGATIVE_INFINITY;
+            double polygonMaxY = Double.NEGATIVE_INFINITY;
+            int firstEdge = edgeCount;
+            for (double[] ring : rings) {
+                int pointCount = ring.length / 2;
+                if (pointCount < 3) {
+                    continue;
+                }
+                for (int i = 0; i < pointCount; i++) {
+                    double x = ring[i * 2];
+                    double y = ring[i * 2 + 1];
+                    polygonMinX = Math.min(polygonMinX, x);
+                    polygonMinY = Math.min(polygonMinY, y);
+                    polygonMaxX = Math.max(polygonMaxX, x);
+                    polygonMaxY = Math.max(polygonMaxY, y);
+                    int next = i + 1 == pointCount ? 0 : i + 1;
+                    double nextY = ring[next * 2 + 1];
+                    // Horizontal edges are never crossed by the ray, and closing points add empty edges
+                    if (y != nextY) {
+                        addEdge(x, y, ring[next * 2], nextY);
+                    }
+                }
+            }
+            if (edgeCount == firstEdge) {
+                return this;
+            }
+            if (polygonCount == polygonIds.length) {
+                int capacity = polygonCount << 1;
+                minX = Arrays.copyOf(minX, capacity);
+                minY = Arrays.copyOf(minY, capacity);
+                maxX = Arrays.copyOf(maxX, capacity);
+                maxY = Arrays.copyOf(maxY, capacity);
+                polygonIds = Arrays.copyOf(polygonIds, capacity);
+                bandStart = Arrays.copyOf(bandStart, capacity + 1);
+                bandHeight = Arrays.copyOf(bandHeight, capacity);
+            }
+            minX[polygonCount] = polygonMinX;
+            minY[polygonCount] = polygonMinY;
+            maxX[polygonCount] = polygonMaxX;
+            maxY[polygonCount] = polygonMaxY;
+            polygonIds[polygonCount] = polygonId;
+            addBands(polygonCount, firstEdge, polygonMinY, polygonMaxY);
+            polygonCount++;
+            return this;
+        }
+
+        private void addEdge(double x1, double y1, double x2, double y2) {
+            if (edgeCount * 4 == edges.length) {
+                edges = Arrays.copyOf(edges, edges.length << 1);
+            }
+            int offset = edgeCount * 4;
+            edges[offset] = x1;
+            edges[offset + 1] = y1;
+            edges[offset + 2] = x2;
+            edges[offset + 3] = y2;
+            edgeCount++;
+        }
+
+        /**
+         * Splits the polygon into bands of equal height and lists the edges spanning each band.
+         */
+        private void addBands(int polygon, int firstEdge, double polygonMinY, double polygonMaxY) {
+            // An edge is listed in every band it spans, hence tall edges, such as of coarse or jagged boundaries,
+            // limit the number of bands so that an edge is listed in BANDS_PER_EDGE bands on average
+            int polygonEdgeCount = edgeCount - firstEdge;
+            double polygonHeight = polygonMaxY - polygonMinY;
+            double edgeHeights = 0;
+            for (int edge = firstEdge; edge < edgeCount; edge++) {
+                edgeHeights += Math.abs(edges[edge * 4 + 3] - edges[edge * 4 + 1]);
+            }
+            double maxBandCount = Math.min(MAX_BANDS, Math.min((double) polygonEdgeCount / EDGES_PER_BAND,
+                    BANDS_PER_EDGE * polygonEdgeCount * polygonHeight / edgeHeights));
+            int polygonBandCount = Math.max(1, (int) maxBandCount);
+            double height = polygonHeight / polygonBandCount;
+            int[] counts = new int[polygonBandCount];
+            for (int edge = firstEdge; edge < edgeCount; edge++) {
+                int fromBand = band(edge, polygonMinY, height, polygonBandCount, true);
+                int toBand = band(edge, polygonMinY, height, polygonBandCount, false);
+                for (int band = fromBand; band <= toBand; band++) {
+                    counts[band]++;
+                }
+            }
+            if (bandCount + polygonBandCount + 1 > bandEdgeStart.length) {
+                bandEdgeStart = Arrays.copyOf(bandEdgeStart, Math.max(bandEdgeStart.length << 1,
+                        bandCount + polygonBandCount + 1));
+            }
+            int[] offsets = new int[polygonBandCount];
+            int offset = bandEdgeCount;
+            for (int band = 0; band < polygonBandCount; band++) {
+                bandEdgeStart[bandCount + band] = offset;
+                offsets[band] = offset;
+                offset += counts[band];
+            }
+            bandEdgeStart[bandCount + polygonBandCount] = offset;
+            if (offset > bandEdges.length) {
+                bandEdges = Arrays.copyOf(bandEdges, Math.max(bandEdges.length << 1, offset));
+            }
+            for (int edge = firstEdge; edge < edgeCount; edge++) {
+                int fromBand = band(edge, polygonMinY, height, polygonBandCount, true);
+                int toBand = band(edge, polygonMinY, height, polygonBandCount, false);
+                for (int band = fromBand; band <= toBand; band++) {
+                    bandEdges[offsets[band]++] = edge;
+                }
+            }
+            bandStart[polygon] = bandCount;
+            bandStart[polygon + 1] = bandCount + polygonBandCount;
+            bandHeight[polygon] = height;
+            bandCount += polygonBandCount;
+            bandEdgeCount = offset;
+        }
+
+        /**
+         * @return the band of the lower or the upper end of the edge, computed as in the lookups so that the
+         * edge is listed in the band of every point it spans
+         */
+        private int band(int edge, double polygonMinY, double height, int polygonBandCount, boolean lower) {
+            double y1 = edges[edge * 4 + 1];
+            double y2 = edges[edge * 4 + 3];
+            int band = (int) (((lower ? Math.min(y1, y2) : Math.max(y1, y2)) - polygonMinY) / height);
+            return band < polygonBandCount ? band : polygonBandCount - 1;
+        }
+
+        public PolygonIndex build() {
+            int nodeCount = polygonCount;
+            int[] level = new int[polygonCount];
+            for (int i = 0; i < polygonCount; i++) {
+                level[i] = i;
+            }
+            int[] childStart = new int[0];
+            int[] childEnd = new int[0];
+            int[] children = new int[0];
+            int childCount = 0;
+            // Packs the nodes of each level into the nodes of the level above, until there is a single root
+            while (level.length > 1) {
+                sortTiles(level);
+                int parentCount = (level.length + NODE_CAPACITY - 1) / NODE_CAPACITY;
+                int[] parents = new int[parentCount];
+                childStart = Arrays.copyOf(childStart, nodeCount - polygonCount + parentCount);
+                childEnd = Arrays.copyOf(childEnd, nodeCount - polygonCount + parentCount);
+                children = Arrays.copyOf(children, childCount + level.length);
+                System.arraycopy(level, 0, children, childCount, level.length);
+                ensureNodeCapacity(nodeCount + parentCount);
+                for (int parent = 0; parent < parentCount; parent++) {
+                    int from = parent * NODE_CAPACITY;
+                    int to = Math.min(from + NODE_CAPACITY, level.length);
+                    int node = nodeCount + parent;
+                    minX[node] = Double.POSITIVE_INFINITY;
+                    minY[node] = Double.POSITIVE_INFINITY;
+                    maxX[node] = Double.NEGATIVE_INFINITY;
+                    maxY[node] = Double.NEGATIVE_INFINITY;
+                    for (int i = from; i < to; i++) {
+                        int child = level[i];
+                        minX[node] = Math.min(minX[node], minX[child]);
+                        minY[node] = Math.min(minY[node], minY[child]);
+                        maxX[node] = Math.max(maxX[node], maxX[child]);
+                        maxY[node] = Math.max(maxY[node], maxY[child]);
+                    }
+                    childStart[node - polygonCount] = childCount + from;
+                    childEnd[node - polygonCount] = childCount + to;
+                    parents[parent] = node;
+                }
+                childCount += level.length;
+                nodeCount += parentCount;
+                level = parents;
+            }
+            minX = Arrays.copyOf(minX, nodeCount);
+            minY = Arrays.copyOf(minY, nodeCount);
+            maxX = Arrays.copyOf(maxX, nodeCount);
+            maxY = Arrays.copyOf(maxY, nodeCount);
+            return new PolygonIndex(this, childStart, childEnd, children);
+        }
+
+        private void ensureNodeCapacity(int capacity) {
+            if (capacity > minX.length) {
+                minX = Arrays.copyOf(minX, capacity);
+                minY = Arrays.copyOf(minY, capacity);
+                maxX = Arrays.copyOf(maxX, capacity);
+                maxY = Arrays.copyOf(maxY, capacity);
+            }
+        }
+
+        /**
+         * Orders the nodes by the Sort-Tile-Recursive algorithm, which sorts them by the centre of their boxes
+         * along x, cuts them into vertical slices of whole parent nodes, and sorts each slice along y, so that
+         * consecutive nodes are near each other.
+         */
+        private void sortTiles(int[] nodes) {
+            Integer[] order = new Integer[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                order[i] = nodes[i];
+            }
+            Arrays.sort(order, Comparator.comparingDouble(node -> minX[node] + maxX[node]));
+            int parentCount = (nodes.length + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int sliceSize = (int) Math.ceil(Math.sqrt(parentCount)) * NODE_CAPACITY;
+            for (int from = 0; from < nodes.length; from += sliceSize) {
+                Arrays.sort(order, from, Math.min(from + sliceSize, nodes.length),
+                        Comparator.comparingDouble(node -> minY[node] + maxY[node]));
+            }
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = order[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.metrics;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * The counters and the latency histograms of the lookups of a geo function, such as the IP location lookups shared
+ * by the geo IP functions. The latencies are recorded per {@link Stage}. The metrics are disabled until a function
+ * enables them with 'isMetricsEnabled' or runs in a Siddhi app with statistics enabled, and while disabled
+ * recording is a single read of a volatile flag. Once enabled they are registered as an MBean named
+ * 'org.wso2.extension.siddhi.execution.geo:type=LookupMetrics,name=&lt;name&gt;'.
+ */
+public class LookupMetrics implements DynamicMBean {
+    private static final Log log = LogFactory.getLog(LookupMetrics.class);
+
+    public static final String IP_LOCATION = "ipLocation";
+    public static final String GEOCODE = "geocode";
+    public static final String REVERSE_GEOCODE = "reversegeocode";
+    public static final String GEOCOORDINATE = "geocoordinate";
+    public static final String IS_METRICS_ENABLED_KEY = "isMetricsEnabled";
+    private static final String OBJECT_NAME_PREFIX = "org.wso2.extension.siddhi.execution.geo:type=LookupMetrics,name=";
+    private static final String RESET_OPERATION = "reset";
+    private static final double NANOS_PER_MICRO = 1000;
+
+    private static final Map<String, LookupMetrics> instances = new ConcurrentHashMap<>();
+
+    /**
+     * The stages of a lookup.
+     */
+    public enum Stage {
+        /**
+         * Parsing the input, such as an IP address.
+         */
+        PARSE("Parse"),
+        /**
+         * Looking up the caches.
+         */
+        CACHE("Cache"),
+        /**
+         * Resolving a cache miss with the backend, such as a database or a web API.
+         */
+        BACKEND("Backend"),
+        /**
+         * Persisting the resolved values.
+         */
+        PERSIST("Persist");
+
+        private final String attributePrefix;
+
+        Stage(String attributePrefix) {
+            this.attributePrefix = attributePrefix;
+        }
+    }
+
+    private final String name;
+    private volatile boolean enabled;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder backendErrors = new LongAdder();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Stage.values().length];
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    LookupMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Returns the metrics of the given name, which are disabled unless a function has enabled them.
+     *
+     * @param name the name of the lookups, such as {@link #IP_LOCATION}
+     * @return the metrics
+     */
+    public static LookupMetrics getInstance(String name) {
+        return instances.computeIfAbsent(name, LookupMetrics::new);
+    }
+
+    /**
+     * Returns the metrics of the given name, enabling them if 'isMetricsEnabled' is set in the configuration.
+     *
+     * @param name         the name of the lookups, such as {@link #IP_LOCATION}
+     * @param configReader the configuration of the calling geo function
+     * @return the metrics
+     */
+    public static LookupMetrics getInstance(String name, ConfigReader configReader) {
+        LookupMetrics metrics = getInstance(name);
+        if (Boolean.parseBoolean(configReader.readConfig(IS_METRICS_ENABLED_KEY, "false"))) {
+            metrics.enable();
+        }
+        return metrics;
+    }
+
+    /**
+     * Starts recording the metrics and registers them with the platform MBean server.
+     */
+    public synchronized void enable() {
+        if (enabled) {
+            return;
+        }
+        enabled = true;
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(OBJECT_NAME_PREFIX + name);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            log.warn("Cannot register the metrics of the '" + name + "' lookups with the MBean server", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the start time of a stage to be passed to {@link #record(Stage, long)}.
+     *
+     * @return the current time in nanoseconds, or 0 if the metrics are disabled
+     */
+    public long startTime() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the latency of a stage.
+     *
+     * @param stage     the stage
+     * @param startTime the time returned by {@link #startTime()} when the stage started
+     */
+    public void record(Stage stage, long startTime) {
+        if (enabled && startTime != 0) {
+            latencies[stage.ordinal()].record(System.nanoTime() - startTime);
+        }
+    }
+
+    public void cacheHit() {
+        if (enabled) {
+            cacheHits.increment();
+        }
+    }
+
+    public void cacheMiss() {
+        if (enabled) {
+            cacheMisses.increment();
+        }
+    }
+
+    public void backendError() {
+        if (enabled) {
+            backendErrors.increment();
+        }
+    }
+
+    /**
+     * Adds a value kept elsewhere, such as the number of cache evictions, to the attributes of the MBean.
+     *
+     * @param attribute the name of the attribute
+     * @param supplier  the supplier of the value
+     */
+    public void registerGauge(String attribute, LongSupplier supplier) {
+        gauges.put(attribute, supplier);
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * @return the ratio of the lookups served from the caches, or 0 if there is no lookup
+     */
+    public double getCacheHitRatio() {
+        long hits = cacheHits.sum();
+        long lookups = hits + cacheMisses.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public long getBackendErrorCount() {
+        return backendErrors.sum();
+    }
+
+    public LatencyHistogram getLatency(Stage stage) {
+        return latencies[stage.ordinal()];
+    }
+
+    public void reset() {
+        cacheHits.reset();
+        cacheMisses.reset();
+        backendErrors.reset();
+        for (LatencyHistogram latency : latencies) {
+            latency.reset();
+        }
+    }
+
+    private Map<String, Supplier<Object>> getAttributes() {
+        Map<String, Supplier<Object>> attributes = new LinkedHashMap<>();
+        attributes.put("CacheHits", this::getCacheHitCount);
+        attributes.put("CacheMisses", this::getCacheMissCount);
+        attributes.put("CacheHitRatio", this::getCacheHitRatio);
+        attributes.put("BackendErrors", this::getBackendErrorCount);
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            attributes.put(gauge.getKey(), () -> gauge.getValue().getAsLong());
+        }
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram latency = getLatency(stage);
+            attributes.put(stage.attributePrefix + "Count", latency::getCount);
+            attributes.put(stage.attributePrefix + "MeanMicros", () -> latency.getMean() / NANOS_PER_MICRO);
+            attributes.put(stage.attributePrefix + "P50Micros", () -> latency.getPercentile(50) / NANOS_PER_MICRO);
+            attributes.put(stage.attributePrefix + "P99Micros", () -> latency.getPercentile(99) / NANOS_PER_MICRO);
+            attributes.put(stage.attributePrefix + "MaxMicros", () -> latency.getMax() / NANOS_PER_MICRO);
+        }
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Supplier<Object> supplier = getAttributes().get(attribute);
+        if (supplier == null) {
+            throw new AttributeNotFoundException("No attribute '" + attribute + "' in the metrics of the '" + name +
+                    "' lookups");
+        }
+        return supplier.get();
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The attribute '" + attribute.getName() + "' is read only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributeNames) {
+        Map<String, Supplier<Object>> attributes = getAttributes();
+        AttributeList attributeList = new AttributeList();
+        for (String attributeName : attributeNames) {
+            Supplier<Object> supplier = attributes.get(attributeName);
+            if (supplier != null) {
+                attributeList.add(new Attribute(attributeName, supplier.get()));
+            }
+        }
+        return attributeList;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (RESET_OPERATION.equals(actionName)) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributeInfos = new ArrayList<>();
+        for (Map.Entry<String, Supplier<Object>> attribute : getAttributes().entrySet()) {
+            attributeInfos.add(new MBeanAttributeInfo(attribute.getKey(),
+                    attribute.getValue().get().getClass().getName(), attribute.getKey(), true, false, false));
+        }
+        MBeanOperationInfo resetInfo = new MBeanOperationInfo(RESET_OPERATION, "Resets the counters and the " +
+                "latencies", null, "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "The metrics of the '" + name + "' lookups",
+                attributeInfos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{resetInfo},
+                null);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.metrics;
+
+import io.siddhi.core.config.SiddhiAppContext;
+import io.siddhi.core.config.SiddhiQueryContext;
+import io.siddhi.core.util.statistics.LatencyTracker;
+import io.siddhi.core.util.statistics.StatisticsConfiguration;
+import io.siddhi.core.util.statistics.StatisticsManager;
+import io.siddhi.core.util.statistics.ThroughputTracker;
+import io.siddhi.core.util.statistics.metrics.Level;
+
+/**
+ * The latency and the throughput of the lookups of a geo function in a query, reported through the statistics
+ * manager of the Siddhi app, as
+ * '&lt;prefix&gt;.Siddhi.Apps.&lt;app&gt;.Siddhi.Queries.&lt;query&gt;.geo.&lt;function&gt;.latency' and
+ * '.throughput'.
+ */
+public class LookupStatistics {
+
+    private final LatencyTracker latencyTracker;
+    private final ThroughputTracker throughputTracker;
+
+    private LookupStatistics(LatencyTracker latencyTracker, ThroughputTracker throughputTracker) {
+        this.latencyTracker = latencyTracker;
+        this.throughputTracker = throughputTracker;
+    }
+
+    /**
+     * Creates the statistics of a geo function if the statistics of its Siddhi app are enabled. The stage
+     * metrics of the lookups are then enabled as well.
+     *
+     * @param functionName       the name of the function, such as 'findCityFromIP'
+     * @param siddhiQueryContext the context of the query of the function
+     * @param metrics            the metrics of the lookups of the function
+     * @return the statistics, or null if the statistics of the Siddhi app are disabled
+     */
+    public static LookupStatistics create(String functionName, SiddhiQueryContext siddhiQueryContext,
+                                          LookupMetrics metrics) {
+        SiddhiAppContext siddhiAppContext = siddhiQueryContext.getSiddhiAppContext();
+        StatisticsManager statisticsManager = siddhiAppContext.getStatisticsManager();
+        Level level = siddhiAppContext.getRootMetricsLevel();
+        if (statisticsManager == null || level == null || level == Level.OFF) {
+            return null;
+        }
+        metrics.enable();
+        StatisticsConfiguration statisticsConfiguration = siddhiAppContext.getSiddhiContext()
+                .getStatisticsConfiguration();
+        String metricName = statisticsConfiguration.getMetricPrefix() + ".Siddhi.Apps." + siddhiAppContext.getName() +
+                ".Siddhi.Queries." + siddhiQueryContext.getName() + ".geo." + functionName;
+        return new LookupStatistics(
+                statisticsConfiguration.getFactory().createLatencyTracker(metricName + ".latency",
+                        statisticsManager),
+                statisticsConfiguration.getFactory().createThroughputTracker(metricName + ".throughput",
+                        statisticsManager));
+    }
+
+    /**
+     * Marks the start of the lookups of an event or of an event chunk.
+     *
+     * @param lookupCount the number of lookups
+     */
+    public void markIn(int lookupCount) {
+        throughputTracker.eventsIn(lookupCount);
+        latencyTracker.markIn();
+    }
+
+    public void markOut() {
+        latencyTracker.markOut();
+    }
+}
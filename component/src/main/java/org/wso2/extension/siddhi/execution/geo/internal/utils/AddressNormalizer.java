@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class normalizes free text addresses, so that the spellings of an address which differ only in case,
+ * whitespace, punctuation or common abbreviations, such as '5 Av. Anatole France' and '5 avenue anatole  france',
+ * have the same normalized form. The normalized form is meant to be a cache key, never to be sent to a geocoder.
+ */
+public class AddressNormalizer {
+
+    private static final Map<String, String> ABBREVIATIONS = new HashMap<>();
+
+    static {
+        addAbbreviations("street", "st", "str");
+        addAbbreviations("road", "rd");
+        addAbbreviations("avenue", "ave", "av");
+        addAbbreviations("boulevard", "blvd", "bd");
+        addAbbreviations("drive", "dr");
+        addAbbreviations("lane", "ln");
+        addAbbreviations("court", "ct");
+        addAbbreviations("place", "pl");
+        addAbbreviations("square", "sq");
+        addAbbreviations("highway", "hwy");
+        addAbbreviations("parkway", "pkwy");
+        addAbbreviations("terrace", "ter", "terr");
+        addAbbreviations("apartment", "apt");
+        addAbbreviations("suite", "ste");
+        addAbbreviations("floor", "fl");
+        addAbbreviations("building", "bldg");
+        addAbbreviations("mount", "mt");
+        addAbbreviations("fort", "ft");
+        addAbbreviations("north", "n");
+        addAbbreviations("south", "s");
+        addAbbreviations("east", "e");
+        addAbbreviations("west", "w");
+        addAbbreviations("northeast", "ne");
+        addAbbreviations("northwest", "nw");
+        addAbbreviations("southeast", "se");
+        addAbbreviations("southwest", "sw");
+    }
+
+    private AddressNormalizer() {
+    }
+
+    private static void addAbbreviations(String word, String... abbreviations) {
+        for (String abbreviation : abbreviations) {
+            ABBREVIATIONS.put(abbreviation, word);
+        }
+    }
+
+    /**
+     * Normalizes the address. Letters are lower cased, compatibility characters such as full width digits are
+     * replaced with their canonical forms, apostrophes are removed, any other punctuation separates words, words
+     * are separated by a single space and the common abbreviations of street types, directions and units are
+     * expanded.
+     *
+     * @param address the address
+     * @return the normalized address, which is empty if the address has no letter or digit
+     */
+    public static String normalize(String address) {
+        String text = Normalizer.normalize(address, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(text.length());
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (c != '\'' && c != '\u2019') {
+                appendWord(normalized, word);
+            }
+        }
+        appendWord(normalized, word);
+        return normalized.toString();
+    }
+
+    private static void appendWord(StringBuilder normalized, StringBuilder word) {
+        if (word.length() == 0) {
+            return;
+        }
+        if (normalized.length() > 0) {
+            normalized.append(' ');
+        }
+        String expansion = ABBREVIATIONS.get(word.toString());
+        normalized.append(expansion != null ? expansion : word);
+        word.setLength(0);
+    }
+}
@@ -18,15 +18,8 @@
 
 package org.wso2.extension.siddhi.execution.geo.internal.utils;
 
-import com.zaxxer.hikari.HikariDataSource;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.osgi.framework.BundleContext;
-import org.osgi.framework.FrameworkUtil;
-import org.osgi.framework.ServiceReference;
-import org.wso2.carbon.datasource.core.api.DataSourceService;
-import org.wso2.carbon.datasource.core.exception.DataSourceException;
-import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -36,40 +29,16 @@ import java.sql.Statement;
 import javax.sql.DataSource;
 
 /**
- * This class provides Database Util functionality.
+ * This class provides Database Util functionality over the datasource given by a
+ * {@link org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider}.
  */
 public class DatabaseUtils {
-    private static final DatabaseUtils instance = new DatabaseUtils();
     private static final Log log = LogFactory.getLog(DatabaseUtils.class);
 
-    private DataSource dataSource = null;
-    private String dataSourceName;
+    private final DataSource dataSource;
 
-    private DatabaseUtils() {
-    }
-
-    public static DatabaseUtils getInstance() {
-        return instance;
-    }
-
-    public void initialize(String dataSourceName) throws GeoLocationResolverException {
-        try {
-            BundleContext bundleContext = FrameworkUtil.getBundle(DataSourceService.class).getBundleContext();
-            ServiceReference<DataSourceService> serviceRef = bundleContext.getServiceReference(DataSourceService.class);
-            if (serviceRef == null) {
-                throw new GeoLocationResolverException("Cannot find the datasourceService '" +
-                        DataSourceService.class.getName() + "'");
-            } else {
-                DataSourceService dataSourceService = bundleContext.getService(serviceRef);
-                dataSource = (HikariDataSource) dataSourceService.getDataSource(dataSourceName);
-                if (log.isDebugEnabled()) {
-                    log.debug("Lookup for datasource '" + dataSourceName + "' completed through " +
-                            "DataSource Service lookup.");
-                }
-            }
-        } catch (DataSourceException e) {
-            throw new GeoLocationResolverException("Cannot connect to the datasource '" + dataSourceName + "'", e);
-        }
+    public DatabaseUtils(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
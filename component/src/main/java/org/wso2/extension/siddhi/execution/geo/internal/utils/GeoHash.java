@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+/**
+ * This class computes geohash cells, which divide the world into a grid of cells by alternately halving the
+ * longitude and the latitude ranges. A cell of a given precision, in base 32 characters of 5 bits each, is kept as
+ * the bits of its geohash in a long, hence no String is created. Each character added to the precision divides a
+ * cell into 32 cells, so that for example a cell of precision 7 is about 153 m by 153 m at the equator, of
+ * precision 8 about 38 m by 19 m and of precision 9 about 5 m by 5 m.
+ */
+public class GeoHash {
+
+    public static final int MAX_PRECISION = 12;
+    private static final char[] BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHash() {
+    }
+
+    /**
+     * Finds the cell which contains the given point.
+     *
+     * @param latitude  the latitude in degrees, between -90 and 90
+     * @param longitude the longitude in degrees, between -180 and 180
+     * @param precision the number of base 32 characters of the geohash, between 1 and {@value #MAX_PRECISION}
+     * @return the bits of the geohash of the cell
+     */
+    public static long encode(double latitude, double longitude, int precision) {
+        int bits = precision * 5;
+        int longitudeBits = (bits + 1) / 2;
+        int latitudeBits = bits / 2;
+        return interleave(toIndex(latitude, -90, 180, latitudeBits), toIndex(longitude, -180, 360, longitudeBits),
+                bits);
+    }
+
+    /**
+     * Finds the 8 cells around the given cell. The cells wrap around the antimeridian. At the poles the cells
+     * beyond the pole are the ones on the pole, hence the same cell can be returned more than once.
+     *
+     * @param cell      the bits of the geohash of the cell
+     * @param precision the number of base 32 characters of the geohash
+     * @return the cells, starting from the one to the north west and in row order
+     */
+    public static long[] neighbors(long cell, int precision) {
+        int bits = precision * 5;
+        int longitudeBits = (bits + 1) / 2;
+        int latitudeBits = bits / 2;
+        long latitudeIndex = deinterleave(cell, bits, false);
+        long longitudeIndex = deinterleave(cell, bits, true);
+        long maxLatitudeIndex = (1L << latitudeBits) - 1;
+        long longitudeMask = (1L << longitudeBits) - 1;
+        long[] neighbors = new long[8];
+        int count = 0;
+        for (int latitudeOffset = 1; latitudeOffset >= -1; latitudeOffset--) {
+            for (int longitudeOffset = -1; longitudeOffset <= 1; longitudeOffset++) {
+                if (latitudeOffset == 0 && longitudeOffset == 0) {
+                    continue;
+                }
+                long neighborLatitude = Math.max(0, Math.min(maxLatitudeIndex, latitudeIndex + latitudeOffset));
+                long neighborLongitude = (longitudeIndex + longitudeOffset) & longitudeMask;
+                neighbors[count++] = interleave(neighborLatitude, neighborLongitude, bits);
+            }
+        }
+        return neighbors;
+    }
+
+    /**
+     * @param precision the number of base 32 characters of the geohash
+     * @return the height of the cells in degrees of latitude
+     */
+    public static double getCellHeight(int precision) {
+        return 180.0 / (1L << (precision * 5 / 2));
+    }
+
+    /**
+     * @param precision the number of base 32 characters of the geohash
+     * @return the width of the cells in degrees of longitude
+     */
+    public static double getCellWidth(int precision) {
+        return 360.0 / (1L << ((precision * 5 + 1) / 2));
+    }
+
+    /**
+     * Formats the cell as its geohash, such as 'tc1hxwdg'.
+     *
+     * @param cell      the bits of the geohash of the cell
+     * @param precision the number of base 32 characters of the geohash
+     * @return the geohash
+     */
+    public static String toString(long cell, int precision) {
+        char[] geohash = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            geohash[i] = BASE_32[(int) (cell & 0x1F)];
+            cell >>>= 5;
+        }
+        return new String(geohash);
+    }
+
+    private static long toIndex(double value, double min, double range, int bits) {
+        long index = (long) ((value - min) / range * (1L << bits));
+        // The maximum value, such as the latitude 90, belongs to the last cell
+        return Math.max(0, Math.min((1L << bits) - 1, index));
+    }
+
+    /**
+     * Interleaves the bits of the indexes, the most significant bit of the geohash being a longitude bit.
+     */
+    private static long interleave(long latitudeIndex, long longitudeIndex, int bits) {
+        long cell = 0;
+        int longitudeBit = (bits + 1) / 2;
+        int latitudeBit = bits / 2;
+        for (int i = 0; i < bits; i++) {
+            cell <<= 1;
+            if (i % 2 == 0) {
+                cell |= (longitudeIndex >>> --longitudeBit) & 1;
+            } else {
+                cell |= (latitudeIndex >>> --latitudeBit) & 1;
+            }
+        }
+        return cell;
+    }
+
+    private static long deinterleave(long cell, int bits, boolean isLongitude) {
+        long index = 0;
+        for (int i = isLongitude ? 0 : 1; i < bits; i += 2) {
+            index = (index << 1) | ((cell >>> (bits - 1 - i)) & 1);
+        }
+        return index;
+    }
+}
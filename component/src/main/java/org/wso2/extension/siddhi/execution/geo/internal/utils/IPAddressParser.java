@@ -0,0 +1,258 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+/**
+ * This class parses textual IP addresses into primitive values in a single pass, without allocating any objects and
+ * without any name resolution, hence unlike {@link java.net.InetAddress#getByName(String)} a host name is never
+ * looked up. IPv4 addresses are returned as unsigned 32 bit values and IPv6 addresses as their upper and lower 64
+ * bits.
+ */
+public class IPAddressParser {
+
+    private IPAddressParser() {
+    }
+
+    /**
+     * Determines whether the given text is an IPv4 or an IPv6 address.
+     *
+     * @param text the text to be examined
+     * @return true if the text is an IP address
+     */
+    public static boolean isIpAddress(CharSequence text) {
+        return parseIPv4(text) >= 0 || parseIPv6(text, 0, text.length(), null);
+    }
+
+    /**
+     * Parses a dotted decimal IPv4 address such as '192.168.1.1'.
+     *
+     * @param text the text to be parsed
+     * @return the address as an unsigned 32 bit value, or -1 if the text is not an IPv4 address
+     */
+    public static long parseIPv4(CharSequence text) {
+        return parseIPv4(text, 0, text.length());
+    }
+
+    /**
+     * Formats an IPv4 address in the dotted decimal notation.
+     *
+     * @param ip the address as an unsigned 32 bit value
+     * @return the address such as '192.168.1.1'
+     */
+    public static String formatIPv4(long ip) {
+        return new StringBuilder(15).append((ip >>> 24) & 0xFF).append('.').append((ip >>> 16) & 0xFF).append('.')
+                .append((ip >>> 8) & 0xFF).append('.').append(ip & 0xFF).toString();
+    }
+
+    /**
+     * Parses a dotted decimal IPv4 address within the given part of the text.
+     *
+     * @param text  the text to be parsed
+     * @param start the position of the first character of the address
+     * @param end   the position after the last character of the address
+     * @return the address as an unsigned 32 bit value, or -1 if the part is not an IPv4 address
+     */
+    public static long parseIPv4(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length < 7 || length > 15) {
+            return -1;
+        }
+        long value = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.') {
+                if (digits == 0 || ++dots > 3) {
+                    return -1;
+                }
+                value = (value << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (value << 8) | octet;
+    }
+
+    /**
+     * Parses an IPv6 address such as '2001:db8::1' or '::ffff:192.168.1.1' within the given part of the text.
+     * Zone ids are not accepted.
+     *
+     * @param text   the text to be parsed
+     * @param start  the position of the first character of the address
+     * @param end    the position after the last character of the address
+     * @param result receives the upper 64 bits at index 0 and the lower 64 bits at index 1, may be null if only
+     *               validation is required
+     * @return true if the part is an IPv6 address
+     */
+    public static boolean parseIPv6(CharSequence text, int start, int end, long[] result) {
+        if (end - start < 2 || end - start > 45) {
+            return false;
+        }
+        // Groups before '::' are collected in head, the ones after it in tail
+        long headHigh = 0;
+        long headLow = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int groupCount = 0;
+        int headCount = -1;
+        int i = start;
+        if (text.charAt(i) == ':') {
+            if (text.charAt(i + 1) != ':') {
+                return false;
+            }
+            headCount = 0;
+            i += 2;
+        }
+        while (i < end) {
+            if (groupCount == 8) {
+                return false;
+            }
+            int groupStart = i;
+            int group = 0;
+            int digits = 0;
+            for (; i < end; i++) {
+                int digit = hexDigit(text.charAt(i));
+                if (digit < 0) {
+                    break;
+                }
+                if (++digits > 4) {
+                    return false;
+                }
+                group = (group << 4) | digit;
+            }
+            int addedGroups = 1;
+            long addedBits = group;
+            if (i < end && text.charAt(i) == '.') {
+                // Trailing IPv4 address, such as in IPv4-mapped addresses
+                long ipv4 = parseIPv4(text, groupStart, end);
+                if (ipv4 < 0 || groupCount > 6) {
+                    return false;
+                }
+                addedGroups = 2;
+                addedBits = ipv4;
+                i = end;
+            } else if (digits == 0) {
+                return false;
+            }
+            int shift = addedGroups * 16;
+            if (headCount < 0) {
+                headHigh = (headHigh << shift) | (headLow >>> (64 - shift));
+                headLow = (headLow << shift) | addedBits;
+            } else {
+                tailHigh = (tailHigh << shift) | (tailLow >>> (64 - shift));
+                tailLow = (tailLow << shift) | addedBits;
+            }
+            groupCount += addedGroups;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':' || ++i == end) {
+                return false;
+            }
+            if (text.charAt(i) == ':') {
+                if (headCount >= 0) {
+                    return false;
+                }
+                headCount = groupCount;
+                i++;
+            }
+        }
+        if (headCount < 0) {
+            if (groupCount != 8) {
+                return false;
+            }
+        } else {
+            if (groupCount > 7) {
+                return false;
+            }
+            // Moves the head groups above the groups compressed by '::' and the tail groups
+            int shift = (8 - headCount) * 16;
+            if (shift >= 128) {
+                headHigh = 0;
+                headLow = 0;
+            } else if (shift >= 64) {
+                headHigh = headLow << (shift - 64);
+                headLow = 0;
+            } else {
+                headHigh = (headHigh << shift) | (headLow >>> (64 - shift));
+                headLow <<= shift;
+            }
+            headHigh |= tailHigh;
+            headLow |= tailLow;
+        }
+        if (result != null) {
+            result[0] = headHigh;
+            result[1] = headLow;
+        }
+        return true;
+    }
+
+    /**
+     * Parses the prefix length of a CIDR block such as '192.168.1.0/24'.
+     *
+     * @param text       the CIDR block
+     * @param separator  the position of the '/' in the text
+     * @param maxLength  the maximum prefix length, 32 for IPv4 and 128 for IPv6
+     * @return the prefix length, or -1 if the text after the separator is not a valid prefix length
+     */
+    public static int parsePrefixLength(CharSequence text, int separator, int maxLength) {
+        int length = text.length();
+        if (separator + 1 >= length || length - separator > 4) {
+            return -1;
+        }
+        int prefixLength = 0;
+        for (int i = separator + 1; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            prefixLength = prefixLength * 10 + (c - '0');
+        }
+        return prefixLength <= maxLength ? prefixLength : -1;
+    }
+
+    /**
+     * Returns the value of an ASCII hexadecimal digit. Unlike {@link Character#digit(char, int)}, the digits of
+     * other scripts, such as the fullwidth ones, are not accepted.
+     *
+     * @param c the character
+     * @return the value of the digit, or -1 if the character is not a hexadecimal digit
+     */
+    private static int hexDigit(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A pull parser of JSON documents, which reads the tokens one by one instead of building the whole document in
+ * memory, hence large documents such as GeoJSON files of boundaries can be read straight into primitive arrays.
+ * The values are read with the method of their {@link Token}, and values which are not needed are skipped with
+ * {@link #skipValue()}.
+ */
+public class JsonReader implements Closeable {
+
+    /**
+     * The tokens of a JSON document.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder text = new StringBuilder();
+    private int position;
+    private int limit;
+    private long bufferOffset;
+    private int[] scopes = new int[32];
+    private int depth = 1;
+    private Token peeked;
+
+    public JsonReader(Reader reader) {
+        this.reader = reader;
+        scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * @return the next token, without consuming it
+     * @throws IOException if the document cannot be read or is not valid JSON
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int scope = scopes[depth - 1];
+        int c = nextNonWhitespace();
+        switch (scope) {
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY:
+                if (c == ']') {
+                    peeked = Token.END_ARRAY;
+                    return peeked;
+                }
+                if (scope == NONEMPTY_ARRAY) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or ']'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                scopes[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                if (c == '}') {
+                    peeked = Token.END_OBJECT;
+                    return peeked;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                scopes[depth - 1] = DANGLING_NAME;
+                peeked = Token.NAME;
+                return peeked;
+            case DANGLING_NAME:
+                if (c != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                c = nextNonWhitespace();
+                scopes[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_DOCUMENT:
+                scopes[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                if (c != -1) {
+                    throw syntaxError("Expected the end of the document");
+                }
+                peeked = Token.END_DOCUMENT;
+                return peeked;
+        }
+        switch (c) {
+            case '{':
+                peeked = Token.BEGIN_OBJECT;
+                break;
+            case '[':
+                peeked = Token.BEGIN_ARRAY;
+                break;
+            case '"':
+                peeked = Token.STRING;
+                break;
+            case 't':
+            case 'f':
+                position--;
+                peeked = Token.BOOLEAN;
+                break;
+            case 'n':
+                position--;
+                peeked = Token.NULL;
+                break;
+            default:
+                if (c != '-' && (c < '0' || c > '9')) {
+                    throw syntaxError("Expected a value");
+                }
+                position--;
+                peeked = Token.NUMBER;
+        }
+        return peeked;
+    }
+
+    /**
+     * @return true if the current array or object has another element
+     * @throws IOException if the document cannot be read or is not valid JSON
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /**
+     * @return the next string, or the text of the next number
+     * @throws IOException if the next token is neither a string nor a number
+     */
+    public String nextString() throws IOException {
+        if (peek() == Token.NUMBER) {
+            peeked = null;
+            return readLiteral();
+        }
+        expect(Token.STRING);
+        return readString();
+    }
+
+    public double nextDouble() throws IOException {
+        expect(Token.NUMBER);
+        String literal = readLiteral();
+        try {
+            return Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number '" + literal + "'");
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        String literal = readLiteral();
+        if ("true".equals(literal)) {
+            return true;
+        } else if ("false".equals(literal)) {
+            return false;
+        }
+        throw syntaxError("Invalid literal '" + literal + "'");
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        String literal = readLiteral();
+        if (!"null".equals(literal)) {
+            throw syntaxError("Invalid literal '" + literal + "'");
+        }
+    }
+
+    /**
+     * Skips the next value, with all the elements of an array or an object.
+     *
+     * @throws IOException if the document cannot be read or is not valid JSON
+     */
+    public void skipValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_ARRAY:
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case BEGIN_OBJECT:
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case STRING:
+            case NUMBER:
+                nextString();
+                break;
+            case BOOLEAN:
+                nextBoolean();
+                break;
+            case NULL:
+                nextNull();
+                break;
+            default:
+                throw syntaxError("Expected a value but was " + peek());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void expect(Token token) throws IOException {
+        if (peek() != token) {
+            throw syntaxError("Expected " + token + " but was " + peeked);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth << 1);
+        }
+        scopes[depth++] = scope;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            bufferOffset += limit;
+            position = 0;
+            limit = reader.read(buffer, 0, buffer.length);
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    /**
+     * Reads the characters of a number or a literal, up to the next delimiter.
+     */
+    private String readLiteral() throws IOException {
+        text.setLength(0);
+        int c;
+        while ((c = read()) != -1) {
+            if (c == ',' || c == ']' || c == '}' || c == ':' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                position--;
+                break;
+            }
+            text.append((char) c);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads the characters of a string after its opening quote, up to and including its closing quote.
+     */
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return text.toString();
+            } else if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'b':
+                        text.append('\b');
+                        break;
+                    case 'f':
+                        text.append('\f');
+                        break;
+                    case 'n':
+                        text.append('\n');
+                        break;
+                    case 'r':
+                        text.append('\r');
+                        break;
+                    case 't':
+                        text.append('\t');
+                        break;
+                    case 'u':
+                        int value = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = hexDigit(read());
+                            if (digit < 0) {
+                                throw syntaxError("Invalid unicode escape sequence");
+                            }
+                            value = (value << 4) | digit;
+                        }
+                        text.append((char) value);
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        text.append((char) c);
+                        break;
+                    default:
+                        throw syntaxError("Invalid escape sequence");
+                }
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            } else {
+                text.append((char) c);
+            }
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at character " + (bufferOffset + position) + " of the JSON document");
+    }
+
+    /**
+     * @param c the character of a unicode escape sequence, whose digits JSON restricts to ASCII
+     * @return the value of the hexadecimal digit, or -1 if the character is not one
+     */
+    private static int hexDigit(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
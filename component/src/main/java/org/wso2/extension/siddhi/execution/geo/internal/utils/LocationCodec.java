@@ -0,0 +1,214 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A compact binary encoding of IP addresses with their locations. Each distinct location is written once and
+ * referred to by its position, and IPv4 addresses are written as 4 bytes, so that an encoded cache is a fraction
+ * of the size of its text form.
+ */
+public class LocationCodec {
+
+    private static final int MAGIC = 0x47454F4C;
+    private static final byte VERSION = 1;
+    private static final byte HAS_LATITUDE = 1;
+    private static final byte HAS_LONGITUDE = 2;
+    private static final byte HAS_AUTONOMOUS_SYSTEM_NUMBER = 4;
+    private static final byte IPV4_KEY = 4;
+    private static final byte TEXT_KEY = 0;
+
+    /**
+     * The encoding of IP addresses, IPv4 addresses taking 4 bytes.
+     */
+    public static final KeyCodec<String> IP_ADDRESS_CODEC = new KeyCodec<String>() {
+        @Override
+        public void write(DataOutput out, String ip) throws IOException {
+            long ipv4 = IPAddressParser.parseIPv4(ip);
+            if (ipv4 >= 0) {
+                out.writeByte(IPV4_KEY);
+                out.writeInt((int) ipv4);
+            } else {
+                out.writeByte(TEXT_KEY);
+                out.writeUTF(ip);
+            }
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readByte() == IPV4_KEY ? IPAddressParser.formatIPv4(in.readInt() & 0xFFFFFFFFL) : in.readUTF();
+        }
+    };
+
+    private LocationCodec() {
+    }
+
+    /**
+     * Writes the IP addresses with their locations.
+     *
+     * @param out     the output
+     * @param entries the locations keyed by ip address
+     * @throws IOException if the output cannot be written
+     */
+    public static void write(DataOutput out, Map<String, Location> entries) throws IOException {
+        write(out, entries, IP_ADDRESS_CODEC);
+    }
+
+    /**
+     * Writes the keys with their locations.
+     *
+     * @param out      the output
+     * @param entries  the locations by key
+     * @param keyCodec the encoding of the keys
+     * @param <K>      the type of the keys
+     * @throws IOException if the output cannot be written
+     */
+    public static <K> void write(DataOutput out, Map<K, Location> entries, KeyCodec<K> keyCodec)
+            throws IOException {
+        Map<List<Object>, Integer> locationIds = new HashMap<>();
+        List<Location> locations = new ArrayList<>();
+        for (Location location : entries.values()) {
+            if (locationIds.putIfAbsent(getKey(location), locations.size()) == null) {
+                locations.add(location);
+            }
+        }
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(locations.size());
+        for (Location location : locations) {
+            writeLocation(out, location);
+        }
+        out.writeInt(entries.size());
+        for (Map.Entry<K, Location> entry : entries.entrySet()) {
+            keyCodec.write(out, entry.getKey());
+            out.writeInt(locationIds.get(getKey(entry.getValue())));
+        }
+    }
+
+    /**
+     * Reads the IP addresses with their locations written by {@link #write(DataOutput, Map)}. All the addresses
+     * having the same location get the same instance.
+     *
+     * @param in       the input
+     * @param consumer the consumer of each ip address with its location
+     * @throws IOException if the input cannot be read or is not in this encoding
+     */
+    public static void read(DataInput in, BiConsumer<String, Location> consumer) throws IOException {
+        read(in, IP_ADDRESS_CODEC, consumer);
+    }
+
+    /**
+     * Reads the keys with their locations written by {@link #write(DataOutput, Map, KeyCodec)}. All the keys
+     * having the same location get the same instance.
+     *
+     * @param in       the input
+     * @param keyCodec the encoding of the keys
+     * @param consumer the consumer of each key with its location
+     * @param <K>      the type of the keys
+     * @throws IOException if the input cannot be read or is not in this encoding
+     */
+    public static <K> void read(DataInput in, KeyCodec<K> keyCodec, BiConsumer<K, Location> consumer)
+            throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("The input is not an encoded set of IP locations");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version '" + version + "' of the encoded IP locations");
+        }
+        Location[] locations = new Location[in.readInt()];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = readLocation(in);
+        }
+        int entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            K key = keyCodec.read(in);
+            int locationId = in.readInt();
+            if (locationId < 0 || locationId >= locations.length) {
+                throw new IOException("Invalid location '" + locationId + "' of the key '" + key + "'");
+            }
+            consumer.accept(key, locations[locationId]);
+        }
+    }
+
+    private static List<Object> getKey(Location location) {
+        return Arrays.asList(location.getCountry(), location.getSubdivision(), location.getCity(),
+                location.getLatitude(), location.getLongitude(), location.getAutonomousSystemNumber());
+    }
+
+    private static void writeLocation(DataOutput out, Location location) throws IOException {
+        byte flags = 0;
+        if (location.getLatitude() != null) {
+            flags |= HAS_LATITUDE;
+        }
+        if (location.getLongitude() != null) {
+            flags |= HAS_LONGITUDE;
+        }
+        if (location.getAutonomousSystemNumber() != null) {
+            flags |= HAS_AUTONOMOUS_SYSTEM_NUMBER;
+        }
+        out.writeByte(flags);
+        out.writeUTF(location.getCountry());
+        out.writeUTF(location.getSubdivision());
+        out.writeUTF(location.getCity());
+        if (location.getLatitude() != null) {
+            out.writeDouble(location.getLatitude());
+        }
+        if (location.getLongitude() != null) {
+            out.writeDouble(location.getLongitude());
+        }
+        if (location.getAutonomousSystemNumber() != null) {
+            out.writeUTF(location.getAutonomousSystemNumber());
+        }
+    }
+
+    private static Location readLocation(DataInput in) throws IOException {
+        byte flags = in.readByte();
+        String country = in.readUTF();
+        String subdivision = in.readUTF();
+        String city = in.readUTF();
+        Double latitude = (flags & HAS_LATITUDE) != 0 ? in.readDouble() : null;
+        Double longitude = (flags & HAS_LONGITUDE) != 0 ? in.readDouble() : null;
+        String autonomousSystemNumber = (flags & HAS_AUTONOMOUS_SYSTEM_NUMBER) != 0 ? in.readUTF() : null;
+        return new Location(country, subdivision, city, latitude, longitude, autonomousSystemNumber);
+    }
+
+    /**
+     * The binary encoding of the keys of the locations.
+     *
+     * @param <K> the type of the keys
+     */
+    public interface KeyCodec<K> {
+
+        void write(DataOutput out, K key) throws IOException;
+
+        K read(DataInput in) throws IOException;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import java.util.Locale;
+
+/**
+ * The SQL dialects in which the block containing an IPv4 address is found with a single index seek. The query
+ * takes the block with the greatest network at or below the address, which a B-tree index on the network column
+ * returns by reading one entry, whereas 'BETWEEN network AND broadcast' scans every block below the address. The
+ * caller checks the broadcast of the returned block, as the address may fall into a gap between two blocks.
+ */
+public enum RangeQueryDialect {
+
+    MYSQL("SELECT network, broadcast, geoname_id FROM BLOCKS WHERE network <= ? ORDER BY network DESC LIMIT 1"),
+    POSTGRESQL("SELECT network, broadcast, geoname_id FROM BLOCKS WHERE network <= ? ORDER BY network DESC " +
+            "LIMIT 1"),
+    H2("SELECT network, broadcast, geoname_id FROM BLOCKS WHERE network <= ? ORDER BY network DESC LIMIT 1"),
+    ORACLE("SELECT network, broadcast, geoname_id FROM (SELECT network, broadcast, geoname_id FROM BLOCKS " +
+            "WHERE network <= ? ORDER BY network DESC) WHERE ROWNUM = 1"),
+    MSSQL("SELECT TOP 1 network, broadcast, geoname_id FROM BLOCKS WHERE network <= ? ORDER BY network DESC"),
+    DB2("SELECT network, broadcast, geoname_id FROM BLOCKS WHERE network <= ? ORDER BY network DESC " +
+            "FETCH FIRST 1 ROWS ONLY");
+
+    /**
+     * The portable query of the location of the block containing the single parameter, which is used when the
+     * database has no known dialect. The result has the same columns as {@link #getNearestBlockLocationQuery()}.
+     */
+    public static final String BETWEEN_BLOCK_LOCATION_QUERY = "SELECT block.network,block.broadcast," +
+            "loc.geoname_id,loc.country_name,loc.subdivision_1_name FROM BLOCKS block , LOCATION loc WHERE ? " +
+            "BETWEEN block.network AND block.broadcast AND block.geoname_id=loc.geoname_id";
+
+    private final String nearestBlockQuery;
+
+    RangeQueryDialect(String nearestBlockQuery) {
+        this.nearestBlockQuery = nearestBlockQuery;
+    }
+
+    /**
+     * Returns the query of the location of the block with the greatest network at or below the single parameter.
+     * The result has the network, broadcast, geoname_id, country_name and subdivision_1_name columns.
+     *
+     * @return the query
+     */
+    public String getNearestBlockLocationQuery() {
+        return "SELECT block.network,block.broadcast,loc.geoname_id,loc.country_name,loc.subdivision_1_name FROM (" +
+                nearestBlockQuery + ") block , LOCATION loc WHERE block.geoname_id=loc.geoname_id";
+    }
+
+    /**
+     * Finds the dialect from the product name reported by the JDBC driver metadata.
+     *
+     * @param databaseProductName the value of {@link java.sql.DatabaseMetaData#getDatabaseProductName()}
+     * @return the dialect, or null if the database is not known
+     */
+    public static RangeQueryDialect fromProductName(String databaseProductName) {
+        if (databaseProductName == null) {
+            return null;
+        }
+        String name = databaseProductName.toLowerCase(Locale.ENGLISH);
+        if (name.contains("mysql") || name.contains("mariadb")) {
+            return MYSQL;
+        } else if (name.contains("postgresql")) {
+            return POSTGRESQL;
+        } else if (name.equals("h2")) {
+            return H2;
+        } else if (name.contains("oracle")) {
+            return ORACLE;
+        } else if (name.contains("microsoft sql server")) {
+            return MSSQL;
+        } else if (name.startsWith("db2")) {
+            return DB2;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a database connection pinned to each of the first threads using it, together with the prepared statements
+ * created on it, so that a lookup pays neither the pool checkout nor the parsing of its statements. The threads
+ * beyond the configured number of pinned connections borrow a connection from the pool for each lookup as before.
+ * A pinned connection which fails, or is found invalid when it is validated periodically, is closed and replaced.
+ * The connections pinned to threads which have died are closed when a thread finds all the pinned connections
+ * taken, and all the pinned connections are closed by {@link #closeAll()}.
+ */
+public class StatementCache {
+    private static final Log log = LogFactory.getLog(StatementCache.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final int IDLE = 0;
+    private static final int IN_USE = 1;
+    private static final int RELEASED = 2;
+
+    private final ConnectionSupplier connectionSupplier;
+    private final int maxPinnedConnections;
+    private final long validationInterval;
+    private final AtomicInteger pinnedConnectionCount = new AtomicInteger();
+    private final Set<Lease> pinnedLeases = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Lease> pinnedLease = new ThreadLocal<>();
+
+    /**
+     * Supplies the connections to the database, usually from a pool.
+     */
+    public interface ConnectionSupplier {
+        Connection getConnection() throws SQLException;
+    }
+
+    /**
+     * @param connectionSupplier   supplies the connections to the database
+     * @param maxPinnedConnections the maximum number of connections kept pinned to threads, 0 disables pinning
+     * @param validationInterval   the time in milliseconds after which a pinned connection is validated before use
+     */
+    public StatementCache(ConnectionSupplier connectionSupplier, int maxPinnedConnections, long validationInterval) {
+        this.connectionSupplier = connectionSupplier;
+        this.maxPinnedConnections = maxPinnedConnections;
+        this.validationInterval = validationInterval;
+    }
+
+    /**
+     * Returns the connection of the current thread. The lease has to be closed after use, and invalidated before
+     * that if a statement failed.
+     *
+     * @return the lease of the connection
+     * @throws SQLException if no connection can be obtained
+     */
+    public Lease acquire() throws SQLException {
+        Lease lease = pinnedLease.get();
+        if (lease != null) {
+            // Fails if the lease has been closed by another thread
+            if (lease.state.compareAndSet(IDLE, IN_USE)) {
+                if (lease.isValid()) {
+                    return lease;
+                }
+                lease.release();
+            }
+            pinnedLease.remove();
+        }
+        if (maxPinnedConnections > 0 && pinnedConnectionCount.get() >= maxPinnedConnections) {
+            releaseLeasesOfDeadThreads();
+        }
+        Connection connection = connectionSupplier.getConnection();
+        if (pinnedConnectionCount.incrementAndGet() <= maxPinnedConnections) {
+            lease = new Lease(connection, Thread.currentThread());
+            pinnedLease.set(lease);
+            pinnedLeases.add(lease);
+            return lease;
+        }
+        pinnedConnectionCount.decrementAndGet();
+        return new Lease(connection, null);
+    }
+
+    /**
+     * Closes all the pinned connections with their statements, such as when the resolver is shut down, returning
+     * them to the pool. A connection which is in use right now is closed by its thread when the lease is closed.
+     */
+    public void closeAll() {
+        for (Lease lease : pinnedLeases) {
+            lease.invalidate();
+            if (lease.state.compareAndSet(IDLE, IN_USE)) {
+                lease.release();
+            }
+        }
+    }
+
+    /**
+     * Closes the pinned connections of the threads which have died, whose leases would otherwise hold their
+     * connections and their places among the pinned connections forever.
+     */
+    private void releaseLeasesOfDeadThreads() {
+        for (Lease lease : pinnedLeases) {
+            // The lease of a dead thread is released even if it was left in use, as nothing can use it anymore
+            if (!lease.owner.isAlive()) {
+                lease.release();
+            }
+        }
+    }
+
+    public int getPinnedConnectionCount() {
+        return pinnedConnectionCount.get();
+    }
+
+    /**
+     * A connection lent to the current thread together with the statements prepared on it.
+     */
+    public class Lease implements AutoCloseable {
+        private final Connection connection;
+        private final Thread owner;
+        private final boolean isPinned;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private final List<PreparedStatement> uncachedStatements = new ArrayList<>();
+        // A pinned lease is idle between the lookups of its thread, when another thread may claim it to close it
+        private final AtomicInteger state = new AtomicInteger(IN_USE);
+        private volatile boolean isInvalid;
+        private long lastValidationTime;
+
+        private Lease(Connection connection, Thread owner) {
+            this.connection = connection;
+            this.owner = owner;
+            this.isPinned = owner != null;
+            this.lastValidationTime = System.currentTimeMillis();
+        }
+
+        /**
+         * Returns the prepared statement of the query. The statement must not be closed by the caller, but its
+         * result sets must be.
+         *
+         * @param sql the query
+         * @return the prepared statement
+         * @throws SQLException if the statement cannot be prepared
+         */
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        /**
+         * Returns a statement for a query which is not worth caching, such as one with a variable number of
+         * parameters. The statement is closed with the lease.
+         *
+         * @param sql the query
+         * @return the prepared statement
+         * @throws SQLException if the statement cannot be prepared
+         */
+        public PreparedStatement prepareUncachedStatement(String sql) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            uncachedStatements.add(statement);
+            return statement;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Marks the connection as failed, so that it is closed and replaced instead of being reused.
+         */
+        public void invalidate() {
+            isInvalid = true;
+        }
+
+        @Override
+        public void close() {
+            closeStatements(uncachedStatements);
+            uncachedStatements.clear();
+            if (!isPinned || isInvalid) {
+                release();
+                return;
+            }
+            state.set(IDLE);
+            // Closes the lease if closeAll() was called while it was in use, unless closeAll() has claimed it since
+            if (isInvalid && state.compareAndSet(IDLE, IN_USE)) {
+                release();
+            }
+        }
+
+        private boolean isValid() {
+            if (isInvalid) {
+                return false;
+            }
+            long currentTime = System.currentTimeMillis();
+            if (currentTime - lastValidationTime < validationInterval) {
+                return true;
+            }
+            try {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    lastValidationTime = currentTime;
+                    return true;
+                }
+            } catch (SQLException e) {
+                log.debug("Pinned connection validation failed", e);
+            }
+            return false;
+        }
+
+        private void release() {
+            if (state.getAndSet(RELEASED) == RELEASED) {
+                return;
+            }
+            closeStatements(statements.values());
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.error("Couldn't close connection", e);
+            }
+            if (isPinned) {
+                pinnedLeases.remove(this);
+                pinnedConnectionCount.decrementAndGet();
+                if (pinnedLease.get() == this) {
+                    pinnedLease.remove();
+                }
+            }
+        }
+
+        private void closeStatements(Iterable<PreparedStatement> statementsToClose) {
+            for (PreparedStatement statement : statementsToClose) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    log.error("Couldn't close Statement", e);
+                }
+            }
+        }
+    }
+}
@@ -17,36 +17,19 @@
  */
 package org.wso2.extension.siddhi.execution.geo.internal.utils;
 
-import java.util.regex.Pattern;
-
 /**
  * This class provides validation method to validate IP addresses.
  */
 public class Utilities {
 
-    private static final Pattern IPV4_PATTERN =
-            Pattern.compile(
-                    "^(25[0-5]|2[0-4]\\d|[0-1]?\\d?\\d)(\\.(25[0-5]|2[0-4]\\d|[0-1]?\\d?\\d)){3}$");
-
-    private static final Pattern IPV6_STD_PATTERN =
-            Pattern.compile(
-                    "^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$");
-
-    private static final Pattern IPV6_HEX_COMPRESSED_PATTERN =
-            Pattern.compile(
-                    "^((?:[0-9A-Fa-f]{1,4}(?::[0-9A-Fa-f]{1,4})*)?)::((?:[0-9A-Fa-f]{1,4}(?::[0-9A-Fa-f]{1,4})*)?)$");
-
     /**
-     * Determine if the given string is a valid IPv4 or IPv6 address. This method
-     * uses pattern matching to see if the given string could be a valid IP address.
+     * Determine if the given string is a valid IPv4 or IPv6 address. The string is parsed in place with
+     * {@link IPAddressParser}, without any regular expression or name lookup.
      *
      * @param ipAddress A string that is to be examined to verify whether or not it could be a valid IP address.
      * @return true if the string is a value that is a valid IP address, false otherwise.
      */
     public static boolean isIpAddress(String ipAddress) {
-
-        return (IPV4_PATTERN.matcher(ipAddress).matches() ||
-                IPV6_STD_PATTERN.matcher(ipAddress).matches() ||
-                IPV6_HEX_COMPRESSED_PATTERN.matcher(ipAddress).matches());
+        return ipAddress != null && IPAddressParser.isIpAddress(ipAddress);
     }
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.query.output.callback.QueryCallback;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.util.SiddhiTestHelper;
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.core.util.config.InMemoryConfigManager;
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.GeoLocationResolver;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for the ipLocation Stream Function.
+ */
+public class IPLocationEnrichmentStreamFunctionProcessorTest {
+
+    private static final Logger logger = Logger.getLogger(IPLocationEnrichmentStreamFunctionProcessorTest.class);
+    private static final AtomicInteger resolverCalls = new AtomicInteger(0);
+    private static final AtomicInteger singleResolverCalls = new AtomicInteger(0);
+    private static final AtomicInteger resolvedIps = new AtomicInteger(0);
+
+    @Test
+    public void ipLocationEnrichmentStreamFunctionProcessorTest1() throws Exception {
+        logger.info("Test ipLocation 1 - Test all the location details are returned and the cache is shared");
+        Map<String, String> masterConfigs = new HashMap<>();
+        masterConfigs.put("geo.ipLocation.geoLocationResolverClass", DetailedGeoLocationResolver.class.getName());
+        masterConfigs.put("geo.findCityFromIP.geoLocationResolverClass", DetailedGeoLocationResolver.class.getName());
+        SiddhiManager siddhiManager = new SiddhiManager();
+        InMemoryConfigManager inMemoryConfigManager = new InMemoryConfigManager(masterConfigs, null);
+        inMemoryConfigManager.generateConfigReader("geo", "ipLocation");
+        inMemoryConfigManager.generateConfigReader("geo", "findCityFromIP");
+        siddhiManager.setConfigManager(inMemoryConfigManager);
+        String inStreamDefinition = "define stream inputStream (ip String);";
+        String query = ("@info(name = 'query') "
+                + "from inputStream#geo:ipLocation(ip) "
+                + "select ip, country, subdivision, city, latitude, longitude, asn "
+                + "insert into outputStream;"
+                + "@info(name = 'query2') "
+                + "from inputStream "
+                + "select ip, geo:findCityFromIP(ip) as city "
+                + "insert into outputStream2;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+
+        List<Object[]> results = new ArrayList<>();
+        AtomicInteger count = new AtomicInteger(0);
+        siddhiAppRuntime.addCallback("query", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                for (Event event : inEvents) {
+                    results.add(event.getData());
+                    count.incrementAndGet();
+                }
+            }
+        });
+        List<Object[]> results2 = new ArrayList<>();
+        AtomicInteger count2 = new AtomicInteger(0);
+        siddhiAppRuntime.addCallback("query2", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                for (Event event : inEvents) {
+                    results2.add(event.getData());
+                    count2.incrementAndGet();
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("inputStream");
+        long timestamp = System.currentTimeMillis();
+        inputHandler.send(new Event[]{
+                new Event(timestamp, new Object[]{"95.31.18.119"}),
+                new Event(timestamp, new Object[]{"10.100.0.1"})
+        });
+        SiddhiTestHelper.waitForEvents(100, 2, count, 60000);
+        SiddhiTestHelper.waitForEvents(100, 2, count2, 60000);
+        AssertJUnit.assertEquals("Russia", results.get(0)[1]);
+        AssertJUnit.assertEquals("Moscow", results.get(0)[2]);
+        AssertJUnit.assertEquals("Moscow", results.get(0)[3]);
+        AssertJUnit.assertEquals(55.7386, results.get(0)[4]);
+        AssertJUnit.assertEquals(37.6068, results.get(0)[5]);
+        AssertJUnit.assertEquals("8402", results.get(0)[6]);
+        AssertJUnit.assertEquals("", results.get(1)[1]);
+        AssertJUnit.assertNull(results.get(1)[4]);
+        AssertJUnit.assertEquals("Moscow", results2.get(0)[1]);
+        // Both functions use the same resolver, the second one finds the IPs in the shared cache
+        AssertJUnit.assertEquals(1, resolverCalls.get());
+        AssertJUnit.assertEquals(0, singleResolverCalls.get());
+        siddhiAppRuntime.shutdown();
+    }
+
+    @Test
+    public void ipLocationEnrichmentStreamFunctionProcessorTest2() throws Exception {
+        logger.info("Test ipLocation 2 - Test the IPs of an event chunk are resolved together");
+        Map<String, String> masterConfigs = new HashMap<>();
+        masterConfigs.put("geo.ipLocation.geoLocationResolverClass", StaticGeoLocationResolver.class.getName());
+        SiddhiManager siddhiManager = new SiddhiManager();
+        InMemoryConfigManager inMemoryConfigManager = new InMemoryConfigManager(masterConfigs, null);
+        inMemoryConfigManager.generateConfigReader("geo", "ipLocation");
+        siddhiManager.setConfigManager(inMemoryConfigManager);
+        String inStreamDefinition = "define stream inputStream (ip String);";
+        String query = ("@info(name = 'query') "
+                + "from inputStream#geo:ipLocation(ip) "
+                + "select ip, country, city "
+                + "insert into outputStream;"
+        );
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(inStreamDefinition + query);
+
+        List<Object[]> results = new ArrayList<>();
+        AtomicInteger count = new AtomicInteger(0);
+        siddhiAppRuntime.addCallback("query", new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                for (Event event : inEvents) {
+                    results.add(event.getData());
+                    count.incrementAndGet();
+                }
+            }
+        });
+        siddhiAppRuntime.start();
+
+        InputHandler inputHandler = siddhiAppRuntime.getInputHandler("inputStream");
+        long timestamp = System.currentTimeMillis();
+        int calls = resolverCalls.get();
+        inputHandler.send(new Event[]{
+                new Event(timestamp, new Object[]{"95.31.18.119"}),
+                new Event(timestamp, new Object[]{"10.100.0.1"}),
+                new Event(timestamp, new Object[]{"95.31.18.119"}),
+                new Event(timestamp, new Object[]{"1.0.0.1"})
+        });
+        SiddhiTestHelper.waitForEvents(100, 4, count, 60000);
+        AssertJUnit.assertEquals(calls + 1, resolverCalls.get());
+        AssertJUnit.assertEquals(3, resolvedIps.get());
+        AssertJUnit.assertEquals("Russia", results.get(0)[1]);
+        AssertJUnit.assertEquals("Moscow", results.get(0)[2]);
+        AssertJUnit.assertEquals("", results.get(1)[1]);
+        AssertJUnit.assertEquals("Moscow", results.get(2)[2]);
+        AssertJUnit.assertEquals("Australia", results.get(3)[1]);
+
+        // All the IPs are cached now, including the unresolved one
+        inputHandler.send(new Event[]{
+                new Event(timestamp, new Object[]{"10.100.0.1"}),
+                new Event(timestamp, new Object[]{"1.0.0.1"})
+        });
+        SiddhiTestHelper.waitForEvents(100, 6, count, 60000);
+        AssertJUnit.assertEquals(calls + 1, resolverCalls.get());
+        AssertJUnit.assertEquals("Queensland", results.get(5)[2]);
+        siddhiAppRuntime.shutdown();
+    }
+
+    /**
+     * A GeoLocationResolver which knows a fixed IP address with all its details and counts the calls.
+     */
+    public static class DetailedGeoLocationResolver implements GeoLocationResolver {
+
+        private static Location locate(String ip) {
+            if ("95.31.18.119".equals(ip)) {
+                return new Location("Russia", "Moscow", "Moscow", 55.7386, 37.6068, "8402");
+            }
+            return new Location("", "", ip);
+        }
+
+        @Override
+        public Location getGeoLocationInfo(String ip) {
+            singleResolverCalls.incrementAndGet();
+            return locate(ip);
+        }
+
+        @Override
+        public Map<String, Location> getGeoLocationInfo(Collection<String> ips) {
+            resolverCalls.incrementAndGet();
+            Map<String, Location> locations = new HashMap<>();
+            for (String ip : ips) {
+                locations.put(ip, locate(ip));
+            }
+            return locations;
+        }
+
+        @Override
+        public void init(ConfigReader configReader) {
+        }
+    }
+
+    /**
+     * A GeoLocationResolver which knows a fixed set of IP addresses and counts the batch calls.
+     */
+    public static class StaticGeoLocationResolver implements GeoLocationResolver {
+
+        @Override
+        public Location getGeoLocationInfo(String ip) {
+            switch (ip) {
+                case "95.31.18.119":
+                    return new Location("Russia", "Moscow");
+                case "1.0.0.1":
+                    return new Location("Australia", "Queensland");
+                default:
+                    return new Location("", "", ip);
+            }
+        }
+
+        @Override
+        public Map<String, Location> getGeoLocationInfo(Collection<String> ips) {
+            resolverCalls.incrementAndGet();
+            resolvedIps.addAndGet(ips.size());
+            Map<String, Location> locations = new HashMap<>();
+            for (String ip : ips) {
+                locations.put(ip, getGeoLocationInfo(ip));
+            }
+            return locations;
+        }
+
+        @Override
+        public void init(ConfigReader configReader) {
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+/**
+ * Test case for the cache of the geocode results.
+ */
+public class GeocodeCacheTest {
+
+    private static final Logger logger = Logger.getLogger(GeocodeCacheTest.class);
+
+    @Test
+    public void testNormalizedKeysAndExpiry() {
+        logger.info("GeocodeCache 1 - Test the spellings of an address share an entry until it expires");
+        GeocodeCache cache = new GeocodeCache(100, 1000);
+        GeocodeCache.Result result = new GeocodeCache.Result("5 Avenue Anatole France, 75007 Paris, France",
+                48.8588871d, 2.2944861d);
+        cache.put("5 Avenue Anatole France, 75007 Paris, France", result, 0);
+        AssertJUnit.assertSame(result, cache.get("5 av. anatole france 75007 PARIS FRANCE", 999));
+        AssertJUnit.assertNull(cache.get("5 Avenue Anatole France, 75008 Paris, France", 999));
+        AssertJUnit.assertNull(cache.get("5 Avenue Anatole France, 75007 Paris, France", 1000));
+        AssertJUnit.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSnapshotAndRestoreState() {
+        logger.info("GeocodeCache 2 - Test the cached results are restored from a snapshot");
+        GeocodeCache cache = new GeocodeCache(100, 60000);
+        cache.put("1600 Amphitheatre Pkwy, Mountain View, CA",
+                new GeocodeCache.Result("1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA", 37.42, -122.08));
+        Map<String, Object> state = cache.snapshotState();
+
+        GeocodeCache restoredCache = new GeocodeCache(100, 60000);
+        restoredCache.restoreState(state);
+        GeocodeCache.Result result = restoredCache.get("1600 amphitheatre parkway mountain view ca");
+        AssertJUnit.assertEquals("1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA",
+                result.getFormattedAddress());
+        AssertJUnit.assertEquals(37.42, result.getLatitude(), 0);
+        AssertJUnit.assertEquals(-122.08, result.getLongitude(), 0);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test case for the IP location cache.
+ */
+public class IPLocationCacheTest {
+
+    private static final Logger logger = Logger.getLogger(IPLocationCacheTest.class);
+
+    @Test
+    public void testIPv4Entries() {
+        logger.info("IPLocationCache 1 - Test IPv4 entries share one location per country and city");
+        IPLocationCache cache = new IPLocationCache(1000);
+        cache.put("1.2.3.4", new Location("Japan", "Tokyo", "1.2.3.4"));
+        cache.put("1.2.3.5", new Location("Japan", "Tokyo", "1.2.3.5"));
+        cache.put("95.31.18.119", new Location("Russia", "Moscow", "95.31.18.119"));
+        AssertJUnit.assertEquals("Tokyo", cache.get("1.2.3.4").getCity());
+        AssertJUnit.assertSame(cache.get("1.2.3.4"), cache.get("1.2.3.5"));
+        AssertJUnit.assertEquals("Russia", cache.get("95.31.18.119").getCountry());
+        AssertJUnit.assertNull(cache.get("1.2.3.6"));
+    }
+
+    @Test
+    public void testOtherEntries() {
+        logger.info("IPLocationCache 2 - Test IPv6 and CIDR entries");
+        IPLocationCache cache = new IPLocationCache(1000);
+        cache.put("2a01:7e00::f03c:91ff:fe44:6903", new Location("United Kingdom", "England", null));
+        cache.put("1.0.0.0/24", new Location("Australia", "Queensland", null));
+        AssertJUnit.assertEquals("England", cache.get("2a01:7e00::f03c:91ff:fe44:6903").getCity());
+        AssertJUnit.assertEquals("Australia", cache.get("1.0.0.0/24").getCountry());
+        AssertJUnit.assertNull(cache.get("1.0.0.0"));
+    }
+
+    @Test
+    public void testBoundedIPv4Entries() {
+        logger.info("IPLocationCache 3 - Test IPv4 entries are replaced when the cache is full");
+        IPLocationCache cache = new IPLocationCache(64);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("10.0." + (i / 256) + "." + (i % 256), new Location("Country" + (i % 3), "City", null));
+        }
+        int hits = 0;
+        for (int i = 0; i < 1000; i++) {
+            Location location = cache.get("10.0." + (i / 256) + "." + (i % 256));
+            if (location != null) {
+                AssertJUnit.assertEquals("Country" + (i % 3), location.getCountry());
+                hits++;
+            }
+        }
+        AssertJUnit.assertTrue(hits > 0 && hits <= 64);
+    }
+
+    @Test
+    public void testDetailedIPv4Entries() {
+        logger.info("IPLocationCache 4 - Test IPv4 entries keep the details of their own network");
+        IPLocationCache cache = new IPLocationCache(64);
+        cache.put("95.31.18.119", new Location("Russia", "Moscow", "Moscow", 55.7386, 37.6068, "8402"));
+        cache.put("95.31.18.120", new Location("Russia", "Moscow", "Moscow", 55.7522, 37.6156, "8359"));
+        AssertJUnit.assertEquals("8402", cache.get("95.31.18.119").getAutonomousSystemNumber());
+        AssertJUnit.assertEquals("8359", cache.get("95.31.18.120").getAutonomousSystemNumber());
+        AssertJUnit.assertEquals(55.7522, cache.get("95.31.18.120").getLatitude());
+    }
+
+    @Test
+    public void testScanResistance() {
+        logger.info("IPLocationCache 5 - Test frequently hit IPv4 entries survive a scan of addresses seen once");
+        IPLocationCache cache = new IPLocationCache(1024);
+        Location location = new Location("Sri Lanka", "Colombo", null);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 64; i++) {
+                String ip = "10.0.0." + i;
+                if (cache.get(ip) == null) {
+                    cache.put(ip, location);
+                }
+            }
+        }
+        // A random replacement of the bucket entries misses about one in twelve hits of the hot addresses
+        int misses = 0;
+        for (int i = 0; i < 100000; i++) {
+            String ip = "172." + (16 + i / 65536) + "." + ((i / 256) % 256) + "." + (i % 256);
+            if (cache.get(ip) == null) {
+                cache.put(ip, location);
+            }
+            if (i % 2 == 0) {
+                ip = "10.0.0." + ((i / 2) % 64);
+                if (cache.get(ip) == null) {
+                    cache.put(ip, location);
+                    misses++;
+                }
+            }
+        }
+        AssertJUnit.assertEquals(0, misses);
+    }
+
+    @Test
+    public void testBoundedLocations() {
+        logger.info("IPLocationCache 6 - Test the shared locations are bounded");
+        LocationRegistry registry = new LocationRegistry(2);
+        int first = registry.register(new Location("Russia", "Moscow", null));
+        int second = registry.register(new Location("Russia", "Kazan", null));
+        AssertJUnit.assertEquals(first, registry.register(new Location("Russia", "Moscow", null)));
+        AssertJUnit.assertEquals(-1, registry.register(new Location("Russia", "Samara", null)));
+        AssertJUnit.assertEquals("Kazan", registry.get(second).getCity());
+        BitSet referenced = new BitSet();
+        referenced.set(second);
+        AssertJUnit.assertEquals(1, registry.retainAll(referenced));
+        AssertJUnit.assertEquals(first, registry.register(new Location("Russia", "Samara", null)));
+        AssertJUnit.assertEquals("Samara", registry.get(first).getCity());
+        AssertJUnit.assertEquals(second, registry.register(new Location("Russia", "Kazan", null)));
+        AssertJUnit.assertEquals(-1, registry.register(new Location("Russia", "Moscow", null)));
+
+        // Every network has a location of its own, as with the coordinates of a MaxMind database
+        IPLocationCache cache = new IPLocationCache(1024);
+        Map<String, String> cities = new HashMap<>();
+        int misses = 0;
+        for (int i = 0; i < 100000; i++) {
+            String ip = "172." + (16 + i / 65536) + "." + ((i / 256) % 256) + "." + (i % 256);
+            cities.put(ip, "City" + i);
+            cache.put(ip, new Location("Country", "Region", "City" + i, i / 1000.0, i / 1000.0, "64512"));
+            AssertJUnit.assertEquals("City" + i, cache.get(ip).getCity());
+            if (i % 2 == 0) {
+                ip = "10.0.0." + ((i / 2) % 64);
+                Location location = cache.get(ip);
+                if (location == null) {
+                    location = new Location("Country", "Region", "Hot" + ((i / 2) % 64), -1.0, -1.0, "64513");
+                    cache.put(ip, location);
+                    misses++;
+                }
+                AssertJUnit.assertEquals("Hot" + ((i / 2) % 64), location.getCity());
+            }
+        }
+        // Only the first hit of each hot address misses, the registry never drops the hot entries
+        AssertJUnit.assertEquals(64, misses);
+        AssertJUnit.assertTrue(cache.getLocationCount() <= 2048);
+        int[] entries = new int[1];
+        cache.forEach((ip, location) -> {
+            if (ip.startsWith("172.")) {
+                AssertJUnit.assertEquals(cities.get(ip), location.getCity());
+            }
+            entries[0]++;
+        });
+        AssertJUnit.assertTrue(entries[0] > 0 && entries[0] <= 1024);
+        AssertJUnit.assertEquals(100064 - entries[0], cache.getEvictionCount());
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.GeoLocationResolver;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.metrics.LookupMetrics;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+
+/**
+ * Test case for the resolution and the caching of IP locations shared by the geo functions.
+ */
+public class IPLocationServiceTest {
+
+    private static final Logger logger = Logger.getLogger(IPLocationServiceTest.class);
+
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private final AtomicReference<Map<String, Object>> restoredResolverState = new AtomicReference<>();
+    private final AtomicInteger datasetGeneration = new AtomicInteger();
+    private final AtomicBoolean isBackendDown = new AtomicBoolean();
+
+    private IPLocationService createService(boolean isCacheEnabled) {
+        singleCalls.set(0);
+        batchCalls.set(0);
+        datasetGeneration.set(0);
+        isBackendDown.set(false);
+        GeoLocationResolver resolver = new GeoLocationResolver() {
+            @Override
+            public void init(ConfigReader configReader) {
+            }
+
+            @Override
+            public Location getGeoLocationInfo(String ip) {
+                singleCalls.incrementAndGet();
+                return resolve(ip);
+            }
+
+            @Override
+            public Map<String, Location> getGeoLocationInfo(Collection<String> ips) {
+                batchCalls.incrementAndGet();
+                Map<String, Location> locations = new HashMap<>();
+                for (String ip : ips) {
+                    if (!isBackendDown.get()) {
+                        locations.put(ip, resolve(ip));
+                    }
+                }
+                return locations;
+            }
+
+            @Override
+            public void loadResolvedLocations(int maxCount, BiPredicate<String, Location> consumer) {
+                for (int i = 0; i < maxCount && i < 3; i++) {
+                    if (!consumer.test("95.31.18." + i, new Location("Russia", "Moscow"))) {
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public Map<String, Object> snapshotState() {
+                return Collections.singletonMap("calls", singleCalls.get());
+            }
+
+            @Override
+            public void restoreState(Map<String, Object> state) {
+                restoredResolverState.set(state);
+            }
+
+            @Override
+            public boolean reload() {
+                datasetGeneration.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public long getDatasetGeneration() {
+                return datasetGeneration.get();
+            }
+
+            @Override
+            public String getDatasetFingerprint() {
+                return "version-" + datasetGeneration.get();
+            }
+
+            private Location resolve(String ip) {
+                if (isBackendDown.get()) {
+                    return null;
+                }
+                if (!"95.31.18.119".equals(ip)) {
+                    return new Location("", "", ip);
+                }
+                return datasetGeneration.get() == 0 ? new Location("Russia", "Moscow") :
+                        new Location("Russian Federation", "Moscow");
+            }
+        };
+        return isCacheEnabled ? new IPLocationService(resolver, new IPLocationCache(100),
+                new NegativeLocationCache(100, 60000)) : new IPLocationService(resolver, null, null);
+    }
+
+    @Test
+    public void testGetLocation() {
+        logger.info("IPLocationServiceTest TestCase 1");
+        IPLocationService service = createService(true);
+        AssertJUnit.assertEquals("Russia", service.getLocation("95.31.18.119").getCountry());
+        AssertJUnit.assertSame(IPLocationService.UNRESOLVED_LOCATION, service.getLocation("10.100.0.1"));
+        AssertJUnit.assertEquals("Moscow", service.getLocation("95.31.18.119").getCity());
+        AssertJUnit.assertSame(IPLocationService.UNRESOLVED_LOCATION, service.getLocation("10.100.0.1"));
+        AssertJUnit.assertEquals(2, singleCalls.get());
+    }
+
+    @Test
+    public void testGetLocations() {
+        logger.info("IPLocationServiceTest TestCase 2");
+        IPLocationService service = createService(true);
+        Map<String, Location> locations = service.getLocations(Arrays.asList("95.31.18.119", "10.100.0.1",
+                "95.31.18.119"));
+        AssertJUnit.assertEquals(2, locations.size());
+        AssertJUnit.assertEquals("Russia", locations.get("95.31.18.119").getCountry());
+        AssertJUnit.assertSame(IPLocationService.UNRESOLVED_LOCATION, locations.get("10.100.0.1"));
+        AssertJUnit.assertEquals(1, batchCalls.get());
+
+        // Served from the caches of resolved and unresolved IP addresses
+        locations = service.getLocations(Arrays.asList("10.100.0.1", "95.31.18.119"));
+        AssertJUnit.assertEquals(2, locations.size());
+        AssertJUnit.assertEquals(1, batchCalls.get());
+        AssertJUnit.assertEquals("Moscow", service.getLocation("95.31.18.119").getCity());
+        AssertJUnit.assertEquals(0, singleCalls.get());
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        logger.info("IPLocationServiceTest TestCase 3");
+        IPLocationService service = createService(false);
+        service.getLocation("95.31.18.119");
+        service.getLocation("95.31.18.119");
+        service.getLocations(Arrays.asList("95.31.18.119", "10.100.0.1"));
+        service.getLocations(Arrays.asList("95.31.18.119", "10.100.0.1"));
+        AssertJUnit.assertEquals(2, singleCalls.get());
+        AssertJUnit.assertEquals(2, batchCalls.get());
+    }
+
+    @Test
+    public void testWarmUpFromResolvedLocations() {
+        logger.info("IPLocationServiceTest TestCase 4");
+        IPLocationService service = createService(true);
+        AssertJUnit.assertEquals(2, service.loadResolvedLocations(2, Long.MAX_VALUE));
+        AssertJUnit.assertEquals("Moscow", service.getLocation("95.31.18.0").getCity());
+        AssertJUnit.assertEquals("Moscow", service.getLocation("95.31.18.1").getCity());
+        AssertJUnit.assertEquals(0, singleCalls.get());
+        AssertJUnit.assertSame(IPLocationService.UNRESOLVED_LOCATION, service.getLocation("95.31.18.2"));
+        AssertJUnit.assertEquals(1, singleCalls.get());
+
+        // Nothing is loaded once the time budget is spent
+        AssertJUnit.assertEquals(0, createService(true).loadResolvedLocations(2, 0));
+    }
+
+    @Test
+    public void testWarmUpFromSnapshot() throws Exception {
+        logger.info("IPLocationServiceTest TestCase 5");
+        File snapshotFile = File.createTempFile("geo-cache", ".snapshot");
+        try {
+            IPLocationService service = createService(true);
+            service.getLocation("95.31.18.119");
+            service.getLocation("10.100.0.1");
+            service.writeSnapshot(snapshotFile, 10);
+
+            service = createService(true);
+            AssertJUnit.assertEquals(1, service.loadSnapshot(snapshotFile, 10, Long.MAX_VALUE));
+            AssertJUnit.assertEquals("Moscow", service.getLocation("95.31.18.119").getCity());
+            AssertJUnit.assertEquals(0, singleCalls.get());
+        } finally {
+            AssertJUnit.assertTrue(snapshotFile.delete());
+        }
+        AssertJUnit.assertEquals(0, createService(true).loadSnapshot(snapshotFile, 10, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSnapshotAndRestoreState() {
+        logger.info("IPLocationServiceTest TestCase 6");
+        IPLocationService service = createService(true);
+        service.getLocation("95.31.18.119");
+        service.getLocation("10.100.0.1");
+        Map<String, Object> state = service.snapshotState();
+
+        service = createService(true);
+        restoredResolverState.set(null);
+        service.restoreState(state);
+        AssertJUnit.assertEquals("Moscow", service.getLocation("95.31.18.119").getCity());
+        AssertJUnit.assertEquals(0, singleCalls.get());
+        AssertJUnit.assertEquals(Collections.singletonMap("calls", 2), restoredResolverState.get());
+    }
+
+    @Test
+    public void testReloadDropsCachedLocations() {
+        logger.info("IPLocationServiceTest TestCase 7");
+        IPLocationService service = createService(true);
+        AssertJUnit.assertEquals("Russia", service.getLocation("95.31.18.119").getCountry());
+        AssertJUnit.assertEquals("Russia", service.getLocation("95.31.18.119").getCountry());
+        AssertJUnit.assertEquals(1, singleCalls.get());
+
+        AssertJUnit.assertTrue(service.reload());
+        AssertJUnit.assertEquals("Russian Federation", service.getLocation("95.31.18.119").getCountry());
+        AssertJUnit.assertEquals("Russian Federation", service.getLocation("95.31.18.119").getCountry());
+        AssertJUnit.assertEquals(2, singleCalls.get());
+    }
+
+    @Test
+    public void testBackendFailureIsNotCached() {
+        logger.info("IPLocationServiceTest TestCase 8");
+        IPLocationService service = createService(true);
+        isBackendDown.set(true);
+        AssertJUnit.assertSame(IPLocationService.UNRESOLVED_LOCATION, service.getLocation("95.31.18.119"));
+        Map<String, Location> locations = service.getLocations(Arrays.asList("95.31.18.119", "10.100.0.1"));
+        AssertJUnit.assertSame(IPLocationService.UNRESOLVED_LOCATION, locations.get("95.31.18.119"));
+        AssertJUnit.assertSame(IPLocationService.UNRESOLVED_LOCATION, locations.get("10.100.0.1"));
+
+        // Resolved again once the backend is up, rather than served from the negative cache
+        isBackendDown.set(false);
+        AssertJUnit.assertEquals("Russia", service.getLocation("95.31.18.119").getCountry());
+        locations = service.getLocations(Arrays.asList("95.31.18.119", "10.100.0.1"));
+        AssertJUnit.assertEquals("Russia", locations.get("95.31.18.119").getCountry());
+        AssertJUnit.assertSame(IPLocationService.UNRESOLVED_LOCATION, locations.get("10.100.0.1"));
+        AssertJUnit.assertEquals(2, singleCalls.get());
+        AssertJUnit.assertEquals(2, batchCalls.get());
+    }
+
+    @Test
+    public void testStateOfAnotherDatasetIsNotRestored() {
+        logger.info("IPLocationServiceTest TestCase 9");
+        IPLocationService service = createService(true);
+        service.getLocation("95.31.18.119");
+        Map<String, Object> state = service.snapshotState();
+
+        service = createService(true);
+        AssertJUnit.assertTrue(service.reload());
+        restoredResolverState.set(null);
+        service.restoreState(state);
+        AssertJUnit.assertEquals("Russian Federation", service.getLocation("95.31.18.119").getCountry());
+        AssertJUnit.assertEquals(1, singleCalls.get());
+        AssertJUnit.assertNull(restoredResolverState.get());
+    }
+
+    @Test
+    public void testStateIsStoredOncePerService() {
+        logger.info("IPLocationServiceTest TestCase 10");
+        IPLocationService service = createService(true);
+        service.getLocation("95.31.18.119");
+        IPLocationServiceState cityFunctionState = new IPLocationServiceState(service);
+        IPLocationServiceState countryFunctionState = new IPLocationServiceState(service);
+        Map<String, Object> state = cityFunctionState.snapshot();
+        AssertJUnit.assertTrue(countryFunctionState.snapshot().isEmpty());
+        AssertJUnit.assertFalse(cityFunctionState.snapshot().isEmpty());
+
+        service = createService(true);
+        new IPLocationServiceState(service).restore(state);
+        AssertJUnit.assertEquals("Moscow", service.getLocation("95.31.18.119").getCity());
+        AssertJUnit.assertEquals(0, singleCalls.get());
+    }
+
+    @Test
+    public void testGaugesOfAllServices() throws Exception {
+        logger.info("IPLocationServiceTest TestCase 11");
+        IPLocationService firstService = IPLocationService.getInstance(configReader(FirstResolver.class, 0));
+        IPLocationService secondService = IPLocationService.getInstance(configReader(SecondResolver.class, 0));
+        try {
+            for (int i = 0; i < 1000; i++) {
+                firstService.getLocation("10.0." + (i / 256) + "." + (i % 256));
+                secondService.getLocation("10.1." + (i / 256) + "." + (i % 256));
+            }
+            AssertJUnit.assertTrue(firstService.getEvictionCount() > 0);
+            AssertJUnit.assertTrue(secondService.getEvictionCount() > 0);
+            LookupMetrics metrics = LookupMetrics.getInstance(LookupMetrics.IP_LOCATION);
+            AssertJUnit.assertTrue((Long) metrics.getAttribute("CacheEvictions") >=
+                    firstService.getEvictionCount() + secondService.getEvictionCount());
+        } finally {
+            IPLocationService.shutdownAll();
+        }
+    }
+
+    @Test
+    public void testShutdownStopsReloadChecks() throws Exception {
+        logger.info("IPLocationServiceTest TestCase 12");
+        ConfigReader configReader = configReader(FirstResolver.class, 10);
+        int shutdownCount = FirstResolver.shutdownCount.get();
+        IPLocationService service = IPLocationService.getInstance(configReader);
+        long deadline = System.currentTimeMillis() + 5000;
+        int reloadCount = FirstResolver.reloadCount.get();
+        while (FirstResolver.reloadCount.get() == reloadCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        AssertJUnit.assertTrue(FirstResolver.reloadCount.get() > reloadCount);
+        service.shutdown();
+        AssertJUnit.assertEquals(shutdownCount + 1, FirstResolver.shutdownCount.get());
+        reloadCount = FirstResolver.reloadCount.get();
+        Thread.sleep(100);
+        AssertJUnit.assertEquals(reloadCount, FirstResolver.reloadCount.get());
+
+        // The next use of the resolver creates another service
+        IPLocationService nextService = IPLocationService.getInstance(configReader);
+        AssertJUnit.assertNotSame(service, nextService);
+        nextService.shutdown();
+    }
+
+    private static ConfigReader configReader(Class<? extends GeoLocationResolver> resolverClass,
+                                             long reloadCheckInterval) {
+        Map<String, String> configs = new HashMap<>();
+        configs.put("geoLocationResolverClass", resolverClass.getName());
+        configs.put("cacheSize", "100");
+        configs.put("reloadCheckInterval", String.valueOf(reloadCheckInterval));
+        return new ConfigReader() {
+            @Override
+            public String readConfig(String name, String defaultValue) {
+                return configs.getOrDefault(name, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getAllConfigs() {
+                return configs;
+            }
+        };
+    }
+
+    /**
+     * A resolver which finds a distinct location for each IP address, and counts its reloads and shutdowns.
+     */
+    public static class FirstResolver implements GeoLocationResolver {
+        private static final AtomicInteger reloadCount = new AtomicInteger();
+        private static final AtomicInteger shutdownCount = new AtomicInteger();
+
+        @Override
+        public void init(ConfigReader configReader) {
+        }
+
+        @Override
+        public Location getGeoLocationInfo(String ip) {
+            return new Location("Sri Lanka", ip);
+        }
+
+        @Override
+        public boolean reload() {
+            reloadCount.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public void shutdown() {
+            shutdownCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Another resolver, which has a service of its own.
+     */
+    public static class SecondResolver extends FirstResolver {
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+/**
+ * Test case for the cache of unresolved IP addresses.
+ */
+public class NegativeLocationCacheTest {
+
+    private static final Logger logger = Logger.getLogger(NegativeLocationCacheTest.class);
+
+    @Test
+    public void testExpiry() {
+        logger.info("NegativeLocationCache 1 - Test unresolved IP addresses expire");
+        NegativeLocationCache cache = new NegativeLocationCache(100, 1000);
+        cache.put("10.0.0.1", 5000);
+        AssertJUnit.assertTrue(cache.contains("10.0.0.1", 5999));
+        AssertJUnit.assertFalse(cache.contains("10.0.0.2", 5999));
+        AssertJUnit.assertFalse(cache.contains("10.0.0.1", 6000));
+        AssertJUnit.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+        logger.info("NegativeLocationCache 2 - Test the oldest unresolved IP addresses are evicted");
+        NegativeLocationCache cache = new NegativeLocationCache(100, 1000);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("10.0." + (i / 256) + "." + (i % 256), 0);
+        }
+        AssertJUnit.assertEquals(100, cache.size());
+        AssertJUnit.assertFalse(cache.contains("10.0.0.0", 1));
+        AssertJUnit.assertTrue(cache.contains("10.0.3.231", 1));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("10.1.0.1", i * 1000);
+            AssertJUnit.assertFalse(cache.contains("10.1.0.1", i * 1000 + 1000));
+        }
+        AssertJUnit.assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void testReaddedAfterExpiry() {
+        logger.info("NegativeLocationCache 4 - Test an IP address added again after it expired is not evicted early");
+        NegativeLocationCache cache = new NegativeLocationCache(2, 1000);
+        cache.put("10.0.0.1", 0);
+        AssertJUnit.assertFalse(cache.contains("10.0.0.1", 1000));
+        cache.put("10.0.0.1", 1000);
+        // Drops the entry the address was first added with, which no longer holds
+        cache.put("10.0.0.2", 1000);
+        AssertJUnit.assertTrue(cache.contains("10.0.0.1", 1001));
+        AssertJUnit.assertTrue(cache.contains("10.0.0.2", 1001));
+        cache.put("10.0.0.3", 1000);
+        AssertJUnit.assertFalse(cache.contains("10.0.0.1", 1001));
+        AssertJUnit.assertTrue(cache.contains("10.0.0.3", 1001));
+        AssertJUnit.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testIsUnresolved() {
+        logger.info("NegativeLocationCache 3 - Test unresolved locations are detected");
+        AssertJUnit.assertTrue(NegativeLocationCache.isUnresolved(null));
+        AssertJUnit.assertTrue(NegativeLocationCache.isUnresolved(new Location("", "", "10.0.0.1")));
+        AssertJUnit.assertTrue(NegativeLocationCache.isUnresolved(new Location(null, null, "10.0.0.1")));
+        AssertJUnit.assertFalse(NegativeLocationCache.isUnresolved(new Location("Japan", "", "10.0.0.1")));
+    }
+}
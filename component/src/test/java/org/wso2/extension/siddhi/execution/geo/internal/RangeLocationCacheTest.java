@@ -0,0 +1,122 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Test case for the cache of the matched IPv4 ranges.
+ */
+public class RangeLocationCacheTest {
+
+    private static final Logger logger = Logger.getLogger(RangeLocationCacheTest.class);
+
+    @Test
+    public void testAnyAddressOfARange() {
+        logger.info("RangeLocationCacheTest TestCase 1");
+        RangeLocationCache cache = new RangeLocationCache(10);
+        Location moscow = new Location("Russia", "Moscow");
+        Location queensland = new Location("Australia", "Queensland");
+        // 95.31.0.0/16 and 1.0.0.0/24
+        cache.put(0x5F1F0000L, 0x5F1FFFFFL, moscow);
+        cache.put(0x01000000L, 0x010000FFL, queensland);
+
+        AssertJUnit.assertSame(moscow, cache.get(0x5F1F0000L));
+        AssertJUnit.assertSame(moscow, cache.get(0x5F1F1277L));
+        AssertJUnit.assertSame(moscow, cache.get(0x5F1FFFFFL));
+        AssertJUnit.assertSame(queensland, cache.get(0x01000001L));
+        AssertJUnit.assertNull(cache.get(0x5F200000L));
+        AssertJUnit.assertNull(cache.get(0x01000100L));
+        AssertJUnit.assertNull(cache.get(0x00FFFFFFL));
+        AssertJUnit.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        logger.info("RangeLocationCacheTest TestCase 2");
+        RangeLocationCache cache = new RangeLocationCache(2);
+        Location location = new Location("Sri Lanka", "Western Province");
+        cache.put(0x100L, 0x1FFL, location);
+        cache.put(0x200L, 0x2FFL, location);
+        cache.put(0x200L, 0x2FFL, location);
+        cache.put(0x300L, 0x3FFL, location);
+        AssertJUnit.assertEquals(2, cache.size());
+        AssertJUnit.assertNull(cache.get(0x150L));
+        AssertJUnit.assertSame(location, cache.get(0x250L));
+        AssertJUnit.assertSame(location, cache.get(0x350L));
+    }
+
+    @Test
+    public void testDisabled() {
+        logger.info("RangeLocationCacheTest TestCase 3");
+        RangeLocationCache cache = new RangeLocationCache(0);
+        cache.put(0x100L, 0x1FFL, new Location("Sri Lanka", "Western Province"));
+        AssertJUnit.assertNull(cache.get(0x150L));
+        AssertJUnit.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        logger.info("RangeLocationCacheTest TestCase 4");
+        RangeLocationCache cache = new RangeLocationCache(10);
+        Location moscow = new Location("Russia", "Moscow");
+        cache.put(0x5F1F0000L, 0x5F1FFFFFL, moscow);
+        cache.put(0xFF000000L, 0xFFFFFFFFL, new Location("Sri Lanka", "Western Province"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        cache.write(new DataOutputStream(bytes));
+
+        RangeLocationCache restoredCache = new RangeLocationCache(10);
+        restoredCache.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        AssertJUnit.assertEquals(2, restoredCache.size());
+        AssertJUnit.assertEquals("Moscow", restoredCache.get(0x5F1F1277L).getCity());
+        AssertJUnit.assertEquals("Sri Lanka", restoredCache.get(0xFFFFFFFFL).getCountry());
+        AssertJUnit.assertNull(restoredCache.get(0x5F200000L));
+    }
+
+    @Test
+    public void testEvictionInInsertionOrder() throws Exception {
+        logger.info("RangeLocationCacheTest TestCase 5");
+        RangeLocationCache cache = new RangeLocationCache(2);
+        Location location = new Location("Sri Lanka", "Western Province");
+        cache.put(0x300L, 0x3FFL, location);
+        cache.put(0x100L, 0x1FFL, location);
+        cache.put(0x200L, 0x2FFL, location);
+        AssertJUnit.assertNull(cache.get(0x350L));
+        AssertJUnit.assertSame(location, cache.get(0x150L));
+        AssertJUnit.assertSame(location, cache.get(0x250L));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        cache.write(new DataOutputStream(bytes));
+
+        // The restored ranges are cached after the ones cached since the start
+        RangeLocationCache restoredCache = new RangeLocationCache(2);
+        restoredCache.put(0x400L, 0x4FFL, location);
+        restoredCache.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        AssertJUnit.assertEquals(2, restoredCache.size());
+        AssertJUnit.assertNull(restoredCache.get(0x450L));
+        AssertJUnit.assertNotNull(restoredCache.get(0x150L));
+        AssertJUnit.assertNotNull(restoredCache.get(0x250L));
+    }
+}
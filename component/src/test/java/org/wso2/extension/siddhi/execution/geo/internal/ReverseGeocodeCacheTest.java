@@ -0,0 +1,83 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.internal.utils.GeoHash;
+
+import java.util.Map;
+
+/**
+ * Test case for the cache of the reverse geocode addresses.
+ */
+public class ReverseGeocodeCacheTest {
+
+    private static final Logger logger = Logger.getLogger(ReverseGeocodeCacheTest.class);
+    private static final String[] ADDRESS = {"27", "N/A", "Palm Grove", "Colombo", "Western Province", "Sri Lanka",
+            "LK", "00300", "27 Palm Grove, Colombo 00300, Sri Lanka"};
+
+    @Test
+    public void testCellsAndExpiry() {
+        logger.info("ReverseGeocodeCache 1 - Test the points of a cell share an entry until it expires");
+        ReverseGeocodeCache cache = new ReverseGeocodeCache(100, 1000, 8, false);
+        cache.put(6.909785, 79.852603, ADDRESS, 0);
+        // A few meters away, in the same cell
+        AssertJUnit.assertSame(ADDRESS, cache.get(6.909790, 79.852610, 999));
+        // About 100 meters away
+        AssertJUnit.assertNull(cache.get(6.910685, 79.852603, 999));
+        AssertJUnit.assertNull(cache.get(6.909785, 79.852603, 1000));
+    }
+
+    @Test
+    public void testNeighborCells() {
+        logger.info("ReverseGeocodeCache 2 - Test the addresses of the cells around an uncached cell are reused");
+        double cellHeight = GeoHash.getCellHeight(8);
+        double cellWidth = GeoHash.getCellWidth(8);
+        double south = Math.floor((6.909785 + 90) / cellHeight) * cellHeight - 90;
+        double west = Math.floor((79.852603 + 180) / cellWidth) * cellWidth - 180;
+        ReverseGeocodeCache cache = new ReverseGeocodeCache(100, 60000, 8, true);
+        // Points a meter apart on either side of the border between two cells
+        cache.put(south + 0.00001, west - 0.00001, ADDRESS, 0);
+        AssertJUnit.assertSame(ADDRESS, cache.get(south + 0.00001, west + 0.00001, 0));
+        AssertJUnit.assertEquals(1, cache.getNeighborHitCount());
+        // In a cell around the cell of the cached point, but farther than the diagonal of a cell
+        AssertJUnit.assertNull(cache.get(south + 1.9 * cellHeight, west + 0.9 * cellWidth, 0));
+
+        cache = new ReverseGeocodeCache(100, 60000, 8, false);
+        cache.put(south + 0.00001, west - 0.00001, ADDRESS, 0);
+        AssertJUnit.assertNull(cache.get(south + 0.00001, west + 0.00001, 0));
+    }
+
+    @Test
+    public void testSnapshotAndRestoreState() {
+        logger.info("ReverseGeocodeCache 3 - Test the cached addresses are restored from a snapshot");
+        ReverseGeocodeCache cache = new ReverseGeocodeCache(100, 60000, 8, false);
+        cache.put(6.909785, 79.852603, ADDRESS);
+        Map<String, Object> state = cache.snapshotState();
+
+        ReverseGeocodeCache restoredCache = new ReverseGeocodeCache(100, 60000, 8, false);
+        restoredCache.restoreState(state);
+        String[] address = restoredCache.get(6.909785, 79.852603);
+        AssertJUnit.assertEquals(ADDRESS.length, address.length);
+        for (int i = 0; i < ADDRESS.length; i++) {
+            AssertJUnit.assertEquals(ADDRESS[i], address[i]);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for the TinyLFU cache.
+ */
+public class TinyLFUCacheTest {
+
+    private static final Logger logger = Logger.getLogger(TinyLFUCacheTest.class);
+
+    @Test
+    public void testBoundedSize() {
+        logger.info("TinyLFUCache 1 - Test the cache never grows beyond its size");
+        TinyLFUCache<String, Integer> cache = new TinyLFUCache<>(100);
+        for (int i = 0; i < 10000; i++) {
+            String key = "10.0." + (i / 256) + "." + (i % 256);
+            if (cache.get(key) == null) {
+                cache.put(key, i);
+            }
+        }
+        AssertJUnit.assertTrue(cache.size() <= 100);
+        AssertJUnit.assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    public void testScanResistance() {
+        logger.info("TinyLFUCache 2 - Test frequently used keys survive a scan of keys used once");
+        TinyLFUCache<String, Integer> cache = new TinyLFUCache<>(64);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 32; i++) {
+                String key = "hot-" + i;
+                if (cache.get(key) == null) {
+                    cache.put(key, i);
+                }
+            }
+        }
+        // Hot keys keep being used during the scan, but less often than a plain LRU cache of this size needs
+        for (int i = 0; i < 100000; i++) {
+            String key = "scan-" + i;
+            if (cache.get(key) == null) {
+                cache.put(key, i);
+            }
+            if (i % 4 == 0) {
+                key = "hot-" + ((i / 4) % 32);
+                if (cache.get(key) == null) {
+                    cache.put(key, i);
+                }
+            }
+        }
+        int hits = 0;
+        for (int i = 0; i < 32; i++) {
+            if (cache.get("hot-" + i) != null) {
+                hits++;
+            }
+        }
+        AssertJUnit.assertEquals(32, hits);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        logger.info("TinyLFUCache 3 - Test concurrent reads and writes");
+        final TinyLFUCache<Integer, Integer> cache = new TinyLFUCache<>(1000);
+        final AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50000; i++) {
+                        int key = (i * 31 + seed) % 5000;
+                        Integer value = cache.get(key);
+                        if (value == null) {
+                            cache.put(key, key);
+                        } else if (value != key) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        AssertJUnit.assertEquals(0, errors.get());
+        AssertJUnit.assertTrue(cache.size() <= 1000);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.datasource;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.impl.RDBMSGeoLocationResolver;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+/**
+ * Test case for the selection of the datasource provider of the default resolver.
+ */
+public class DataSourceProvidersTest {
+
+    private static final Logger logger = Logger.getLogger(DataSourceProvidersTest.class);
+    private static final AtomicInteger openedConnections = new AtomicInteger();
+    private static final AtomicInteger closedConnections = new AtomicInteger();
+    private static final AtomicInteger closedProviders = new AtomicInteger();
+
+    private static ConfigReader configReader(Map<String, String> configs) {
+        return new ConfigReader() {
+            @Override
+            public String readConfig(String name, String defaultValue) {
+                return configs.getOrDefault(name, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getAllConfigs() {
+                return configs;
+            }
+        };
+    }
+
+    @Test
+    public void testProviderSelection() throws Exception {
+        logger.info("DataSourceProviders 1 - Test the configured datasource provider is created");
+        Map<String, String> configs = new HashMap<>();
+        AssertJUnit.assertTrue(DataSourceProviders.create(configReader(configs)) instanceof OSGiDataSourceProvider);
+        configs.put("dataSourceProvider", "JNDI");
+        AssertJUnit.assertTrue(DataSourceProviders.create(configReader(configs)) instanceof JNDIDataSourceProvider);
+        configs.put("dataSourceProvider", "jdbc");
+        DataSourceProvider jdbcProvider = DataSourceProviders.create(configReader(configs));
+        AssertJUnit.assertTrue(jdbcProvider instanceof JDBCDataSourceProvider);
+        try {
+            jdbcProvider.getDataSource(configReader(configs));
+            AssertJUnit.fail("The JDBC URL is required");
+        } catch (GeoLocationResolverException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("jdbcUrl"));
+        }
+        configs.put("dataSourceProvider", CountingDataSourceProvider.class.getName());
+        AssertJUnit.assertTrue(DataSourceProviders.create(configReader(configs)) instanceof
+                CountingDataSourceProvider);
+        configs.put("dataSourceProvider", "org.example.MissingProvider");
+        try {
+            DataSourceProviders.create(configReader(configs));
+            AssertJUnit.fail("An unknown provider is not accepted");
+        } catch (GeoLocationResolverException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("dataSourceProvider"));
+        }
+    }
+
+    @Test
+    public void testInjectedProvider() throws Exception {
+        logger.info("DataSourceProviders 2 - Test the resolver uses and releases an injected datasource provider");
+        Map<String, String> configs = new HashMap<>();
+        configs.put("isPersistInDatabase", "false");
+        configs.put("blockQueryStrategy", "between");
+        openedConnections.set(0);
+        closedConnections.set(0);
+        closedProviders.set(0);
+        RDBMSGeoLocationResolver resolver = new RDBMSGeoLocationResolver();
+        resolver.init(configReader(configs), new CountingDataSourceProvider());
+        AssertJUnit.assertTrue(openedConnections.get() > 0);
+        AssertJUnit.assertNull(resolver.getLocationWriter());
+        // Pins a connection to this thread and another one to a thread which stays alive
+        resolver.getLocation("95.31.18.119");
+        Thread thread = new Thread(() -> {
+            try {
+                resolver.getLocation("95.31.18.119");
+            } catch (GeoLocationResolverException e) {
+                logger.error(e.getMessage(), e);
+            }
+        });
+        thread.start();
+        thread.join();
+        AssertJUnit.assertTrue(openedConnections.get() > closedConnections.get());
+        resolver.shutdown();
+        // All the connections are returned to the datasource, even if the provider does not own its pool
+        AssertJUnit.assertEquals(openedConnections.get(), closedConnections.get());
+        AssertJUnit.assertEquals(1, closedProviders.get());
+        // A second shutdown has nothing to release
+        resolver.shutdown();
+        AssertJUnit.assertEquals(1, closedProviders.get());
+    }
+
+    /**
+     * A DataSourceProvider returning a datasource of empty tables, which counts the opened and the closed
+     * connections and the times it is closed.
+     */
+    public static class CountingDataSourceProvider implements DataSourceProvider {
+
+        private static Object emptyResult(Class<?> type) {
+            return Proxy.newProxyInstance(DataSourceProvidersTest.class.getClassLoader(), new Class[]{type},
+                    (proxy, method, args) -> {
+                        Class<?> returnType = method.getReturnType();
+                        if (returnType == boolean.class) {
+                            return false;
+                        } else if (returnType == int.class) {
+                            return 0;
+                        } else if (returnType.isInterface() && returnType.getName().startsWith("java.sql")) {
+                            return emptyResult(returnType);
+                        }
+                        return null;
+                    });
+        }
+
+        @Override
+        public DataSource getDataSource(ConfigReader configReader) {
+            return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class},
+                    (proxy, method, args) -> {
+                        if ("getConnection".equals(method.getName())) {
+                            openedConnections.incrementAndGet();
+                            Connection connection = (Connection) emptyResult(Connection.class);
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class[]{Connection.class}, (connectionProxy, connectionMethod, arguments) -> {
+                                        if ("close".equals(connectionMethod.getName())) {
+                                            closedConnections.incrementAndGet();
+                                            return null;
+                                        }
+                                        return connectionMethod.invoke(connection, arguments);
+                                    });
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Override
+        public void close() {
+            closedProviders.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.Address;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test case for the reverse geocoding with local boundaries.
+ */
+public class BoundaryReverseGeocoderTest {
+
+    private static final Logger logger = Logger.getLogger(BoundaryReverseGeocoderTest.class);
+
+    private static ConfigReader configReader(Map<String, String> configs) {
+        return new ConfigReader() {
+            @Override
+            public String readConfig(String name, String defaultValue) {
+                return configs.getOrDefault(name, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getAllConfigs() {
+                return configs;
+            }
+        };
+    }
+
+    private static String writeFile(String content) throws Exception {
+        File file = File.createTempFile("boundaries", ".geojson");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    @Test
+    public void testGetAddress() throws Exception {
+        logger.info("BoundaryReverseGeocoder 1 - Test the addresses of points in the boundaries");
+        Map<String, String> configs = new HashMap<>();
+        // Two countries sharing the border at longitude 10, the first with a lake and the second in two parts
+        configs.put("boundaryCountryFile", writeFile("{\"type\": \"FeatureCollection\", \"features\": [" +
+                "{\"type\": \"Feature\", \"properties\": {\"NAME\": \"Alpha\", \"ISO_A2\": \"AL\"}, " +
+                "\"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 0], [10, 0], [10, 10], [0, 10], " +
+                "[0, 0]], [[2, 2], [4, 2], [4, 4], [2, 4], [2, 2]]]}}," +
+                "{\"type\": \"Feature\", \"geometry\": {\"coordinates\": [[[[10, 0], [20, 0], [20, 10], " +
+                "[10, 10], [10, 0]]], [[[30, 0], [31, 0], [31, 1], [30, 0]]]], \"type\": \"MultiPolygon\"}, " +
+                "\"properties\": {\"NAME\": \"Beta\", \"ISO_A2\": \"BE\", \"POP\": 100, \"TAGS\": [\"x\"]}}," +
+                "{\"type\": \"Feature\", \"properties\": {\"NAME\": \"Point\"}, " +
+                "\"geometry\": {\"type\": \"Point\", \"coordinates\": [5, 5]}}]}"));
+        configs.put("boundaryAdmin1File", writeFile("{\"type\": \"FeatureCollection\", \"features\": [" +
+                "{\"type\": \"Feature\", \"properties\": {\"name\": \"North\", \"iso_a2\": \"AL\"}, " +
+                "\"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 5], [10, 5], [10, 10], [0, 10], " +
+                "[0, 5]]]}}," +
+                "{\"type\": \"Feature\", \"properties\": {\"name\": \"Shore\", \"iso_a2\": \"LK\"}, " +
+                "\"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[40, 0], [41, 0], [41, 1], [40, 1], " +
+                "[40, 0]]]}}]}"));
+        BoundaryReverseGeocoder reverseGeocoder = new BoundaryReverseGeocoder();
+        reverseGeocoder.init(configReader(configs));
+        // A local reverse geocoder is not served through the cache of the cells by default
+        AssertJUnit.assertFalse(reverseGeocoder.isRemote());
+
+        Address address = reverseGeocoder.getAddress(7, 9.999);
+        AssertJUnit.assertEquals("Alpha", address.getCountry());
+        AssertJUnit.assertEquals("AL", address.getCountryCode());
+        AssertJUnit.assertEquals("North", address.getAdministrativeAreaLevelOne());
+        AssertJUnit.assertEquals("North, Alpha", address.getFormattedAddress());
+        AssertJUnit.assertEquals(Address.NOT_AVAILABLE, address.getStreetNumber());
+
+        address = reverseGeocoder.getAddress(7, 10.001);
+        AssertJUnit.assertEquals("Beta", address.getCountry());
+        AssertJUnit.assertEquals(Address.NOT_AVAILABLE, address.getAdministrativeAreaLevelOne());
+        AssertJUnit.assertEquals("Beta", address.getFormattedAddress());
+        AssertJUnit.assertEquals("BE", reverseGeocoder.getAddress(0.2, 30.5).getCountryCode());
+
+        address = reverseGeocoder.getAddress(0.5, 40.5);
+        AssertJUnit.assertEquals("Sri Lanka", address.getCountry());
+        AssertJUnit.assertEquals("Shore, Sri Lanka", address.getFormattedAddress());
+
+        AssertJUnit.assertNull(reverseGeocoder.getAddress(3, 3));
+        AssertJUnit.assertNull(reverseGeocoder.getAddress(0.8, 30.5));
+        AssertJUnit.assertNull(reverseGeocoder.getAddress(-7, 5));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.Address;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test case for the reverse geocoding with a local gazetteer.
+ */
+public class GazetteerReverseGeocoderTest {
+
+    private static final Logger logger = Logger.getLogger(GazetteerReverseGeocoderTest.class);
+
+    private static ConfigReader configReader(Map<String, String> configs) {
+        return new ConfigReader() {
+            @Override
+            public String readConfig(String name, String defaultValue) {
+                return configs.getOrDefault(name, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getAllConfigs() {
+                return configs;
+            }
+        };
+    }
+
+    private static File writeFile(String suffix, String... lines) throws Exception {
+        File file = File.createTempFile("gazetteer", suffix);
+        file.deleteOnExit();
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void testGetAddress() throws Exception {
+        logger.info("GazetteerReverseGeocoder 1 - Test the address of the nearest place");
+        Map<String, String> configs = new HashMap<>();
+        configs.put("gazetteerFile", writeFile(".txt",
+                "1248991\tColombo\tColombo\t\t6.93194\t79.84778\tP\tPPLC\tLK\t\t36\t\t\t\t648034\t\t1\tAsia/Colombo" +
+                        "\t2019-09-05",
+                "1242833\tKandy\tKandy\t\t7.2955\t80.6356\tP\tPPLA\tLK\t\t29\t2182\t\t\t111701\t\t500" +
+                        "\tAsia/Colombo\t2016-01-07",
+                "# a comment",
+                "invalid line").getPath());
+        configs.put("gazetteerAdmin1File", writeFile(".txt", "LK.36\tWestern\tWestern\t1223648",
+                "LK.29\tCentral\tCentral\t1232860").getPath());
+        configs.put("gazetteerAdmin2File", writeFile(".txt", "LK.29.2182\tKandy District\tKandy District\t1241621")
+                .getPath());
+        GazetteerReverseGeocoder reverseGeocoder = new GazetteerReverseGeocoder();
+        reverseGeocoder.init(configReader(configs));
+        // A local reverse geocoder is not served through the cache of the cells by default
+        AssertJUnit.assertFalse(reverseGeocoder.isRemote());
+
+        Address address = reverseGeocoder.getAddress(6.909785, 79.852603);
+        AssertJUnit.assertEquals("Sri Lanka", address.getCountry());
+        AssertJUnit.assertEquals("LK", address.getCountryCode());
+        AssertJUnit.assertEquals("Western", address.getAdministrativeAreaLevelOne());
+        AssertJUnit.assertEquals(Address.NOT_AVAILABLE, address.getAdministrativeAreaLevelTwo());
+        AssertJUnit.assertEquals("Colombo, Western, Sri Lanka", address.getFormattedAddress());
+        AssertJUnit.assertEquals(Address.NOT_AVAILABLE, address.getStreetNumber());
+
+        address = reverseGeocoder.getAddress(7.29, 80.63);
+        AssertJUnit.assertEquals("Kandy District", address.getAdministrativeAreaLevelTwo());
+        AssertJUnit.assertEquals("Kandy, Central, Sri Lanka", address.getFormattedAddress());
+
+        configs.put("gazetteerMaxDistance", "10000");
+        reverseGeocoder = new GazetteerReverseGeocoder();
+        reverseGeocoder.init(configReader(configs));
+        AssertJUnit.assertNotNull(reverseGeocoder.getAddress(6.909785, 79.852603));
+        AssertJUnit.assertNull(reverseGeocoder.getAddress(51.5074, -0.1278));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for the write-behind writer of the IP_LOCATION rows.
+ */
+public class IPLocationWriterTest {
+
+    private static final Logger logger = Logger.getLogger(IPLocationWriterTest.class);
+
+    @Test
+    public void testBatchWrites() throws Exception {
+        logger.info("IPLocationWriter 1 - Test locations are written in batches without duplicates");
+        InMemoryTable table = new InMemoryTable();
+        table.rows.put("1.0.0.1", "Australia");
+        IPLocationWriter writer = new IPLocationWriter(table::connect, 3, 50, 100);
+        Location location = new Location("Australia", "Queensland");
+        AssertJUnit.assertTrue(writer.write("1.0.0.1", location));
+        AssertJUnit.assertTrue(writer.write("1.0.0.2", location));
+        AssertJUnit.assertTrue(writer.write("1.0.0.2", location));
+        AssertJUnit.assertTrue(writer.write("1.0.0.3", location));
+        AssertJUnit.assertTrue(writer.write("1.0.0.4", location));
+        writer.stop(5000);
+
+        AssertJUnit.assertEquals(4, table.rows.size());
+        AssertJUnit.assertEquals(4, writer.getQueuedCount());
+        AssertJUnit.assertEquals(3, writer.getWrittenCount());
+        AssertJUnit.assertEquals(0, writer.getDroppedCount());
+        AssertJUnit.assertEquals(0, writer.getFailedCount());
+        for (Integer batchSize : table.batchSizes) {
+            AssertJUnit.assertTrue(batchSize <= 3);
+        }
+    }
+
+    @Test
+    public void testDroppedWrites() throws Exception {
+        logger.info("IPLocationWriter 2 - Test locations are dropped when the queue is full");
+        InMemoryTable table = new InMemoryTable();
+        IPLocationWriter writer = new IPLocationWriter(table::connect, 10, 50, 1);
+        writer.stop(5000);
+        AssertJUnit.assertFalse(writer.write("1.0.0.1", new Location("Australia", "Queensland")));
+        AssertJUnit.assertEquals(1, writer.getDroppedCount());
+        AssertJUnit.assertEquals(0, table.rows.size());
+    }
+
+    @Test
+    public void testFailedClearIsRetried() throws Exception {
+        logger.info("IPLocationWriter 3 - Test the rows are deleted at the next flush if the delete fails");
+        InMemoryTable table = new InMemoryTable();
+        table.rows.put("1.0.0.1", "Australia");
+        table.failedDeletes.set(2);
+        IPLocationWriter writer = new IPLocationWriter(table::connect, 10, 20, 100);
+        try {
+            CountDownLatch cleared = new CountDownLatch(1);
+            writer.clearPersistedLocations(cleared::countDown);
+            AssertJUnit.assertTrue(cleared.await(5, TimeUnit.SECONDS));
+            AssertJUnit.assertEquals(0, table.rows.size());
+            AssertJUnit.assertEquals(3, table.deletes.get());
+        } finally {
+            writer.stop(5000);
+        }
+    }
+
+    /**
+     * An IP_LOCATION table behind minimal JDBC proxies, which supports the statements of the writer and fails the
+     * given number of deletes.
+     */
+    private static class InMemoryTable {
+        private final Map<String, String> rows = new ConcurrentHashMap<>();
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger deletes = new AtomicInteger();
+        private final AtomicInteger failedDeletes = new AtomicInteger();
+
+        Connection connect() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "prepareStatement":
+                                return prepare((String) args[0]);
+                            case "getAutoCommit":
+                                return true;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private PreparedStatement prepare(String sql) {
+            List<String> parameters = new ArrayList<>();
+            List<String[]> batch = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setString":
+                                int index = (Integer) args[0] - 1;
+                                while (parameters.size() <= index) {
+                                    parameters.add(null);
+                                }
+                                parameters.set(index, (String) args[1]);
+                                return null;
+                            case "addBatch":
+                                batch.add(parameters.toArray(new String[0]));
+                                return null;
+                            case "executeBatch":
+                                batchSizes.add(batch.size());
+                                for (String[] row : batch) {
+                                    AssertJUnit.assertNull(rows.put(row[0], row[1]));
+                                }
+                                return new int[batch.size()];
+                            case "executeQuery":
+                                List<String> existing = new ArrayList<>();
+                                for (String ip : parameters) {
+                                    if (rows.containsKey(ip)) {
+                                        existing.add(ip);
+                                    }
+                                }
+                                return resultSet(existing.iterator());
+                            case "executeUpdate":
+                                deletes.incrementAndGet();
+                                if (failedDeletes.getAndDecrement() > 0) {
+                                    throw new SQLException("Lock wait timeout exceeded");
+                                }
+                                int count = rows.size();
+                                rows.clear();
+                                return count;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private ResultSet resultSet(Iterator<String> values) {
+            String[] current = new String[1];
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                current[0] = values.hasNext() ? values.next() : null;
+                                return current[0] != null;
+                            case "getString":
+                                return current[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.internal.index.GeoIPDatabaseFile;
+import org.wso2.extension.siddhi.execution.geo.internal.index.IPv4RangeIndex;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Test case for the reload of the memory mapped geo IP database file.
+ */
+public class MappedFileGeoLocationResolverTest {
+
+    private static final Logger logger = Logger.getLogger(MappedFileGeoLocationResolverTest.class);
+
+    private static ConfigReader configReader(Map<String, String> configs) {
+        return new ConfigReader() {
+            @Override
+            public String readConfig(String name, String defaultValue) {
+                return configs.getOrDefault(name, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getAllConfigs() {
+                return configs;
+            }
+        };
+    }
+
+    private static void writeDatabaseFile(File file, String country, String city) throws Exception {
+        IPv4RangeIndex index = new IPv4RangeIndex.Builder()
+                .addLocation(2017370, country, city)
+                .addRange(3232235520L, 3232235775L, 2017370)      // 192.168.0.0/24
+                .build();
+        // Replaced by a move, as a mapped file must not be written over
+        File temporaryFile = File.createTempFile("geoip", ".tmp");
+        GeoIPDatabaseFile.write(index, temporaryFile);
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        logger.info("MappedFileGeoLocationResolver 1 - Test the modified file is published as a new generation");
+        File file = File.createTempFile("geoip", ".db");
+        file.deleteOnExit();
+        writeDatabaseFile(file, "Russia", "Moscow");
+        MappedFileGeoLocationResolver resolver = new MappedFileGeoLocationResolver();
+        resolver.init(configReader(Collections.singletonMap("geoIpDatabaseFile", file.getPath())));
+        AssertJUnit.assertEquals("Russia", resolver.getGeoLocationInfo("192.168.0.1").getCountry());
+        AssertJUnit.assertFalse(resolver.reload());
+        AssertJUnit.assertEquals(0, resolver.getDatasetGeneration());
+
+        writeDatabaseFile(file, "Russian Federation", "Moscow");
+        file.setLastModified(file.lastModified() + 2000);
+        AssertJUnit.assertTrue(resolver.reload());
+        AssertJUnit.assertEquals(1, resolver.getDatasetGeneration());
+        AssertJUnit.assertEquals("Russian Federation", resolver.getGeoLocationInfo("192.168.0.1").getCountry());
+        AssertJUnit.assertFalse(resolver.reload());
+    }
+}
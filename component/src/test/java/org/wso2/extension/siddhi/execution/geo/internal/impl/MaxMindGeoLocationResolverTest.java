@@ -0,0 +1,120 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+import org.wso2.extension.siddhi.execution.geo.internal.index.MaxMindDatabaseTest;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test case for resolving the locations from a MaxMind DB file.
+ */
+public class MaxMindGeoLocationResolverTest {
+
+    private static final Logger logger = Logger.getLogger(MaxMindGeoLocationResolverTest.class);
+
+    private static ConfigReader configReader(Map<String, String> configs) {
+        return new ConfigReader() {
+            @Override
+            public String readConfig(String name, String defaultValue) {
+                return configs.getOrDefault(name, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getAllConfigs() {
+                return configs;
+            }
+        };
+    }
+
+    @Test
+    public void testGetGeoLocationInfo() throws Exception {
+        logger.info("MaxMindGeoLocationResolver 1 - Test the locations of IPv4 and IPv6 addresses");
+        Map<String, String> configs = new HashMap<>();
+        configs.put("maxMindDatabaseFile", MaxMindDatabaseTest.createDatabase(6, 28).getPath());
+        MaxMindGeoLocationResolver resolver = new MaxMindGeoLocationResolver();
+        resolver.init(configReader(configs));
+
+        Location location = resolver.getGeoLocationInfo("81.2.69.160");
+        AssertJUnit.assertEquals("United Kingdom", location.getCountry());
+        AssertJUnit.assertEquals("England", location.getSubdivision());
+        AssertJUnit.assertEquals("London", location.getCity());
+        AssertJUnit.assertEquals(51.5142, location.getLatitude());
+        AssertJUnit.assertEquals("20712", location.getAutonomousSystemNumber());
+        // The locations are shared by the addresses of a network
+        AssertJUnit.assertSame(location, resolver.getGeoLocationInfo("81.2.69.1"));
+        AssertJUnit.assertEquals("London", resolver.getGeoLocationInfo("81.2.70.1").getCity());
+
+        // The city falls back to the subdivision
+        location = resolver.getGeoLocationInfo("203.94.64.1");
+        AssertJUnit.assertEquals("Sri Lanka", location.getCountry());
+        AssertJUnit.assertEquals("Western Province", location.getCity());
+
+        location = resolver.getGeoLocationInfo("2001:db8::1");
+        AssertJUnit.assertEquals("United Kingdom", location.getCountry());
+        AssertJUnit.assertEquals("", location.getCity());
+        AssertJUnit.assertNull(location.getLatitude());
+
+        for (String ip : new String[]{"10.0.0.1", "2001:db9::1", "not an ip", "localhost", "81.2.69"}) {
+            location = resolver.getGeoLocationInfo(ip);
+            AssertJUnit.assertEquals(ip, "", location.getCountry());
+            AssertJUnit.assertEquals(ip, "", location.getCity());
+            AssertJUnit.assertEquals(ip, ip, location.getIp());
+        }
+    }
+
+    @Test
+    public void testLocale() throws Exception {
+        logger.info("MaxMindGeoLocationResolver 2 - Test the names of the configured locale");
+        Map<String, String> configs = new HashMap<>();
+        configs.put("maxMindDatabaseFile", MaxMindDatabaseTest.createDatabase(4, 32).getPath());
+        configs.put("maxMindLocale", "de");
+        MaxMindGeoLocationResolver resolver = new MaxMindGeoLocationResolver();
+        resolver.init(configReader(configs));
+        AssertJUnit.assertEquals("Vereinigtes K\u00f6nigreich", resolver.getGeoLocationInfo("81.2.69.160").getCountry());
+        AssertJUnit.assertEquals("London", resolver.getGeoLocationInfo("81.2.69.160").getCity());
+        AssertJUnit.assertEquals("", resolver.getGeoLocationInfo("2001:db8::1").getCountry());
+    }
+
+    @Test
+    public void testInvalidConfiguration() throws Exception {
+        logger.info("MaxMindGeoLocationResolver 3 - Test the resolver is not initialized without a database file");
+        Map<String, String> configs = new HashMap<>();
+        try {
+            new MaxMindGeoLocationResolver().init(configReader(configs));
+            AssertJUnit.fail("The database file is required");
+        } catch (GeoLocationResolverException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("maxMindDatabaseFile"));
+        }
+        configs.put("maxMindDatabaseFile", new File("missing.mmdb").getAbsolutePath());
+        try {
+            new MaxMindGeoLocationResolver().init(configReader(configs));
+            AssertJUnit.fail("The database file does not exist");
+        } catch (GeoLocationResolverException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("missing.mmdb"));
+        }
+    }
+}
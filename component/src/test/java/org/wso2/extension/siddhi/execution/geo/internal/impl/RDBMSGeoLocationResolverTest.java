@@ -0,0 +1,331 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.impl;
+
+import io.siddhi.core.util.config.ConfigReader;
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.DataSourceProvider;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+import org.wso2.extension.siddhi.execution.geo.internal.exception.GeoLocationResolverException;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+/**
+ * Test case for the detection of newly imported tables and for the block queries of the RDBMS based resolver.
+ */
+public class RDBMSGeoLocationResolverTest {
+
+    private static final Logger logger = Logger.getLogger(RDBMSGeoLocationResolverTest.class);
+
+    private static ConfigReader configReader() {
+        return configReader("between");
+    }
+
+    private static ConfigReader configReader(String blockQueryStrategy) {
+        Map<String, String> configs = new HashMap<>();
+        configs.put("isPersistInDatabase", "false");
+        configs.put("blockQueryStrategy", blockQueryStrategy);
+        return new ConfigReader() {
+            @Override
+            public String readConfig(String name, String defaultValue) {
+                return configs.getOrDefault(name, defaultValue);
+            }
+
+            @Override
+            public Map<String, String> getAllConfigs() {
+                return configs;
+            }
+        };
+    }
+
+    @Test
+    public void testChecksum() throws Exception {
+        logger.info("RDBMSGeoLocationResolver 1 - Test an import is detected from the checksum of the rows");
+        GeoTables tables = new GeoTables();
+        RDBMSGeoLocationResolver resolver = new RDBMSGeoLocationResolver();
+        resolver.init(configReader(), tables);
+        try {
+            AssertJUnit.assertFalse(resolver.reload());
+            // The same row counts and highest network, but other ranges
+            tables.blocks = new Object[]{3000000L, 3758096128L, "6015379000000256", "6015379100000256",
+                    "6015379001230000"};
+            AssertJUnit.assertTrue(resolver.reload());
+            AssertJUnit.assertEquals(1, resolver.getDatasetGeneration());
+            AssertJUnit.assertFalse(resolver.reload());
+            AssertJUnit.assertTrue(resolver.reload(true));
+            AssertJUnit.assertEquals(2, resolver.getDatasetGeneration());
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testDataVersion() throws Exception {
+        logger.info("RDBMSGeoLocationResolver 2 - Test an import is detected from the GEO_DATA_VERSION table");
+        GeoTables tables = new GeoTables();
+        tables.dataVersion = "2020-01-07";
+        RDBMSGeoLocationResolver resolver = new RDBMSGeoLocationResolver();
+        resolver.init(configReader(), tables);
+        try {
+            // An import in progress changes the rows before the version
+            tables.blocks = new Object[]{1500000L, 1600000000L, "1", "2", "3"};
+            AssertJUnit.assertFalse(resolver.reload());
+            tables.dataVersion = "2020-01-14";
+            AssertJUnit.assertTrue(resolver.reload());
+            AssertJUnit.assertEquals(1, resolver.getDatasetGeneration());
+            AssertJUnit.assertFalse(resolver.reload());
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testTablesChangedWhileLoading() throws Exception {
+        logger.info("RDBMSGeoLocationResolver 3 - Test a dataset is dropped if the tables change while it is loaded");
+        GeoTables tables = new GeoTables();
+        RDBMSGeoLocationResolver resolver = new RDBMSGeoLocationResolver();
+        resolver.init(configReader(), tables);
+        try {
+            tables.locations = new Object[]{120000L, 49518L, 12123456L};
+            tables.changeWhileLoading = true;
+            AssertJUnit.assertFalse(resolver.reload());
+            AssertJUnit.assertEquals(0, resolver.getDatasetGeneration());
+            AssertJUnit.assertTrue(resolver.reload());
+            AssertJUnit.assertEquals(1, resolver.getDatasetGeneration());
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testDatabaseFailure() throws Exception {
+        logger.info("RDBMSGeoLocationResolver 4 - Test a lookup fails rather than finds no location if the " +
+                "database is down");
+        GeoTables tables = new GeoTables();
+        RDBMSGeoLocationResolver resolver = new RDBMSGeoLocationResolver();
+        resolver.init(configReader(), tables);
+        try {
+            tables.isDown = true;
+            try {
+                resolver.getLocation("95.31.18.119");
+                AssertJUnit.fail("The lookup did not fail");
+            } catch (GeoLocationResolverException e) {
+                AssertJUnit.assertTrue(e.getCause() instanceof SQLException);
+            }
+            try {
+                resolver.getLocations(Arrays.asList("95.31.18.119", "10.100.0.1"));
+                AssertJUnit.fail("The lookup did not fail");
+            } catch (GeoLocationResolverException e) {
+                AssertJUnit.assertTrue(e.getCause() instanceof SQLException);
+            }
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetLocationsWithNearestNetworkQuery() throws Exception {
+        logger.info("RDBMSGeoLocationResolver 5 - Test the locations of many ips are found with the nearest " +
+                "network query");
+        GeoTables tables = new GeoTables();
+        RDBMSGeoLocationResolver resolver = new RDBMSGeoLocationResolver();
+        resolver.init(configReader("nearestNetwork"), tables);
+        try {
+            Map<String, Location> locations = resolver.getLocations(Arrays.asList("1.0.0.1", "95.31.18.119",
+                    "95.31.18.120", "10.100.0.1"));
+            AssertJUnit.assertEquals(3, locations.size());
+            AssertJUnit.assertEquals("Australia", locations.get("1.0.0.1").getCountry());
+            AssertJUnit.assertEquals("Moscow", locations.get("95.31.18.119").getCity());
+            AssertJUnit.assertSame(locations.get("95.31.18.119"), locations.get("95.31.18.120"));
+            // The address in the gap between the blocks is not found, and 95.31.18.120 is served from the range
+            // cache
+            AssertJUnit.assertNull(locations.get("10.100.0.1"));
+            AssertJUnit.assertEquals(3, tables.nearestBlockQueries.get());
+            AssertJUnit.assertEquals(0, tables.betweenQueries.get());
+
+            locations = resolver.getLocations(Arrays.asList("1.0.0.2", "95.31.18.121"));
+            AssertJUnit.assertEquals(2, locations.size());
+            AssertJUnit.assertEquals(3, tables.nearestBlockQueries.get());
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void testRangesOfAnotherVersionAreNotRestored() throws Exception {
+        logger.info("RDBMSGeoLocationResolver 6 - Test the cached ranges are restored only into the same version of " +
+                "the tables");
+        GeoTables tables = new GeoTables();
+        RDBMSGeoLocationResolver resolver = new RDBMSGeoLocationResolver();
+        resolver.init(configReader("nearestNetwork"), tables);
+        try {
+            resolver.getLocation("95.31.18.119");
+            byte[] ranges = resolver.snapshotRangeCache();
+            AssertJUnit.assertTrue(resolver.restoreRangeCache(ranges));
+
+            tables.blocks = new Object[]{3000000L, 3758096128L, "6015379000000256", "6015379100000256",
+                    "6015379001230000"};
+            AssertJUnit.assertTrue(resolver.reload());
+            AssertJUnit.assertFalse(resolver.restoreRangeCache(ranges));
+            AssertJUnit.assertNull(resolver.snapshotRangeCache());
+        } finally {
+            resolver.shutdown();
+        }
+    }
+
+    /**
+     * A DataSourceProvider answering the queries of the fingerprint of the tables, with an empty IPv6 range table
+     * and, unless a data version is set, no GEO_DATA_VERSION table. The nearest network query of H2 finds two
+     * blocks, and a BETWEEN query fails. No connection is provided while it is down.
+     */
+    private static class GeoTables implements DataSourceProvider {
+
+        private static final String[] BLOCK_LOCATION_COLUMNS = {"network", "broadcast", "geoname_id",
+                "country_name", "subdivision_1_name"};
+        private static final Object[][] BLOCK_LOCATIONS = {
+                {16777216L, 16777471L, 2077456, "Australia", ""},
+                {1595871744L, 1595871999L, 524901, "Russia", "Moscow"}};
+
+        private volatile String dataVersion;
+        private volatile Object[] blocks = {3000000L, 3758096128L, "6015379000000000", "6015379100000000",
+                "6015379001234567"};
+        private volatile Object[] locations = {120000L, 49518L, 12123445L};
+        private volatile boolean changeWhileLoading;
+        private volatile boolean isDown;
+        private final AtomicInteger nearestBlockQueries = new AtomicInteger();
+        private final AtomicInteger betweenQueries = new AtomicInteger();
+
+        private Object[] query(String sql, Map<Integer, Object> parameters) throws SQLException {
+            if (sql.contains("ORDER BY network DESC")) {
+                nearestBlockQueries.incrementAndGet();
+                long ip = (Long) parameters.get(1);
+                Object[] nearestBlock = null;
+                for (Object[] block : BLOCK_LOCATIONS) {
+                    if ((Long) block[0] <= ip) {
+                        nearestBlock = block;
+                    }
+                }
+                return nearestBlock;
+            } else if (sql.contains("BETWEEN")) {
+                betweenQueries.incrementAndGet();
+                throw new SQLException("Unexpected query " + sql);
+            }
+            return query(sql);
+        }
+
+        private Object[] query(String sql) throws SQLException {
+            if (sql.contains("GEO_DATA_VERSION")) {
+                if (dataVersion == null) {
+                    throw new SQLException("Table \"GEO_DATA_VERSION\" not found");
+                }
+                return new Object[]{dataVersion};
+            } else if (sql.contains("SUM(")) {
+                return blocks;
+            } else if (sql.contains("MIN(geoname_id)")) {
+                return locations;
+            } else if (sql.contains("network_cidr LIKE")) {
+                if (changeWhileLoading) {
+                    changeWhileLoading = false;
+                    blocks = new Object[]{3100000L, 3758096128L, "1", "2", "3"};
+                }
+                return null;
+            }
+            throw new SQLException("Unexpected query " + sql);
+        }
+
+        private static ResultSet resultSet(Object[] row) {
+            List<String> columns = Arrays.asList(BLOCK_LOCATION_COLUMNS);
+            boolean[] isRead = new boolean[1];
+            return (ResultSet) Proxy.newProxyInstance(GeoTables.class.getClassLoader(), new Class[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                boolean hasRow = row != null && !isRead[0];
+                                isRead[0] = true;
+                                return hasRow;
+                            case "getString":
+                            case "getLong":
+                            case "getInt":
+                                Object value = row[args[0] instanceof String ?
+                                        columns.indexOf(args[0]) : (Integer) args[0] - 1];
+                                if (method.getReturnType() == String.class) {
+                                    return String.valueOf(value);
+                                } else if (method.getReturnType() == int.class) {
+                                    return ((Number) value).intValue();
+                                }
+                                return ((Number) value).longValue();
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        @Override
+        public DataSource getDataSource(ConfigReader configReader) {
+            return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class},
+                    (proxy, method, args) -> {
+                        if (!"getConnection".equals(method.getName())) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        if (isDown) {
+                            throw new SQLException("Connection refused");
+                        }
+                        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                                (connection, connectionMethod, sql) -> {
+                                    if ("getMetaData".equals(connectionMethod.getName())) {
+                                        return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                new Class[]{DatabaseMetaData.class},
+                                                (metaData, metaDataMethod, arguments) -> "H2");
+                                    }
+                                    if (!"prepareStatement".equals(connectionMethod.getName())) {
+                                        return connectionMethod.getReturnType() == boolean.class ? false : null;
+                                    }
+                                    Map<Integer, Object> parameters = new HashMap<>();
+                                    return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                            new Class[]{PreparedStatement.class},
+                                            (statement, statementMethod, arguments) -> {
+                                                if ("executeQuery".equals(statementMethod.getName())) {
+                                                    return resultSet(query((String) sql[0], parameters));
+                                                } else if (statementMethod.getName().startsWith("set") &&
+                                                        arguments.length == 2) {
+                                                    parameters.put((Integer) arguments[0], arguments[1]);
+                                                }
+                                                return null;
+                                            });
+                                });
+                    });
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
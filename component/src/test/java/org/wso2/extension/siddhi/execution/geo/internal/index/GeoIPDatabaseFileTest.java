@@ -0,0 +1,70 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+/**
+ * Test case for the memory mapped geo IP database file.
+ */
+public class GeoIPDatabaseFileTest {
+
+    private static final Logger logger = Logger.getLogger(GeoIPDatabaseFileTest.class);
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        logger.info("GeoIPDatabaseFile 1 - Test lookups on a written and mapped file");
+        IPv4RangeIndex index = new IPv4RangeIndex.Builder()
+                .addLocation(1851632, "Japan", "T\u014dky\u014d")
+                .addLocation(2017370, "Russia", "Moscow")
+                .addRange(16777216L, 16777471L, 1851632)          // 1.0.0.0/24
+                .addRange(16777472L, 16777727L, 1851632)          // 1.0.1.0/24
+                .addRange(3232235520L, 3232235775L, 2017370)      // 192.168.0.0/24
+                .build();
+        File file = File.createTempFile("geoip", ".db");
+        file.deleteOnExit();
+        GeoIPDatabaseFile.write(index, file);
+
+        GeoIPDatabaseFile databaseFile = GeoIPDatabaseFile.open(file);
+        AssertJUnit.assertEquals(3, databaseFile.size());
+        int range = databaseFile.findRange(16777472L);
+        AssertJUnit.assertEquals("Japan", databaseFile.getCountryName(range));
+        AssertJUnit.assertEquals("T\u014dky\u014d", databaseFile.getCityName(range));
+        AssertJUnit.assertSame(databaseFile.getLocation(range),
+                databaseFile.getLocation(databaseFile.findRange(16777216L)));
+        range = databaseFile.findRange(3232235775L);
+        AssertJUnit.assertEquals("Russia", databaseFile.getCountryName(range));
+        AssertJUnit.assertEquals(-1, databaseFile.findRange(16777728L));
+        AssertJUnit.assertEquals(-1, databaseFile.findRange(4294967295L));
+    }
+
+    @Test
+    public void testConverterUsage() throws Exception {
+        logger.info("GeoIPDatabaseFile 2 - Test the converter rejects a password given as an argument");
+        try {
+            GeoIPDatabaseFileConverter.main(new String[]{"jdbc:h2:mem:geo", "admin", "secret", "geo.db"});
+            AssertJUnit.fail("The password is not accepted as an argument");
+        } catch (IllegalArgumentException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("GEO_LOCATION_DB_PASSWORD"));
+        }
+    }
+}
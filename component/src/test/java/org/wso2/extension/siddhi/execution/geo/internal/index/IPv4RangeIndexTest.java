@@ -0,0 +1,87 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Test case for the in-memory IPv4 range index.
+ */
+public class IPv4RangeIndexTest {
+
+    private static final Logger logger = Logger.getLogger(IPv4RangeIndexTest.class);
+
+    private IPv4RangeIndex buildIndex() {
+        // Ranges are added out of order and one of them is above 128.0.0.0 to cover unsigned ordering
+        return new IPv4RangeIndex.Builder()
+                .addLocation(1851632, "Japan", "Tokyo")
+                .addLocation(1269750, "India", "Karnataka")
+                .addLocation(2017370, "Russia", "Moscow")
+                .addRange(3232235520L, 3232235775L, 2017370)      // 192.168.0.0/24
+                .addRange(16777216L, 16777471L, 1851632)          // 1.0.0.0/24
+                .addRange(16778240L, 16779263L, 1269750)          // 1.0.4.0/22
+                .build();
+    }
+
+    @Test
+    public void testFindRange() {
+        logger.info("IPv4RangeIndex 1 - Test lookups inside, between and outside ranges");
+        IPv4RangeIndex index = buildIndex();
+        AssertJUnit.assertEquals(3, index.size());
+
+        int range = index.findRange(16777216L + 10);
+        AssertJUnit.assertEquals("Japan", index.getCountryName(range));
+        AssertJUnit.assertEquals("Tokyo", index.getCityName(range));
+
+        range = index.findRange(16779263L);
+        AssertJUnit.assertEquals("India", index.getCountryName(range));
+
+        range = index.findRange(3232235521L);
+        AssertJUnit.assertEquals("Russia", index.getCountryName(range));
+
+        AssertJUnit.assertEquals(-1, index.findRange(16777472L));
+        AssertJUnit.assertEquals(-1, index.findRange(0L));
+        AssertJUnit.assertEquals(-1, index.findRange(4294967295L));
+    }
+
+    @Test
+    public void testFindCIDRRange() {
+        logger.info("IPv4RangeIndex 2 - Test lookups of whole network blocks");
+        IPv4RangeIndex index = buildIndex();
+        AssertJUnit.assertTrue(index.findRange(16778240L, 16779263L) >= 0);
+        AssertJUnit.assertEquals(-1, index.findRange(16778240L, 16778495L));
+    }
+
+    @Test
+    public void testSharedLocations() {
+        logger.info("IPv4RangeIndex 3 - Test ranges of the same geoname share one location");
+        IPv4RangeIndex index = new IPv4RangeIndex.Builder()
+                .addLocation(1851632, "Japan", "Tokyo")
+                .addLocation(1850147, new String("Japan"), "Kanagawa")
+                .addRange(16777216L, 16777471L, 1851632)          // 1.0.0.0/24
+                .addRange(16777472L, 16777727L, 1851632)          // 1.0.1.0/24
+                .addRange(16777728L, 16777983L, 1850147)          // 1.0.2.0/24
+                .build();
+        AssertJUnit.assertSame(index.getLocation(0), index.getLocation(1));
+        AssertJUnit.assertSame(index.getLocation(0), index.getLocationOfGeoname(1851632));
+        AssertJUnit.assertSame(index.getCountryName(0), index.getCountryName(2));
+        AssertJUnit.assertNull(index.getLocationOfGeoname(2017370));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.net.InetAddress;
+
+/**
+ * Test case for the in-memory IPv6 range index.
+ */
+public class IPv6RangeIndexTest {
+
+    private static final Logger logger = Logger.getLogger(IPv6RangeIndexTest.class);
+
+    private int find(IPv6RangeIndex index, String ip) throws Exception {
+        byte[] address = InetAddress.getByName(ip).getAddress();
+        return index.findRange(IPv6RangeIndex.getHigh(address), IPv6RangeIndex.getLow(address));
+    }
+
+    @Test
+    public void testFindRange() throws Exception {
+        logger.info("IPv6RangeIndex 1 - Test lookups of IPv6 CIDR blocks");
+        IPv6RangeIndex index = new IPv6RangeIndex.Builder()
+                .addRange("2a01:7e00::/32", 2643743)
+                .addRange("2001:200::/32", 1850147)
+                .addRange("fe80::/10", 1)
+                .addRange("1.0.0.0/24", 2)
+                .build();
+        AssertJUnit.assertEquals(3, index.size());
+        AssertJUnit.assertEquals(2643743, index.getGeonameId(find(index, "2a01:7e00::f03c:91ff:fe44:6903")));
+        AssertJUnit.assertEquals(1850147, index.getGeonameId(find(index, "2001:200:ffff:ffff:ffff:ffff:ffff:ffff")));
+        AssertJUnit.assertEquals(1, index.getGeonameId(find(index, "febf::1")));
+        AssertJUnit.assertEquals(-1, find(index, "2001:201::1"));
+        AssertJUnit.assertEquals(-1, find(index, "::2"));
+        AssertJUnit.assertEquals(-1, find(index, "ffff::1"));
+    }
+
+    @Test
+    public void testEmbeddedIPv4() {
+        logger.info("IPv6RangeIndex 2 - Test IPv4 addresses embedded in IPv6 addresses");
+        // ::ffff:1.2.3.4
+        AssertJUnit.assertEquals(16909060L, IPv6RangeIndex.getEmbeddedIPv4(0L, 0xFFFF01020304L));
+        // 2002:102:304::1
+        AssertJUnit.assertEquals(16909060L, IPv6RangeIndex.getEmbeddedIPv4(0x2002010203040000L, 1L));
+        AssertJUnit.assertEquals(-1L, IPv6RangeIndex.getEmbeddedIPv4(0x2a017e0000000000L, 1L));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Test case for reading the MaxMind DB files of each record size and IP version.
+ */
+public class MaxMindDatabaseTest {
+
+    private static final Logger logger = Logger.getLogger(MaxMindDatabaseTest.class);
+
+    /**
+     * Writes a database with 81.2.69.0/24 in London, 81.2.70.0/24 pointing to the same record through a pointer,
+     * 203.94.64.0/19 in the Western province of Sri Lanka without a city and, in an IPv6 database, 2001:db8::/32 in
+     * the United Kingdom without a city or a subdivision. The records are placed after large unused values, so that
+     * the pointers to them are of each size the test data can reach.
+     */
+    public static File createDatabase(int ipVersion, int recordSize) throws IOException {
+        MaxMindDatabaseWriter writer = new MaxMindDatabaseWriter(ipVersion, recordSize);
+        writer.addData(new byte[3000]);
+        int unitedKingdom = writer.addData(map("iso_code", "GB", "names",
+                map("en", "United Kingdom", "de", "Vereinigtes K\u00f6nigreich")));
+        int london = writer.addData(map(
+                "city", map("geoname_id", 2643743L, "names", map("en", "London")),
+                "country", new MaxMindDatabaseWriter.Pointer(unitedKingdom),
+                "subdivisions", Collections.singletonList(map("names", map("en", "England", "de", "England"))),
+                "location", map("latitude", 51.5142, "longitude", -0.0931, "accuracy_radius", 100,
+                        "metro_code", 1.5f),
+                "traits", map("is_anonymous_proxy", false, "is_satellite_provider", true,
+                        "network_id", new BigInteger("340282366920938463463374607431768211455")),
+                "autonomous_system_number", 20712L,
+                "note", String.join("", Collections.nCopies(40, "long text "))));
+        int londonPointer = writer.addData(new MaxMindDatabaseWriter.Pointer(london));
+        writer.addData(new byte[530000]);
+        int sriLanka = writer.addData(map("names", map("en", "Sri Lanka")));
+        int western = writer.addData(map("country", new MaxMindDatabaseWriter.Pointer(sriLanka),
+                "subdivisions", Collections.singletonList(map("names", map("en", "Western Province"))),
+                "location", map("latitude", 6.9319, "longitude", 79.8478)));
+        writer.addNetwork(new byte[]{81, 2, 69, 0}, 24, london);
+        writer.addNetwork(new byte[]{81, 2, 70, 0}, 24, londonPointer);
+        writer.addNetwork(new byte[]{(byte) 203, 94, 64, 0}, 19, western);
+        if (ipVersion == 6) {
+            writer.addNetwork(new byte[]{0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}, 32,
+                    writer.addData(map("country", new MaxMindDatabaseWriter.Pointer(unitedKingdom))));
+        }
+        File file = File.createTempFile("maxmind", ".mmdb");
+        file.deleteOnExit();
+        writer.write(file);
+        return file;
+    }
+
+    private static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        logger.info("MaxMindDatabase 1 - Test the lookups for each record size and IP version");
+        for (int ipVersion : new int[]{4, 6}) {
+            for (int recordSize : new int[]{24, 28, 32}) {
+                String database = "IPv" + ipVersion + " database of record size " + recordSize;
+                MaxMindDatabase maxMindDatabase = MaxMindDatabase.open(createDatabase(ipVersion, recordSize), "en");
+                AssertJUnit.assertEquals(ipVersion, maxMindDatabase.getIpVersion());
+                AssertJUnit.assertEquals("Test-City", maxMindDatabase.getDatabaseType());
+
+                MaxMindDatabase.Record record = maxMindDatabase.lookupIPv4(ipv4(81, 2, 69, 160));
+                AssertJUnit.assertEquals(database, "London", record.getCity());
+                AssertJUnit.assertEquals(database, "United Kingdom", record.getCountry());
+                AssertJUnit.assertEquals(database, "England", record.getSubdivision());
+                AssertJUnit.assertEquals(database, 51.5142, record.getLatitude());
+                AssertJUnit.assertEquals(database, -0.0931, record.getLongitude());
+                AssertJUnit.assertEquals(database, "20712", record.getAutonomousSystemNumber());
+                // The records of a network are decoded once
+                AssertJUnit.assertSame(database, record, maxMindDatabase.lookupIPv4(ipv4(81, 2, 69, 1)));
+
+                record = maxMindDatabase.lookupIPv4(ipv4(81, 2, 70, 255));
+                AssertJUnit.assertEquals(database, "London", record.getCity());
+                record = maxMindDatabase.lookupIPv4(ipv4(203, 94, 95, 1));
+                AssertJUnit.assertEquals(database, "Sri Lanka", record.getCountry());
+                AssertJUnit.assertEquals(database, "Western Province", record.getSubdivision());
+                AssertJUnit.assertNull(database, record.getCity());
+                AssertJUnit.assertNull(database, record.getAutonomousSystemNumber());
+
+                AssertJUnit.assertNull(database, maxMindDatabase.lookupIPv4(ipv4(81, 2, 71, 1)));
+                AssertJUnit.assertNull(database, maxMindDatabase.lookupIPv4(ipv4(203, 94, 96, 1)));
+                AssertJUnit.assertNull(database, maxMindDatabase.lookupIPv4(ipv4(10, 0, 0, 1)));
+
+                record = maxMindDatabase.lookupIPv6(0x20010db812345678L, 1);
+                AssertJUnit.assertNull(database, maxMindDatabase.lookupIPv6(0x20010db900000000L, 1));
+                if (ipVersion == 4) {
+                    AssertJUnit.assertNull(database, record);
+                    continue;
+                }
+                AssertJUnit.assertEquals(database, "United Kingdom", record.getCountry());
+                AssertJUnit.assertNull(database, record.getCity());
+                AssertJUnit.assertNull(database, record.getSubdivision());
+                AssertJUnit.assertNull(database, record.getLatitude());
+                // IPv4 addresses are looked up under ::/96 of an IPv6 tree
+                AssertJUnit.assertEquals(database, "London",
+                        maxMindDatabase.lookupIPv6(0, ipv4(81, 2, 69, 160)).getCity());
+            }
+        }
+    }
+
+    @Test
+    public void testLocale() throws IOException {
+        logger.info("MaxMindDatabase 2 - Test the names of the locale fall back to English");
+        MaxMindDatabase maxMindDatabase = MaxMindDatabase.open(createDatabase(6, 24), "de");
+        MaxMindDatabase.Record record = maxMindDatabase.lookupIPv4(ipv4(81, 2, 69, 160));
+        AssertJUnit.assertEquals("Vereinigtes K\u00f6nigreich", record.getCountry());
+        AssertJUnit.assertEquals("London", record.getCity());
+        AssertJUnit.assertEquals("Sri Lanka", maxMindDatabase.lookupIPv4(ipv4(203, 94, 64, 1)).getCountry());
+    }
+
+    @Test
+    public void testInvalidFiles() throws IOException {
+        logger.info("MaxMindDatabase 3 - Test the files which are not MaxMind DB files are rejected");
+        File file = File.createTempFile("maxmind", ".mmdb");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "not a MaxMind DB file".getBytes("UTF-8"));
+        try {
+            MaxMindDatabase.open(file, "en");
+            AssertJUnit.fail("Opened a file without metadata");
+        } catch (IOException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("metadata"));
+        }
+        new MaxMindDatabaseWriter(4, 20).write(file);
+        try {
+            MaxMindDatabase.open(file, "en");
+            AssertJUnit.fail("Opened a file of an unsupported record size");
+        } catch (IOException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("record size"));
+        }
+        byte[] bytes = Files.readAllBytes(createDatabase(4, 24).toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 40));
+        try {
+            MaxMindDatabase.open(file, "en");
+            AssertJUnit.fail("Opened a file with truncated metadata");
+        } catch (IOException e) {
+            AssertJUnit.assertTrue(e.getMessage().contains("metadata"));
+        }
+    }
+
+    @Test
+    public void testLargeDataSection() throws IOException {
+        logger.info("MaxMindDatabase 4 - Test the records pointing beyond 24 bits into the data section");
+        for (int recordSize : new int[]{28, 32}) {
+            MaxMindDatabaseWriter writer = new MaxMindDatabaseWriter(4, recordSize);
+            writer.addData(new byte[1 << 24]);
+            writer.addNetwork(new byte[]{81, 2, 69, 0}, 24, writer.addData(map("country",
+                    map("names", map("en", "United Kingdom")))));
+            writer.addNetwork(new byte[]{(byte) 128, 0, 0, 0}, 1, writer.addData(map("country",
+                    map("names", map("en", "Sri Lanka")))));
+            File file = File.createTempFile("maxmind", ".mmdb");
+            file.deleteOnExit();
+            writer.write(file);
+            MaxMindDatabase maxMindDatabase = MaxMindDatabase.open(file, "en");
+            AssertJUnit.assertEquals("United Kingdom", maxMindDatabase.lookupIPv4(ipv4(81, 2, 69, 160)).getCountry());
+            AssertJUnit.assertEquals("Sri Lanka", maxMindDatabase.lookupIPv4(ipv4(203, 94, 64, 1)).getCountry());
+            AssertJUnit.assertNull(maxMindDatabase.lookupIPv4(ipv4(81, 2, 68, 1)));
+        }
+    }
+
+    private static long ipv4(int a, int b, int c, int d) {
+        return ((long) a << 24) | (b << 16) | (c << 8) | d;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes MaxMind DB (MMDB) files for the tests, with the networks and the data records given to it. The data
+ * section values are strings, doubles, floats, byte arrays, Integers as int32, Longs as uint32, BigIntegers as
+ * uint128, booleans, maps, lists and {@link Pointer}s to values written before.
+ */
+public class MaxMindDatabaseWriter {
+
+    private static final byte[] METADATA_START_MARKER = {(byte) 0xAB, (byte) 0xCD, (byte) 0xEF,
+            'M', 'a', 'x', 'M', 'i', 'n', 'd', '.', 'c', 'o', 'm'};
+    private static final long EMPTY = -1;
+
+    private final int ipVersion;
+    private final int recordSize;
+    // The records of the nodes, each being EMPTY, a node index, or the data offset d as -2 - d
+    private final List<long[]> nodes = new ArrayList<>();
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+    public MaxMindDatabaseWriter(int ipVersion, int recordSize) {
+        this.ipVersion = ipVersion;
+        this.recordSize = recordSize;
+        nodes.add(new long[]{EMPTY, EMPTY});
+    }
+
+    /**
+     * A pointer to a value written before.
+     */
+    public static final class Pointer {
+        private final int offset;
+
+        public Pointer(int offset) {
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Writes a value to the data section.
+     *
+     * @return the offset of the value in the data section
+     */
+    public int addData(Object value) {
+        int offset = data.size();
+        encode(data, value);
+        return offset;
+    }
+
+    /**
+     * Adds a network pointing to the data at the given offset. IPv4 networks are added under ::/96 of an IPv6 tree.
+     */
+    public void addNetwork(byte[] network, int prefixLength, int dataOffset) {
+        if (ipVersion == 6 && network.length == 4) {
+            byte[] ipv6Network = new byte[16];
+            System.arraycopy(network, 0, ipv6Network, 12, 4);
+            network = ipv6Network;
+            prefixLength += 96;
+        }
+        int node = 0;
+        for (int i = 0; i < prefixLength; i++) {
+            int bit = (network[i / 8] >>> (7 - i % 8)) & 1;
+            long[] records = nodes.get(node);
+            if (i == prefixLength - 1) {
+                records[bit] = -2 - dataOffset;
+            } else {
+                if (records[bit] == EMPTY) {
+                    records[bit] = nodes.size();
+                    nodes.add(new long[]{EMPTY, EMPTY});
+                }
+                node = (int) records[bit];
+            }
+        }
+    }
+
+    public void write(File file) throws IOException {
+        long nodeCount = nodes.size();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            for (long[] records : nodes) {
+                long left = toValue(records[0], nodeCount);
+                long right = toValue(records[1], nodeCount);
+                switch (recordSize) {
+                    case 24:
+                        writeUnsigned(out, left, 3);
+                        writeUnsigned(out, right, 3);
+                        break;
+                    case 28:
+                        writeUnsigned(out, left & 0xFFFFFF, 3);
+                        out.write((int) (((left >>> 20) & 0xF0) | ((right >>> 24) & 0x0F)));
+                        writeUnsigned(out, right & 0xFFFFFF, 3);
+                        break;
+                    default:
+                        writeUnsigned(out, left, recordSize / 8);
+                        writeUnsigned(out, right, recordSize / 8);
+                }
+            }
+            out.write(new byte[16]);
+            data.writeTo(out);
+            out.write(METADATA_START_MARKER);
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("node_count", nodeCount);
+            metadata.put("record_size", (long) recordSize);
+            metadata.put("ip_version", (long) ipVersion);
+            metadata.put("database_type", "Test-City");
+            ByteArrayOutputStream metadataBytes = new ByteArrayOutputStream();
+            encode(metadataBytes, metadata);
+            metadataBytes.writeTo(out);
+        }
+    }
+
+    private static long toValue(long record, long nodeCount) {
+        if (record == EMPTY) {
+            return nodeCount;
+        } else if (record >= 0) {
+            return record;
+        }
+        return nodeCount + 16 + (-2 - record);
+    }
+
+    private static void encode(ByteArrayOutputStream out, Object value) {
+        if (value instanceof Pointer) {
+            int pointer = ((Pointer) value).offset;
+            if (pointer < 2048) {
+                out.write(0x20 | (pointer >>> 8));
+                writeUnsigned(out, pointer, 1);
+            } else if (pointer < 526336) {
+                pointer -= 2048;
+                out.write(0x28 | (pointer >>> 16));
+                writeUnsigned(out, pointer & 0xFFFF, 2);
+            } else {
+                pointer -= 526336;
+                out.write(0x30 | (pointer >>> 24));
+                writeUnsigned(out, pointer & 0xFFFFFF, 3);
+            }
+        } else if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            writeControl(out, 2, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else if (value instanceof Double) {
+            writeControl(out, 3, 8);
+            writeUnsigned(out, Double.doubleToLongBits((Double) value), 8);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            writeControl(out, 4, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else if (value instanceof Long) {
+            long number = (Long) value;
+            int size = (64 - Long.numberOfLeadingZeros(number) + 7) / 8;
+            writeControl(out, 6, size);
+            writeUnsigned(out, number, size);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeControl(out, 7, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                encode(out, entry.getKey());
+                encode(out, entry.getValue());
+            }
+        } else if (value instanceof Integer) {
+            writeControl(out, 8, 4);
+            writeUnsigned(out, (Integer) value, 4);
+        } else if (value instanceof BigInteger) {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            writeControl(out, 10, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            writeControl(out, 11, list.size());
+            for (Object element : list) {
+                encode(out, element);
+            }
+        } else if (value instanceof Boolean) {
+            writeControl(out, 14, (Boolean) value ? 1 : 0);
+        } else if (value instanceof Float) {
+            writeControl(out, 15, 4);
+            writeUnsigned(out, Float.floatToIntBits((Float) value), 4);
+        } else {
+            throw new IllegalArgumentException("Unsupported value " + value);
+        }
+    }
+
+    private static void writeControl(ByteArrayOutputStream out, int type, int size) {
+        int sizeBits;
+        int extraSize;
+        int extraBytes;
+        if (size < 29) {
+            sizeBits = size;
+            extraSize = 0;
+            extraBytes = 0;
+        } else if (size < 285) {
+            sizeBits = 29;
+            extraSize = size - 29;
+            extraBytes = 1;
+        } else if (size < 65821) {
+            sizeBits = 30;
+            extraSize = size - 285;
+            extraBytes = 2;
+        } else {
+            sizeBits = 31;
+            extraSize = size - 65821;
+            extraBytes = 3;
+        }
+        if (type <= 7) {
+            out.write((type << 5) | sizeBits);
+        } else {
+            out.write(sizeBits);
+            out.write(type - 7);
+        }
+        writeUnsigned(out, extraSize, extraBytes);
+    }
+
+    private static void writeUnsigned(OutputStream out, long value, int size) {
+        try {
+            for (int i = size - 1; i >= 0; i--) {
+                out.write((int) (value >>> (i * 8)) & 0xFF);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
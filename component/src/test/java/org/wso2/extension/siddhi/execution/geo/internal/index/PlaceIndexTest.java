@@ -0,0 +1,89 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Test case for the nearest place lookups of the place index.
+ */
+public class PlaceIndexTest {
+
+    private static final Logger logger = Logger.getLogger(PlaceIndexTest.class);
+
+    @Test
+    public void testFindNearest() {
+        logger.info("PlaceIndex 1 - Test the nearest places match an exhaustive search");
+        Random random = new Random(42);
+        int placeCount = 5000;
+        double[] latitudes = new double[placeCount];
+        double[] longitudes = new double[placeCount];
+        PlaceIndex.Builder builder = new PlaceIndex.Builder();
+        for (int i = 0; i < placeCount; i++) {
+            latitudes[i] = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            longitudes[i] = random.nextDouble() * 360 - 180;
+            builder.addPlace(latitudes[i], longitudes[i], i);
+        }
+        PlaceIndex index = builder.build();
+        AssertJUnit.assertEquals(placeCount, index.size());
+        for (int i = 0; i < 1000; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            int expected = -1;
+            double expectedDistance = Double.MAX_VALUE;
+            for (int place = 0; place < placeCount; place++) {
+                double distance = getDistance(latitude, longitude, latitudes[place], longitudes[place]);
+                if (distance < expectedDistance) {
+                    expected = place;
+                    expectedDistance = distance;
+                }
+            }
+            double[] distance = new double[1];
+            AssertJUnit.assertEquals(expected, index.findNearest(latitude, longitude, distance));
+            AssertJUnit.assertEquals(expectedDistance, distance[0], 1);
+        }
+    }
+
+    @Test
+    public void testAntimeridian() {
+        logger.info("PlaceIndex 2 - Test the nearest place across the antimeridian");
+        PlaceIndex index = new PlaceIndex.Builder()
+                .addPlace(-18.1416, 178.4419, 1)        // Suva
+                .addPlace(-13.8333, -171.7500, 2)       // Apia
+                .addPlace(-21.1789, -175.1982, 3)       // Nuku'alofa
+                .build();
+        AssertJUnit.assertEquals(1, index.findNearest(-17.5, -179.9));
+        AssertJUnit.assertEquals(3, index.findNearest(-21, -175));
+        AssertJUnit.assertEquals(-1, new PlaceIndex.Builder().build().findNearest(0, 0));
+    }
+
+    /**
+     * @return the great circle distance in meters with the haversine formula
+     */
+    private static double getDistance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDifference = Math.toRadians(latitude2 - latitude1);
+        double longitudeDifference = Math.toRadians(longitude2 - longitude1);
+        double a = Math.pow(Math.sin(latitudeDifference / 2), 2) + Math.cos(Math.toRadians(latitude1)) *
+                Math.cos(Math.toRadians(latitude2)) * Math.pow(Math.sin(longitudeDifference / 2), 2);
+        return 2 * 6371008.8 * Math.asin(Math.sqrt(a));
+    }
+}
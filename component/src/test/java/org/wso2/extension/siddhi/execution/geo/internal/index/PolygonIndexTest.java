@@ -0,0 +1,116 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.index;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test case for the point in polygon lookups of the polygon index.
+ */
+public class PolygonIndexTest {
+
+    private static final Logger logger = Logger.getLogger(PolygonIndexTest.class);
+
+    @Test
+    public void testFind() {
+        logger.info("PolygonIndex 1 - Test the polygons found match an exhaustive search");
+        Random random = new Random(42);
+        List<List<double[]>> polygons = new ArrayList<>();
+        PolygonIndex.Builder builder = new PolygonIndex.Builder();
+        // Star shaped polygons with many edges on a grid, each with a star shaped hole
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 20; column++) {
+                double centreX = -170 + column * 17;
+                double centreY = -80 + row * 8;
+                List<double[]> rings = Arrays.asList(star(random, centreX, centreY, 9, 200),
+                        star(random, centreX, centreY, 2, 20));
+                builder.addPolygon(rings, polygons.size());
+                polygons.add(rings);
+            }
+        }
+        PolygonIndex index = builder.build();
+        AssertJUnit.assertEquals(polygons.size(), index.size());
+        int found = 0;
+        for (int i = 0; i < 10000; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            int expected = -1;
+            for (int polygon = 0; polygon < polygons.size() && expected < 0; polygon++) {
+                if (contains(polygons.get(polygon), longitude, latitude)) {
+                    expected = polygon;
+                }
+            }
+            AssertJUnit.assertEquals(expected, index.find(latitude, longitude));
+            if (expected >= 0) {
+                found++;
+            }
+        }
+        AssertJUnit.assertTrue(found > 1000);
+    }
+
+    @Test
+    public void testOverlappingPolygons() {
+        logger.info("PolygonIndex 2 - Test the polygon added first is found among overlapping polygons");
+        PolygonIndex index = new PolygonIndex.Builder()
+                .addPolygon(Arrays.asList(new double[]{0, 0, 10, 0, 10, 10, 0, 10, 0, 0}), 7)
+                .addPolygon(Arrays.asList(new double[]{5, 5, 15, 5, 15, 15, 5, 15}), 3)
+                .addPolygon(Arrays.asList(new double[]{20, 20, 30, 20}), 5)
+                .build();
+        AssertJUnit.assertEquals(2, index.size());
+        AssertJUnit.assertEquals(7, index.find(7, 7));
+        AssertJUnit.assertEquals(3, index.find(12, 12));
+        AssertJUnit.assertEquals(7, index.find(2, 2));
+        AssertJUnit.assertEquals(-1, index.find(20, 2));
+        AssertJUnit.assertEquals(-1, new PolygonIndex.Builder().build().find(0, 0));
+    }
+
+    private static double[] star(Random random, double centreX, double centreY, double radius, int pointCount) {
+        double[] ring = new double[pointCount * 2];
+        for (int i = 0; i < pointCount; i++) {
+            double angle = 2 * Math.PI * i / pointCount;
+            double pointRadius = radius * (0.5 + random.nextDouble() / 2);
+            ring[i * 2] = centreX + pointRadius * Math.cos(angle);
+            ring[i * 2 + 1] = centreY + pointRadius * Math.sin(angle) / 3;
+        }
+        return ring;
+    }
+
+    private static boolean contains(List<double[]> rings, double x, double y) {
+        boolean inside = false;
+        for (double[] ring : rings) {
+            int pointCount = ring.length / 2;
+            for (int i = 0, j = pointCount - 1; i < pointCount; j = i++) {
+                double xi = ring[i * 2];
+                double yi = ring[i * 2 + 1];
+                double xj = ring[j * 2];
+                double yj = ring[j * 2 + 1];
+                if ((yi > y) != (yj > y) && x < xi + (y - yi) * (xj - xi) / (yj - yi)) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+}
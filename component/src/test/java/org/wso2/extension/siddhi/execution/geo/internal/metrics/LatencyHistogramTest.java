@@ -0,0 +1,54 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.metrics;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Test case for the histogram of lookup latencies.
+ */
+public class LatencyHistogramTest {
+
+    private static final Logger logger = Logger.getLogger(LatencyHistogramTest.class);
+
+    @Test
+    public void testPercentiles() {
+        logger.info("LatencyHistogram 1 - Test the percentiles are within a factor of two of the latencies");
+        LatencyHistogram histogram = new LatencyHistogram();
+        AssertJUnit.assertEquals(0L, histogram.getPercentile(99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(5000000);
+        AssertJUnit.assertEquals(100L, histogram.getCount());
+        AssertJUnit.assertEquals(5000000L, histogram.getMax());
+        AssertJUnit.assertEquals((99 * 1000 + 5000000) / 100.0, histogram.getMean());
+        long median = histogram.getPercentile(50);
+        AssertJUnit.assertTrue(median >= 1000 && median < 2000);
+        AssertJUnit.assertTrue(histogram.getPercentile(99) < 2000);
+        AssertJUnit.assertEquals(5000000L, histogram.getPercentile(100));
+
+        histogram.record(-1);
+        AssertJUnit.assertEquals(101L, histogram.getCount());
+        histogram.reset();
+        AssertJUnit.assertEquals(0L, histogram.getCount());
+        AssertJUnit.assertEquals(0L, histogram.getMax());
+    }
+}
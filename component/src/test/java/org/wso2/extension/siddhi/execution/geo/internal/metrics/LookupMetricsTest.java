@@ -0,0 +1,76 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.metrics;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+/**
+ * Test case for the lookup metrics and their MBean.
+ */
+public class LookupMetricsTest {
+
+    private static final Logger logger = Logger.getLogger(LookupMetricsTest.class);
+
+    @Test
+    public void testDisabledMetrics() {
+        logger.info("LookupMetrics 1 - Test nothing is recorded while the metrics are disabled");
+        LookupMetrics metrics = new LookupMetrics("disabledLookups");
+        long startTime = metrics.startTime();
+        AssertJUnit.assertEquals(0L, startTime);
+        metrics.record(LookupMetrics.Stage.BACKEND, startTime);
+        metrics.cacheHit();
+        metrics.cacheMiss();
+        metrics.backendError();
+        AssertJUnit.assertEquals(0L, metrics.getLatency(LookupMetrics.Stage.BACKEND).getCount());
+        AssertJUnit.assertEquals(0L, metrics.getCacheHitCount());
+        AssertJUnit.assertEquals(0L, metrics.getCacheMissCount());
+        AssertJUnit.assertEquals(0L, metrics.getBackendErrorCount());
+    }
+
+    @Test
+    public void testEnabledMetrics() throws Exception {
+        logger.info("LookupMetrics 2 - Test the recorded metrics are exposed through JMX");
+        LookupMetrics metrics = LookupMetrics.getInstance("testLookups");
+        metrics.enable();
+        metrics.registerGauge("CacheEvictions", () -> 7);
+        metrics.record(LookupMetrics.Stage.CACHE, metrics.startTime());
+        metrics.cacheHit();
+        metrics.cacheHit();
+        metrics.cacheHit();
+        metrics.cacheMiss();
+        AssertJUnit.assertEquals(1L, metrics.getLatency(LookupMetrics.Stage.CACHE).getCount());
+        AssertJUnit.assertEquals(0.75, metrics.getCacheHitRatio());
+
+        ObjectName objectName = new ObjectName("org.wso2.extension.siddhi.execution.geo:type=LookupMetrics," +
+                "name=testLookups");
+        AssertJUnit.assertEquals(3L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName,
+                "CacheHits"));
+        AssertJUnit.assertEquals(7L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName,
+                "CacheEvictions"));
+        AssertJUnit.assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName,
+                "CacheCount"));
+        ManagementFactory.getPlatformMBeanServer().invoke(objectName, "reset", null, null);
+        AssertJUnit.assertEquals(0L, metrics.getCacheHitCount());
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+}
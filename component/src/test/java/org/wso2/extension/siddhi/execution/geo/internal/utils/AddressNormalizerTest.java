@@ -0,0 +1,47 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Test case for the normalization of the addresses used as geocode cache keys.
+ */
+public class AddressNormalizerTest {
+
+    private static final Logger logger = Logger.getLogger(AddressNormalizerTest.class);
+
+    @Test
+    public void testNormalize() {
+        logger.info("AddressNormalizer 1 - Test the spellings of an address have the same normalized form");
+        String expected = "5 avenue anatole france 75007 paris france";
+        AssertJUnit.assertEquals(expected, AddressNormalizer.normalize("5 Avenue Anatole France, 75007 Paris, France"));
+        AssertJUnit.assertEquals(expected, AddressNormalizer.normalize("  5 av. anatole FRANCE 75007  Paris France."));
+        AssertJUnit.assertEquals(expected, AddressNormalizer.normalize("5 Ave Anatole-France\t75007 Paris (France)"));
+        AssertJUnit.assertEquals("1600 amphitheatre parkway mountain view", AddressNormalizer.normalize(
+                "1600 Amphitheatre Pkwy, Mountain View"));
+        AssertJUnit.assertEquals("10 north main street", AddressNormalizer.normalize("10 N. Main St"));
+        AssertJUnit.assertEquals("3rd street", AddressNormalizer.normalize("3rd St"));
+        AssertJUnit.assertEquals("obriens road", AddressNormalizer.normalize("O'Brien's Rd"));
+        // Full width digits
+        AssertJUnit.assertEquals("12 k\u00f6ln", AddressNormalizer.normalize("\uFF11\uFF12 K\u00D6LN"));
+        AssertJUnit.assertEquals("", AddressNormalizer.normalize(" ,.- "));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Test case for the geohash cells.
+ */
+public class GeoHashTest {
+
+    private static final Logger logger = Logger.getLogger(GeoHashTest.class);
+
+    @Test
+    public void testEncode() {
+        logger.info("GeoHash 1 - Test the cells of points");
+        AssertJUnit.assertEquals("ezs42", GeoHash.toString(GeoHash.encode(42.6, -5.6, 5), 5));
+        AssertJUnit.assertEquals("u4pruydqqvj", GeoHash.toString(GeoHash.encode(57.64911, 10.40744, 11), 11));
+        AssertJUnit.assertEquals(GeoHash.encode(6.909785, 79.852603, 8), GeoHash.encode(6.909790, 79.852610, 8));
+        AssertJUnit.assertEquals("zzzzzzzz", GeoHash.toString(GeoHash.encode(90, 180, 8), 8));
+        AssertJUnit.assertEquals("00000000", GeoHash.toString(GeoHash.encode(-90, -180, 8), 8));
+    }
+
+    @Test
+    public void testNeighbors() {
+        logger.info("GeoHash 2 - Test the cells around a cell");
+        long[] neighbors = GeoHash.neighbors(GeoHash.encode(42.6, -5.6, 5), 5);
+        String[] expected = {"ezefx", "ezs48", "ezs49", "ezefr", "ezs43", "ezefp", "ezs40", "ezs41"};
+        for (int i = 0; i < expected.length; i++) {
+            AssertJUnit.assertEquals(expected[i], GeoHash.toString(neighbors[i], 5));
+        }
+        // Wraps around the antimeridian
+        neighbors = GeoHash.neighbors(GeoHash.encode(0.01, 179.99, 6), 6);
+        AssertJUnit.assertEquals(GeoHash.encode(0.01, -179.99, 6), neighbors[4]);
+    }
+}
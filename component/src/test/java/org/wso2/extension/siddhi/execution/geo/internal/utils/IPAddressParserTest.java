@@ -0,0 +1,112 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.net.InetAddress;
+
+/**
+ * Test case for the IP address parser.
+ */
+public class IPAddressParserTest {
+
+    private static final Logger logger = Logger.getLogger(IPAddressParserTest.class);
+
+    @Test
+    public void testParseIPv4() {
+        logger.info("IPAddressParser 1 - Test valid IPv4 addresses");
+        AssertJUnit.assertEquals(0L, IPAddressParser.parseIPv4("0.0.0.0"));
+        AssertJUnit.assertEquals(16909060L, IPAddressParser.parseIPv4("1.2.3.4"));
+        AssertJUnit.assertEquals(3232235777L, IPAddressParser.parseIPv4("192.168.1.1"));
+        AssertJUnit.assertEquals(4294967295L, IPAddressParser.parseIPv4("255.255.255.255"));
+        AssertJUnit.assertEquals(16909060L, IPAddressParser.parseIPv4("001.002.003.004"));
+    }
+
+    @Test
+    public void testParseInvalidIPv4() {
+        logger.info("IPAddressParser 2 - Test invalid IPv4 addresses");
+        String[] invalidAddresses = {"", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.", ".1.2.3",
+                "1.2.3.4/24", "a.b.c.d", "1.2.3.0004", "2001:db8::1", "localhost"};
+        for (String address : invalidAddresses) {
+            AssertJUnit.assertEquals(address, -1L, IPAddressParser.parseIPv4(address));
+        }
+    }
+
+    @Test
+    public void testParseIPv6() throws Exception {
+        logger.info("IPAddressParser 3 - Test valid IPv6 addresses against InetAddress");
+        String[] addresses = {"::", "::1", "1::", "2001:db8::1", "2001:0db8:0000:0000:0000:ff00:0042:8329",
+                "2a01:7e00::f03c:91ff:fe44:6903", "fe80::1:2:3:4", "1:2:3:4:5:6:7::", "::2:3:4:5:6:7:8",
+                "1:2:3::6:7:8", "FFFF:ffff:FFFF:ffff:FFFF:ffff:FFFF:ffff", "::ffff:192.168.1.1",
+                "64:ff9b::1.2.3.4", "1:2:3:4:5:6:1.2.3.4", "2002:c000:0204::1"};
+        long[] result = new long[2];
+        for (String address : addresses) {
+            AssertJUnit.assertTrue(address, IPAddressParser.parseIPv6(address, 0, address.length(), result));
+            byte[] expected = InetAddress.getByName(address).getAddress();
+            if (expected.length == 4) {
+                // InetAddress returns IPv4-mapped addresses as IPv4 addresses
+                AssertJUnit.assertEquals(address, 0L, result[0]);
+                AssertJUnit.assertEquals(address, 0xFFFF00000000L | IPAddressParser.parseIPv4(
+                        InetAddress.getByAddress(expected).getHostAddress()), result[1]);
+            } else {
+                AssertJUnit.assertEquals(address, toLong(expected, 0), result[0]);
+                AssertJUnit.assertEquals(address, toLong(expected, 8), result[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testParseInvalidIPv6() {
+        logger.info("IPAddressParser 4 - Test invalid IPv6 addresses");
+        String[] invalidAddresses = {"", ":", ":::", "1:", ":1", "1::2::3", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7",
+                "12345::", "g::1", "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3", "fe80::1%eth0", "1.2.3.4", "example.com",
+                "1:2:3:4:5:6:7:8::", "\uFF11::1", "::\u0661", "fe80::\uFF41"};
+        for (String address : invalidAddresses) {
+            AssertJUnit.assertFalse(address, IPAddressParser.parseIPv6(address, 0, address.length(), null));
+            AssertJUnit.assertFalse(address, address.indexOf(':') >= 0 && IPAddressParser.isIpAddress(address));
+        }
+        AssertJUnit.assertTrue(IPAddressParser.isIpAddress("1.2.3.4"));
+        AssertJUnit.assertTrue(IPAddressParser.isIpAddress("::1"));
+        // Digits of other scripts are not hexadecimal digits of an address
+        AssertJUnit.assertFalse(Utilities.isIpAddress("2001:db8::\u0968"));
+        AssertJUnit.assertFalse(Utilities.isIpAddress("\uFF11.2.3.4"));
+        AssertJUnit.assertTrue(Utilities.isIpAddress("2001:DB8::aF"));
+    }
+
+    @Test
+    public void testParsePrefixLength() {
+        logger.info("IPAddressParser 5 - Test prefix lengths of CIDR blocks");
+        AssertJUnit.assertEquals(24, IPAddressParser.parsePrefixLength("1.0.0.0/24", 7, 32));
+        AssertJUnit.assertEquals(0, IPAddressParser.parsePrefixLength("0.0.0.0/0", 7, 32));
+        AssertJUnit.assertEquals(-1, IPAddressParser.parsePrefixLength("1.0.0.0/33", 7, 32));
+        AssertJUnit.assertEquals(64, IPAddressParser.parsePrefixLength("2001:db8::/64", 10, 128));
+        AssertJUnit.assertEquals(-1, IPAddressParser.parsePrefixLength("1.0.0.0/", 7, 32));
+        AssertJUnit.assertEquals(-1, IPAddressParser.parsePrefixLength("1.0.0.0/2a", 7, 32));
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+}
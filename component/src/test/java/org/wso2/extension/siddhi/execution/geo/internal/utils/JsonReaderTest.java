@@ -0,0 +1,74 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Test case for reading JSON documents token by token.
+ */
+public class JsonReaderTest {
+
+    private static final Logger logger = Logger.getLogger(JsonReaderTest.class);
+
+    @Test
+    public void testRead() throws IOException {
+        logger.info("JsonReader 1 - Test reading the values of a document");
+        JsonReader reader = new JsonReader(new StringReader(" {\"name\" : \"Caf\\u00e9 \\\"A\\\"\", \"values\":" +
+                "[1, -2.5e1, true, null, {\"skipped\": [false, {}]}], \"code\": 42 }\n"));
+        reader.beginObject();
+        AssertJUnit.assertEquals("name", reader.nextName());
+        AssertJUnit.assertEquals("Caf\u00e9 \"A\"", reader.nextString());
+        AssertJUnit.assertEquals("values", reader.nextName());
+        reader.beginArray();
+        AssertJUnit.assertEquals(1.0, reader.nextDouble());
+        AssertJUnit.assertEquals(-25.0, reader.nextDouble());
+        AssertJUnit.assertTrue(reader.nextBoolean());
+        AssertJUnit.assertEquals(JsonReader.Token.NULL, reader.peek());
+        reader.nextNull();
+        reader.skipValue();
+        AssertJUnit.assertFalse(reader.hasNext());
+        reader.endArray();
+        AssertJUnit.assertEquals("code", reader.nextName());
+        AssertJUnit.assertEquals("42", reader.nextString());
+        reader.endObject();
+        AssertJUnit.assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void testInvalidDocuments() {
+        logger.info("JsonReader 2 - Test reading invalid documents");
+        String[] documents = {"{\"a\" 1}", "[1 2]", "{\"a\": tru}", "[\"unterminated", "{1: 2}", "[1] [2]",
+                "[\"\\u\uFF10\uFF10e9\"]"};
+        for (String document : documents) {
+            try {
+                JsonReader reader = new JsonReader(new StringReader(document));
+                reader.skipValue();
+                reader.peek();
+                AssertJUnit.fail("Read the invalid document " + document);
+            } catch (IOException e) {
+                AssertJUnit.assertTrue(e.getMessage().contains("of the JSON document"));
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.execution.geo.api.Location;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Test case for the binary encoding of IP locations.
+ */
+public class LocationCodecTest {
+
+    private static final Logger logger = Logger.getLogger(LocationCodecTest.class);
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        logger.info("LocationCodec 1 - Test IPv4 and IPv6 addresses with their locations are read as written");
+        Map<String, Location> entries = new LinkedHashMap<>();
+        entries.put("95.31.18.119", new Location("Russia", "Moscow"));
+        entries.put("95.31.18.120", new Location("Russia", "Moscow"));
+        entries.put("2001:db8::1", new Location("Sri Lanka", "Western Province", "Colombo", 6.9319, 79.8478,
+                "AS9329"));
+        entries.put("255.255.255.255", new Location("", "", "", 1.5, null, null));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LocationCodec.write(new DataOutputStream(bytes), entries);
+
+        Map<String, Location> readEntries = new LinkedHashMap<>();
+        LocationCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), readEntries::put);
+        AssertJUnit.assertEquals(entries.keySet().toString(), readEntries.keySet().toString());
+        AssertJUnit.assertSame(readEntries.get("95.31.18.119"), readEntries.get("95.31.18.120"));
+        AssertJUnit.assertEquals("Moscow", readEntries.get("95.31.18.119").getCity());
+        Location location = readEntries.get("2001:db8::1");
+        AssertJUnit.assertEquals("Sri Lanka", location.getCountry());
+        AssertJUnit.assertEquals("Western Province", location.getSubdivision());
+        AssertJUnit.assertEquals("Colombo", location.getCity());
+        AssertJUnit.assertEquals(6.9319, location.getLatitude());
+        AssertJUnit.assertEquals(79.8478, location.getLongitude());
+        AssertJUnit.assertEquals("AS9329", location.getAutonomousSystemNumber());
+        location = readEntries.get("255.255.255.255");
+        AssertJUnit.assertEquals(1.5, location.getLatitude());
+        AssertJUnit.assertNull(location.getLongitude());
+        AssertJUnit.assertNull(location.getAutonomousSystemNumber());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testInvalidInput() throws Exception {
+        logger.info("LocationCodec 2 - Test an input in another format is rejected");
+        LocationCodec.read(new DataInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})),
+                (ip, location) -> AssertJUnit.fail("No location is expected"));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Test case for the detection of the dialect of the nearest network query.
+ */
+public class RangeQueryDialectTest {
+
+    private static final Logger logger = Logger.getLogger(RangeQueryDialectTest.class);
+
+    @Test
+    public void testFromProductName() {
+        logger.info("RangeQueryDialectTest TestCase 1");
+        AssertJUnit.assertEquals(RangeQueryDialect.MYSQL, RangeQueryDialect.fromProductName("MySQL"));
+        AssertJUnit.assertEquals(RangeQueryDialect.MYSQL, RangeQueryDialect.fromProductName("MariaDB"));
+        AssertJUnit.assertEquals(RangeQueryDialect.POSTGRESQL, RangeQueryDialect.fromProductName("PostgreSQL"));
+        AssertJUnit.assertEquals(RangeQueryDialect.H2, RangeQueryDialect.fromProductName("H2"));
+        AssertJUnit.assertEquals(RangeQueryDialect.ORACLE, RangeQueryDialect.fromProductName("Oracle"));
+        AssertJUnit.assertEquals(RangeQueryDialect.MSSQL,
+                RangeQueryDialect.fromProductName("Microsoft SQL Server"));
+        AssertJUnit.assertEquals(RangeQueryDialect.DB2, RangeQueryDialect.fromProductName("DB2/LINUXX8664"));
+        AssertJUnit.assertNull(RangeQueryDialect.fromProductName("Apache Derby"));
+        AssertJUnit.assertNull(RangeQueryDialect.fromProductName(null));
+    }
+
+    @Test
+    public void testNearestBlockLocationQuery() {
+        logger.info("RangeQueryDialectTest TestCase 2");
+        for (RangeQueryDialect dialect : RangeQueryDialect.values()) {
+            String query = dialect.getNearestBlockLocationQuery();
+            AssertJUnit.assertTrue(query, query.contains("network <= ?"));
+            AssertJUnit.assertTrue(query, query.contains("ORDER BY network DESC"));
+            AssertJUnit.assertFalse(query, query.contains("BETWEEN"));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c)  2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.extension.siddhi.execution.geo.internal.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for the pinned connections and their cached statements.
+ */
+public class StatementCacheTest {
+
+    private static final Logger logger = Logger.getLogger(StatementCacheTest.class);
+    private static final String SQL = "SELECT country_name FROM LOCATION WHERE geoname_id = ?";
+
+    private final AtomicInteger openedConnections = new AtomicInteger();
+    private final AtomicInteger closedConnections = new AtomicInteger();
+    private final AtomicInteger preparedStatements = new AtomicInteger();
+
+    private Connection connect() {
+        openedConnections.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            preparedStatements.incrementAndGet();
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class[]{PreparedStatement.class}, (statement, statementMethod,
+                                                                           statementArgs) -> null);
+                        case "close":
+                            closedConnections.incrementAndGet();
+                            return null;
+                        case "isValid":
+                            return true;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Test
+    public void testPinnedConnection() throws Exception {
+        logger.info("StatementCache 1 - Test the connection and statements of a thread are reused");
+        openedConnections.set(0);
+        closedConnections.set(0);
+        preparedStatements.set(0);
+        StatementCache statementCache = new StatementCache(this::connect, 1, 0);
+        PreparedStatement statement;
+        try (StatementCache.Lease lease = statementCache.acquire()) {
+            statement = lease.prepareStatement(SQL);
+        }
+        try (StatementCache.Lease lease = statementCache.acquire()) {
+            AssertJUnit.assertSame(statement, lease.prepareStatement(SQL));
+            lease.prepareUncachedStatement(SQL + " OR geoname_id = ?");
+        }
+        AssertJUnit.assertEquals(1, openedConnections.get());
+        AssertJUnit.assertEquals(0, closedConnections.get());
+        AssertJUnit.assertEquals(2, preparedStatements.get());
+        AssertJUnit.assertEquals(1, statementCache.getPinnedConnectionCount());
+
+        // A failed connection is replaced
+        try (StatementCache.Lease lease = statementCache.acquire()) {
+            lease.invalidate();
+        }
+        AssertJUnit.assertEquals(1, closedConnections.get());
+        AssertJUnit.assertEquals(0, statementCache.getPinnedConnectionCount());
+        try (StatementCache.Lease lease = statementCache.acquire()) {
+            AssertJUnit.assertNotSame(statement, lease.prepareStatement(SQL));
+        }
+        AssertJUnit.assertEquals(2, openedConnections.get());
+    }
+
+    @Test
+    public void testUnpinnedConnections() throws Exception {
+        logger.info("StatementCache 2 - Test threads beyond the pinned connections borrow a connection per lookup");
+        openedConnections.set(0);
+        closedConnections.set(0);
+        StatementCache statementCache = new StatementCache(this::connect, 0, 0);
+        for (int i = 0; i < 3; i++) {
+            try (StatementCache.Lease lease = statementCache.acquire()) {
+                lease.prepareStatement(SQL);
+            }
+        }
+        AssertJUnit.assertEquals(3, openedConnections.get());
+        AssertJUnit.assertEquals(3, closedConnections.get());
+        AssertJUnit.assertEquals(0, statementCache.getPinnedConnectionCount());
+    }
+
+    @Test
+    public void testLeasesOfOtherThreads() throws Exception {
+        logger.info("StatementCache 3 - Test the connections pinned to other threads are closed");
+        openedConnections.set(0);
+        closedConnections.set(0);
+        StatementCache statementCache = new StatementCache(this::connect, 2, 0);
+        Thread thread = new Thread(() -> {
+            try (StatementCache.Lease lease = statementCache.acquire()) {
+                lease.prepareStatement(SQL);
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        });
+        thread.start();
+        thread.join();
+        AssertJUnit.assertEquals(1, statementCache.getPinnedConnectionCount());
+        StatementCache.Lease inUseLease = statementCache.acquire();
+        AssertJUnit.assertEquals(2, statementCache.getPinnedConnectionCount());
+
+        // The idle lease of the other thread is closed at once, the one in use when it is closed
+        statementCache.closeAll();
+        AssertJUnit.assertEquals(1, closedConnections.get());
+        AssertJUnit.assertEquals(1, statementCache.getPinnedConnectionCount());
+        inUseLease.close();
+        AssertJUnit.assertEquals(2, closedConnections.get());
+        AssertJUnit.assertEquals(0, statementCache.getPinnedConnectionCount());
+        try (StatementCache.Lease lease = statementCache.acquire()) {
+            AssertJUnit.assertNotSame(inUseLease, lease);
+        }
+        AssertJUnit.assertEquals(3, openedConnections.get());
+    }
+
+    @Test
+    public void testLeasesOfDeadThreads() throws Exception {
+        logger.info("StatementCache 4 - Test the connections pinned to dead threads are reclaimed");
+        openedConnections.set(0);
+        closedConnections.set(0);
+        StatementCache statementCache = new StatementCache(this::connect, 1, 0);
+        Thread thread = new Thread(() -> {
+            try (StatementCache.Lease lease = statementCache.acquire()) {
+                lease.prepareStatement(SQL);
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        });
+        thread.start();
+        thread.join();
+        AssertJUnit.assertEquals(1, statementCache.getPinnedConnectionCount());
+
+        // The current thread takes the place of the dead one, and keeps its connection
+        StatementCache.Lease pinnedLease;
+        try (StatementCache.Lease lease = statementCache.acquire()) {
+            pinnedLease = lease;
+        }
+        AssertJUnit.assertEquals(1, closedConnections.get());
+        AssertJUnit.assertEquals(1, statementCache.getPinnedConnectionCount());
+        try (StatementCache.Lease lease = statementCache.acquire()) {
+            AssertJUnit.assertSame(pinnedLease, lease);
+        }
+        AssertJUnit.assertEquals(2, openedConnections.get());
+        statementCache.closeAll();
+        AssertJUnit.assertEquals(2, closedConnections.get());
+        AssertJUnit.assertEquals(0, statementCache.getPinnedConnectionCount());
+    }
+}
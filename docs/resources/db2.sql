@@ -15,6 +15,7 @@ network_blocks varchar(45) DEFAULT NULL)/
 CREATE INDEX idx_blocks_network ON BLOCKS (network)/
 CREATE INDEX idx_blocks_broadcast ON BLOCKS (broadcast)/
 CREATE INDEX idx_blocks_network_blocks ON BLOCKS (network_blocks)/
+CREATE INDEX idx_blocks_network_range ON BLOCKS (network, broadcast, geoname_id)/
 CREATE TABLE LOCATION (
   geoname_id BIGINT NOT NULL,
   locale_code VARCHAR(10) DEFAULT NULL,
@@ -37,3 +38,6 @@ CREATE TABLE IP_LOCATION (
   city_name VARCHAR(200) DEFAULT NULL,
   PRIMARY KEY (ip)
 )/
+CREATE TABLE GEO_DATA_VERSION (
+  data_version VARCHAR(100) NOT NULL
+)/
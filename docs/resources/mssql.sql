@@ -15,6 +15,7 @@ CREATE TABLE BLOCKS (
 CREATE INDEX idx_blocks_network ON BLOCKS (network);
 CREATE INDEX idx_blocks_broadcast ON BLOCKS (broadcast);
 CREATE INDEX idx_blocks_network_blocks ON BLOCKS (network_blocks);
+CREATE INDEX idx_blocks_network_range ON BLOCKS (network, broadcast, geoname_id);
 
 CREATE TABLE LOCATION (
 	  geoname_id BIGINT NOT NULL,
@@ -38,3 +39,6 @@ CREATE TABLE IP_LOCATION (
 	  city_name VARCHAR(200) DEFAULT NULL,
 	  PRIMARY KEY (ip)
 );
+CREATE TABLE GEO_DATA_VERSION (
+	  data_version VARCHAR(100) NOT NULL
+);
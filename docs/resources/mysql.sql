@@ -14,6 +14,7 @@ CREATE TABLE `BLOCKS` (
 CREATE INDEX idx_blocks_network ON BLOCKS (`network`);
 CREATE INDEX idx_blocks_broadcast ON BLOCKS (`broadcast`);
 CREATE INDEX idx_blocks_network_blocks ON BLOCKS (`network_blocks`);
+CREATE INDEX idx_blocks_network_range ON BLOCKS (`network`, `broadcast`, `geoname_id`);
 CREATE TABLE `LOCATION` (
   `geoname_id` int(10) unsigned NOT NULL,
   `locale_code` varchar(10) DEFAULT NULL,
@@ -34,4 +35,6 @@ CREATE TABLE `IP_LOCATION` (
   `country_name` varchar(200) DEFAULT NULL,
   `city_name` varchar(200) DEFAULT NULL,
   PRIMARY KEY (`ip`));
+CREATE TABLE `GEO_DATA_VERSION` (
+  `data_version` varchar(100) NOT NULL);
 
@@ -15,6 +15,7 @@ network_blocks varchar(45) DEFAULT NULL);
 CREATE INDEX idx_blocks_network ON BLOCKS (network);
 CREATE INDEX idx_blocks_broadcast ON BLOCKS (broadcast);
 CREATE INDEX idx_blocks_network_blocks ON BLOCKS (network_blocks);
+CREATE INDEX idx_blocks_network_range ON BLOCKS (network, broadcast, geoname_id);
 CREATE TABLE LOCATION (
   geoname_id NUMBER(10) NOT NULL,
   locale_code VARCHAR2(10) DEFAULT NULL,
@@ -36,4 +37,7 @@ CREATE TABLE IP_LOCATION (
   country_name VARCHAR2(200) DEFAULT NULL,
   city_name VARCHAR2(200) DEFAULT NULL,
   PRIMARY KEY (ip)
+);
+CREATE TABLE GEO_DATA_VERSION (
+  data_version VARCHAR2(100) NOT NULL
 );
\ No newline at end of file
@@ -16,6 +16,7 @@ network_blocks varchar(45) DEFAULT NULL);
 CREATE INDEX idx_blocks_network ON BLOCKS (network);
 CREATE INDEX idx_blocks_broadcast ON BLOCKS (broadcast);
 CREATE INDEX idx_blocks_network_blocks ON BLOCKS (network_blocks);
+CREATE INDEX idx_blocks_network_range ON BLOCKS (network, broadcast, geoname_id);
 CREATE TABLE LOCATION (
   geoname_id int NOT NULL,
   locale_code varchar(10) DEFAULT NULL,
@@ -39,4 +40,7 @@ CREATE TABLE IP_LOCATION (
   PRIMARY KEY (ip),
   CONSTRAINT ip_UNIQUE UNIQUE  (ip)
 );
+CREATE TABLE GEO_DATA_VERSION (
+  data_version varchar(100) NOT NULL
+);
 commit;
\ No newline at end of file